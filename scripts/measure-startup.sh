@@ -0,0 +1,67 @@
+#!/usr/bin/env bash
+#
+# Measures time-to-first-response of the application: the wall-clock time from launching
+# the JVM until GET /api/users first answers with HTTP 200.
+#
+# Compares the default setup (plain fat jar, ddl-auto=update) with the fast-start setup
+# (AOT-processed, extracted jar, CDS archive, schema validation only).
+#
+# Usage:
+#   ./mvnw -Pfast-start -DskipTests package
+#   scripts/measure-startup.sh [runs] [port]
+#
+set -euo pipefail
+
+RUNS="${1:-5}"
+PORT="${2:-18080}"
+TARGET_DIR="$(cd "$(dirname "$0")/.." && pwd)/target"
+JAR_NAME="crud-app-0.0.1-SNAPSHOT.jar"
+URL="http://localhost:${PORT}/api/users"
+
+if [[ ! -f "${TARGET_DIR}/faststart/application.jsa" ]]; then
+    echo "CDS archive not found. Build first with: ./mvnw -Pfast-start -DskipTests package" >&2
+    exit 1
+fi
+
+now_ms() {
+    date +%s%3N
+}
+
+# Starts the application with the given arguments and prints the milliseconds until the first 200 response.
+measure_once() {
+    local start end pid
+    start=$(now_ms)
+    java "$@" --server.port="${PORT}" > /dev/null 2>&1 &
+    pid=$!
+    until curl -sf -o /dev/null "${URL}"; do
+        if ! kill -0 "${pid}" 2> /dev/null; then
+            echo "Application exited before serving a request" >&2
+            return 1
+        fi
+        sleep 0.01
+    done
+    end=$(now_ms)
+    kill "${pid}"
+    wait "${pid}" 2> /dev/null || true
+    echo $((end - start))
+}
+
+# Runs a setup RUNS times and prints every sample plus the median.
+measure() {
+    local label="$1"
+    shift
+    local samples=()
+    for ((i = 1; i <= RUNS; i++)); do
+        samples+=("$(measure_once "$@")")
+    done
+    local median
+    median=$(printf '%s\n' "${samples[@]}" | sort -n | awk '{a[NR]=$1} END {print (NR % 2) ? a[(NR+1)/2] : int((a[NR/2] + a[NR/2+1]) / 2)}')
+    printf '%-10s samples(ms): %s  median: %s ms\n' "${label}" "${samples[*]}" "${median}"
+}
+
+measure "default" -jar "${TARGET_DIR}/${JAR_NAME}"
+measure "faststart" \
+    -XX:SharedArchiveFile="${TARGET_DIR}/faststart/application.jsa" \
+    -Dspring.aot.enabled=true \
+    -Dspring.profiles.active=faststart \
+    -jar "${TARGET_DIR}/faststart/${JAR_NAME}"
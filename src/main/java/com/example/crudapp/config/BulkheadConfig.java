@@ -0,0 +1,40 @@
+package com.example.crudapp.config;
+
+import com.example.crudapp.resilience.Bulkhead;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Splits the request threads into bulkheads, so a slow weather upstream and the user endpoints cannot
+ * starve each other: upstream weather work runs in the weather bulkhead, user service calls in the user bulkhead.
+ * Together they should stay below the server's thread count.
+ */
+@Configuration
+public class BulkheadConfig {
+
+    @Bean
+    public Bulkhead weatherBulkhead(
+            MeterRegistry meterRegistry,
+            @Value("${app.bulkhead.weather.max-concurrent:40}") int maxConcurrent,
+            @Value("${app.bulkhead.weather.queue-size:20}") int queueSize,
+            @Value("${app.bulkhead.weather.queue-timeout-ms:200}") long queueTimeoutMs,
+            @Value("${app.bulkhead.weather.rejection-policy:abort}") String rejectionPolicy,
+            @Value("${app.bulkhead.weather.max-overflow:0}") int maxOverflow) {
+        return new Bulkhead("weather.bulkhead", meterRegistry, maxConcurrent, queueSize, queueTimeoutMs,
+                Bulkhead.RejectionPolicy.parse(rejectionPolicy), maxOverflow);
+    }
+
+    @Bean
+    public Bulkhead userBulkhead(
+            MeterRegistry meterRegistry,
+            @Value("${app.bulkhead.users.max-concurrent:100}") int maxConcurrent,
+            @Value("${app.bulkhead.users.queue-size:50}") int queueSize,
+            @Value("${app.bulkhead.users.queue-timeout-ms:1000}") long queueTimeoutMs,
+            @Value("${app.bulkhead.users.rejection-policy:abort}") String rejectionPolicy,
+            @Value("${app.bulkhead.users.max-overflow:0}") int maxOverflow) {
+        return new Bulkhead("users.bulkhead", meterRegistry, maxConcurrent, queueSize, queueTimeoutMs,
+                Bulkhead.RejectionPolicy.parse(rejectionPolicy), maxOverflow);
+    }
+}
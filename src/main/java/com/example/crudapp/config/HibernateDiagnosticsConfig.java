@@ -0,0 +1,32 @@
+package com.example.crudapp.config;
+
+import com.example.crudapp.diagnostics.StatementCountGuardFilter;
+import com.example.crudapp.diagnostics.StatementCountingInspector;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Wires the database diagnostics: the per-request statement counter and its guard filter.
+ * Hibernate statistics and the slow-query log are enabled in application.properties.
+ */
+@Configuration
+public class HibernateDiagnosticsConfig {
+
+    @Bean
+    public HibernatePropertiesCustomizer statementCountingCustomizer() {
+        return properties -> properties.put(AvailableSettings.STATEMENT_INSPECTOR, new StatementCountingInspector());
+    }
+
+    @Bean
+    public FilterRegistrationBean<StatementCountGuardFilter> statementCountGuardFilter(
+            @Value("${app.db.max-statements-per-request:20}") int maxStatementsPerRequest) {
+        FilterRegistrationBean<StatementCountGuardFilter> registration =
+                new FilterRegistrationBean<>(new StatementCountGuardFilter(maxStatementsPerRequest));
+        registration.addUrlPatterns("/api/*");
+        return registration;
+    }
+}
@@ -0,0 +1,75 @@
+package com.example.crudapp.config;
+
+import com.example.crudapp.event.UserChangeVersions;
+import com.example.crudapp.replication.ReadWriteRoutingDataSource;
+import com.example.crudapp.replication.ReadYourWritesFilter;
+import com.example.crudapp.replication.ReplicaSynchronizer;
+import com.zaxxer.hikari.HikariDataSource;
+import jakarta.persistence.EntityManagerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Wires read replicas when {@code app.db.replicas.count} is positive: read-only transactions are routed
+ * to in-memory H2 replicas kept in sync by {@link ReplicaSynchronizer}, and writes go to the primary
+ * configured by the usual {@code spring.datasource.*} properties.
+ */
+@Configuration
+@ConditionalOnExpression("${app.db.replicas.count:0} > 0")
+public class ReadReplicaConfig {
+
+    private static final AtomicInteger INSTANCES = new AtomicInteger();
+
+    @Bean
+    public ReadWriteRoutingDataSource readWriteRoutingDataSource(
+            DataSourceProperties properties,
+            @Value("${app.db.replicas.count}") int replicaCount,
+            @Value("${app.db.replicas.load-balancing:round-robin}") ReadWriteRoutingDataSource.LoadBalancing loadBalancing) {
+        HikariDataSource primary = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        primary.setPoolName("primary");
+        int instance = INSTANCES.incrementAndGet();
+        List<DataSource> replicas = new ArrayList<>();
+        for (int i = 0; i < replicaCount; i++) {
+            HikariDataSource replica = new HikariDataSource();
+            replica.setPoolName("replica-" + i);
+            replica.setJdbcUrl("jdbc:h2:mem:replica_" + instance + "_" + i + ";DB_CLOSE_DELAY=-1");
+            replica.setUsername("sa");
+            replica.setPassword("");
+            replicas.add(replica);
+        }
+        return new ReadWriteRoutingDataSource(primary, replicas, loadBalancing);
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(ReadWriteRoutingDataSource readWriteRoutingDataSource) {
+        return new LazyConnectionDataSourceProxy(readWriteRoutingDataSource);
+    }
+
+    // Depends on the EntityManagerFactory, so the primary schema exists before the first copy
+    @Bean
+    public ReplicaSynchronizer replicaSynchronizer(ReadWriteRoutingDataSource readWriteRoutingDataSource,
+                                                   EntityManagerFactory entityManagerFactory,
+                                                   UserChangeVersions userChangeVersions) {
+        return new ReplicaSynchronizer(readWriteRoutingDataSource, userChangeVersions);
+    }
+
+    @Bean
+    public FilterRegistrationBean<ReadYourWritesFilter> readYourWritesFilter(
+            @Value("${app.db.replicas.sticky-window-ms:5000}") long stickyWindowMs) {
+        FilterRegistrationBean<ReadYourWritesFilter> registration = new FilterRegistrationBean<>(new ReadYourWritesFilter(stickyWindowMs));
+        registration.addUrlPatterns("/api/*");
+        return registration;
+    }
+}
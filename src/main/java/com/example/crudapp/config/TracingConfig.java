@@ -0,0 +1,28 @@
+package com.example.crudapp.config;
+
+import com.example.crudapp.tracing.TraceBuffer;
+import com.example.crudapp.tracing.TracingFilter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+
+/**
+ * Wires request tracing: the filter that traces each API request into the {@link TraceBuffer}.
+ * Stages are timed by spans in the weather code and by the user tracing aspect.
+ */
+@Configuration
+public class TracingConfig {
+
+    @Bean
+    public FilterRegistrationBean<TracingFilter> tracingFilter(TraceBuffer traceBuffer,
+                                                               @Value("${app.tracing.enabled:true}") boolean enabled) {
+        FilterRegistrationBean<TracingFilter> registration = new FilterRegistrationBean<>(new TracingFilter(traceBuffer));
+        registration.addUrlPatterns("/api/*");
+        // Outermost, so the trace covers the other filters as well
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE);
+        registration.setEnabled(enabled);
+        return registration;
+    }
+}
@@ -0,0 +1,48 @@
+package com.example.crudapp.config;
+
+import com.example.crudapp.resilience.AdaptiveConcurrencyLimiter;
+import com.example.crudapp.resilience.RequestHedger;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Protects the application from a slow weather upstream, so pending weather requests cannot tie up
+ * the request threads that every other endpoint needs, and cuts its tail latency with hedged requests.
+ */
+@Configuration
+public class WeatherResilienceConfig {
+
+    @Bean
+    public AdaptiveConcurrencyLimiter weatherConcurrencyLimiter(
+            MeterRegistry meterRegistry,
+            @Value("${app.weather.concurrency.initial-limit:20}") int initialLimit,
+            @Value("${app.weather.concurrency.min-limit:2}") int minLimit,
+            @Value("${app.weather.concurrency.max-limit:200}") int maxLimit,
+            @Value("${app.weather.concurrency.latency-threshold-ms:2000}") long latencyThresholdMs,
+            @Value("${app.weather.concurrency.backoff-ratio:0.9}") double backoffRatio) {
+        return new AdaptiveConcurrencyLimiter("weather.concurrency", meterRegistry,
+                initialLimit, minLimit, maxLimit, latencyThresholdMs, backoffRatio);
+    }
+
+    @Bean(destroyMethod = "shutdown")
+    public RequestHedger weatherRequestHedger(
+            MeterRegistry meterRegistry,
+            @Value("${app.weather.hedging.enabled:false}") boolean enabled,
+            @Value("${app.weather.hedging.percentile:0.9}") double percentile,
+            @Value("${app.weather.hedging.min-delay-ms:50}") long minDelayMs,
+            @Value("${app.weather.hedging.budget-percent:10}") int budgetPercent,
+            @Value("${app.weather.hedging.window-size:200}") int windowSize,
+            @Value("${app.weather.hedging.max-threads:64}") int maxThreads) {
+        // No queue: when every thread is busy the call runs on the request thread, unhedged
+        ThreadPoolExecutor executor = !enabled ? null : new ThreadPoolExecutor(0, maxThreads, 60, TimeUnit.SECONDS,
+                new SynchronousQueue<>(), new CustomizableThreadFactory("weather-hedge-"));
+        return new RequestHedger("weather.hedging", meterRegistry, executor, enabled, percentile, minDelayMs, budgetPercent, windowSize);
+    }
+}
@@ -0,0 +1,63 @@
+package com.example.crudapp.controller;
+
+import com.example.crudapp.exception.ApiException;
+import jakarta.servlet.http.HttpServletRequest;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+
+import java.util.Map;
+
+/**
+ * Maps expected failures to error responses with an {@code {"error": "..."}} body, so controllers
+ * no longer catch and translate exceptions themselves.
+ * <p>
+ * {@link ApiException}s carry their own status; {@link IllegalArgumentException}s from request validation
+ * become HTTP status BAD_REQUEST, and constraint violations such as a duplicate email HTTP status CONFLICT.
+ * Client errors are logged at debug level only, so scrapers and clients with stale IDs cannot flood
+ * the log. Anything else is left to Spring's default handling, which logs the stack trace and responds
+ * with HTTP status INTERNAL_SERVER_ERROR.
+ */
+@RestControllerAdvice
+public class ApiExceptionHandler {
+
+    private static final Logger logger = LoggerFactory.getLogger(ApiExceptionHandler.class);
+
+    @ExceptionHandler(ApiException.class)
+    public ResponseEntity<Map<String, String>> handleApiException(ApiException e, HttpServletRequest request) {
+        if (e.getStatus().is5xxServerError()) {
+            logger.warn("{} {} - {} Responding with status {}.", request.getMethod(), request.getRequestURI(),
+                    e.getMessage(), e.getStatus().value());
+        } else if (logger.isDebugEnabled()) {
+            logger.debug("{} {} - {} Responding with status {}.", request.getMethod(), request.getRequestURI(),
+                    e.getMessage(), e.getStatus().value());
+        }
+        ResponseEntity.BodyBuilder response = ResponseEntity.status(e.getStatus());
+        if (e.getRetryAfterSeconds() != null) {
+            response.header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()));
+        }
+        return response.body(Map.of("error", e.getClientMessage()));
+    }
+
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<Map<String, String>> handleIllegalArgument(IllegalArgumentException e, HttpServletRequest request) {
+        if (logger.isDebugEnabled()) {
+            logger.debug("{} {} - {} Responding with status 400.", request.getMethod(), request.getRequestURI(), e.getMessage());
+        }
+        return ResponseEntity.badRequest().body(Map.of("error", String.valueOf(e.getMessage())));
+    }
+
+    @ExceptionHandler(DataIntegrityViolationException.class)
+    public ResponseEntity<Map<String, String>> handleDataIntegrityViolation(DataIntegrityViolationException e, HttpServletRequest request) {
+        if (logger.isDebugEnabled()) {
+            logger.debug("{} {} - {} Responding with status 409.", request.getMethod(), request.getRequestURI(), e.getMostSpecificCause().getMessage());
+        }
+        // The database message names tables and constraints, so it is not sent to the client
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of("error", "The request conflicts with an existing user."));
+    }
+}
@@ -0,0 +1,86 @@
+package com.example.crudapp.controller;
+
+import com.example.crudapp.dto.user.UserChangeFeedDto;
+import com.example.crudapp.exception.ChangeCursorExpiredException;
+import com.example.crudapp.service.UserChangeLog;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.Map;
+
+/**
+ * REST controller for the incremental user change feed.
+ * Lets downstream caches sync by cursor, either by polling or over Server-Sent Events,
+ * instead of re-downloading the full user list.
+ */
+@RestController
+@RequestMapping("/api/users/changes")
+public class UserChangeFeedController {
+
+    private static final Logger logger = LoggerFactory.getLogger(UserChangeFeedController.class);
+    private static final int MAX_PAGE_SIZE = 5000;
+    private final UserChangeLog userChangeLog;
+    private final long streamTimeoutMs;
+
+    /**
+     * Constructs a UserChangeFeedController.
+     * @param userChangeLog The change log to read from.
+     * @param streamTimeoutMs How long an SSE stream stays open before the client has to reconnect.
+     */
+    @Autowired
+    public UserChangeFeedController(UserChangeLog userChangeLog,
+                                    @Value("${app.users.changes.stream-timeout-ms:1800000}") long streamTimeoutMs) {
+        this.userChangeLog = userChangeLog;
+        this.streamTimeoutMs = streamTimeoutMs;
+    }
+
+    /**
+     * Retrieves the user changes recorded after a cursor.
+     * Without a cursor, only the current cursor is returned; clients load the full list once and then poll with it.
+     * @param since The cursor from the previous response.
+     * @param limit The maximum number of changes to return (default 500, at most 5000).
+     * @return A ResponseEntity containing the changes and the next cursor and HTTP status OK,
+     *         HTTP status BAD_REQUEST if the limit is not positive,
+     *         or HTTP status GONE if the cursor has expired and the client must reload the full list.
+     */
+    @GetMapping
+    public ResponseEntity<?> getChanges(@RequestParam(value = "since", required = false) Long since,
+                                        @RequestParam(value = "limit", defaultValue = "500") int limit) {
+        logger.info("GET /api/users/changes - Received request for changes since {} (limit {}).", since, limit);
+        if (limit <= 0) {
+            return ResponseEntity.badRequest().body(Map.of("error", "Limit must be positive."));
+        }
+        // An expired cursor is answered with HTTP status GONE by ApiExceptionHandler
+        UserChangeFeedDto feed = userChangeLog.read(since, Math.min(limit, MAX_PAGE_SIZE));
+        logger.info("GET /api/users/changes - Returning {} changes, cursor {}.", feed.getChanges().size(), feed.getCursor());
+        return ResponseEntity.ok(feed);
+    }
+
+    /**
+     * Streams user changes as Server-Sent Events, replaying the changes after the cursor first.
+     * A reconnecting client may pass its last seen sequence in the Last-Event-ID header instead of 'since'.
+     * @param since The cursor to replay from.
+     * @param lastEventId The standard SSE reconnection header.
+     * @return The event stream, or HTTP status GONE if the cursor has expired.
+     */
+    @GetMapping("/stream")
+    public ResponseEntity<SseEmitter> streamChanges(@RequestParam(value = "since", required = false) Long since,
+                                                    @RequestHeader(value = "Last-Event-ID", required = false) Long lastEventId) {
+        Long cursor = since != null ? since : lastEventId;
+        logger.info("GET /api/users/changes/stream - New subscriber from cursor {}.", cursor);
+        SseEmitter emitter = new SseEmitter(streamTimeoutMs);
+        try {
+            userChangeLog.subscribe(cursor, emitter);
+        } catch (ChangeCursorExpiredException e) {
+            logger.warn("GET /api/users/changes/stream - {} Responding with status 410.", e.getMessage());
+            return ResponseEntity.status(HttpStatus.GONE).build();
+        }
+        return ResponseEntity.ok(emitter);
+    }
+}
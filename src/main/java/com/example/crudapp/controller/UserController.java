@@ -1,13 +1,24 @@
 package com.example.crudapp.controller;
 
+import com.example.crudapp.dto.user.UserCreationStatusDto;
+import com.example.crudapp.dto.user.UserFieldSet;
+import com.example.crudapp.dto.user.UserStatsDto;
+import com.example.crudapp.dto.user.UserUpsertResultDto;
 import com.example.crudapp.model.User;
+import com.example.crudapp.service.IdempotencyStore;
 import com.example.crudapp.service.UserService;
+import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.IOException;
+import java.net.URI;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -21,53 +32,185 @@ import org.slf4j.LoggerFactory;
 public class UserController {
 
     private static final Logger logger = LoggerFactory.getLogger(UserController.class);
+    private static final String RESPOND_ASYNC = "respond-async";
+    private static final int MAX_STATS_DOMAINS = 1000;
     private final UserService userService;
+    private final IdempotencyStore idempotencyStore;
 
     /**
      * Constructs a UserController with the specified UserService.
      * @param userService The service to manage user data.
+     * @param idempotencyStore The store of recent idempotency keys for user creation.
      */
     @Autowired
-    public UserController(UserService userService) {
+    public UserController(UserService userService, IdempotencyStore idempotencyStore) {
         this.userService = userService;
+        this.idempotencyStore = idempotencyStore;
     }
 
     /**
      * Creates a new user.
+     * If asynchronous creation is enabled and the client sends {@code Prefer: respond-async}, the user is
+     * queued for a batched background insert and the response is 202 Accepted with a Location header
+     * pointing at the creation status resource.
+     * <p>
+     * With an {@code Idempotency-Key} header, a retried request receives the stored response of the first
+     * request with that key instead of creating the user again; concurrent duplicates wait for the first.
      * @param user The user object to create.
-     * @return A ResponseEntity containing the created user and HTTP status CREATED.
+     * @param prefer The optional Prefer header.
+     * @param idempotencyKey The optional Idempotency-Key header.
+     * @return A ResponseEntity containing the created user and HTTP status CREATED,
+     *         the accepted user (with its reserved ID) and HTTP status ACCEPTED,
+     *         HTTP status UNPROCESSABLE_ENTITY if the idempotency key was used for a different request,
+     *         HTTP status CONFLICT if the first request with the idempotency key is still running,
+     *         or HTTP status SERVICE_UNAVAILABLE if the asynchronous queue or the idempotency store is full.
      */
     @PostMapping
-    public ResponseEntity<User> createUser(@RequestBody User user) {
+    public ResponseEntity<User> createUser(@RequestBody User user,
+                                           @RequestHeader(value = "Prefer", required = false) String prefer,
+                                           @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey) {
         logger.info("POST /api/users - Received request to create user with email: '{}'", user.getEmail());
+        if (idempotencyKey == null) {
+            return doCreateUser(user, prefer);
+        }
+        String fingerprint = user.getName() + '\u0000' + user.getEmail() + '\u0000' + isAsyncRequested(prefer);
+        return idempotencyStore.execute(idempotencyKey, fingerprint, () -> doCreateUser(user, prefer));
+    }
+
+    private ResponseEntity<User> doCreateUser(User user, String prefer) {
+        if (isAsyncRequested(prefer) && userService.isAsyncCreateEnabled()) {
+            User acceptedUser = userService.createUserAsync(user);
+            logger.info("POST /api/users - Accepted user with reserved ID: {}. Responding with status 202.", acceptedUser.getId());
+            return ResponseEntity.accepted()
+                    .location(URI.create("/api/users/" + acceptedUser.getId() + "/status"))
+                    .body(acceptedUser);
+        }
         User createdUser = userService.createUser(user);
         logger.info("POST /api/users - Successfully created user with ID: {}. Responding with status 201.", createdUser.getId());
         return new ResponseEntity<>(createdUser, HttpStatus.CREATED);
     }
 
+    private static boolean isAsyncRequested(String prefer) {
+        return prefer != null && prefer.contains(RESPOND_ASYNC);
+    }
+
+    /**
+     * Retrieves the creation status of a user accepted for asynchronous creation.
+     * @param id The reserved ID of the user.
+     * @return A ResponseEntity containing the status (PENDING, CREATED or FAILED) and HTTP status OK,
+     *         or HTTP status NOT_FOUND if the ID is unknown.
+     */
+    @GetMapping("/{id}/status")
+    public ResponseEntity<UserCreationStatusDto> getCreationStatus(@PathVariable Long id) {
+        logger.info("GET /api/users/{}/status - Received request for creation status.", id);
+        return userService.getCreationStatus(id)
+                .map(status -> new ResponseEntity<>(status, HttpStatus.OK))
+                .orElseGet(() -> {
+                    logger.warn("GET /api/users/{}/status - Unknown user ID. Responding with status 404.", id);
+                    return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+                });
+    }
+
+    /**
+     * Retrieves all users as pre-encoded JSON through {@link UserService#writeAllUsers(java.io.OutputStream)},
+     * without querying the database.
+     * Selected for JSON requests without {@code ?fields=}; other formats and sparse fieldsets are served
+     * by {@link #getAllUsers(String)}.
+     * @param response The response the JSON array is written to, with HTTP status OK.
+     * @throws IOException if writing the response fails.
+     */
+    @GetMapping(params = "!fields", produces = MediaType.APPLICATION_JSON_VALUE)
+    public void getAllUsersSnapshot(HttpServletResponse response) throws IOException {
+        logger.info("GET /api/users - Received request to retrieve all users.");
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        int count = userService.writeAllUsers(response.getOutputStream());
+        logger.info("GET /api/users - Served {} users from the snapshot. Responding with status 200.", count);
+    }
+
     /**
      * Retrieves all users.
-     * @return A ResponseEntity containing a list of all users and HTTP status OK.
+     * With {@code ?fields=}, e.g. {@code ?fields=id,name}, only the requested fields (and always the ID)
+     * are selected from the database and returned.
+     * @param fields The optional comma-separated list of fields to return.
+     * @return A ResponseEntity containing a list of all users and HTTP status OK,
+     *         or HTTP status BAD_REQUEST if an unknown field is requested.
      */
     @GetMapping
-    public ResponseEntity<List<User>> getAllUsers() {
-        logger.info("GET /api/users - Received request to retrieve all users.");
-        List<User> users = userService.getAllUsers();
+    public ResponseEntity<?> getAllUsers(@RequestParam(value = "fields", required = false) String fields) {
+        logger.info("GET /api/users - Received request to retrieve all users (fields: {}).", fields);
+        UserFieldSet fieldSet = fields == null ? null : UserFieldSet.parse(fields);
+        List<?> users = fieldSet == null ? userService.getAllUsers() : userService.getAllUsers(fieldSet.getProjection());
         logger.info("GET /api/users - Retrieved {} users. Responding with status 200.", users.size());
         return new ResponseEntity<>(users, HttpStatus.OK);
     }
 
+    /**
+     * Counts all users.
+     * @return A ResponseEntity containing the number of users and HTTP status OK.
+     */
+    @GetMapping("/count")
+    public ResponseEntity<Map<String, Long>> countUsers() {
+        logger.info("GET /api/users/count - Received request to count users.");
+        long count = userService.countUsers();
+        logger.info("GET /api/users/count - Counted {} users. Responding with status 200.", count);
+        return ResponseEntity.ok(Map.of("count", count));
+    }
+
+    /**
+     * Reports aggregate user statistics for dashboards, without querying the database or loading users.
+     * @param domains The maximum number of email domains to list, largest first (default 20, at most 1000).
+     * @return A ResponseEntity containing the total number of users, the users per email domain and the number
+     *         of users created per time bucket, and HTTP status OK,
+     *         or HTTP status BAD_REQUEST if the number of domains is not positive.
+     */
+    @GetMapping("/stats")
+    public ResponseEntity<UserStatsDto> getUserStats(@RequestParam(value = "domains", defaultValue = "20") int domains) {
+        logger.info("GET /api/users/stats - Received request for user statistics (domains: {}).", domains);
+        if (domains <= 0) {
+            throw new IllegalArgumentException("The number of domains must be positive.");
+        }
+        UserStatsDto stats = userService.getStats(Math.min(domains, MAX_STATS_DOMAINS));
+        logger.info("GET /api/users/stats - {} users in {} email domains. Responding with status 200.",
+                stats.getTotalUsers(), stats.getEmailDomainCount());
+        return ResponseEntity.ok(stats);
+    }
+
+    /**
+     * Searches users by a case-insensitive prefix or substring of their name or email.
+     * @param query The text to search for.
+     * @param limit The maximum number of results (default 20, at most 100).
+     * @return A ResponseEntity containing the matching users, best match first, and HTTP status OK,
+     *         or HTTP status BAD_REQUEST if the query is empty or the limit is not positive.
+     */
+    @GetMapping("/search")
+    public ResponseEntity<List<User>> searchUsers(@RequestParam("q") String query,
+                                                  @RequestParam(value = "limit", defaultValue = "20") int limit) {
+        logger.info("GET /api/users/search - Received request to search users for '{}' (limit {}).", query, limit);
+        if (query == null || query.trim().isEmpty() || limit <= 0) {
+            logger.warn("GET /api/users/search - Invalid query or limit. Responding with status 400.");
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+        List<User> users = userService.searchUsers(query, limit);
+        logger.info("GET /api/users/search - Found {} users. Responding with status 200.", users.size());
+        return new ResponseEntity<>(users, HttpStatus.OK);
+    }
+
     /**
      * Retrieves a user by their ID.
      * @param id The ID of the user to retrieve.
+     * @param fields The optional comma-separated list of fields to return, as for {@link #getAllUsers(String)}.
      * @return A ResponseEntity containing the user if found and HTTP status OK,
+     *         HTTP status BAD_REQUEST if an unknown field is requested,
      *         or HTTP status NOT_FOUND if the user is not found.
      */
     @GetMapping("/{id}")
-    public ResponseEntity<User> getUserById(@PathVariable Long id) {
-        logger.info("GET /api/users/{} - Received request to retrieve user.", id);
-        return userService.getUserById(id)
-                .map(user -> {
+    public ResponseEntity<?> getUserById(@PathVariable Long id,
+                                         @RequestParam(value = "fields", required = false) String fields) {
+        logger.info("GET /api/users/{} - Received request to retrieve user (fields: {}).", id, fields);
+        UserFieldSet fieldSet = fields == null ? null : UserFieldSet.parse(fields);
+        Optional<?> found = fieldSet == null ? userService.getUserById(id) : userService.getUserById(id, fieldSet.getProjection());
+        return found
+                .<ResponseEntity<?>>map(user -> {
                     logger.info("GET /api/users/{} - User found. Responding with status 200.", id);
                     return new ResponseEntity<>(user, HttpStatus.OK);
                 })
@@ -82,37 +225,67 @@ public class UserController {
      * @param id The ID of the user to update.
      * @param userDetails The user object containing updated details.
      * @return A ResponseEntity containing the updated user and HTTP status OK,
-     *         or HTTP status NOT_FOUND if the user is not found.
+     *         HTTP status BAD_REQUEST if the details are invalid,
+     *         or HTTP status NOT_FOUND (via {@link ApiExceptionHandler}) if the user is not found.
      */
     @PutMapping("/{id}")
     public ResponseEntity<User> updateUser(@PathVariable Long id, @RequestBody User userDetails) {
         logger.info("PUT /api/users/{} - Received request to update user with email: '{}'", id, userDetails.getEmail());
-        try {
-            User updatedUser = userService.updateUser(id, userDetails);
-            logger.info("PUT /api/users/{} - User updated successfully. Responding with status 200.", id);
-            return new ResponseEntity<>(updatedUser, HttpStatus.OK);
-        } catch (RuntimeException e) { // Catching RuntimeException from service for now
-            logger.warn("PUT /api/users/{} - Update failed, user not found. Responding with status 404.", id);
-            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        User updatedUser = userService.updateUser(id, userDetails);
+        logger.info("PUT /api/users/{} - User updated successfully. Responding with status 200.", id);
+        return new ResponseEntity<>(updatedUser, HttpStatus.OK);
+    }
+
+    /**
+     * Creates or updates the user with an email, in a single statement that is safe under concurrent writers.
+     * @param email The email of the user.
+     * @param userDetails The user object containing the name; its email, if set, must match the path.
+     * @return A ResponseEntity containing the user and HTTP status CREATED with a Location header if it was created,
+     *         the user and HTTP status OK if an existing user was updated,
+     *         or HTTP status BAD_REQUEST if the details are invalid.
+     */
+    @PutMapping("/by-email/{email}")
+    public ResponseEntity<User> upsertUserByEmail(@PathVariable String email, @RequestBody User userDetails) {
+        logger.info("PUT /api/users/by-email/{} - Received request to upsert user.", email);
+        if (userDetails.getEmail() != null && !userDetails.getEmail().equals(email)) {
+            throw new IllegalArgumentException("The email in the body must match the email in the path.");
+        }
+        UserUpsertResultDto result = userService.upsertUsersByEmail(List.of(new User(userDetails.getName(), email))).get(0);
+        User user = new User(result.getId(), result.getName(), result.getEmail());
+        if (result.isCreated()) {
+            logger.info("PUT /api/users/by-email/{} - Created user with ID: {}. Responding with status 201.", email, user.getId());
+            return ResponseEntity.created(URI.create("/api/users/" + user.getId())).body(user);
         }
+        logger.info("PUT /api/users/by-email/{} - Updated user with ID: {}. Responding with status 200.", email, user.getId());
+        return new ResponseEntity<>(user, HttpStatus.OK);
+    }
+
+    /**
+     * Creates or updates a batch of users by email, all in a single statement.
+     * If an email appears more than once, its last occurrence wins.
+     * @param users The users, each with a name and an email; at most 1000.
+     * @return A ResponseEntity containing one result per distinct email, telling whether the user was created,
+     *         and HTTP status OK, or HTTP status BAD_REQUEST if the batch is invalid.
+     */
+    @PutMapping("/by-email")
+    public ResponseEntity<List<UserUpsertResultDto>> upsertUsersByEmail(@RequestBody List<User> users) {
+        logger.info("PUT /api/users/by-email - Received request to upsert {} users.", users.size());
+        List<UserUpsertResultDto> results = userService.upsertUsersByEmail(users);
+        logger.info("PUT /api/users/by-email - Upserted {} users. Responding with status 200.", results.size());
+        return new ResponseEntity<>(results, HttpStatus.OK);
     }
 
     /**
      * Deletes a user by their ID.
      * @param id The ID of the user to delete.
      * @return A ResponseEntity with HTTP status NO_CONTENT if successful,
-     *         or HTTP status NOT_FOUND if the user is not found.
+     *         or HTTP status NOT_FOUND (via {@link ApiExceptionHandler}) if the user is not found.
      */
     @DeleteMapping("/{id}")
     public ResponseEntity<HttpStatus> deleteUser(@PathVariable Long id) {
         logger.info("DELETE /api/users/{} - Received request to delete user.", id);
-        try {
-            userService.deleteUser(id);
-            logger.info("DELETE /api/users/{} - User deleted successfully. Responding with status 204.", id);
-            return new ResponseEntity<>(HttpStatus.NO_CONTENT);
-        } catch (RuntimeException e) { // Catching RuntimeException from service for now
-            logger.warn("DELETE /api/users/{} - Delete failed, user not found. Responding with status 404.", id);
-            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
-        }
+        userService.deleteUser(id);
+        logger.info("DELETE /api/users/{} - User deleted successfully. Responding with status 204.", id);
+        return new ResponseEntity<>(HttpStatus.NO_CONTENT);
     }
 }
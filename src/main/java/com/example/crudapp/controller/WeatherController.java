@@ -1,20 +1,25 @@
 package com.example.crudapp.controller;
 
-import com.example.crudapp.dto.weather.DailyWeatherReportDto;
+import com.example.crudapp.dto.weather.ForecastPart;
+import com.example.crudapp.dto.weather.UnitSystem;
+import com.example.crudapp.service.ForecastResponseCache;
 import com.example.crudapp.service.WeatherService;
+import com.example.crudapp.service.WeatherForecastStreams;
+import com.example.crudapp.tracing.RequestTrace;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.http.HttpStatus;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
-import org.springframework.web.client.HttpClientErrorException;
-import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
-import java.util.Collections;
-import java.util.List;
 import java.util.Map;
-import com.example.crudapp.exception.ApiKeyNotConfiguredException;
+import java.util.Set;
+import java.util.function.Function;
 
 @RestController
 @RequestMapping("/api/weather")
@@ -22,42 +27,115 @@ public class WeatherController {
 
     private static final Logger logger = LoggerFactory.getLogger(WeatherController.class);
     private final WeatherService weatherService;
+    private final ForecastResponseCache forecastResponseCache;
+    private final WeatherForecastStreams forecastStreams;
+    private final long streamTimeoutMs;
 
     @Autowired
-    public WeatherController(WeatherService weatherService) {
+    public WeatherController(WeatherService weatherService,
+                             ForecastResponseCache forecastResponseCache,
+                             WeatherForecastStreams forecastStreams,
+                             @Value("${app.weather.stream.timeout-ms:1800000}") long streamTimeoutMs) {
         this.weatherService = weatherService;
+        this.forecastResponseCache = forecastResponseCache;
+        this.forecastStreams = forecastStreams;
+        this.streamTimeoutMs = streamTimeoutMs;
     }
 
+    /**
+     * Streams the forecast of a zipcode as Server-Sent Events. A "forecast" event carrying the list of
+     * daily reports is sent on subscription, once known, and again whenever the forecast changes.
+     * All subscribers of a zipcode share one upstream refresh loop.
+     * @param zipcode The 5-digit US zipcode.
+     * @return The event stream, or HTTP status BAD_REQUEST if the zipcode is invalid.
+     */
+    @GetMapping("/{zipcode}/stream")
+    public ResponseEntity<?> streamWeatherForecast(@PathVariable String zipcode) {
+        logger.info("Received weather forecast stream subscription for zipcode: {}", zipcode);
+        if (!zipcode.matches("^\\d{5}$")) {
+            logger.warn("Invalid zipcode format received: {}", zipcode);
+            return ResponseEntity.badRequest().body(Map.of("error", "Invalid zipcode format. Must be 5 digits for US."));
+        }
+        SseEmitter emitter = new SseEmitter(streamTimeoutMs);
+        forecastStreams.subscribe(zipcode, emitter);
+        return ResponseEntity.ok(emitter);
+    }
+
+    /**
+     * Retrieves the forecast for a zipcode.
+     * Without 'include', the response is the list of daily reports for the next seven days.
+     * With 'include', it is an object holding only the selected parts, e.g. {@code include=current,hourly}.
+     * Temperatures are in Celsius unless 'units' asks for imperial (Fahrenheit) or standard (Kelvin) units;
+     * every unit system is converted from the same cached metric forecast.
+     * <p>
+     * Clients that accept JSON get the pre-encoded bytes from the {@link ForecastResponseCache}, gzip-compressed
+     * if they accept gzip, without any object serialization. The response carries an ETag, and a request with
+     * a matching If-None-Match gets HTTP status NOT_MODIFIED. Clients asking only for CBOR or Smile get the
+     * forecast serialized in that format.
+     * @param zipcode The 5-digit US zipcode.
+     * @param include Optional comma-separated forecast parts: current, hourly, daily.
+     * @param units Optional unit system: metric (default), imperial or standard.
+     * @param accept The Accept request header.
+     * @param acceptEncoding The Accept-Encoding request header.
+     * @return A ResponseEntity containing the forecast and HTTP status OK,
+     *         HTTP status BAD_REQUEST if the zipcode, parts or units are invalid,
+     *         or the status of the {@link com.example.crudapp.exception.ApiException} the weather service failed with.
+     */
     @GetMapping("/{zipcode}")
-    public ResponseEntity<?> getWeatherForecast(@PathVariable String zipcode) {
-        logger.info("Received weather forecast request for zipcode: {}", zipcode);
+    public ResponseEntity<?> getWeatherForecast(@PathVariable String zipcode,
+                                                @RequestParam(value = "include", required = false) String include,
+                                                @RequestParam(value = "units", required = false) String units,
+                                                @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+                                                @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        return handleForecastRequest(zipcode, include, parts -> {
+            UnitSystem unitSystem = UnitSystem.parse(units);
+            if (!acceptsJson(accept)) {
+                return ResponseEntity.ok(parts == null
+                        ? unitSystem.dailyFromMetric(weatherService.getSevenDayForecast(zipcode))
+                        : unitSystem.fromMetric(weatherService.getForecast(zipcode, parts)));
+            }
+            ForecastResponseCache.EncodedForecast encoded = forecastResponseCache.get(zipcode, parts, unitSystem);
+            boolean gzip = encoded.gzip() != null && acceptEncoding != null && acceptEncoding.contains("gzip");
+            ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .varyBy(HttpHeaders.ACCEPT, HttpHeaders.ACCEPT_ENCODING);
+            if (gzip) {
+                // Each encoding is a different representation, so it gets its own ETag
+                return response.eTag(encoded.gzipEtag()).header(HttpHeaders.CONTENT_ENCODING, "gzip").body(encoded.gzip());
+            }
+            return response.eTag(encoded.etag()).body(encoded.json());
+        });
+    }
+
+    private static boolean acceptsJson(String accept) {
+        if (accept == null || accept.isBlank()) {
+            return true;
+        }
+        try {
+            return MediaType.parseMediaTypes(accept).stream().anyMatch(type -> type.isCompatibleWith(MediaType.APPLICATION_JSON));
+        } catch (InvalidMediaTypeException e) {
+            return true;
+        }
+    }
+
+    // Validates the request and runs the handler with the parsed parts (null for the plain daily list);
+    // failures are mapped by ApiExceptionHandler
+    private ResponseEntity<?> handleForecastRequest(String zipcode, String include, Function<Set<ForecastPart>, ResponseEntity<?>> handler) {
+        logger.info("Received weather forecast request for zipcode: {} (include: {})", zipcode, include);
 
         // Basic US zipcode validation
         if (zipcode == null || !zipcode.matches("^\\d{5}$")) {
             logger.warn("Invalid zipcode format received: {}", zipcode);
             return ResponseEntity.badRequest().body(Map.of("error", "Invalid zipcode format. Must be 5 digits for US."));
         }
+        Set<ForecastPart> parts = include == null ? null : ForecastPart.parse(include);
 
-        try {
-            List<DailyWeatherReportDto> forecast = weatherService.getSevenDayForecast(zipcode);
-            // If service returns an empty list without throwing an exception (e.g. OWM had no data), this is OK.
-            logger.info("Successfully retrieved weather forecast for zipcode: {}", zipcode);
-            return ResponseEntity.ok(forecast);
-        } catch (ApiKeyNotConfiguredException e) {
-            logger.error("API key not configured: {}", e.getMessage());
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(Map.of("error", "Server configuration error: API key for weather service is not set."));
-        } catch (RuntimeException e) {
-            String message = e.getMessage() != null ? e.getMessage().toLowerCase() : "";
-            if (message.contains("zipcode not found") || message.contains("invalid zipcode")) {
-                logger.warn("Failed to get weather for zipcode {}: {}", zipcode, e.getMessage());
-                return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("error", e.getMessage()));
-            } else if (message.contains("error fetching weather data") || e.getCause() instanceof HttpClientErrorException || e.getCause() instanceof HttpServerErrorException) {
-                logger.error("External weather service error for zipcode {}: {}", zipcode, e.getMessage(), e);
-                return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(Map.of("error", "External weather service is currently unavailable or returned an error."));
-            } else { // Generic catch-all for other RuntimeExceptions
-                logger.error("Unexpected error processing weather request for zipcode {}: {}", zipcode, e.getMessage(), e);
-                return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(Map.of("error", "An unexpected internal error occurred."));
-            }
+        ResponseEntity<?> response;
+        try (RequestTrace.Span span = RequestTrace.span("WeatherController.getWeatherForecast")) {
+            response = handler.apply(parts);
         }
+        // If service returns an empty list without throwing an exception (e.g. OWM had no data), this is OK.
+        logger.info("Successfully retrieved weather forecast for zipcode: {}", zipcode);
+        return response;
     }
 }
@@ -0,0 +1,130 @@
+package com.example.crudapp.diagnostics;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.EntityStatistics;
+import org.hibernate.stat.QueryStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Actuator endpoint exposing Hibernate statistics at {@code /actuator/hibernate}:
+ * query counts and per-query execution times, entity load/fetch counts and second-level cache hit ratios.
+ * A DELETE on the endpoint clears the collected statistics.
+ */
+@Component
+@Endpoint(id = "hibernate")
+public class HibernateStatisticsEndpoint {
+
+    private final Statistics statistics;
+
+    /**
+     * Constructs the endpoint.
+     * @param entityManagerFactory The JPA entity manager factory, backed by a Hibernate SessionFactory.
+     */
+    public HibernateStatisticsEndpoint(EntityManagerFactory entityManagerFactory) {
+        this.statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    /**
+     * @return A snapshot of the current Hibernate statistics.
+     */
+    @ReadOperation
+    public Map<String, Object> statistics() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("enabled", statistics.isStatisticsEnabled());
+        result.put("statisticsSince", statistics.getStart());
+        result.put("sessionOpenCount", statistics.getSessionOpenCount());
+        result.put("transactionCount", statistics.getTransactionCount());
+        result.put("prepareStatementCount", statistics.getPrepareStatementCount());
+        result.put("queryExecutionCount", statistics.getQueryExecutionCount());
+        result.put("queryExecutionMaxTimeMs", statistics.getQueryExecutionMaxTime());
+        result.put("queryExecutionMaxTimeQuery", statistics.getQueryExecutionMaxTimeQueryString());
+        result.put("entityLoadCount", statistics.getEntityLoadCount());
+        result.put("entityFetchCount", statistics.getEntityFetchCount());
+        result.put("entityInsertCount", statistics.getEntityInsertCount());
+        result.put("entityUpdateCount", statistics.getEntityUpdateCount());
+        result.put("entityDeleteCount", statistics.getEntityDeleteCount());
+        result.put("collectionFetchCount", statistics.getCollectionFetchCount());
+        result.put("queries", queries());
+        result.put("entities", entities());
+        result.put("secondLevelCache", secondLevelCache());
+        return result;
+    }
+
+    /**
+     * Clears all collected statistics.
+     */
+    @DeleteOperation
+    public void clear() {
+        statistics.clear();
+    }
+
+    private List<Map<String, Object>> queries() {
+        List<Map<String, Object>> queries = new ArrayList<>();
+        for (String query : statistics.getQueries()) {
+            QueryStatistics queryStatistics = statistics.getQueryStatistics(query);
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("query", query);
+            entry.put("executionCount", queryStatistics.getExecutionCount());
+            entry.put("executionRowCount", queryStatistics.getExecutionRowCount());
+            entry.put("executionAvgTimeMs", queryStatistics.getExecutionAvgTime());
+            entry.put("executionMaxTimeMs", queryStatistics.getExecutionMaxTime());
+            entry.put("executionMinTimeMs", queryStatistics.getExecutionMinTime());
+            queries.add(entry);
+        }
+        // Slowest queries first
+        queries.sort(Comparator.comparingLong((Map<String, Object> entry) -> (Long) entry.get("executionMaxTimeMs")).reversed());
+        return queries;
+    }
+
+    private Map<String, Object> entities() {
+        Map<String, Object> entities = new LinkedHashMap<>();
+        for (String entityName : statistics.getEntityNames()) {
+            EntityStatistics entityStatistics = statistics.getEntityStatistics(entityName);
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("loadCount", entityStatistics.getLoadCount());
+            entry.put("fetchCount", entityStatistics.getFetchCount());
+            entry.put("insertCount", entityStatistics.getInsertCount());
+            entry.put("updateCount", entityStatistics.getUpdateCount());
+            entry.put("deleteCount", entityStatistics.getDeleteCount());
+            entities.put(entityName, entry);
+        }
+        return entities;
+    }
+
+    private Map<String, Object> secondLevelCache() {
+        Map<String, Object> cache = new LinkedHashMap<>();
+        cache.put("hitCount", statistics.getSecondLevelCacheHitCount());
+        cache.put("missCount", statistics.getSecondLevelCacheMissCount());
+        cache.put("putCount", statistics.getSecondLevelCachePutCount());
+        cache.put("hitRatio", hitRatio(statistics.getSecondLevelCacheHitCount(), statistics.getSecondLevelCacheMissCount()));
+        Map<String, Object> regions = new LinkedHashMap<>();
+        for (String regionName : statistics.getSecondLevelCacheRegionNames()) {
+            CacheRegionStatistics region = statistics.getDomainDataRegionStatistics(regionName);
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("hitCount", region.getHitCount());
+            entry.put("missCount", region.getMissCount());
+            entry.put("putCount", region.getPutCount());
+            entry.put("hitRatio", hitRatio(region.getHitCount(), region.getMissCount()));
+            regions.put(regionName, entry);
+        }
+        cache.put("regions", regions);
+        return cache;
+    }
+
+    private static double hitRatio(long hits, long misses) {
+        long total = hits + misses;
+        return total == 0 ? 0.0 : (double) hits / total;
+    }
+}
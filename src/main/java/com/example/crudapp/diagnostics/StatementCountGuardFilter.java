@@ -0,0 +1,45 @@
+package com.example.crudapp.diagnostics;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/**
+ * Flags requests that issue more SQL statements than the configured limit, which usually points
+ * at an N+1 query pattern. Requests are never rejected; the offending request is logged as a warning.
+ */
+public class StatementCountGuardFilter extends OncePerRequestFilter {
+
+    private static final Logger logger = LoggerFactory.getLogger(StatementCountGuardFilter.class);
+    private final int maxStatementsPerRequest;
+
+    /**
+     * Constructs the filter.
+     * @param maxStatementsPerRequest The number of statements above which a request is flagged.
+     */
+    public StatementCountGuardFilter(int maxStatementsPerRequest) {
+        this.maxStatementsPerRequest = maxStatementsPerRequest;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        StatementCountingInspector.reset();
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            int statements = StatementCountingInspector.currentCount();
+            if (statements > maxStatementsPerRequest) {
+                logger.warn("{} {} issued {} SQL statements, more than the limit of {}. Possible N+1 query pattern.",
+                        request.getMethod(), request.getRequestURI(), statements, maxStatementsPerRequest);
+            }
+            StatementCountingInspector.reset();
+        }
+    }
+}
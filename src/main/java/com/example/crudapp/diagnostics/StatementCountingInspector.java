@@ -0,0 +1,55 @@
+package com.example.crudapp.diagnostics;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Hibernate {@link StatementInspector} that counts the SQL statements prepared on the current thread.
+ * The count is scoped to a request by {@link StatementCountGuardFilter}; the SQL itself is passed through unchanged.
+ * Work done on behalf of a request on another thread adds to the request's count by {@link #attach(AtomicInteger)
+ * attaching} its counter.
+ */
+public class StatementCountingInspector implements StatementInspector {
+
+    private static final ThreadLocal<AtomicInteger> STATEMENT_COUNT = ThreadLocal.withInitial(AtomicInteger::new);
+
+    @Override
+    public String inspect(String sql) {
+        STATEMENT_COUNT.get().incrementAndGet();
+        return sql;
+    }
+
+    /**
+     * Resets the statement count of the current thread to zero. A fresh counter is started, so work still
+     * running for the previous request cannot add to the next one.
+     */
+    public static void reset() {
+        STATEMENT_COUNT.set(new AtomicInteger());
+    }
+
+    /**
+     * @return The number of statements prepared on the current thread since the last {@link #reset()}.
+     */
+    public static int currentCount() {
+        return STATEMENT_COUNT.get().get();
+    }
+
+    /**
+     * @return The statement counter of the current thread.
+     */
+    public static AtomicInteger currentCounter() {
+        return STATEMENT_COUNT.get();
+    }
+
+    /**
+     * Makes the current thread count its statements into the given counter.
+     * @param counter The counter, usually the {@link #currentCounter()} of the thread the work is done for.
+     * @return The counter the current thread counted into before, to attach again when the work is done.
+     */
+    public static AtomicInteger attach(AtomicInteger counter) {
+        AtomicInteger previous = STATEMENT_COUNT.get();
+        STATEMENT_COUNT.set(counter);
+        return previous;
+    }
+}
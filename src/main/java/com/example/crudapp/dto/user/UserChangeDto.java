@@ -0,0 +1,18 @@
+package com.example.crudapp.dto.user;
+
+import com.example.crudapp.event.UserChangedEvent;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserChangeDto {
+    private long sequence; // Position in the change log, usable as a cursor
+    private UserChangedEvent.Type type;
+    private Long id;
+    private String name; // null for DELETED
+    private String email; // null for DELETED
+    private long timestamp; // Epoch milliseconds when the change was recorded
+}
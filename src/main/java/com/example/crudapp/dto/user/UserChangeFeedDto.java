@@ -0,0 +1,16 @@
+package com.example.crudapp.dto.user;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserChangeFeedDto {
+    private List<UserChangeDto> changes;
+    private long cursor; // Pass as 'since' on the next request
+    private boolean hasMore; // true if more changes are available right away
+}
@@ -0,0 +1,13 @@
+package com.example.crudapp.dto.user;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserCreationBucketDto {
+    private long start; // Epoch milliseconds when the bucket starts
+    private long count; // Users created within the bucket
+}
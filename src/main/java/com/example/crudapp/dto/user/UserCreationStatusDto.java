@@ -0,0 +1,19 @@
+package com.example.crudapp.dto.user;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserCreationStatusDto {
+
+    public enum Status {
+        PENDING, CREATED, FAILED
+    }
+
+    private Long id;
+    private Status status;
+    private String reason; // Only set for FAILED
+}
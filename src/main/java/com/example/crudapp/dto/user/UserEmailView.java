@@ -0,0 +1,7 @@
+package com.example.crudapp.dto.user;
+
+/**
+ * Projection of a user exposing its ID and email.
+ */
+public record UserEmailView(Long id, String email) {
+}
@@ -0,0 +1,62 @@
+package com.example.crudapp.dto.user;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * The sparse fieldsets supported by the user read endpoints, each backed by a DTO projection.
+ * The ID is always included, so clients can correlate results.
+ */
+public enum UserFieldSet {
+    ID(UserIdView.class, false, false),
+    NAME(UserNameView.class, true, false),
+    EMAIL(UserEmailView.class, false, true),
+    ALL(UserFullView.class, true, true);
+
+    private final Class<?> projection;
+    private final boolean name;
+    private final boolean email;
+
+    UserFieldSet(Class<?> projection, boolean name, boolean email) {
+        this.projection = projection;
+        this.name = name;
+        this.email = email;
+    }
+
+    public Class<?> getProjection() {
+        return projection;
+    }
+
+    /**
+     * Resolves a comma-separated list of field names, e.g. {@code "id,name"}.
+     * @param fields The requested fields.
+     * @return The smallest field set containing all requested fields.
+     * @throws IllegalArgumentException if the list is empty or names an unknown field.
+     */
+    public static UserFieldSet parse(String fields) {
+        boolean name = false;
+        boolean email = false;
+        boolean any = false;
+        for (String field : fields.split(",")) {
+            switch (field.trim().toLowerCase(Locale.ROOT)) {
+                case "" -> {
+                    continue;
+                }
+                case "id" -> { }
+                case "name" -> name = true;
+                case "email" -> email = true;
+                default -> throw new IllegalArgumentException("Unknown field '" + field.trim() + "'. Supported fields: id, name, email.");
+            }
+            any = true;
+        }
+        if (!any) {
+            throw new IllegalArgumentException("At least one field must be requested. Supported fields: id, name, email.");
+        }
+        boolean wantsName = name;
+        boolean wantsEmail = email;
+        return Arrays.stream(values())
+                .filter(set -> set.name == wantsName && set.email == wantsEmail)
+                .findFirst()
+                .orElseThrow();
+    }
+}
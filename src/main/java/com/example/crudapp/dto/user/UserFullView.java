@@ -0,0 +1,7 @@
+package com.example.crudapp.dto.user;
+
+/**
+ * Projection of a user exposing all fields, read without loading {@code User} entities.
+ */
+public record UserFullView(Long id, String name, String email) {
+}
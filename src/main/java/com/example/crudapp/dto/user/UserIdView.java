@@ -0,0 +1,9 @@
+package com.example.crudapp.dto.user;
+
+/**
+ * Projection of a user exposing only its ID.
+ * Spring Data reads DTO projections with a constructor expression, selecting only the projected columns
+ * and never loading {@code User} entities into the persistence context.
+ */
+public record UserIdView(Long id) {
+}
@@ -0,0 +1,7 @@
+package com.example.crudapp.dto.user;
+
+/**
+ * Projection of a user exposing its ID and name.
+ */
+public record UserNameView(Long id, String name) {
+}
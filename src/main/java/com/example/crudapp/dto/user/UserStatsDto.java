@@ -0,0 +1,19 @@
+package com.example.crudapp.dto.user;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.Map;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserStatsDto {
+    private long totalUsers;
+    private int emailDomainCount; // Distinct domains, including those left out of usersByEmailDomain
+    private Map<String, Long> usersByEmailDomain; // The largest domains, largest first
+    private long bucketSeconds;
+    private List<UserCreationBucketDto> creations; // Oldest bucket first; only creations since startup are counted
+}
@@ -0,0 +1,15 @@
+package com.example.crudapp.dto.user;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserUpsertResultDto {
+    private Long id;
+    private String name;
+    private String email;
+    private boolean created; // false if an existing user with this email was updated
+}
@@ -0,0 +1,18 @@
+package com.example.crudapp.dto.weather;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CurrentWeatherReportDto {
+    private String time; // ISO-8601 instant, e.g. 2026-01-01T12:00:00Z
+    private double temperature;
+    private double feelsLike;
+    private int humidity; // Percent
+    private double windSpeed;
+    private String weatherDescription;
+    private String temperatureUnit; // e.g., "Celsius", "Fahrenheit"
+}
@@ -0,0 +1,54 @@
+package com.example.crudapp.dto.weather;
+
+import java.util.EnumSet;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * The parts of a forecast that can be requested with {@code include=}, each named after the One Call
+ * section it is built from.
+ */
+public enum ForecastPart {
+    CURRENT("current"),
+    HOURLY("hourly"),
+    DAILY("daily");
+
+    private final String upstreamName;
+
+    ForecastPart(String upstreamName) {
+        this.upstreamName = upstreamName;
+    }
+
+    /**
+     * @return The name of the section in the One Call API, as used in its {@code exclude} parameter.
+     */
+    public String getUpstreamName() {
+        return upstreamName;
+    }
+
+    /**
+     * Resolves a comma-separated list of part names, e.g. {@code "current,daily"}.
+     * @param include The requested parts.
+     * @return The requested parts.
+     * @throws IllegalArgumentException if the list is empty or names an unknown part.
+     */
+    public static Set<ForecastPart> parse(String include) {
+        Set<ForecastPart> parts = EnumSet.noneOf(ForecastPart.class);
+        for (String name : include.split(",")) {
+            String trimmed = name.trim().toLowerCase(Locale.ROOT);
+            if (trimmed.isEmpty()) {
+                continue;
+            }
+            parts.add(switch (trimmed) {
+                case "current" -> CURRENT;
+                case "hourly" -> HOURLY;
+                case "daily" -> DAILY;
+                default -> throw new IllegalArgumentException("Unknown forecast part '" + name.trim() + "'. Supported parts: current, hourly, daily.");
+            });
+        }
+        if (parts.isEmpty()) {
+            throw new IllegalArgumentException("At least one forecast part must be requested. Supported parts: current, hourly, daily.");
+        }
+        return parts;
+    }
+}
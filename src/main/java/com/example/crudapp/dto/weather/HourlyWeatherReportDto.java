@@ -0,0 +1,16 @@
+package com.example.crudapp.dto.weather;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class HourlyWeatherReportDto {
+    private String time; // ISO-8601 instant, e.g. 2026-01-01T12:00:00Z
+    private double temperature;
+    private String weatherDescription;
+    private double rainProbability; // 0.0 to 1.0
+    private String temperatureUnit; // e.g., "Celsius", "Fahrenheit"
+}
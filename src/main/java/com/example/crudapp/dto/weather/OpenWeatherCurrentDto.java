@@ -0,0 +1,19 @@
+package com.example.crudapp.dto.weather;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.Data;
+import java.util.List;
+
+@Data
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class OpenWeatherCurrentDto {
+    private long dt; // Timestamp
+    private double temp;
+    @JsonProperty("feels_like")
+    private double feelsLike;
+    private int humidity; // Percent
+    @JsonProperty("wind_speed")
+    private double windSpeed; // m/s for metric
+    private List<OpenWeatherWeatherDto> weather;
+}
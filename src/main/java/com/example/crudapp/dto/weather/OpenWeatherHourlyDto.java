@@ -0,0 +1,14 @@
+package com.example.crudapp.dto.weather;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import lombok.Data;
+import java.util.List;
+
+@Data
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class OpenWeatherHourlyDto {
+    private long dt; // Timestamp
+    private double temp;
+    private List<OpenWeatherWeatherDto> weather;
+    private double pop; // Probability of precipitation
+}
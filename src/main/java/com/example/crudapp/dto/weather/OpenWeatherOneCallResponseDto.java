@@ -7,5 +7,7 @@ import java.util.List;
 @Data
 @JsonIgnoreProperties(ignoreUnknown = true)
 public class OpenWeatherOneCallResponseDto {
+    private OpenWeatherCurrentDto current;
+    private List<OpenWeatherHourlyDto> hourly;
     private List<OpenWeatherDailyDto> daily;
 }
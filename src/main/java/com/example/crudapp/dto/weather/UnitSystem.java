@@ -0,0 +1,147 @@
+package com.example.crudapp.dto.weather;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * The unit systems a forecast can be requested in with {@code units=}, named as in the OpenWeatherMap API.
+ * <p>
+ * Forecasts are fetched and held in the part cache in {@link #METRIC} units only; the other systems are
+ * converted from that canonical form when a response is built, so they cost no upstream calls of their own.
+ * Encoded responses are still cached per unit system. Temperatures are converted to Fahrenheit or Kelvin and
+ * wind speeds to miles per hour for {@link #IMPERIAL}; converted values are rounded to two decimals, the
+ * precision of the upstream data.
+ */
+public enum UnitSystem {
+    METRIC("metric", "Celsius"),
+    IMPERIAL("imperial", "Fahrenheit"),
+    STANDARD("standard", "Kelvin");
+
+    private static final double MILES_PER_HOUR_PER_METRE_PER_SECOND = 3600 / 1609.344;
+
+    private final String upstreamName;
+    private final String temperatureUnit;
+
+    UnitSystem(String upstreamName, String temperatureUnit) {
+        this.upstreamName = upstreamName;
+        this.temperatureUnit = temperatureUnit;
+    }
+
+    /**
+     * @return The name of the unit system, as used in the {@code units} parameter here and upstream.
+     */
+    public String getUpstreamName() {
+        return upstreamName;
+    }
+
+    /**
+     * @return The temperature unit reported with forecasts in this system, e.g. "Celsius".
+     */
+    public String getTemperatureUnit() {
+        return temperatureUnit;
+    }
+
+    /**
+     * Resolves a unit system name, e.g. {@code "imperial"}.
+     * @param units The requested unit system, or null for the default.
+     * @return The unit system; {@link #METRIC} if none was requested.
+     * @throws IllegalArgumentException if the name is unknown.
+     */
+    public static UnitSystem parse(String units) {
+        if (units == null || units.isBlank()) {
+            return METRIC;
+        }
+        return switch (units.trim().toLowerCase(Locale.ROOT)) {
+            case "metric" -> METRIC;
+            case "imperial" -> IMPERIAL;
+            case "standard" -> STANDARD;
+            default -> throw new IllegalArgumentException("Unknown units '" + units.trim() + "'. Supported units: metric, imperial, standard.");
+        };
+    }
+
+    /**
+     * @param celsius A temperature in degrees Celsius.
+     * @return The temperature in this system's unit.
+     */
+    public double temperatureFromCelsius(double celsius) {
+        return switch (this) {
+            case METRIC -> celsius;
+            case IMPERIAL -> round(celsius * 9 / 5 + 32);
+            case STANDARD -> round(celsius + 273.15);
+        };
+    }
+
+    /**
+     * @param metresPerSecond A speed in metres per second.
+     * @return The speed in this system's unit: miles per hour for imperial, metres per second otherwise.
+     */
+    public double speedFromMetresPerSecond(double metresPerSecond) {
+        return this == IMPERIAL ? round(metresPerSecond * MILES_PER_HOUR_PER_METRE_PER_SECOND) : metresPerSecond;
+    }
+
+    /**
+     * Converts a metric forecast into this system. The forecast itself is left unchanged, since it may be cached.
+     * @param forecast A forecast in metric units.
+     * @return The forecast in this system; the given forecast itself for {@link #METRIC}.
+     */
+    public WeatherForecastDto fromMetric(WeatherForecastDto forecast) {
+        if (this == METRIC) {
+            return forecast;
+        }
+        CurrentWeatherReportDto current = forecast.getCurrent();
+        return new WeatherForecastDto(
+                current == null ? null : new CurrentWeatherReportDto(
+                        current.getTime(),
+                        temperatureFromCelsius(current.getTemperature()),
+                        temperatureFromCelsius(current.getFeelsLike()),
+                        current.getHumidity(),
+                        speedFromMetresPerSecond(current.getWindSpeed()),
+                        current.getWeatherDescription(),
+                        temperatureUnit),
+                hourlyFromMetric(forecast.getHourly()),
+                dailyFromMetric(forecast.getDaily()));
+    }
+
+    /**
+     * Converts metric daily reports into this system. The reports themselves are left unchanged.
+     * @param daily Daily reports in metric units, or null.
+     * @return The reports in this system; the given list itself for {@link #METRIC}.
+     */
+    public List<DailyWeatherReportDto> dailyFromMetric(List<DailyWeatherReportDto> daily) {
+        if (this == METRIC || daily == null) {
+            return daily;
+        }
+        List<DailyWeatherReportDto> converted = new ArrayList<>(daily.size());
+        for (DailyWeatherReportDto report : daily) {
+            converted.add(new DailyWeatherReportDto(
+                    report.getDate(),
+                    temperatureFromCelsius(report.getMinTemperature()),
+                    temperatureFromCelsius(report.getMaxTemperature()),
+                    report.getWeatherDescription(),
+                    report.getRainProbability(),
+                    temperatureUnit));
+        }
+        return converted;
+    }
+
+    private List<HourlyWeatherReportDto> hourlyFromMetric(List<HourlyWeatherReportDto> hourly) {
+        if (hourly == null) {
+            return null;
+        }
+        List<HourlyWeatherReportDto> converted = new ArrayList<>(hourly.size());
+        for (HourlyWeatherReportDto report : hourly) {
+            converted.add(new HourlyWeatherReportDto(
+                    report.getTime(),
+                    temperatureFromCelsius(report.getTemperature()),
+                    report.getWeatherDescription(),
+                    report.getRainProbability(),
+                    temperatureUnit));
+        }
+        return converted;
+    }
+
+    private static double round(double value) {
+        return Math.round(value * 100) / 100.0;
+    }
+}
@@ -0,0 +1,46 @@
+package com.example.crudapp.dto.weather;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import java.util.List;
+
+/**
+ * A forecast made of the parts selected with {@code include=}; parts that were not requested are null
+ * and omitted from the JSON.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class WeatherForecastDto {
+    private CurrentWeatherReportDto current;
+    private List<HourlyWeatherReportDto> hourly;
+    private List<DailyWeatherReportDto> daily;
+
+    /**
+     * @param part The part.
+     * @return The value of the part: a {@link CurrentWeatherReportDto} or a list of reports, or null if not set.
+     */
+    public Object getPart(ForecastPart part) {
+        return switch (part) {
+            case CURRENT -> current;
+            case HOURLY -> hourly;
+            case DAILY -> daily;
+        };
+    }
+
+    /**
+     * @param part The part.
+     * @param value The value of the part, of the type returned by {@link #getPart(ForecastPart)}.
+     */
+    @SuppressWarnings("unchecked")
+    public void setPart(ForecastPart part, Object value) {
+        switch (part) {
+            case CURRENT -> current = (CurrentWeatherReportDto) value;
+            case HOURLY -> hourly = (List<HourlyWeatherReportDto>) value;
+            case DAILY -> daily = (List<DailyWeatherReportDto>) value;
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package com.example.crudapp.event;
+
+import com.example.crudapp.model.User;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+
+/**
+ * JPA entity listener that publishes a {@link UserChangedEvent} for every insert, update and delete of a
+ * {@link User} entity, whichever code path made it, so derived views cannot miss a change made through
+ * {@link com.example.crudapp.repository.UserRepository} directly.
+ * <p>
+ * The callbacks run right after the statement is executed, while the transaction holds the row lock,
+ * so event versions follow commit order. Writes that bypass the persistence context (native or JDBC
+ * statements, bulk JPQL) are not seen here and must publish their events themselves.
+ */
+@Component
+public class UserChangePublisher {
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    /**
+     * Constructs a UserChangePublisher; instantiated by Hibernate through the Spring bean container.
+     * @param eventPublisher The publisher the events are sent to.
+     */
+    @Autowired
+    public UserChangePublisher(ApplicationEventPublisher eventPublisher) {
+        this.eventPublisher = eventPublisher;
+    }
+
+    @PostPersist
+    public void onPersisted(User user) {
+        eventPublisher.publishEvent(UserChangedEvent.created(user));
+    }
+
+    @PostUpdate
+    public void onUpdated(User user) {
+        eventPublisher.publishEvent(UserChangedEvent.updated(user));
+    }
+
+    @PostRemove
+    public void onRemoved(User user) {
+        eventPublisher.publishEvent(UserChangedEvent.deleted(user.getId()));
+    }
+}
@@ -0,0 +1,88 @@
+package com.example.crudapp.event;
+
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tracks the newest {@link UserChangedEvent} version seen per user, so listeners can drop events that
+ * reach them after a newer change of the same user.
+ * <p>
+ * A listener calls {@link #isLatest(UserChangedEvent)} and applies the event only if it returns true,
+ * holding its own lock around both steps. Since the recorded versions only grow, every listener then
+ * applies the changes of one user in commit order, whichever order the events arrive in.
+ * <p>
+ * A version only needs to be remembered while an older event of the same user may still be delivered.
+ * Events are tracked from publication until their transaction completes, and versions older than every
+ * event still in flight are pruned periodically.
+ */
+@Component
+public class UserChangeVersions {
+
+    private static final int PRUNE_INTERVAL = 1024;
+
+    private final Map<Long, Long> latestById = new ConcurrentHashMap<>();
+    private final NavigableSet<Long> inFlight = new ConcurrentSkipListSet<>();
+    private final AtomicInteger completionsSincePrune = new AtomicInteger();
+
+    /**
+     * Records an event as in flight when it is published, before any listener sees it.
+     * @param event The published event.
+     */
+    @EventListener
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    public void onPublished(UserChangedEvent event) {
+        inFlight.add(event.getVersion());
+    }
+
+    /**
+     * Stops tracking an event once its transaction has completed, committed or not.
+     * @param event The delivered or discarded event.
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMPLETION, fallbackExecution = true)
+    public void onCompleted(UserChangedEvent event) {
+        inFlight.remove(event.getVersion());
+        if (completionsSincePrune.incrementAndGet() >= PRUNE_INTERVAL) {
+            completionsSincePrune.set(0);
+            prune();
+        }
+    }
+
+    /**
+     * Records the version of an event and reports whether it is the newest seen for its user.
+     * @param event The event about to be applied.
+     * @return true if no newer event of the same user has been seen, so the event should be applied.
+     */
+    public boolean isLatest(UserChangedEvent event) {
+        long version = event.getVersion();
+        return latestById.merge(event.getId(), version, Math::max) == version;
+    }
+
+    /**
+     * @return The number of users whose latest version is remembered.
+     */
+    public int size() {
+        return latestById.size();
+    }
+
+    /**
+     * Forgets the versions that no event still to be delivered can be older than.
+     */
+    public void prune() {
+        // Read the counter first: an event versioned after this read is newer than every pruned version,
+        // and an older event not yet in flight cannot share a user with a newer recorded version
+        long horizon = UserChangedEvent.latestVersion() + 1;
+        Long oldestInFlight = inFlight.ceiling(Long.MIN_VALUE);
+        long keepFrom = oldestInFlight == null ? horizon : Math.min(horizon, oldestInFlight);
+        latestById.values().removeIf(version -> version < keepFrom);
+    }
+}
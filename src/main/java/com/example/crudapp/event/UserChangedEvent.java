@@ -0,0 +1,84 @@
+package com.example.crudapp.event;
+
+import com.example.crudapp.model.User;
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Value;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Application event published whenever a user is created, updated or deleted: by {@link UserChangePublisher}
+ * for writes through JPA, and by the code making the write for native, JDBC and sharded writes.
+ * It carries a copy of the user's state at the time of the change, so listeners never see
+ * later modifications of the managed entity. Listeners that maintain derived views of the
+ * user table (indexes, caches, feeds) subscribe to this event.
+ * <p>
+ * After-commit listeners run on the committing thread, so events of concurrent transactions can reach
+ * them in any order. Every event therefore carries a version from a global counter. Publishers create
+ * the event after the change is written and while their transaction still holds the row lock, so the
+ * versions of one user's events increase in commit order. Listeners use {@link UserChangeVersions}
+ * to drop events that arrive after a newer event of the same user.
+ */
+@Value
+@AllArgsConstructor
+public class UserChangedEvent {
+
+    private static final AtomicLong VERSIONS = new AtomicLong();
+
+    /**
+     * The kind of change.
+     */
+    public enum Type {
+        CREATED, UPDATED, DELETED
+    }
+
+    Type type;
+    Long id;
+    String name;
+    String email;
+    @EqualsAndHashCode.Exclude // orders events, but is not part of the change
+    long version;
+
+    /**
+     * Creates an event with the next version.
+     * @param type The kind of change.
+     * @param id The ID of the changed user.
+     * @param name The user's name after the change, or null for a delete.
+     * @param email The user's email after the change, or null for a delete.
+     */
+    public UserChangedEvent(Type type, Long id, String name, String email) {
+        this(type, id, name, email, VERSIONS.incrementAndGet());
+    }
+
+    /**
+     * @return The version of the most recently created event.
+     */
+    public static long latestVersion() {
+        return VERSIONS.get();
+    }
+
+    /**
+     * @param user The user that was created.
+     * @return A CREATED event for the given user.
+     */
+    public static UserChangedEvent created(User user) {
+        return new UserChangedEvent(Type.CREATED, user.getId(), user.getName(), user.getEmail());
+    }
+
+    /**
+     * @param user The user after the update.
+     * @return An UPDATED event for the given user.
+     */
+    public static UserChangedEvent updated(User user) {
+        return new UserChangedEvent(Type.UPDATED, user.getId(), user.getName(), user.getEmail());
+    }
+
+    /**
+     * @param id The ID of the deleted user.
+     * @return A DELETED event for the given user ID.
+     */
+    public static UserChangedEvent deleted(Long id) {
+        return new UserChangedEvent(Type.DELETED, id, null, null);
+    }
+}
@@ -0,0 +1,39 @@
+package com.example.crudapp.exception;
+
+import org.springframework.http.HttpStatus;
+
+/**
+ * Base class for expected failures that map to a specific HTTP status, such as a missing user or an
+ * unavailable upstream service. These are normal outcomes under bad input or load rather than bugs, so
+ * instances are created without a stack trace, which is the most expensive part of throwing an exception.
+ * They are turned into responses by {@link com.example.crudapp.controller.ApiExceptionHandler}.
+ */
+public abstract class ApiException extends RuntimeException {
+
+    protected ApiException(String message) {
+        this(message, null);
+    }
+
+    protected ApiException(String message, Throwable cause) {
+        super(message, cause, false, false);
+    }
+
+    /**
+     * @return The HTTP status of the response.
+     */
+    public abstract HttpStatus getStatus();
+
+    /**
+     * @return The message sent to the client; defaults to the exception message.
+     */
+    public String getClientMessage() {
+        return getMessage();
+    }
+
+    /**
+     * @return The number of seconds after which the client may retry, or null to send no Retry-After header.
+     */
+    public Integer getRetryAfterSeconds() {
+        return null;
+    }
+}
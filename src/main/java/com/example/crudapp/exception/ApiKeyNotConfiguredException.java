@@ -1,7 +1,19 @@
 package com.example.crudapp.exception;
 
-public class ApiKeyNotConfiguredException extends RuntimeException {
+import org.springframework.http.HttpStatus;
+
+public class ApiKeyNotConfiguredException extends ApiException {
     public ApiKeyNotConfiguredException(String message) {
         super(message);
     }
+
+    @Override
+    public HttpStatus getStatus() {
+        return HttpStatus.INTERNAL_SERVER_ERROR;
+    }
+
+    @Override
+    public String getClientMessage() {
+        return "Server configuration error: API key for weather service is not set.";
+    }
 }
@@ -0,0 +1,12 @@
+package com.example.crudapp.exception;
+
+public class BulkheadFullException extends ServiceUnavailableException {
+    public BulkheadFullException(String message) {
+        super(message);
+    }
+
+    @Override
+    public Integer getRetryAfterSeconds() {
+        return 1;
+    }
+}
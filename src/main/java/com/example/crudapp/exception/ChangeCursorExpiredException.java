@@ -0,0 +1,14 @@
+package com.example.crudapp.exception;
+
+import org.springframework.http.HttpStatus;
+
+public class ChangeCursorExpiredException extends ApiException {
+    public ChangeCursorExpiredException(String message) {
+        super(message);
+    }
+
+    @Override
+    public HttpStatus getStatus() {
+        return HttpStatus.GONE;
+    }
+}
@@ -0,0 +1,12 @@
+package com.example.crudapp.exception;
+
+public class ConcurrencyLimitExceededException extends ServiceUnavailableException {
+    public ConcurrencyLimitExceededException(String message) {
+        super(message);
+    }
+
+    @Override
+    public Integer getRetryAfterSeconds() {
+        return 1;
+    }
+}
@@ -0,0 +1,19 @@
+package com.example.crudapp.exception;
+
+import org.springframework.http.HttpStatus;
+
+public class IdempotencyKeyInProgressException extends ApiException {
+    public IdempotencyKeyInProgressException(String message) {
+        super(message);
+    }
+
+    @Override
+    public HttpStatus getStatus() {
+        return HttpStatus.CONFLICT;
+    }
+
+    @Override
+    public Integer getRetryAfterSeconds() {
+        return 1;
+    }
+}
@@ -0,0 +1,14 @@
+package com.example.crudapp.exception;
+
+import org.springframework.http.HttpStatus;
+
+public class IdempotencyKeyMismatchException extends ApiException {
+    public IdempotencyKeyMismatchException(String message) {
+        super(message);
+    }
+
+    @Override
+    public HttpStatus getStatus() {
+        return HttpStatus.UNPROCESSABLE_ENTITY;
+    }
+}
@@ -0,0 +1,12 @@
+package com.example.crudapp.exception;
+
+public class IdempotencyStoreFullException extends ServiceUnavailableException {
+    public IdempotencyStoreFullException(String message) {
+        super(message);
+    }
+
+    @Override
+    public Integer getRetryAfterSeconds() {
+        return 1;
+    }
+}
@@ -0,0 +1,12 @@
+package com.example.crudapp.exception;
+
+public class UpstreamServiceException extends ServiceUnavailableException {
+    public UpstreamServiceException(String message, Throwable cause) {
+        super(message, cause);
+    }
+
+    @Override
+    public String getClientMessage() {
+        return "External weather service is currently unavailable or returned an error.";
+    }
+}
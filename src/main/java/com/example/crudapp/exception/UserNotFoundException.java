@@ -0,0 +1,7 @@
+package com.example.crudapp.exception;
+
+public class UserNotFoundException extends ResourceNotFoundException {
+    public UserNotFoundException(Long id) {
+        super("User not found with id " + id);
+    }
+}
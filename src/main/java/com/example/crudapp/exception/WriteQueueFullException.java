@@ -0,0 +1,12 @@
+package com.example.crudapp.exception;
+
+public class WriteQueueFullException extends ServiceUnavailableException {
+    public WriteQueueFullException(String message) {
+        super(message);
+    }
+
+    @Override
+    public Integer getRetryAfterSeconds() {
+        return 1;
+    }
+}
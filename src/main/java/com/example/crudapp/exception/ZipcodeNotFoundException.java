@@ -0,0 +1,7 @@
+package com.example.crudapp.exception;
+
+public class ZipcodeNotFoundException extends ResourceNotFoundException {
+    public ZipcodeNotFoundException(String zipcode) {
+        super("Zipcode not found or invalid: " + zipcode);
+    }
+}
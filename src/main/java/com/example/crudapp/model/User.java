@@ -1,10 +1,14 @@
 package com.example.crudapp.model;
 
+import com.example.crudapp.event.UserChangePublisher;
 import jakarta.persistence.Entity;
+import jakarta.persistence.EntityListeners;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.SequenceGenerator;
 import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import lombok.AllArgsConstructor;
@@ -12,20 +16,31 @@ import lombok.AllArgsConstructor;
 /**
  * Represents a User entity in the application.
  * This class is mapped to the "users" table in the database.
+ * Every insert, update and delete is announced by {@link UserChangePublisher}.
  */
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 @Entity
-@Table(name = "users") // Optional: specify table name
+@EntityListeners(UserChangePublisher.class)
+@Table(name = "users", uniqueConstraints = @UniqueConstraint(name = "users_email_unique", columnNames = "email"))
 public class User {
 
+    /**
+     * The number of IDs Hibernate's pooled optimizer takes from "users_seq" per sequence call.
+     * The sequence must increment by the same amount (see db/schema.sql).
+     */
+    public static final int ID_ALLOCATION_SIZE = 50;
+
     /**
      * The unique identifier for the user.
-     * Generated automatically by the database.
+     * Generated from the "users_seq" sequence. Hibernate's pooled optimizer hands out blocks of
+     * {@link #ID_ALLOCATION_SIZE} IDs per sequence call, which also lets IDs be reserved before the row is
+     * written (see UserIdReserver).
      */
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "users_seq")
+    @SequenceGenerator(name = "users_seq", sequenceName = "users_seq", allocationSize = ID_ALLOCATION_SIZE)
     private Long id;
 
     /**
@@ -34,7 +49,7 @@ public class User {
     private String name;
 
     /**
-     * The email address of the user.
+     * The email address of the user; unique, so it can serve as the key for upserts.
      */
     private String email;
 
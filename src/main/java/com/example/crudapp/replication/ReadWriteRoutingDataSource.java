@@ -0,0 +1,106 @@
+package com.example.crudapp.replication;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Routes connections of read-only transactions to a replica and everything else to the primary.
+ * <p>
+ * The routing decision is made when a connection is requested, so this datasource must be wrapped in a
+ * {@link org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy}: the transaction manager asks
+ * for a connection before the read-only flag of the transaction is visible.
+ * A thread can be pinned to the primary with {@link #pinToPrimary()}, for read-your-writes consistency.
+ */
+public class ReadWriteRoutingDataSource extends AbstractRoutingDataSource implements AutoCloseable {
+
+    /**
+     * How read-only transactions are spread over the replicas.
+     */
+    public enum LoadBalancing {
+        ROUND_ROBIN, RANDOM
+    }
+
+    private static final String PRIMARY = "primary";
+    private static final ThreadLocal<Boolean> PINNED_TO_PRIMARY = new ThreadLocal<>();
+
+    private final DataSource primary;
+    private final List<DataSource> replicas;
+    private final LoadBalancing loadBalancing;
+    private final AtomicInteger nextReplica = new AtomicInteger();
+
+    /**
+     * Constructs a ReadWriteRoutingDataSource.
+     * @param primary The datasource for writes and for reads outside read-only transactions.
+     * @param replicas The replica datasources; must not be empty.
+     * @param loadBalancing How replicas are selected.
+     */
+    public ReadWriteRoutingDataSource(DataSource primary, List<DataSource> replicas, LoadBalancing loadBalancing) {
+        if (replicas.isEmpty()) {
+            throw new IllegalArgumentException("At least one replica is required.");
+        }
+        this.primary = primary;
+        this.replicas = List.copyOf(replicas);
+        this.loadBalancing = loadBalancing;
+        Map<Object, Object> targets = new HashMap<>();
+        targets.put(PRIMARY, primary);
+        for (int i = 0; i < replicas.size(); i++) {
+            targets.put(i, replicas.get(i));
+        }
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(primary);
+        afterPropertiesSet();
+    }
+
+    /**
+     * Routes all connections of the current thread to the primary until {@link #unpin()} is called.
+     */
+    public static void pinToPrimary() {
+        PINNED_TO_PRIMARY.set(Boolean.TRUE);
+    }
+
+    /**
+     * Removes the pin set by {@link #pinToPrimary()}.
+     */
+    public static void unpin() {
+        PINNED_TO_PRIMARY.remove();
+    }
+
+    public DataSource getPrimary() {
+        return primary;
+    }
+
+    public List<DataSource> getReplicas() {
+        return replicas;
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly() || PINNED_TO_PRIMARY.get() != null) {
+            return PRIMARY;
+        }
+        return switch (loadBalancing) {
+            case ROUND_ROBIN -> Math.floorMod(nextReplica.getAndIncrement(), replicas.size());
+            case RANDOM -> ThreadLocalRandom.current().nextInt(replicas.size());
+        };
+    }
+
+    @Override
+    public void close() {
+        closeIfPooled(primary);
+        replicas.forEach(ReadWriteRoutingDataSource::closeIfPooled);
+    }
+
+    private static void closeIfPooled(DataSource dataSource) {
+        if (dataSource instanceof HikariDataSource hikari) {
+            hikari.close();
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.example.crudapp.replication;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpMethod;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.Set;
+
+/**
+ * Gives clients read-your-writes consistency while reads are served from lagging replicas.
+ * A write request (POST, PUT, PATCH or DELETE) sets a cookie recording until when the client's reads
+ * must see the primary; requests carrying an unexpired cookie are pinned to the primary.
+ */
+public class ReadYourWritesFilter extends OncePerRequestFilter {
+
+    static final String COOKIE_NAME = "read-primary-until";
+    private static final Set<String> WRITE_METHODS = Set.of(
+            HttpMethod.POST.name(), HttpMethod.PUT.name(), HttpMethod.PATCH.name(), HttpMethod.DELETE.name());
+
+    private final long stickyWindowMs;
+
+    /**
+     * Constructs a ReadYourWritesFilter.
+     * @param stickyWindowMs How long after a write the client's reads are served by the primary.
+     */
+    public ReadYourWritesFilter(long stickyWindowMs) {
+        this.stickyWindowMs = stickyWindowMs;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        long now = System.currentTimeMillis();
+        if (WRITE_METHODS.contains(request.getMethod())) {
+            Cookie cookie = new Cookie(COOKIE_NAME, String.valueOf(now + stickyWindowMs));
+            cookie.setPath("/");
+            cookie.setHttpOnly(true);
+            cookie.setMaxAge((int) Math.max(1, stickyWindowMs / 1000));
+            response.addCookie(cookie);
+        }
+        boolean pinned = WRITE_METHODS.contains(request.getMethod()) || readPrimaryUntil(request) > now;
+        if (pinned) {
+            ReadWriteRoutingDataSource.pinToPrimary();
+        }
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            if (pinned) {
+                ReadWriteRoutingDataSource.unpin();
+            }
+        }
+    }
+
+    private static long readPrimaryUntil(HttpServletRequest request) {
+        if (request.getCookies() == null) {
+            return 0;
+        }
+        for (Cookie cookie : request.getCookies()) {
+            if (COOKIE_NAME.equals(cookie.getName())) {
+                try {
+                    return Long.parseLong(cookie.getValue());
+                } catch (NumberFormatException e) {
+                    return 0;
+                }
+            }
+        }
+        return 0;
+    }
+}
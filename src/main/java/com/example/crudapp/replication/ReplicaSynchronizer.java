@@ -0,0 +1,96 @@
+package com.example.crudapp.replication;
+
+import com.example.crudapp.event.UserChangeVersions;
+import com.example.crudapp.event.UserChangedEvent;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import javax.sql.DataSource;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Keeps the replica databases in sync with the primary, standing in for database-level replication.
+ * <p>
+ * On startup every replica receives the schema and a full copy of the {@code users} table. After that,
+ * committed {@link UserChangedEvent}s are applied to all replicas on a background thread, so replicas lag
+ * slightly behind the primary, as real asynchronous replicas do. Events overtaken by a newer change of the
+ * same user are dropped, so each user's changes are applied in commit order.
+ */
+public class ReplicaSynchronizer {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReplicaSynchronizer.class);
+    private static final String CREATE_TABLE_SQL =
+            "CREATE TABLE IF NOT EXISTS users (id BIGINT NOT NULL PRIMARY KEY, name VARCHAR(255), email VARCHAR(255))";
+    private static final String UPSERT_SQL = "MERGE INTO users (id, name, email) KEY (id) VALUES (?, ?, ?)";
+
+    private final JdbcTemplate primary;
+    private final List<JdbcTemplate> replicas;
+    private final UserChangeVersions changeVersions;
+    private final ExecutorService applier = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "replica-synchronizer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * Constructs a ReplicaSynchronizer and copies the current primary data to all replicas.
+     * Must be created after the primary schema exists.
+     * @param routingDataSource The routing datasource holding the primary and the replicas.
+     * @param changeVersions The versions used to drop out-of-order changes.
+     */
+    public ReplicaSynchronizer(ReadWriteRoutingDataSource routingDataSource, UserChangeVersions changeVersions) {
+        this.primary = new JdbcTemplate(routingDataSource.getPrimary());
+        this.replicas = routingDataSource.getReplicas().stream().map(JdbcTemplate::new).toList();
+        this.changeVersions = changeVersions;
+        resync();
+    }
+
+    /**
+     * Replaces the contents of every replica with a fresh copy of the primary.
+     */
+    public synchronized void resync() {
+        List<Object[]> rows = primary.query("SELECT id, name, email FROM users",
+                (rs, rowNum) -> new Object[]{rs.getLong(1), rs.getString(2), rs.getString(3)});
+        for (JdbcTemplate replica : replicas) {
+            replica.execute(CREATE_TABLE_SQL);
+            replica.execute("TRUNCATE TABLE users");
+            replica.batchUpdate(UPSERT_SQL, rows);
+        }
+        logger.info("Copied {} users to {} replicas.", rows.size(), replicas.size());
+    }
+
+    /**
+     * Replicates a user change once the transaction that made it has committed.
+     * @param event The change to replicate.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public synchronized void onUserChanged(UserChangedEvent event) {
+        // Checked and queued under the lock, so the single applier thread receives each user's changes in order
+        if (changeVersions.isLatest(event)) {
+            applier.execute(() -> apply(event));
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        applier.shutdown();
+    }
+
+    private void apply(UserChangedEvent event) {
+        for (JdbcTemplate replica : replicas) {
+            try {
+                switch (event.getType()) {
+                    case CREATED, UPDATED -> replica.update(UPSERT_SQL, event.getId(), event.getName(), event.getEmail());
+                    case DELETED -> replica.update("DELETE FROM users WHERE id = ?", event.getId());
+                }
+            } catch (RuntimeException e) {
+                logger.error("Failed to replicate {} of user with ID {}: {}", event.getType(), event.getId(), e.getMessage());
+            }
+        }
+    }
+}
@@ -2,8 +2,13 @@ package com.example.crudapp.repository;
 
 import com.example.crudapp.model.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
+import java.util.Optional;
+
 /**
  * Spring Data JPA repository for the {@link User} entity.
  * This interface handles all database operations related to Users.
@@ -14,4 +19,39 @@ public interface UserRepository extends JpaRepository<User, Long> {
     // JpaRepository provides all basic CRUD methods:
     // save(), findById(), findAll(), deleteById(), etc.
     // Custom query methods can be added here if needed.
+
+    /**
+     * Retrieves all users as the given projection.
+     * For DTO projections only the projected columns are selected and no entities are managed.
+     * @param type The projection class.
+     * @return All users, projected.
+     */
+    <T> List<T> findAllBy(Class<T> type);
+
+    /**
+     * Retrieves a user by ID as the given projection.
+     * @param id The ID of the user.
+     * @param type The projection class.
+     * @return The projected user, or an empty Optional if not found.
+     */
+    <T> Optional<T> findProjectedById(Long id, Class<T> type);
+
+    /**
+     * Inserts or updates users by email in a single {@code MERGE} statement: a user whose email exists gets
+     * the new name and keeps its ID, any other user is inserted with the given ID. The arrays are parallel,
+     * one element per user, and must not contain an email twice.
+     * @param ids The IDs for users that are inserted, e.g. reserved with {@link com.example.crudapp.service.UserIdReserver}.
+     * @param names The names.
+     * @param emails The emails.
+     * @return The ID and email of every written user, as {@code [id, email]} rows.
+     */
+    @Query(value = """
+            SELECT id, email FROM FINAL TABLE (
+                MERGE INTO users u
+                USING TABLE(id BIGINT = :ids, name VARCHAR(255) = :names, email VARCHAR(255) = :emails) s
+                ON u.email = s.email
+                WHEN MATCHED THEN UPDATE SET name = s.name
+                WHEN NOT MATCHED THEN INSERT (id, name, email) VALUES (s.id, s.name, s.email))
+            """, nativeQuery = true)
+    List<Object[]> upsertAllByEmail(@Param("ids") Long[] ids, @Param("names") String[] names, @Param("emails") String[] emails);
 }
@@ -0,0 +1,162 @@
+package com.example.crudapp.resilience;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+
+/**
+ * Concurrency limit that adapts to a dependency's latency with additive increase, multiplicative decrease
+ * (AIMD), as in TCP congestion control.
+ * <p>
+ * A caller must acquire a permit before calling the dependency and is rejected immediately when the number
+ * of calls in flight has reached the limit, instead of queueing behind a slow dependency. Each call that
+ * completes within the latency threshold while the limit was at least half used raises the limit by one;
+ * each call that fails or exceeds the threshold multiplies it by the backoff ratio. The limit therefore
+ * shrinks quickly when the dependency slows down and recovers gradually once it is healthy again.
+ * <p>
+ * The current limit, the calls in flight and the rejections are published as
+ * {@code <name>.limit}, {@code <name>.in-flight} and {@code <name>.rejected}.
+ */
+public class AdaptiveConcurrencyLimiter {
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final long latencyThresholdNanos;
+    private final double backoffRatio;
+    private final LongSupplier nanoTime;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final Counter rejectedCounter;
+    private volatile double limit; // fractional, so repeated backoffs from a small limit still take effect
+
+    /**
+     * A granted slot; exactly one of its completion methods must be called.
+     */
+    public final class Permit {
+        private final long startNanos = nanoTime.getAsLong();
+        private final int inFlightAtStart;
+        private boolean released;
+
+        private Permit(int inFlightAtStart) {
+            this.inFlightAtStart = inFlightAtStart;
+        }
+
+        /**
+         * Records a completed call; a call slower than the latency threshold counts as a sign of overload.
+         */
+        public void onSuccess() {
+            if (release()) {
+                boolean slow = nanoTime.getAsLong() - startNanos > latencyThresholdNanos;
+                adjust(slow, inFlightAtStart);
+            }
+        }
+
+        /**
+         * Records a call that failed because the dependency is overloaded or unavailable.
+         */
+        public void onDropped() {
+            if (release()) {
+                adjust(true, inFlightAtStart);
+            }
+        }
+
+        /**
+         * Releases the slot without adjusting the limit, e.g. after an error unrelated to load.
+         */
+        public void onIgnore() {
+            release();
+        }
+
+        private boolean release() {
+            if (released) {
+                return false;
+            }
+            released = true;
+            inFlight.decrementAndGet();
+            return true;
+        }
+    }
+
+    /**
+     * Constructs an AdaptiveConcurrencyLimiter and registers its metrics.
+     * @param name The metric name prefix.
+     * @param meterRegistry The registry for the metrics.
+     * @param initialLimit The limit to start with.
+     * @param minLimit The lowest the limit can fall to.
+     * @param maxLimit The highest the limit can rise to.
+     * @param latencyThresholdMs Calls slower than this decrease the limit.
+     * @param backoffRatio The factor the limit is multiplied by on overload, between 0 and 1.
+     */
+    public AdaptiveConcurrencyLimiter(String name, MeterRegistry meterRegistry, int initialLimit, int minLimit, int maxLimit,
+                                      long latencyThresholdMs, double backoffRatio) {
+        this(name, meterRegistry, initialLimit, minLimit, maxLimit, latencyThresholdMs, backoffRatio, System::nanoTime);
+    }
+
+    AdaptiveConcurrencyLimiter(String name, MeterRegistry meterRegistry, int initialLimit, int minLimit, int maxLimit,
+                               long latencyThresholdMs, double backoffRatio, LongSupplier nanoTime) {
+        if (minLimit < 1 || minLimit > initialLimit || initialLimit > maxLimit) {
+            throw new IllegalArgumentException("Concurrency limits must satisfy 1 <= min <= initial <= max.");
+        }
+        if (backoffRatio <= 0 || backoffRatio >= 1) {
+            throw new IllegalArgumentException("Backoff ratio must be between 0 and 1.");
+        }
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.latencyThresholdNanos = latencyThresholdMs * 1_000_000;
+        this.backoffRatio = backoffRatio;
+        this.nanoTime = nanoTime;
+        this.limit = initialLimit;
+        Gauge.builder(name + ".limit", this, AdaptiveConcurrencyLimiter::getLimit).register(meterRegistry);
+        Gauge.builder(name + ".in-flight", inFlight, AtomicInteger::get).register(meterRegistry);
+        this.rejectedCounter = meterRegistry.counter(name + ".rejected");
+    }
+
+    /**
+     * Acquires a slot if fewer calls than the limit are in flight.
+     * @return The permit, or null if the limit has been reached.
+     */
+    public Permit tryAcquire() {
+        while (true) {
+            int current = inFlight.get();
+            if (current >= getLimit()) {
+                rejectedCounter.increment();
+                return null;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return new Permit(current + 1);
+            }
+        }
+    }
+
+    /**
+     * @return The current concurrency limit.
+     */
+    public int getLimit() {
+        return (int) limit;
+    }
+
+    /**
+     * @return The number of calls in flight.
+     */
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    /**
+     * @return The number of rejected calls.
+     */
+    public long getRejectedCount() {
+        return (long) rejectedCounter.count();
+    }
+
+    private synchronized void adjust(boolean overloaded, int inFlightAtStart) {
+        if (overloaded) {
+            limit = Math.max(minLimit, limit * backoffRatio);
+        } else if (inFlightAtStart * 2 >= (int) limit) {
+            // Only grow while the limit is actually being used, so an idle period cannot inflate it
+            limit = Math.min(maxLimit, (int) limit + 1);
+        }
+    }
+}
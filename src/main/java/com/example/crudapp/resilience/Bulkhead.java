@@ -0,0 +1,161 @@
+package com.example.crudapp.resilience;
+
+import com.example.crudapp.exception.BulkheadFullException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.util.Locale;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A compartment with a fixed number of concurrent calls, so one kind of work can only ever occupy a bounded
+ * share of the request threads, however slow its dependency gets.
+ * <p>
+ * Calls run on the caller's thread, keeping request-scoped state such as the trace and the read-your-writes
+ * routing. When all slots are taken, up to {@code queueSize} callers wait for a slot for at most the queue
+ * timeout. Callers beyond that, or that time out, are handled by the rejection policy: {@code abort} fails
+ * them with a {@link BulkheadFullException}, while {@code caller-runs} lets up to {@code maxOverflow} of them
+ * run outside the limit at once and fails the rest, so overflow stays bounded too.
+ * <p>
+ * The calls holding a slot and the waiting callers are published as {@code <name>.active} and
+ * {@code <name>.queued}, the share of slots in use as {@code <name>.saturation}, and the rejected and
+ * overflowing calls as {@code <name>.rejected} and {@code <name>.overflow}.
+ */
+public class Bulkhead {
+
+    /**
+     * What happens to a call that finds the bulkhead and its queue full.
+     */
+    public enum RejectionPolicy {
+        ABORT,
+        CALLER_RUNS;
+
+        /**
+         * @param policy {@code abort} or {@code caller-runs}.
+         * @return The policy.
+         * @throws IllegalArgumentException if the policy is unknown.
+         */
+        public static RejectionPolicy parse(String policy) {
+            return valueOf(policy.trim().toUpperCase(Locale.ROOT).replace('-', '_'));
+        }
+    }
+
+    /**
+     * A call's hold on a slot, released by closing it.
+     */
+    public static final class Permit implements AutoCloseable {
+        private final Semaphore held;
+        private boolean released;
+
+        private Permit(Semaphore held) {
+            this.held = held;
+        }
+
+        @Override
+        public void close() {
+            if (!released) {
+                released = true;
+                held.release();
+            }
+        }
+    }
+
+    private final int maxConcurrent;
+    private final int queueSize;
+    private final long queueTimeoutNanos;
+    private final RejectionPolicy rejectionPolicy;
+    private final Semaphore slots;
+    private final Semaphore overflowSlots;
+    private final AtomicInteger queued = new AtomicInteger();
+    private final Counter rejectedCounter;
+    private final Counter overflowCounter;
+
+    /**
+     * Constructs a Bulkhead and registers its metrics.
+     * @param name The metric name prefix.
+     * @param meterRegistry The registry for the metrics.
+     * @param maxConcurrent The number of calls that may run at once.
+     * @param queueSize The number of callers that may wait for a slot.
+     * @param queueTimeoutMs How long a caller waits for a slot.
+     * @param rejectionPolicy What happens to calls that find the bulkhead full.
+     * @param maxOverflow The number of calls that may run outside the limit at once with the caller-runs policy.
+     */
+    public Bulkhead(String name, MeterRegistry meterRegistry, int maxConcurrent, int queueSize, long queueTimeoutMs,
+                    RejectionPolicy rejectionPolicy, int maxOverflow) {
+        if (maxConcurrent < 1 || queueSize < 0 || queueTimeoutMs < 0 || maxOverflow < 0) {
+            throw new IllegalArgumentException("A bulkhead needs at least one slot and a non-negative queue size, timeout and overflow.");
+        }
+        this.maxConcurrent = maxConcurrent;
+        this.queueSize = queueSize;
+        this.queueTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(queueTimeoutMs);
+        this.rejectionPolicy = rejectionPolicy;
+        this.slots = new Semaphore(maxConcurrent);
+        this.overflowSlots = new Semaphore(rejectionPolicy == RejectionPolicy.CALLER_RUNS ? maxOverflow : 0);
+        Gauge.builder(name + ".active", this, Bulkhead::getActive).register(meterRegistry);
+        Gauge.builder(name + ".queued", queued, AtomicInteger::get).register(meterRegistry);
+        Gauge.builder(name + ".saturation", this, Bulkhead::getSaturation).register(meterRegistry);
+        this.rejectedCounter = meterRegistry.counter(name + ".rejected");
+        this.overflowCounter = meterRegistry.counter(name + ".overflow");
+    }
+
+    /**
+     * Takes a slot, waiting in the queue if all slots are taken.
+     * @return The permit, to be closed when the call is done.
+     * @throws BulkheadFullException if no slot became free and the rejection policy is abort, or the overflow is full.
+     */
+    public Permit acquire() {
+        if (slots.tryAcquire()) {
+            return new Permit(slots);
+        }
+        if (queued.incrementAndGet() <= queueSize) {
+            try {
+                if (slots.tryAcquire(queueTimeoutNanos, TimeUnit.NANOSECONDS)) {
+                    return new Permit(slots);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                queued.decrementAndGet();
+            }
+        } else {
+            queued.decrementAndGet();
+        }
+        if (overflowSlots.tryAcquire()) {
+            overflowCounter.increment();
+            return new Permit(overflowSlots);
+        }
+        rejectedCounter.increment();
+        throw new BulkheadFullException("Too many concurrent requests. Try again later.");
+    }
+
+    /**
+     * @return The number of calls holding a slot.
+     */
+    public int getActive() {
+        return maxConcurrent - slots.availablePermits();
+    }
+
+    /**
+     * @return The number of callers waiting for a slot.
+     */
+    public int getQueued() {
+        return queued.get();
+    }
+
+    /**
+     * @return The share of slots in use, between 0 and 1.
+     */
+    public double getSaturation() {
+        return (double) getActive() / maxConcurrent;
+    }
+
+    /**
+     * @return The number of rejected calls.
+     */
+    public long getRejectedCount() {
+        return (long) rejectedCounter.count();
+    }
+}
@@ -0,0 +1,296 @@
+package com.example.crudapp.resilience;
+
+import com.example.crudapp.diagnostics.StatementCountingInspector;
+import com.example.crudapp.tracing.RequestTrace;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Hedges calls to a dependency with a slow tail: if a call has not completed after the tracked latency
+ * percentile (e.g. p90), an identical second call is started and whichever succeeds first wins.
+ * The result of the other call is discarded.
+ * <p>
+ * The hedge delay follows the latency of the most recent successful calls; until half the latency window
+ * has been filled, nothing is hedged. Hedges are paid for from a budget that each call tops up by the configured
+ * percentage, so hedging never adds more than that share of extra load, even when the whole dependency
+ * slows down. Until then, calls run on the caller's thread. Once calls can be hedged, they run on the given
+ * executor, attached to the caller's {@link RequestTrace} and SQL statement count so their spans and statements
+ * are still accounted to the request; if the executor is saturated, the call runs on the caller's thread
+ * without a hedge.
+ * <p>
+ * Calls, hedges, hedge wins and hedges skipped for lack of budget are published as {@code <name>.calls},
+ * {@code <name>.hedged}, {@code <name>.wins} and {@code <name>.budget-exhausted}; the hedge rate and the
+ * current delay as {@code <name>.rate} and {@code <name>.delay-ms}.
+ */
+public class RequestHedger {
+
+    private static final long MILLI_TOKENS_PER_HEDGE = 1000;
+    private static final long MAX_MILLI_TOKENS = 10 * MILLI_TOKENS_PER_HEDGE; // at most 10 hedges in a burst
+    private static final long NO_HEDGE = Long.MAX_VALUE;
+
+    private record Attempt<T>(T value, boolean hedge) {
+    }
+
+    private final ExecutorService executor;
+    private final boolean enabled;
+    private final double percentile;
+    private final long minDelayNanos;
+    private final long milliTokensPerCall;
+    private final long[] latencies; // ring of recent successful call latencies; guarded by itself
+    private final int recomputeEvery;
+    private final int minSamples;
+    private long latencyCount; // guarded by latencies
+    private volatile long hedgeDelayNanos = NO_HEDGE;
+    private final AtomicLong budgetMilliTokens = new AtomicLong(MAX_MILLI_TOKENS);
+    private final Counter callCounter;
+    private final Counter hedgeCounter;
+    private final Counter winCounter;
+    private final Counter budgetExhaustedCounter;
+
+    /**
+     * Constructs a RequestHedger and registers its metrics.
+     * @param name The metric name prefix.
+     * @param meterRegistry The registry for the metrics.
+     * @param executor The executor calls and hedges run on; may be null if hedging is disabled.
+     * @param enabled Whether to hedge at all; if false, calls run directly on the caller's thread.
+     * @param percentile The latency percentile after which a call is hedged, between 0 and 1.
+     * @param minDelayMs The shortest hedge delay, so very fast dependencies are not hedged needlessly.
+     * @param budgetPercent The maximum extra load from hedges, as a percentage of calls.
+     * @param windowSize The number of recent latencies the percentile is computed from.
+     */
+    public RequestHedger(String name, MeterRegistry meterRegistry, ExecutorService executor, boolean enabled,
+                         double percentile, long minDelayMs, int budgetPercent, int windowSize) {
+        if (percentile <= 0 || percentile >= 1) {
+            throw new IllegalArgumentException("Hedge percentile must be between 0 and 1.");
+        }
+        if (budgetPercent < 0 || windowSize < 10) {
+            throw new IllegalArgumentException("Hedge budget must not be negative and the latency window must hold at least 10 calls.");
+        }
+        if (enabled && executor == null) {
+            throw new IllegalArgumentException("Hedging requires an executor.");
+        }
+        this.executor = executor;
+        this.enabled = enabled;
+        this.percentile = percentile;
+        this.minDelayNanos = TimeUnit.MILLISECONDS.toNanos(minDelayMs);
+        this.milliTokensPerCall = budgetPercent * MILLI_TOKENS_PER_HEDGE / 100;
+        this.latencies = new long[windowSize];
+        this.recomputeEvery = Math.max(1, windowSize / 10);
+        this.minSamples = windowSize / 2;
+        this.callCounter = meterRegistry.counter(name + ".calls");
+        this.hedgeCounter = meterRegistry.counter(name + ".hedged");
+        this.winCounter = meterRegistry.counter(name + ".wins");
+        this.budgetExhaustedCounter = meterRegistry.counter(name + ".budget-exhausted");
+        Gauge.builder(name + ".rate", this, RequestHedger::getHedgeRate).register(meterRegistry);
+        Gauge.builder(name + ".delay-ms", this, RequestHedger::getHedgeDelayMs).register(meterRegistry);
+    }
+
+    /**
+     * Runs a call, hedging it if it is slower than the tracked percentile and the budget allows.
+     * The call must be idempotent, since it may run twice.
+     * @param call The call.
+     * @param <T> The result type.
+     * @return The result of the first call to succeed.
+     * @throws RuntimeException the failure of the call, or of the hedge if both failed.
+     */
+    public <T> T call(Supplier<T> call) {
+        if (!enabled) {
+            return call.get();
+        }
+        callCounter.increment();
+        budgetMilliTokens.getAndUpdate(tokens -> Math.min(MAX_MILLI_TOKENS, tokens + milliTokensPerCall));
+
+        long delay = hedgeDelayNanos;
+        if (delay == NO_HEDGE) {
+            return timed(call); // nothing to hedge yet, so there is no reason to leave the caller's thread
+        }
+        Supplier<T> attached = attachedToCaller(call);
+        CompletableFuture<Attempt<T>> primary = submit(attached, false);
+        if (primary == null) {
+            return call.get(); // executor saturated
+        }
+        try {
+            return primary.get(delay, TimeUnit.NANOSECONDS).value();
+        } catch (TimeoutException e) {
+            // Slower than the percentile: hedge below
+        } catch (InterruptedException | ExecutionException e) {
+            throw unwrap(e);
+        }
+        if (!withdrawHedgeToken()) {
+            budgetExhaustedCounter.increment();
+        } else {
+            CompletableFuture<Attempt<T>> hedge = submit(attached, true);
+            if (hedge != null) {
+                hedgeCounter.increment();
+                return firstSuccessful(primary, hedge);
+            }
+        }
+        return await(primary).value();
+    }
+
+    /**
+     * @return The share of calls that were hedged.
+     */
+    public double getHedgeRate() {
+        double calls = callCounter.count();
+        return calls == 0 ? 0.0 : hedgeCounter.count() / calls;
+    }
+
+    /**
+     * @return The current hedge delay in milliseconds, or -1 while too few calls have been seen.
+     */
+    public long getHedgeDelayMs() {
+        long delay = hedgeDelayNanos;
+        return delay == NO_HEDGE ? -1 : TimeUnit.NANOSECONDS.toMillis(delay);
+    }
+
+    /**
+     * @return The number of hedged calls.
+     */
+    public long getHedgedCount() {
+        return (long) hedgeCounter.count();
+    }
+
+    /**
+     * @return The number of hedged calls whose hedge succeeded first.
+     */
+    public long getWinCount() {
+        return (long) winCounter.count();
+    }
+
+    /**
+     * Stops the executor.
+     */
+    public void shutdown() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    // Records the latency of a successful call and periodically recomputes the hedge delay
+    void recordLatency(long nanos) {
+        synchronized (latencies) {
+            latencies[(int) (latencyCount++ % latencies.length)] = nanos;
+            if (latencyCount >= minSamples && latencyCount % recomputeEvery == 0) {
+                long[] window = Arrays.copyOf(latencies, (int) Math.min(latencyCount, latencies.length));
+                Arrays.sort(window);
+                long value = window[Math.min(window.length - 1, (int) Math.ceil(percentile * window.length) - 1)];
+                hedgeDelayNanos = Math.max(minDelayNanos, value);
+            }
+        }
+    }
+
+    private boolean withdrawHedgeToken() {
+        while (true) {
+            long tokens = budgetMilliTokens.get();
+            if (tokens < MILLI_TOKENS_PER_HEDGE) {
+                return false;
+            }
+            if (budgetMilliTokens.compareAndSet(tokens, tokens - MILLI_TOKENS_PER_HEDGE)) {
+                return true;
+            }
+        }
+    }
+
+    private <T> T timed(Supplier<T> call) {
+        long start = System.nanoTime();
+        T value = call.get();
+        recordLatency(System.nanoTime() - start);
+        return value;
+    }
+
+    // Runs the call in the trace and statement count of the calling thread, whichever thread it runs on
+    private static <T> Supplier<T> attachedToCaller(Supplier<T> call) {
+        RequestTrace trace = RequestTrace.current();
+        AtomicInteger statementCount = StatementCountingInspector.currentCounter();
+        return () -> {
+            RequestTrace previousTrace = RequestTrace.attach(trace);
+            AtomicInteger previousStatementCount = StatementCountingInspector.attach(statementCount);
+            try {
+                return call.get();
+            } finally {
+                RequestTrace.attach(previousTrace);
+                StatementCountingInspector.attach(previousStatementCount);
+            }
+        };
+    }
+
+    private <T> CompletableFuture<Attempt<T>> submit(Supplier<T> call, boolean hedge) {
+        try {
+            return CompletableFuture.supplyAsync(() -> new Attempt<>(timed(call), hedge), executor);
+        } catch (RejectedExecutionException e) {
+            return null;
+        }
+    }
+
+    // Completes with the first attempt to succeed, or with the primary's failure if both fail
+    private <T> T firstSuccessful(CompletableFuture<Attempt<T>> primary, CompletableFuture<Attempt<T>> hedge) {
+        CompletableFuture<Attempt<T>> winner = new CompletableFuture<>();
+        primary.whenComplete((attempt, failure) -> {
+            if (failure == null) {
+                winner.complete(attempt);
+            } else {
+                hedge.whenComplete((hedgeAttempt, hedgeFailure) -> {
+                    if (hedgeFailure != null) {
+                        winner.completeExceptionally(failure);
+                    }
+                });
+            }
+        });
+        hedge.whenComplete((attempt, failure) -> {
+            if (failure == null) {
+                winner.complete(attempt);
+            } else {
+                primary.whenComplete((primaryAttempt, primaryFailure) -> {
+                    if (primaryFailure != null) {
+                        winner.completeExceptionally(primaryFailure);
+                    }
+                });
+            }
+        });
+        Attempt<T> result = await(winner);
+        if (result.hedge()) {
+            winCounter.increment();
+        }
+        return result.value();
+    }
+
+    private static <T> T await(CompletableFuture<T> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException | ExecutionException e) {
+            throw unwrap(e);
+        }
+    }
+
+    private static RuntimeException unwrap(Exception e) {
+        if (e instanceof InterruptedException) {
+            Thread.currentThread().interrupt();
+            return new IllegalStateException("Interrupted while waiting for a hedged call.", e);
+        }
+        Throwable cause = e.getCause();
+        while (cause instanceof CompletionException && cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        if (cause instanceof RuntimeException runtimeException) {
+            return runtimeException;
+        }
+        if (cause instanceof Error error) {
+            throw error;
+        }
+        return new IllegalStateException(cause);
+    }
+}
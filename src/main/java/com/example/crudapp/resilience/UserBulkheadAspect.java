@@ -0,0 +1,27 @@
+package com.example.crudapp.resilience;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.stereotype.Component;
+
+/**
+ * Runs every {@code UserService} call in the user {@link Bulkhead}.
+ */
+@Aspect
+@Component
+public class UserBulkheadAspect {
+
+    private final Bulkhead userBulkhead;
+
+    public UserBulkheadAspect(Bulkhead userBulkhead) {
+        this.userBulkhead = userBulkhead;
+    }
+
+    @Around("execution(public * com.example.crudapp.service.UserService.*(..))")
+    public Object isolate(ProceedingJoinPoint joinPoint) throws Throwable {
+        try (Bulkhead.Permit permit = userBulkhead.acquire()) {
+            return joinPoint.proceed();
+        }
+    }
+}
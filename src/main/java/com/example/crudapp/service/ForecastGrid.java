@@ -0,0 +1,225 @@
+package com.example.crudapp.service;
+
+import com.example.crudapp.dto.weather.ForecastPart;
+import com.example.crudapp.dto.weather.WeatherForecastDto;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Spatial index of forecasts by grid cell, so nearby zipcodes share one upstream forecast.
+ * <p>
+ * Coordinates are snapped to a grid of {@code cell-degrees} latitude by longitude (0.1° is about 11 km north
+ * to south); each cell's forecast is fetched for the cell's centre and its parts are cached with the same TTLs
+ * as the {@link ForecastPartCache}. A zipcode that falls into a cell with fresh parts is served from them
+ * without calling the One Call API.
+ * <p>
+ * To help choose a resolution, the grids listed in {@code compare-cell-degrees} are simulated alongside: they
+ * only record which cells would have been fetched, not the forecasts. For every resolution, lookups are
+ * counted as {@code weather.grid.lookups} tagged with the resolution and {@code hit} or {@code miss}, and the
+ * hit rate is published as {@code weather.grid.hit-rate}. A lookup is a hit if all requested parts are fresh.
+ */
+@Component
+public class ForecastGrid {
+
+    private static final Logger logger = LoggerFactory.getLogger(ForecastGrid.class);
+
+    /**
+     * A grid cell, identified by its row and column at a resolution.
+     * @param degrees The cell size in degrees.
+     * @param row The row: the latitude divided by the cell size, rounded down.
+     * @param column The column: the longitude divided by the cell size, rounded down.
+     */
+    public record Cell(double degrees, long row, long column) {
+
+        /**
+         * @return The latitude of the cell's centre.
+         */
+        public double latitude() {
+            return centre(row);
+        }
+
+        /**
+         * @return The longitude of the cell's centre.
+         */
+        public double longitude() {
+            return centre(column);
+        }
+
+        // Rounded to micro-degrees, so the centre has no floating-point noise in request URLs
+        private double centre(long index) {
+            return Math.round((index + 0.5) * degrees * 1_000_000) / 1_000_000.0;
+        }
+
+        // The key of the cell in the part cache
+        String id() {
+            return row + ":" + column;
+        }
+    }
+
+    /**
+     * The result of a lookup.
+     * @param cell The cell the coordinates fall into.
+     * @param cached The forecast holding the requested parts that were fresh in the cell.
+     * @param missing The requested parts that must be fetched for the cell.
+     */
+    public record Lookup(Cell cell, WeatherForecastDto cached, Set<ForecastPart> missing) {
+    }
+
+    // One grid resolution with its cache (or, for compared resolutions, its record of fetched cells) and metrics
+    private static final class Grid {
+        final double degrees;
+        final ForecastPartCache parts;
+        final Counter hits;
+        final Counter misses;
+
+        Grid(double degrees, ForecastPartCache parts, MeterRegistry meterRegistry) {
+            this.degrees = degrees;
+            this.parts = parts;
+            String resolution = BigDecimal.valueOf(degrees).stripTrailingZeros().toPlainString();
+            this.hits = Counter.builder("weather.grid.lookups").tag("resolution", resolution).tag("result", "hit").register(meterRegistry);
+            this.misses = Counter.builder("weather.grid.lookups").tag("resolution", resolution).tag("result", "miss").register(meterRegistry);
+            Gauge.builder("weather.grid.hit-rate", this, Grid::hitRate).tag("resolution", resolution).register(meterRegistry);
+        }
+
+        Cell cellOf(double latitude, double longitude) {
+            return new Cell(degrees, (long) Math.floor(latitude / degrees), (long) Math.floor(longitude / degrees));
+        }
+
+        double hitRate() {
+            double lookups = hits.count() + misses.count();
+            return lookups == 0 ? 0.0 : hits.count() / lookups;
+        }
+    }
+
+    private final boolean enabled;
+    private final Grid grid;
+    private final List<Grid> comparedGrids = new ArrayList<>();
+
+    /**
+     * Constructs a ForecastGrid.
+     * @param meterRegistry The registry for the per-resolution metrics.
+     * @param enabled Whether forecasts are shared between zipcodes in the same cell.
+     * @param cellDegrees The size of a cell in degrees.
+     * @param compareCellDegrees Other cell sizes to report hit rates for, without serving from them.
+     * @param maxEntries The maximum number of cached parts per resolution.
+     * @param currentTtlSeconds How long current conditions are shared.
+     * @param hourlyTtlSeconds How long the hourly forecast is shared.
+     * @param dailyTtlSeconds How long the daily forecast is shared.
+     */
+    @Autowired
+    public ForecastGrid(MeterRegistry meterRegistry,
+                        @Value("${app.weather.grid.enabled:false}") boolean enabled,
+                        @Value("${app.weather.grid.cell-degrees:0.1}") double cellDegrees,
+                        @Value("${app.weather.grid.compare-cell-degrees:}") List<Double> compareCellDegrees,
+                        @Value("${app.weather.cache.max-entries:10000}") int maxEntries,
+                        @Value("${app.weather.cache.ttl-seconds.current:600}") long currentTtlSeconds,
+                        @Value("${app.weather.cache.ttl-seconds.hourly:1800}") long hourlyTtlSeconds,
+                        @Value("${app.weather.cache.ttl-seconds.daily:10800}") long dailyTtlSeconds) {
+        this(Clock.systemUTC(), meterRegistry, enabled, cellDegrees, compareCellDegrees, maxEntries,
+                currentTtlSeconds, hourlyTtlSeconds, dailyTtlSeconds);
+    }
+
+    ForecastGrid(Clock clock, MeterRegistry meterRegistry, boolean enabled, double cellDegrees, List<Double> compareCellDegrees,
+                 int maxEntries, long currentTtlSeconds, long hourlyTtlSeconds, long dailyTtlSeconds) {
+        if (cellDegrees <= 0 || compareCellDegrees.stream().anyMatch(degrees -> degrees <= 0)) {
+            throw new IllegalArgumentException("Grid cell sizes must be positive.");
+        }
+        this.enabled = enabled;
+        if (!enabled) {
+            this.grid = null;
+            return;
+        }
+        this.grid = new Grid(cellDegrees,
+                new ForecastPartCache(clock, maxEntries, currentTtlSeconds, hourlyTtlSeconds, dailyTtlSeconds), meterRegistry);
+        for (double degrees : compareCellDegrees) {
+            if (degrees != cellDegrees) {
+                comparedGrids.add(new Grid(degrees,
+                        new ForecastPartCache(clock, maxEntries, currentTtlSeconds, hourlyTtlSeconds, dailyTtlSeconds), meterRegistry));
+            }
+        }
+        logger.info("Sharing weather forecasts in grid cells of {} degrees; comparing hit rates with {}.", cellDegrees, compareCellDegrees);
+    }
+
+    /**
+     * @return Whether forecasts are shared between zipcodes in the same cell.
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Looks up the requested parts for the cell the coordinates fall into, and records the lookup
+     * for every resolution.
+     * @param latitude The latitude of the zipcode.
+     * @param longitude The longitude of the zipcode.
+     * @param parts The requested parts.
+     * @return The cell, the fresh parts and the parts still to be fetched.
+     * @throws IllegalStateException if the grid is disabled.
+     */
+    public Lookup lookup(double latitude, double longitude, Set<ForecastPart> parts) {
+        if (!enabled) {
+            throw new IllegalStateException("The forecast grid is disabled.");
+        }
+        Cell cell = grid.cellOf(latitude, longitude);
+        WeatherForecastDto cached = new WeatherForecastDto();
+        Set<ForecastPart> missing = EnumSet.noneOf(ForecastPart.class);
+        for (ForecastPart part : parts) {
+            Object value = grid.parts.get(cell.id(), part);
+            if (value != null) {
+                cached.setPart(part, value);
+            } else {
+                missing.add(part);
+            }
+        }
+        (missing.isEmpty() ? grid.hits : grid.misses).increment();
+
+        for (Grid compared : comparedGrids) {
+            // A compared grid fetches what it misses, so only the fact that a cell's part is fresh is kept
+            String id = compared.cellOf(latitude, longitude).id();
+            boolean hit = true;
+            for (ForecastPart part : parts) {
+                if (compared.parts.get(id, part) == null) {
+                    hit = false;
+                    compared.parts.put(id, part, Boolean.TRUE);
+                }
+            }
+            (hit ? compared.hits : compared.misses).increment();
+        }
+        return new Lookup(cell, cached, missing);
+    }
+
+    /**
+     * Shares a part fetched for a cell with all zipcodes in it, for the part's TTL.
+     * @param cell The cell returned by {@link #lookup(double, double, Set)}.
+     * @param part The part.
+     * @param value The value, for the cell's centre; must not be null.
+     */
+    public void put(Cell cell, ForecastPart part, Object value) {
+        grid.parts.put(cell.id(), part, value);
+    }
+
+    /**
+     * @param degrees A cell size: the serving one or a compared one.
+     * @return The share of lookups that were hits at that resolution, or -1 if it is not tracked.
+     */
+    public double getHitRate(double degrees) {
+        if (grid != null && grid.degrees == degrees) {
+            return grid.hitRate();
+        }
+        return comparedGrids.stream().filter(compared -> compared.degrees == degrees)
+                .mapToDouble(Grid::hitRate).findFirst().orElse(-1);
+    }
+}
@@ -0,0 +1,123 @@
+package com.example.crudapp.service;
+
+import com.example.crudapp.dto.weather.ForecastPart;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Bounded cache of forecast parts by zipcode, where each {@link ForecastPart} has its own TTL:
+ * current conditions go stale within minutes, while the daily forecast changes a few times a day.
+ * The least recently used entries are evicted when the cache is full.
+ */
+@Component
+public class ForecastPartCache {
+
+    private record Key(String zipcode, ForecastPart part) {
+    }
+
+    private record Entry(Object value, long expiresAt) {
+    }
+
+    private final Clock clock;
+    private final int maxEntries;
+    private final Map<ForecastPart, Long> ttlMillis = new EnumMap<>(ForecastPart.class);
+    private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true); // access order; guarded by this
+
+    /**
+     * Constructs a ForecastPartCache.
+     * @param maxEntries The maximum number of cached parts.
+     * @param currentTtlSeconds How long current conditions are cached.
+     * @param hourlyTtlSeconds How long the hourly forecast is cached.
+     * @param dailyTtlSeconds How long the daily forecast is cached.
+     */
+    @Autowired
+    public ForecastPartCache(@Value("${app.weather.cache.max-entries:10000}") int maxEntries,
+                             @Value("${app.weather.cache.ttl-seconds.current:600}") long currentTtlSeconds,
+                             @Value("${app.weather.cache.ttl-seconds.hourly:1800}") long hourlyTtlSeconds,
+                             @Value("${app.weather.cache.ttl-seconds.daily:10800}") long dailyTtlSeconds) {
+        this(Clock.systemUTC(), maxEntries, currentTtlSeconds, hourlyTtlSeconds, dailyTtlSeconds);
+    }
+
+    ForecastPartCache(Clock clock, int maxEntries, long currentTtlSeconds, long hourlyTtlSeconds, long dailyTtlSeconds) {
+        this.clock = clock;
+        this.maxEntries = maxEntries;
+        ttlMillis.put(ForecastPart.CURRENT, currentTtlSeconds * 1000);
+        ttlMillis.put(ForecastPart.HOURLY, hourlyTtlSeconds * 1000);
+        ttlMillis.put(ForecastPart.DAILY, dailyTtlSeconds * 1000);
+    }
+
+    /**
+     * Returns a cached part if it has not expired.
+     * @param zipcode The zipcode.
+     * @param part The part.
+     * @return The cached value, or null if absent or expired.
+     */
+    public synchronized Object get(String zipcode, ForecastPart part) {
+        Key key = new Key(zipcode, part);
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (entry.expiresAt() <= clock.millis()) {
+            entries.remove(key);
+            return null;
+        }
+        return entry.value();
+    }
+
+    /**
+     * Caches a part for its TTL, replacing any previous value.
+     * @param zipcode The zipcode.
+     * @param part The part.
+     * @param value The value; must not be null.
+     */
+    public synchronized void put(String zipcode, ForecastPart part, Object value) {
+        long now = clock.millis();
+        entries.put(new Key(zipcode, part), new Entry(value, now + ttlMillis.get(part)));
+        if (entries.size() > maxEntries) {
+            evict(now);
+        }
+    }
+
+    /**
+     * Returns when a cached part expires, so values derived from it can expire with it.
+     * @param zipcode The zipcode.
+     * @param part The part.
+     * @return The expiry time in epoch milliseconds, or 0 if the part is not cached.
+     */
+    public synchronized long expiresAt(String zipcode, ForecastPart part) {
+        Entry entry = entries.get(new Key(zipcode, part));
+        return entry == null ? 0 : entry.expiresAt();
+    }
+
+    /**
+     * @return The number of cached parts, including expired ones not yet evicted.
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * Removes all cached parts.
+     */
+    public synchronized void clear() {
+        entries.clear();
+    }
+
+    // Drops expired entries, then the least recently used ones until the cache fits
+    private void evict(long now) {
+        entries.values().removeIf(entry -> entry.expiresAt() <= now);
+        Iterator<Key> oldest = entries.keySet().iterator();
+        while (entries.size() > maxEntries && oldest.hasNext()) {
+            oldest.next();
+            oldest.remove();
+        }
+    }
+}
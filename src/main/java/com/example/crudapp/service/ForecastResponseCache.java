@@ -0,0 +1,175 @@
+package com.example.crudapp.service;
+
+import com.example.crudapp.dto.weather.ForecastPart;
+import com.example.crudapp.dto.weather.UnitSystem;
+import com.example.crudapp.tracing.RequestTrace;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.DigestUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Clock;
+import java.util.EnumSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Set;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Cache of fully encoded forecast responses, so a cache hit is served without serializing any objects.
+ * <p>
+ * Each entry holds the JSON body, optionally a gzip-compressed copy of it, and an ETag derived from the
+ * content, so an unchanged forecast keeps its ETag across upstream refreshes. An entry expires together
+ * with the earliest-expiring {@link ForecastPartCache} entry it was built from; forecasts with parts that
+ * could not be cached are encoded but not stored. The least recently used entries are evicted when the
+ * cache is full.
+ * <p>
+ * Forecasts are retrieved in metric units, the only form the {@link ForecastPartCache} holds, and converted
+ * into the requested {@link UnitSystem} before encoding. Responses in other units are keyed separately but
+ * share the same entry limit.
+ */
+@Component
+public class ForecastResponseCache {
+
+    /**
+     * An encoded forecast response.
+     * @param json The JSON body.
+     * @param gzip The gzip-compressed JSON body, or null if pre-compression is disabled.
+     * @param etag The strong ETag of the JSON body, quoted.
+     */
+    public record EncodedForecast(byte[] json, byte[] gzip, String etag) {
+
+        /**
+         * @return The strong ETag of the gzip-compressed body, quoted.
+         */
+        public String gzipEtag() {
+            return etag.substring(0, etag.length() - 1) + "-gzip\"";
+        }
+    }
+
+    // parts is null for the plain list of daily reports
+    private record Key(String zipcode, Set<ForecastPart> parts, UnitSystem units) {
+    }
+
+    private record Entry(EncodedForecast forecast, long expiresAt) {
+    }
+
+    private final WeatherService weatherService;
+    private final ForecastPartCache forecastPartCache;
+    private final ObjectMapper objectMapper;
+    private final Clock clock;
+    private final int maxEntries;
+    private final boolean gzip;
+    private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true); // access order; guarded by this
+
+    /**
+     * Constructs a ForecastResponseCache.
+     * @param weatherService The service forecasts are retrieved from on a miss.
+     * @param forecastPartCache The cache whose entries bound the lifetime of encoded responses.
+     * @param objectMapper The mapper used to encode forecasts, so bodies match the regular JSON responses.
+     * @param maxEntries The maximum number of cached responses.
+     * @param gzip Whether to keep a gzip-compressed copy of each response.
+     */
+    @Autowired
+    public ForecastResponseCache(WeatherService weatherService,
+                                 ForecastPartCache forecastPartCache,
+                                 ObjectMapper objectMapper,
+                                 @Value("${app.weather.response-cache.max-entries:10000}") int maxEntries,
+                                 @Value("${app.weather.response-cache.gzip:true}") boolean gzip) {
+        this(weatherService, forecastPartCache, objectMapper, Clock.systemUTC(), maxEntries, gzip);
+    }
+
+    ForecastResponseCache(WeatherService weatherService, ForecastPartCache forecastPartCache, ObjectMapper objectMapper,
+                          Clock clock, int maxEntries, boolean gzip) {
+        this.weatherService = weatherService;
+        this.forecastPartCache = forecastPartCache;
+        this.objectMapper = objectMapper;
+        this.clock = clock;
+        this.maxEntries = maxEntries;
+        this.gzip = gzip;
+    }
+
+    /**
+     * Returns the encoded forecast for a zipcode, retrieving and encoding it on a miss.
+     * @param zipcode The 5-digit US zipcode.
+     * @param parts The parts to include, or null for the plain list of daily reports.
+     * @param units The unit system of the response.
+     * @return The encoded forecast.
+     */
+    public EncodedForecast get(String zipcode, Set<ForecastPart> parts, UnitSystem units) {
+        Key key = new Key(zipcode, parts == null ? null : EnumSet.copyOf(parts), units);
+        synchronized (this) {
+            Entry entry = entries.get(key);
+            if (entry != null) {
+                if (entry.expiresAt() > clock.millis()) {
+                    return entry.forecast();
+                }
+                entries.remove(key);
+            }
+        }
+        Object forecast = parts == null
+                ? units.dailyFromMetric(weatherService.getSevenDayForecast(zipcode))
+                : units.fromMetric(weatherService.getForecast(zipcode, parts));
+        EncodedForecast encoded = encode(forecast);
+        long expiresAt = Long.MAX_VALUE;
+        for (ForecastPart part : parts == null ? EnumSet.of(ForecastPart.DAILY) : parts) {
+            expiresAt = Math.min(expiresAt, forecastPartCache.expiresAt(zipcode, part));
+        }
+        if (expiresAt > clock.millis()) {
+            put(key, new Entry(encoded, expiresAt));
+        }
+        return encoded;
+    }
+
+    /**
+     * @return The number of cached responses, including expired ones not yet evicted.
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * Removes all cached responses.
+     */
+    public synchronized void clear() {
+        entries.clear();
+    }
+
+    private synchronized void put(Key key, Entry entry) {
+        entries.put(key, entry);
+        if (entries.size() > maxEntries) {
+            long now = clock.millis();
+            entries.values().removeIf(existing -> existing.expiresAt() <= now);
+            Iterator<Key> oldest = entries.keySet().iterator();
+            while (entries.size() > maxEntries && oldest.hasNext()) {
+                oldest.next();
+                oldest.remove();
+            }
+        }
+    }
+
+    private EncodedForecast encode(Object forecast) {
+        try (RequestTrace.Span span = RequestTrace.span("ForecastResponseCache.encode")) {
+            byte[] json = objectMapper.writeValueAsBytes(forecast);
+            String etag = "\"" + DigestUtils.md5DigestAsHex(json) + "\"";
+            return new EncodedForecast(json, gzip ? compress(json) : null, etag);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static byte[] compress(byte[] data) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(data.length / 4 + 64);
+        try (GZIPOutputStream gzipOut = new GZIPOutputStream(out)) {
+            gzipOut.write(data);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+}
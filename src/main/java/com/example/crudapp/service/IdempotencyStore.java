@@ -0,0 +1,177 @@
+package com.example.crudapp.service;
+
+import com.example.crudapp.exception.IdempotencyKeyInProgressException;
+import com.example.crudapp.exception.IdempotencyKeyMismatchException;
+import com.example.crudapp.exception.IdempotencyStoreFullException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Bounded, time-limited store of recent {@code Idempotency-Key}s and the responses produced for them.
+ * <p>
+ * The first request with a key runs; a retry with the same key receives the stored response, marked with
+ * an {@code Idempotent-Replayed: true} header, without running again. A duplicate arriving while the first
+ * request is still running waits for its outcome instead of running concurrently, for a bounded time.
+ * Only successful (2xx) responses are kept: after a failure the key is released, and waiting duplicates
+ * run the request themselves instead of replaying the failure.
+ * <p>
+ * Entries expire after the TTL, and the oldest entries are evicted when the store is full. Entries whose
+ * request is still running are never evicted, since a retry would then run the request a second time;
+ * a new key is rejected instead if all entries are still running.
+ */
+@Component
+public class IdempotencyStore {
+
+    public static final String REPLAYED_HEADER = "Idempotent-Replayed";
+    private static final Logger logger = LoggerFactory.getLogger(IdempotencyStore.class);
+
+    // The response completes with null if the request failed and its key was released
+    private record Entry(String fingerprint, CompletableFuture<ResponseEntity<?>> response, long createdAt) {
+    }
+
+    private final Clock clock;
+    private final int maxEntries;
+    private final long ttlMillis;
+    private final long waitMillis;
+    private final Map<String, Entry> entries = new LinkedHashMap<>(); // insertion order is age order; guarded by this
+    private final Counter replayedCounter;
+
+    /**
+     * Constructs an IdempotencyStore.
+     * @param meterRegistry The registry for the replay counter.
+     * @param maxEntries The maximum number of stored keys.
+     * @param ttlMinutes How long a key and its response are kept.
+     * @param waitMillis How long a duplicate waits for the first request with its key to finish.
+     */
+    @Autowired
+    public IdempotencyStore(MeterRegistry meterRegistry,
+                            @Value("${app.users.idempotency.max-entries:10000}") int maxEntries,
+                            @Value("${app.users.idempotency.ttl-minutes:1440}") long ttlMinutes,
+                            @Value("${app.users.idempotency.wait-ms:10000}") long waitMillis) {
+        this(Clock.systemUTC(), meterRegistry, maxEntries, ttlMinutes, waitMillis);
+    }
+
+    IdempotencyStore(Clock clock, MeterRegistry meterRegistry, int maxEntries, long ttlMinutes, long waitMillis) {
+        this.clock = clock;
+        this.maxEntries = maxEntries;
+        this.ttlMillis = ttlMinutes * 60_000;
+        this.waitMillis = waitMillis;
+        this.replayedCounter = meterRegistry.counter("users.idempotency.replayed");
+    }
+
+    /**
+     * Runs an action at most once per key.
+     * @param key The client-supplied idempotency key.
+     * @param fingerprint A digest of the request; a key reused for a different request is rejected.
+     * @param action Produces the response for the first request with the key.
+     * @return The response of the action, or the stored response of an earlier request with the same key.
+     * @throws IdempotencyKeyMismatchException if the key was used for a request with a different fingerprint.
+     * @throws IdempotencyKeyInProgressException if the request with the key is still running after the wait time.
+     * @throws IdempotencyStoreFullException if the store is full of keys whose request is still running.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> ResponseEntity<T> execute(String key, String fingerprint, Supplier<ResponseEntity<T>> action) {
+        CompletableFuture<ResponseEntity<?>> own = new CompletableFuture<>();
+        ResponseEntity<T> stored = null;
+        while (stored == null) {
+            Entry existing;
+            synchronized (this) {
+                long now = clock.millis();
+                evict(now);
+                existing = entries.get(key);
+                if (existing == null) {
+                    if (entries.size() >= maxEntries) {
+                        logger.warn("Idempotency store is full of running requests; rejecting key '{}'.", key);
+                        throw new IdempotencyStoreFullException("Too many requests with an Idempotency-Key are in progress. Retry later.");
+                    }
+                    entries.put(key, new Entry(fingerprint, own, now));
+                }
+            }
+            if (existing == null) {
+                return run(key, own, action);
+            }
+            if (!existing.fingerprint().equals(fingerprint)) {
+                logger.warn("Idempotency key '{}' reused for a different request.", key);
+                throw new IdempotencyKeyMismatchException("Idempotency key '" + key + "' was already used for a different request.");
+            }
+            // Null if the earlier request failed and released the key; then try to run it ourselves
+            stored = (ResponseEntity<T>) await(key, existing.response());
+        }
+        replayedCounter.increment();
+        logger.info("Replaying stored response for idempotency key '{}'.", key);
+        return ResponseEntity.status(stored.getStatusCode())
+                .headers(stored.getHeaders())
+                .header(REPLAYED_HEADER, "true")
+                .body(stored.getBody());
+    }
+
+    private <T> ResponseEntity<T> run(String key, CompletableFuture<ResponseEntity<?>> own, Supplier<ResponseEntity<T>> action) {
+        ResponseEntity<T> response = null;
+        try {
+            response = action.get();
+            return response;
+        } finally {
+            if (response != null && response.getStatusCode().is2xxSuccessful()) {
+                own.complete(response);
+            } else {
+                release(key, own);
+                own.complete(null);
+            }
+        }
+    }
+
+    /**
+     * @return The number of stored keys, including those whose request is still running.
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    private synchronized void release(String key, CompletableFuture<ResponseEntity<?>> response) {
+        entries.computeIfPresent(key, (k, entry) -> entry.response() == response ? null : entry);
+    }
+
+    // Caller must hold the lock. Entries whose request is still running are skipped.
+    private void evict(long now) {
+        Iterator<Entry> oldestFirst = entries.values().iterator();
+        while (oldestFirst.hasNext()) {
+            Entry entry = oldestFirst.next();
+            if (entries.size() < maxEntries && now - entry.createdAt() <= ttlMillis) {
+                return;
+            }
+            if (entry.response().isDone()) {
+                oldestFirst.remove();
+            }
+        }
+    }
+
+    private ResponseEntity<?> await(String key, CompletableFuture<ResponseEntity<?>> response) {
+        try {
+            return response.get(waitMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            logger.info("Request with idempotency key '{}' is still running after {} ms.", key, waitMillis);
+            throw new IdempotencyKeyInProgressException("A request with Idempotency-Key '" + key + "' is still in progress. Retry later.");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IdempotencyKeyInProgressException("Interrupted while waiting for the request with Idempotency-Key '" + key + "'.");
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Idempotent responses are never completed exceptionally.", e);
+        }
+    }
+}
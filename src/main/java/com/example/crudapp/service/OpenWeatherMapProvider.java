@@ -0,0 +1,247 @@
+package com.example.crudapp.service;
+
+import com.example.crudapp.dto.weather.*;
+import com.example.crudapp.exception.ApiKeyNotConfiguredException;
+import com.example.crudapp.exception.ZipcodeNotFoundException;
+import com.example.crudapp.resilience.RequestHedger;
+import com.example.crudapp.tracing.RequestTrace;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.RestTemplate;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * {@link WeatherProvider} backed by OpenWeatherMap: the zipcode is geocoded, then all requested parts are
+ * fetched in a single One Call request that excludes every other section. Each upstream call is hedged by
+ * the {@link RequestHedger} if hedging is enabled. If the {@link ForecastGrid} is enabled, the forecast is
+ * fetched for the centre of the zipcode's grid cell instead and shared with the other zipcodes in that cell.
+ */
+@Component
+public class OpenWeatherMapProvider implements WeatherProvider {
+
+    private static final Logger logger = LoggerFactory.getLogger(OpenWeatherMapProvider.class);
+    private final RestTemplate restTemplate;
+    private final RequestHedger requestHedger;
+    private final ForecastGrid forecastGrid;
+    private final String apiKey;
+
+    private static final String GEOCODING_API_URL = "http://api.openweathermap.org/geo/1.0/zip";
+    private static final String ONE_CALL_API_URL = "https://api.openweathermap.org/data/3.0/onecall";
+    private static final String DEFAULT_COUNTRY_CODE = "US"; // Assuming US for zip codes
+    private static final UnitSystem UNITS = UnitSystem.METRIC; // canonical; other systems are converted locally
+
+    @Autowired
+    public OpenWeatherMapProvider(RequestHedger weatherRequestHedger,
+                                  ForecastGrid forecastGrid,
+                                  @Value("${openweathermap.api.key}") String apiKey) {
+        this(new RestTemplate(), weatherRequestHedger, forecastGrid, apiKey);
+    }
+
+    OpenWeatherMapProvider(RestTemplate restTemplate, RequestHedger requestHedger, ForecastGrid forecastGrid, String apiKey) {
+        this.restTemplate = restTemplate;
+        this.requestHedger = requestHedger;
+        this.forecastGrid = forecastGrid;
+        this.apiKey = apiKey;
+    }
+
+    @Override
+    public String getName() {
+        return "openweathermap";
+    }
+
+    @Override
+    public WeatherForecastDto getForecast(String zipcode, Set<ForecastPart> parts) {
+        if ("YOUR_API_KEY_HERE".equals(apiKey) || apiKey == null || apiKey.trim().isEmpty()) {
+            logger.error("OpenWeatherMap API key is not configured. Please set 'openweathermap.api.key' in application.properties.");
+            throw new ApiKeyNotConfiguredException("OpenWeatherMap API key is not configured. Please set 'openweathermap.api.key' in application.properties.");
+        }
+
+        GeocodingApiResponseDto geoResponse;
+        try (RequestTrace.Span span = RequestTrace.span("OpenWeatherMapProvider.getCoordinates")) {
+            geoResponse = getCoordinates(zipcode);
+        }
+        if (geoResponse == null) { // Or check for empty lat/lon if the DTO can be non-null but empty
+            logger.debug("Could not retrieve coordinates for zipcode: {}", zipcode);
+            throw new ZipcodeNotFoundException(zipcode);
+        }
+
+        if (!forecastGrid.isEnabled()) {
+            return fetchParts(geoResponse.getLat(), geoResponse.getLon(), parts, new WeatherForecastDto());
+        }
+        // Share the forecast of the grid cell with every zipcode in it
+        ForecastGrid.Lookup lookup = forecastGrid.lookup(geoResponse.getLat(), geoResponse.getLon(), parts);
+        if (lookup.missing().isEmpty()) {
+            logger.debug("Serving forecast parts {} for zipcode {} from grid cell {}.", parts, zipcode, lookup.cell());
+            return lookup.cached();
+        }
+        WeatherForecastDto forecast = fetchParts(lookup.cell().latitude(), lookup.cell().longitude(), lookup.missing(), lookup.cached());
+        for (ForecastPart part : lookup.missing()) {
+            Object value = forecast.getPart(part);
+            if (value != null && !(value instanceof List<?> list && list.isEmpty())) {
+                forecastGrid.put(lookup.cell(), part, value);
+            }
+        }
+        return forecast;
+    }
+
+    // Fetches the parts for the coordinates and sets them on the forecast
+    private WeatherForecastDto fetchParts(double lat, double lon, Set<ForecastPart> parts, WeatherForecastDto forecast) {
+        OpenWeatherOneCallResponseDto weatherData;
+        try (RequestTrace.Span span = RequestTrace.span("OpenWeatherMapProvider.fetchWeatherForecast")) {
+            weatherData = fetchWeatherForecast(lat, lon, UNITS.getUpstreamName(), parts);
+        }
+        if (weatherData == null) {
+            logger.warn("No weather data received from OpenWeatherMap for lat: {}, lon: {}", lat, lon);
+            weatherData = new OpenWeatherOneCallResponseDto();
+        }
+        try (RequestTrace.Span span = RequestTrace.span("OpenWeatherMapProvider.mapParts")) {
+            for (ForecastPart part : parts) {
+                forecast.setPart(part, mapPart(weatherData, part));
+            }
+        }
+        return forecast;
+    }
+
+    private GeocodingApiResponseDto getCoordinates(String zipcode) {
+        // The OpenWeatherMap Geocoding API documentation for zip codes indicates it can return an array
+        // for city name searches, but for zip code, it returns a single object.
+        // If it could return an array for zip, the DTO type here would be GeocodingApiResponseDto[].class
+        // and we'd take the first element if the array is not empty.
+        // Based on example: http://api.openweathermap.org/geo/1.0/zip?zip=E14,GB&appid={API key} -> returns single object.
+
+        UriComponentsBuilder uriBuilder = UriComponentsBuilder.fromHttpUrl(GEOCODING_API_URL)
+                .queryParam("zip", zipcode + "," + DEFAULT_COUNTRY_CODE)
+                .queryParam("appid", apiKey);
+
+        logger.info("Fetching coordinates for zipcode: {} from URL: {}", zipcode, uriBuilder.toUriString());
+        try {
+            // Try fetching as a single object first, as per zip code API example
+            GeocodingApiResponseDto response = requestHedger.call(
+                    () -> restTemplate.getForObject(uriBuilder.toUriString(), GeocodingApiResponseDto.class));
+            if (response != null && response.getLat() != 0 && response.getLon() != 0) { // Basic check
+                logger.info("Successfully fetched coordinates: lat={}, lon={} for zipcode {}", response.getLat(), response.getLon(), zipcode);
+                return response;
+            } else {
+                 // Attempt to parse as array if single object parsing fails or returns null/empty
+                try {
+                    GeocodingApiResponseDto[] arrayResponse = requestHedger.call(
+                            () -> restTemplate.getForObject(uriBuilder.toUriString(), GeocodingApiResponseDto[].class));
+                    if (arrayResponse != null && arrayResponse.length > 0 && arrayResponse[0].getLat() != 0 && arrayResponse[0].getLon() != 0) {
+                        logger.info("Successfully fetched coordinates (from array): lat={}, lon={} for zipcode {}", arrayResponse[0].getLat(), arrayResponse[0].getLon(), zipcode);
+                        return arrayResponse[0];
+                    }
+                } catch (Exception arrayEx) {
+                    logger.warn("Failed to parse geocoding response as array for zipcode {}: {}", zipcode, arrayEx.getMessage());
+                }
+                logger.warn("Geocoding response for zipcode {} was null, empty, or lacked coordinates.", zipcode);
+                return null; // Or throw specific exception
+            }
+        } catch (HttpClientErrorException.NotFound e) {
+            // Not Found by OpenWeatherMap often means invalid zip
+            logger.debug("Geocoding found no location for zipcode {}.", zipcode);
+            throw new ZipcodeNotFoundException(zipcode);
+        }
+    }
+
+    private OpenWeatherOneCallResponseDto fetchWeatherForecast(double lat, double lon, String units, Set<ForecastPart> parts) {
+        // Exclude every section that was not asked for; minutely data and alerts are never used
+        List<String> excluded = new ArrayList<>(List.of("minutely", "alerts"));
+        for (ForecastPart part : EnumSet.complementOf(EnumSet.copyOf(parts))) {
+            excluded.add(part.getUpstreamName());
+        }
+        UriComponentsBuilder uriBuilder = UriComponentsBuilder.fromHttpUrl(ONE_CALL_API_URL)
+                .queryParam("lat", lat)
+                .queryParam("lon", lon)
+                .queryParam("exclude", String.join(",", excluded))
+                .queryParam("units", units)
+                .queryParam("appid", apiKey);
+
+        logger.info("Fetching weather forecast for lat: {}, lon: {} from URL: {}", lat, lon, uriBuilder.toUriString());
+        OpenWeatherOneCallResponseDto response = requestHedger.call(
+                () -> restTemplate.getForObject(uriBuilder.toUriString(), OpenWeatherOneCallResponseDto.class));
+        logger.info("Successfully fetched weather forecast.");
+        return response;
+    }
+
+    private static Object mapPart(OpenWeatherOneCallResponseDto weatherData, ForecastPart part) {
+        return switch (part) {
+            case CURRENT -> mapToCurrentWeatherReportDto(weatherData);
+            case HOURLY -> mapToHourlyWeatherReportDto(weatherData);
+            case DAILY -> mapToDailyWeatherReportDto(weatherData);
+        };
+    }
+
+    private static String descriptionOf(List<OpenWeatherWeatherDto> weather) {
+        return weather != null && !weather.isEmpty() ? weather.get(0).getDescription() : "N/A";
+    }
+
+    private static CurrentWeatherReportDto mapToCurrentWeatherReportDto(OpenWeatherOneCallResponseDto weatherData) {
+        OpenWeatherCurrentDto current = weatherData.getCurrent();
+        if (current == null) {
+            return null;
+        }
+        return new CurrentWeatherReportDto(
+                Instant.ofEpochSecond(current.getDt()).toString(),
+                current.getTemp(),
+                current.getFeelsLike(),
+                current.getHumidity(),
+                current.getWindSpeed(),
+                descriptionOf(current.getWeather()),
+                UNITS.getTemperatureUnit());
+    }
+
+    private static List<HourlyWeatherReportDto> mapToHourlyWeatherReportDto(OpenWeatherOneCallResponseDto weatherData) {
+        List<HourlyWeatherReportDto> reports = new ArrayList<>();
+        if (weatherData.getHourly() != null) {
+            String temperatureUnit = UNITS.getTemperatureUnit();
+            for (OpenWeatherHourlyDto hourlyDto : weatherData.getHourly()) {
+                reports.add(new HourlyWeatherReportDto(
+                        Instant.ofEpochSecond(hourlyDto.getDt()).toString(),
+                        hourlyDto.getTemp(),
+                        descriptionOf(hourlyDto.getWeather()),
+                        hourlyDto.getPop(),
+                        temperatureUnit));
+            }
+        }
+        return reports;
+    }
+
+    private static List<DailyWeatherReportDto> mapToDailyWeatherReportDto(OpenWeatherOneCallResponseDto weatherData) {
+        List<DailyWeatherReportDto> reports = new ArrayList<>();
+        String temperatureUnit = UNITS.getTemperatureUnit();
+
+        if (weatherData.getDaily() != null) {
+            for (int i = 0; i < weatherData.getDaily().size() && i < 7; i++) { // Max 7 days
+                OpenWeatherDailyDto dailyDto = weatherData.getDaily().get(i);
+                DailyWeatherReportDto report = new DailyWeatherReportDto();
+
+                LocalDate date = Instant.ofEpochSecond(dailyDto.getDt()).atZone(ZoneOffset.UTC).toLocalDate();
+                report.setDate(date.format(DateTimeFormatter.ISO_LOCAL_DATE));
+
+                if (dailyDto.getTemp() != null) {
+                    report.setMinTemperature(dailyDto.getTemp().getMin());
+                    report.setMaxTemperature(dailyDto.getTemp().getMax());
+                }
+
+                report.setWeatherDescription(descriptionOf(dailyDto.getWeather()));
+                report.setRainProbability(dailyDto.getPop());
+                report.setTemperatureUnit(temperatureUnit);
+                reports.add(report);
+            }
+        }
+        return reports;
+    }
+}
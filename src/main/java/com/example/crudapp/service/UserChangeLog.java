@@ -0,0 +1,237 @@
+package com.example.crudapp.service;
+
+import com.example.crudapp.dto.user.UserChangeDto;
+import com.example.crudapp.dto.user.UserChangeFeedDto;
+import com.example.crudapp.event.UserChangeVersions;
+import com.example.crudapp.event.UserChangedEvent;
+import com.example.crudapp.exception.ChangeCursorExpiredException;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Ordered, in-memory log of user changes, readable incrementally by cursor or as a Server-Sent Events stream.
+ * <p>
+ * Every committed create, update or delete is appended with a strictly increasing sequence number, which
+ * clients use as their cursor. The log is compacted as it grows: only the latest change per user is kept,
+ * so a client catching up receives each changed user once, in its current state (deletes are kept as
+ * tombstones). Retention is bounded by entry count and age; a cursor older than the retained history
+ * is rejected with {@link ChangeCursorExpiredException}, and the client must reload the full list.
+ * <p>
+ * Sequence numbers start at the startup time in microseconds, so cursors issued by a previous run of the
+ * application are always recognised as expired.
+ */
+@Component
+public class UserChangeLog {
+
+    private static final Logger logger = LoggerFactory.getLogger(UserChangeLog.class);
+    private static final String CHANGE_EVENT_NAME = "user-change";
+    private static final String CURSOR_EVENT_NAME = "cursor";
+
+    private final UserChangeVersions changeVersions;
+    private final Clock clock;
+    private final int maxEntries;
+    private final long retentionMillis;
+    private final NavigableMap<Long, UserChangeDto> entries = new ConcurrentSkipListMap<>();
+    private final Map<Long, Long> latestSequenceByUser = new HashMap<>(); // guarded by this
+    // SSE delivery happens on one thread, so slow clients never block writers and order is preserved
+    private final ExecutorService dispatcher = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "user-change-dispatcher");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final List<SseEmitter> subscribers = new ArrayList<>(); // only accessed by the dispatcher thread
+
+    private volatile long headSequence;
+    private volatile long horizonSequence; // cursors below this may have missed removed entries
+
+    /**
+     * Constructs a UserChangeLog.
+     * @param changeVersions The versions used to drop out-of-order changes.
+     * @param maxEntries The maximum number of retained changes.
+     * @param retentionMinutes How long changes are retained.
+     */
+    @Autowired
+    public UserChangeLog(UserChangeVersions changeVersions,
+                         @Value("${app.users.changes.max-entries:100000}") int maxEntries,
+                         @Value("${app.users.changes.retention-minutes:1440}") long retentionMinutes) {
+        this(changeVersions, Clock.systemUTC(), maxEntries, retentionMinutes);
+    }
+
+    UserChangeLog(UserChangeVersions changeVersions, Clock clock, int maxEntries, long retentionMinutes) {
+        this.changeVersions = changeVersions;
+        this.clock = clock;
+        this.maxEntries = maxEntries;
+        this.retentionMillis = retentionMinutes * 60_000;
+        this.headSequence = clock.millis() * 1000;
+        this.horizonSequence = headSequence;
+    }
+
+    /**
+     * Appends a user change once the transaction that made it has committed,
+     * unless a newer change of the same user was already appended.
+     * @param event The change to record.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public synchronized void onUserChanged(UserChangedEvent event) {
+        if (changeVersions.isLatest(event)) {
+            append(event);
+        }
+    }
+
+    /**
+     * Appends a change to the log, compacting away the previous change of the same user,
+     * and pushes it to all stream subscribers.
+     * @param event The change to record.
+     * @return The recorded entry.
+     */
+    public synchronized UserChangeDto append(UserChangedEvent event) {
+        long now = clock.millis();
+        long sequence = headSequence + 1;
+        UserChangeDto entry = new UserChangeDto(sequence, event.getType(), event.getId(), event.getName(), event.getEmail(), now);
+        Long previous = latestSequenceByUser.put(event.getId(), sequence);
+        if (previous != null) {
+            entries.remove(previous);
+        }
+        entries.put(sequence, entry);
+        headSequence = sequence;
+        trim(now);
+        dispatcher.execute(() -> broadcast(entry));
+        return entry;
+    }
+
+    /**
+     * Reads the changes recorded after the given cursor.
+     * @param since The cursor returned by a previous read, or null to only obtain the current cursor.
+     * @param limit The maximum number of changes to return.
+     * @return The changes after the cursor, oldest first, and the cursor to continue from.
+     * @throws ChangeCursorExpiredException if the cursor is older than the retained history or unknown.
+     */
+    public UserChangeFeedDto read(Long since, int limit) {
+        if (since == null) {
+            return new UserChangeFeedDto(List.of(), headSequence, false);
+        }
+        synchronized (this) {
+            trim(clock.millis());
+        }
+        checkCursor(since);
+        List<UserChangeDto> changes = new ArrayList<>(Math.min(limit, entries.size()));
+        boolean hasMore = false;
+        for (UserChangeDto entry : entries.tailMap(since, false).values()) {
+            if (changes.size() == limit) {
+                hasMore = true;
+                break;
+            }
+            changes.add(entry);
+        }
+        // Entries may have been trimmed while reading
+        checkCursor(since);
+        long cursor = changes.isEmpty() ? since : changes.get(changes.size() - 1).getSequence();
+        return new UserChangeFeedDto(changes, cursor, hasMore);
+    }
+
+    /**
+     * Subscribes an SSE emitter to the log. Changes after the given cursor are replayed first,
+     * then every new change is pushed as it is recorded. Each change is sent as a "user-change" event
+     * whose id is its sequence number, so clients can resume with Last-Event-ID.
+     * Without a cursor, a single "cursor" event carrying the current cursor is sent first.
+     * @param since The cursor to replay from, or null to receive only new changes.
+     * @param emitter The emitter to send events to.
+     * @throws ChangeCursorExpiredException if the cursor is older than the retained history or unknown.
+     */
+    public void subscribe(Long since, SseEmitter emitter) {
+        emitter.onCompletion(() -> dispatcher.execute(() -> subscribers.remove(emitter)));
+        emitter.onTimeout(emitter::complete);
+        emitter.onError(error -> dispatcher.execute(() -> subscribers.remove(emitter)));
+        synchronized (this) {
+            // Holding the lock keeps appends out, so the replay and the live stream neither overlap nor leave a gap
+            List<UserChangeDto> replay = since == null ? List.of() : read(since, Integer.MAX_VALUE).getChanges();
+            long cursor = headSequence;
+            dispatcher.execute(() -> {
+                try {
+                    if (since == null) {
+                        emitter.send(SseEmitter.event().name(CURSOR_EVENT_NAME).data(cursor));
+                    }
+                    for (UserChangeDto entry : replay) {
+                        send(emitter, entry);
+                    }
+                    subscribers.add(emitter);
+                } catch (IOException | IllegalStateException e) {
+                    logger.info("Change stream subscriber disconnected during replay: {}", e.getMessage());
+                }
+            });
+        }
+    }
+
+    /**
+     * @return The number of retained changes.
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        dispatcher.execute(() -> {
+            subscribers.forEach(SseEmitter::complete);
+            subscribers.clear();
+        });
+        dispatcher.shutdown();
+    }
+
+    private void checkCursor(long since) {
+        if (since < horizonSequence || since > headSequence) {
+            throw new ChangeCursorExpiredException("Cursor " + since + " is outside the retained change history. Reload the full user list.");
+        }
+    }
+
+    // Caller must hold the lock
+    private void trim(long now) {
+        while (!entries.isEmpty()) {
+            Map.Entry<Long, UserChangeDto> oldest = entries.firstEntry();
+            boolean tooMany = entries.size() > maxEntries;
+            boolean tooOld = now - oldest.getValue().getTimestamp() > retentionMillis;
+            if (!tooMany && !tooOld) {
+                return;
+            }
+            entries.remove(oldest.getKey());
+            latestSequenceByUser.remove(oldest.getValue().getId(), oldest.getKey());
+            horizonSequence = oldest.getKey();
+        }
+    }
+
+    private void broadcast(UserChangeDto entry) {
+        subscribers.removeIf(emitter -> {
+            try {
+                send(emitter, entry);
+                return false;
+            } catch (IOException | IllegalStateException e) {
+                logger.info("Removing disconnected change stream subscriber: {}", e.getMessage());
+                return true;
+            }
+        });
+    }
+
+    private static void send(SseEmitter emitter, UserChangeDto entry) throws IOException {
+        emitter.send(SseEmitter.event()
+                .id(String.valueOf(entry.getSequence()))
+                .name(CHANGE_EVENT_NAME)
+                .data(entry));
+    }
+}
@@ -0,0 +1,42 @@
+package com.example.crudapp.service;
+
+import com.example.crudapp.model.User;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.StatelessSession;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.id.IdentifierGenerator;
+import org.springframework.stereotype.Component;
+
+/**
+ * Reserves user IDs before the corresponding row is written.
+ * Uses the same Hibernate generator as {@link User#getId()}, so reserved IDs come out of the same
+ * pooled sequence blocks as IDs assigned on save and can never collide with them.
+ * Most reservations are served from memory; the sequence is only read once per block.
+ */
+@Component
+public class UserIdReserver {
+
+    private final SessionFactoryImplementor sessionFactory;
+    private final IdentifierGenerator generator;
+
+    /**
+     * Constructs a UserIdReserver.
+     * @param entityManagerFactory The JPA entity manager factory, backed by a Hibernate SessionFactory.
+     */
+    public UserIdReserver(EntityManagerFactory entityManagerFactory) {
+        this.sessionFactory = entityManagerFactory.unwrap(SessionFactoryImplementor.class);
+        this.generator = (IdentifierGenerator) sessionFactory.getMappingMetamodel()
+                .getEntityDescriptor(User.class)
+                .getGenerator();
+    }
+
+    /**
+     * @return A new user ID that no other caller or save operation will receive.
+     */
+    public Long reserve() {
+        try (StatelessSession session = sessionFactory.openStatelessSession()) {
+            return (Long) generator.generate((SharedSessionContractImplementor) session, null);
+        }
+    }
+}
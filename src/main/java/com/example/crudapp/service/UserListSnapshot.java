@@ -0,0 +1,258 @@
+package com.example.crudapp.service;
+
+import com.example.crudapp.dto.user.UserFullView;
+import com.example.crudapp.event.UserChangeVersions;
+import com.example.crudapp.event.UserChangedEvent;
+import com.example.crudapp.model.User;
+import com.example.crudapp.repository.UserRepository;
+import com.example.crudapp.sharding.ShardedUserStore;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Off-heap snapshot of the full user list as pre-encoded JSON, so {@code GET /api/users} can be served
+ * without querying the database, hydrating entities or serializing users per request.
+ * <p>
+ * Each user is encoded once, as a JSON object prefixed with a comma, and appended to a direct
+ * {@link ByteBuffer} arena; a sorted map records where the current fragment of each user lives.
+ * Updates append a new fragment and deletes drop the map entry, leaving dead bytes behind; the arena is
+ * compacted into a new buffer when it runs out of space. Readers stream the live fragments in ID order
+ * straight from the buffer and are never blocked by writers: fragments are immutable once written, and
+ * compaction swaps in a new arena while readers finish with the old one.
+ * <p>
+ * The snapshot is built from the repository, or from the shards if sharding is enabled, at startup and
+ * kept current by listening to {@link UserChangedEvent}s, which are applied after the surrounding
+ * transaction commits; events overtaken by a newer change of the same user are dropped. It is only
+ * as current as those events, so every write must publish one (see
+ * {@link com.example.crudapp.event.UserChangePublisher}). Requests reach it through
+ * {@link UserService#writeAllUsers(OutputStream)}.
+ */
+@Component
+public class UserListSnapshot implements SmartInitializingSingleton {
+
+    private static final Logger logger = LoggerFactory.getLogger(UserListSnapshot.class);
+    private static final int MIN_CAPACITY = 64 * 1024;
+    private static final byte[] EMPTY_LIST = {'[', ']'};
+
+    private final UserRepository userRepository;
+    private final ShardedUserStore shardedUserStore;
+    private final ObjectMapper objectMapper;
+    private final UserChangeVersions changeVersions;
+    private volatile Arena arena = new Arena(MIN_CAPACITY);
+
+    // A direct buffer of fragments plus the location of each user's live fragment
+    private static final class Arena {
+        final ByteBuffer buffer;
+        final NavigableMap<Long, Long> slots = new ConcurrentSkipListMap<>(); // id -> offset << 32 | length
+        int writePosition; // guarded by the snapshot
+        long liveBytes; // guarded by the snapshot
+
+        Arena(int capacity) {
+            this.buffer = ByteBuffer.allocateDirect(capacity);
+        }
+
+        boolean fits(int length) {
+            return buffer.capacity() - writePosition >= length;
+        }
+    }
+
+    /**
+     * Constructs a UserListSnapshot.
+     * @param userRepository The repository the snapshot is built from at startup.
+     * @param shardedUserStore The shards the snapshot is built from instead, if sharding is enabled.
+     * @param objectMapper The mapper used to encode users, so fragments match the regular JSON responses.
+     * @param changeVersions The versions used to drop out-of-order changes.
+     */
+    public UserListSnapshot(UserRepository userRepository, ShardedUserStore shardedUserStore, ObjectMapper objectMapper,
+                            UserChangeVersions changeVersions) {
+        this.userRepository = userRepository;
+        this.shardedUserStore = shardedUserStore;
+        this.objectMapper = objectMapper;
+        this.changeVersions = changeVersions;
+    }
+
+    /**
+     * Builds the snapshot once all singletons exist, before the web server accepts traffic.
+     */
+    @Override
+    public void afterSingletonsInstantiated() {
+        rebuild();
+    }
+
+    /**
+     * Discards the snapshot and rebuilds it from all users in the repository or the shards.
+     */
+    public synchronized void rebuild() {
+        long start = System.nanoTime();
+        List<UserFullView> users = shardedUserStore.isEnabled()
+                ? shardedUserStore.findAll(UserFullView.class) : userRepository.findAllBy(UserFullView.class);
+        Arena rebuilt = new Arena(MIN_CAPACITY);
+        for (UserFullView user : users) {
+            byte[] fragment = encode(user.id(), user.name(), user.email());
+            if (!rebuilt.fits(fragment.length)) {
+                rebuilt = compact(rebuilt, fragment.length);
+            }
+            append(rebuilt, user.id(), fragment);
+        }
+        arena = rebuilt;
+        logger.info("Built user list snapshot with {} users ({} bytes) in {} ms.",
+                rebuilt.slots.size(), rebuilt.liveBytes, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    /**
+     * Applies a user change to the snapshot once the transaction that made it has committed.
+     * @param event The change to apply.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public synchronized void onUserChanged(UserChangedEvent event) {
+        if (!changeVersions.isLatest(event)) {
+            logger.debug("Ignoring out-of-order {} of user with ID {}.", event.getType(), event.getId());
+            return;
+        }
+        switch (event.getType()) {
+            case CREATED, UPDATED -> put(event.getId(), event.getName(), event.getEmail());
+            case DELETED -> remove(event.getId());
+        }
+    }
+
+    /**
+     * Adds or replaces the fragment of a user.
+     * @param id The user ID.
+     * @param name The user name.
+     * @param email The user email.
+     */
+    public synchronized void put(Long id, String name, String email) {
+        byte[] fragment = encode(id, name, email);
+        Arena current = arena;
+        if (!current.fits(fragment.length)) {
+            current = compact(current, fragment.length);
+        }
+        release(current, current.slots.get(id));
+        append(current, id, fragment);
+        arena = current;
+    }
+
+    /**
+     * Removes a user. Does nothing if the user is not in the snapshot.
+     * @param id The user ID.
+     */
+    public synchronized void remove(Long id) {
+        Arena current = arena;
+        release(current, current.slots.remove(id));
+    }
+
+    /**
+     * Writes the full user list as a JSON array, ordered by ID, copying fragments directly from the
+     * off-heap buffer to the stream.
+     * @param out The stream to write to; not closed.
+     * @return The number of users written.
+     * @throws IOException if writing fails.
+     */
+    public int writeTo(OutputStream out) throws IOException {
+        Arena current = arena;
+        if (current.slots.isEmpty()) {
+            out.write(EMPTY_LIST);
+            return 0;
+        }
+        ByteBuffer view = current.buffer.duplicate();
+        WritableByteChannel channel = Channels.newChannel(out);
+        out.write('[');
+        boolean first = true;
+        int count = 0;
+        for (long slot : current.slots.values()) {
+            int offset = (int) (slot >>> 32);
+            int length = (int) slot;
+            if (first) {
+                offset++; // skip the leading comma
+                length--;
+                first = false;
+            }
+            view.limit(offset + length).position(offset);
+            while (view.hasRemaining()) {
+                channel.write(view);
+            }
+            view.clear();
+            count++;
+        }
+        out.write(']');
+        out.flush();
+        return count;
+    }
+
+    /**
+     * @return The number of users in the snapshot.
+     */
+    public int size() {
+        return arena.slots.size();
+    }
+
+    /**
+     * @return The size of the off-heap buffer in bytes.
+     */
+    public int capacityBytes() {
+        return arena.buffer.capacity();
+    }
+
+    private static void append(Arena target, Long id, byte[] fragment) {
+        int offset = target.writePosition;
+        target.buffer.put(offset, fragment);
+        target.writePosition += fragment.length;
+        target.liveBytes += fragment.length;
+        // Published after the bytes are written, so readers never see a partial fragment
+        target.slots.put(id, ((long) offset << 32) | fragment.length);
+    }
+
+    private static void release(Arena target, Long slot) {
+        if (slot != null) {
+            target.liveBytes -= (int) (long) slot;
+        }
+    }
+
+    // Copies the live fragments into a new arena with room for at least 'needed' more bytes
+    private static Arena compact(Arena source, int needed) {
+        long required = source.liveBytes + needed;
+        if (required * 2 > Integer.MAX_VALUE) {
+            throw new IllegalStateException("User list snapshot exceeds the maximum buffer size.");
+        }
+        Arena compacted = new Arena((int) Math.max(MIN_CAPACITY, required * 2));
+        for (var entry : source.slots.entrySet()) {
+            long slot = entry.getValue();
+            int offset = (int) (slot >>> 32);
+            int length = (int) slot;
+            int target = compacted.writePosition;
+            compacted.buffer.put(target, source.buffer, offset, length);
+            compacted.writePosition += length;
+            compacted.liveBytes += length;
+            compacted.slots.put(entry.getKey(), ((long) target << 32) | length);
+        }
+        logger.debug("Compacted user list snapshot to {} live bytes in a {} byte buffer.", compacted.liveBytes, compacted.buffer.capacity());
+        return compacted;
+    }
+
+    private byte[] encode(Long id, String name, String email) {
+        try {
+            byte[] json = objectMapper.writeValueAsBytes(new User(id, name, email));
+            byte[] fragment = new byte[json.length + 1];
+            fragment[0] = ',';
+            System.arraycopy(json, 0, fragment, 1, json.length);
+            return fragment;
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
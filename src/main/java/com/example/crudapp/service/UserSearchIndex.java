@@ -0,0 +1,271 @@
+package com.example.crudapp.service;
+
+import com.example.crudapp.event.UserChangeVersions;
+import com.example.crudapp.event.UserChangedEvent;
+import com.example.crudapp.model.User;
+import com.example.crudapp.repository.UserRepository;
+import com.example.crudapp.sharding.ShardedUserStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory n-gram index over user names and emails, supporting ranked prefix and substring search.
+ * Every 1- to 3-character gram of the lowercased name and email maps to the IDs of the users containing it.
+ * A query is answered from the smallest posting list among its grams, and each candidate is verified
+ * against the indexed text, so results are always exact.
+ * <p>
+ * The index is rebuilt from the repository, or from the shards if sharding is enabled, at startup and kept consistent by listening to
+ * {@link UserChangedEvent}s, which are applied after the surrounding transaction commits; events
+ * overtaken by a newer change of the same user are dropped.
+ */
+@Component
+public class UserSearchIndex implements SmartInitializingSingleton {
+
+    private static final Logger logger = LoggerFactory.getLogger(UserSearchIndex.class);
+    private static final int MAX_GRAM_LENGTH = 3;
+
+    // Match quality, lower is better
+    private static final int RANK_EXACT = 0;
+    private static final int RANK_PREFIX = 1;
+    private static final int RANK_WORD_PREFIX = 2;
+    private static final int RANK_SUBSTRING = 3;
+
+    private final UserRepository userRepository;
+    private final ShardedUserStore shardedUserStore;
+    private final UserChangeVersions changeVersions;
+    private final Map<Long, IndexedUser> documents = new ConcurrentHashMap<>();
+    private final Map<String, Set<Long>> postings = new ConcurrentHashMap<>();
+
+    /**
+     * Constructs a UserSearchIndex.
+     * @param userRepository The repository the index is rebuilt from at startup.
+     * @param shardedUserStore The shards the index is rebuilt from instead, if sharding is enabled.
+     * @param changeVersions The versions used to drop out-of-order changes.
+     */
+    public UserSearchIndex(UserRepository userRepository, ShardedUserStore shardedUserStore,
+                           UserChangeVersions changeVersions) {
+        this.userRepository = userRepository;
+        this.shardedUserStore = shardedUserStore;
+        this.changeVersions = changeVersions;
+    }
+
+    private record IndexedUser(long id, String name, String email, String nameKey, String emailKey) {
+    }
+
+    private record Match(IndexedUser user, int rank, int fieldLength) {
+    }
+
+    private static final Comparator<Match> BEST_FIRST = Comparator.comparingInt(Match::rank)
+            .thenComparingInt(Match::fieldLength)
+            .thenComparingLong(match -> match.user().id());
+
+    /**
+     * Rebuilds the index from the repository once all singletons exist, before the web server accepts traffic.
+     */
+    @Override
+    public void afterSingletonsInstantiated() {
+        rebuild();
+    }
+
+    /**
+     * Discards the index and rebuilds it from all users in the repository or the shards.
+     */
+    public synchronized void rebuild() {
+        long start = System.nanoTime();
+        documents.clear();
+        postings.clear();
+        List<User> users = shardedUserStore.isEnabled() ? shardedUserStore.findAll() : userRepository.findAll();
+        for (User user : users) {
+            add(user.getId(), user.getName(), user.getEmail());
+        }
+        logger.info("Built user search index with {} users and {} grams in {} ms.",
+                documents.size(), postings.size(), (System.nanoTime() - start) / 1_000_000);
+    }
+
+    /**
+     * Applies a user change to the index once the transaction that made it has committed.
+     * @param event The change to apply.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public synchronized void onUserChanged(UserChangedEvent event) {
+        if (!changeVersions.isLatest(event)) {
+            logger.debug("Ignoring out-of-order {} of user with ID {}.", event.getType(), event.getId());
+            return;
+        }
+        switch (event.getType()) {
+            case CREATED, UPDATED -> index(event.getId(), event.getName(), event.getEmail());
+            case DELETED -> remove(event.getId());
+        }
+    }
+
+    /**
+     * Adds a user to the index, replacing any previous entry for the same ID.
+     * @param id The user ID.
+     * @param name The user name.
+     * @param email The user email.
+     */
+    public synchronized void index(Long id, String name, String email) {
+        remove(id);
+        add(id, name, email);
+    }
+
+    /**
+     * Removes a user from the index. Does nothing if the user is not indexed.
+     * @param id The user ID.
+     */
+    public synchronized void remove(Long id) {
+        IndexedUser previous = documents.remove(id);
+        if (previous == null) {
+            return;
+        }
+        for (String gram : grams(previous)) {
+            postings.computeIfPresent(gram, (key, ids) -> {
+                ids.remove(id);
+                return ids.isEmpty() ? null : ids;
+            });
+        }
+    }
+
+    /**
+     * Searches users whose name or email contains the query, case-insensitively.
+     * Results are ranked by match quality (exact, prefix, word prefix, substring), then by the length
+     * of the matched field and finally by ID.
+     * @param query The text to search for.
+     * @param limit The maximum number of results.
+     * @return The best matching users, best first.
+     */
+    public List<User> search(String query, int limit) {
+        String key = normalize(query);
+        if (key.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+        Set<Long> candidates = smallestPosting(key);
+        if (candidates.isEmpty()) {
+            return List.of();
+        }
+
+        // Keep the best 'limit' matches in a max-heap on rank
+        PriorityQueue<Match> best = new PriorityQueue<>(limit + 1, BEST_FIRST.reversed());
+        for (Long id : candidates) {
+            IndexedUser user = documents.get(id);
+            if (user == null) {
+                continue; // removed concurrently
+            }
+            Match match = match(user, key);
+            if (match != null) {
+                best.offer(match);
+                if (best.size() > limit) {
+                    best.poll();
+                }
+            }
+        }
+
+        List<Match> ordered = new ArrayList<>(best);
+        ordered.sort(BEST_FIRST);
+        List<User> results = new ArrayList<>(ordered.size());
+        for (Match match : ordered) {
+            results.add(new User(match.user().id(), match.user().name(), match.user().email()));
+        }
+        return results;
+    }
+
+    /**
+     * @return The number of indexed users.
+     */
+    public int size() {
+        return documents.size();
+    }
+
+    private void add(Long id, String name, String email) {
+        IndexedUser user = new IndexedUser(id, name, email, normalize(name), normalize(email));
+        documents.put(id, user);
+        for (String gram : grams(user)) {
+            postings.computeIfAbsent(gram, key -> ConcurrentHashMap.newKeySet()).add(id);
+        }
+    }
+
+    private Set<Long> smallestPosting(String key) {
+        if (key.length() <= MAX_GRAM_LENGTH) {
+            return postings.getOrDefault(key, Set.of());
+        }
+        Set<Long> smallest = null;
+        for (int i = 0; i + MAX_GRAM_LENGTH <= key.length(); i++) {
+            Set<Long> posting = postings.get(key.substring(i, i + MAX_GRAM_LENGTH));
+            if (posting == null) {
+                return Set.of(); // a gram of the query occurs nowhere
+            }
+            if (smallest == null || posting.size() < smallest.size()) {
+                smallest = posting;
+            }
+        }
+        return smallest;
+    }
+
+    private static Match match(IndexedUser user, String key) {
+        Match nameMatch = matchField(user, user.nameKey(), key);
+        Match emailMatch = matchField(user, user.emailKey(), key);
+        if (nameMatch == null) {
+            return emailMatch;
+        }
+        if (emailMatch == null) {
+            return nameMatch;
+        }
+        return BEST_FIRST.compare(nameMatch, emailMatch) <= 0 ? nameMatch : emailMatch;
+    }
+
+    private static Match matchField(IndexedUser user, String field, String key) {
+        int index = field.indexOf(key);
+        if (index < 0) {
+            return null;
+        }
+        int rank;
+        if (index == 0) {
+            rank = field.length() == key.length() ? RANK_EXACT : RANK_PREFIX;
+        } else {
+            rank = RANK_SUBSTRING;
+            for (int i = index; i >= 0; i = field.indexOf(key, i + 1)) {
+                if (isWordStart(field, i)) {
+                    rank = RANK_WORD_PREFIX;
+                    break;
+                }
+            }
+        }
+        return new Match(user, rank, field.length());
+    }
+
+    private static boolean isWordStart(String field, int index) {
+        return !Character.isLetterOrDigit(field.charAt(index - 1));
+    }
+
+    private static Set<String> grams(IndexedUser user) {
+        Set<String> grams = new HashSet<>();
+        addGrams(user.nameKey(), grams);
+        addGrams(user.emailKey(), grams);
+        return grams;
+    }
+
+    private static void addGrams(String text, Set<String> grams) {
+        for (int length = 1; length <= MAX_GRAM_LENGTH; length++) {
+            for (int i = 0; i + length <= text.length(); i++) {
+                grams.add(text.substring(i, i + length));
+            }
+        }
+    }
+
+    private static String normalize(String text) {
+        return text == null ? "" : text.trim().toLowerCase(Locale.ROOT);
+    }
+}
@@ -1,12 +1,26 @@
 package com.example.crudapp.service;
 
+import com.example.crudapp.dto.user.UserCreationStatusDto;
+import com.example.crudapp.dto.user.UserStatsDto;
+import com.example.crudapp.dto.user.UserUpsertResultDto;
+import com.example.crudapp.event.UserChangedEvent;
+import com.example.crudapp.exception.UserNotFoundException;
 import com.example.crudapp.model.User;
 import com.example.crudapp.repository.UserRepository;
+import com.example.crudapp.sharding.ShardedUserStore;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 import org.slf4j.Logger;
@@ -20,15 +34,44 @@ import org.slf4j.LoggerFactory;
 public class UserService {
 
     private static final Logger logger = LoggerFactory.getLogger(UserService.class);
+    private static final int MAX_SEARCH_LIMIT = 100;
+    private static final int MAX_UPSERT_BATCH_SIZE = 1000;
     private final UserRepository userRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final UserSearchIndex userSearchIndex;
+    private final UserListSnapshot userListSnapshot;
+    private final UserStatistics userStatistics;
+    private final UserIdReserver userIdReserver;
+    private final UserWriteBehindQueue writeBehindQueue;
+    private final ShardedUserStore shardedUserStore;
+    private final TransactionTemplate transactionTemplate;
 
     /**
      * Constructs a UserService with the specified UserRepository.
      * @param userRepository The repository for user data access.
+     * @param eventPublisher The publisher used to announce user changes to derived views.
+     * @param userSearchIndex The in-memory index backing user search.
+     * @param userListSnapshot The off-heap JSON snapshot backing the full user list.
+     * @param userStatistics The in-memory aggregate statistics backing the stats endpoint.
+     * @param userIdReserver Reserves IDs for asynchronously created users.
+     * @param writeBehindQueue The queue asynchronously created users are written through.
+     * @param shardedUserStore The sharded storage used instead of the repository when sharding is enabled.
+     * @param transactionTemplate The template wrapping each upsert attempt in a transaction.
      */
     @Autowired
-    public UserService(UserRepository userRepository) {
+    public UserService(UserRepository userRepository, ApplicationEventPublisher eventPublisher, UserSearchIndex userSearchIndex,
+                       UserListSnapshot userListSnapshot, UserStatistics userStatistics, UserIdReserver userIdReserver,
+                       UserWriteBehindQueue writeBehindQueue, ShardedUserStore shardedUserStore,
+                       TransactionTemplate transactionTemplate) {
         this.userRepository = userRepository;
+        this.eventPublisher = eventPublisher;
+        this.userSearchIndex = userSearchIndex;
+        this.userListSnapshot = userListSnapshot;
+        this.userStatistics = userStatistics;
+        this.userIdReserver = userIdReserver;
+        this.writeBehindQueue = writeBehindQueue;
+        this.shardedUserStore = shardedUserStore;
+        this.transactionTemplate = transactionTemplate;
     }
 
     /**
@@ -39,25 +82,76 @@ public class UserService {
      */
     @Transactional
     public User createUser(User user) {
-        logger.info("Attempting to create new user. Name: '{}', Email: '{}'", user.getName(), user.getEmail());
-        if (user == null) {
-            logger.warn("User creation failed: User object is null.");
-            throw new IllegalArgumentException("User object cannot be null.");
-        }
-        if (user.getName() == null || user.getName().trim().isEmpty()) {
-            logger.warn("User creation failed: User name is null or empty.");
-            throw new IllegalArgumentException("User name cannot be null or empty.");
-        }
-        if (user.getEmail() == null || user.getEmail().trim().isEmpty()) {
-            logger.warn("User creation failed: User email is null or empty.");
-            throw new IllegalArgumentException("User email cannot be null or empty.");
-        }
+        validateNewUser(user);
         // Add any other business logic before saving, e.g., validation
-        User savedUser = userRepository.save(user);
+        User savedUser;
+        if (shardedUserStore.isEnabled()) {
+            savedUser = shardedUserStore.insert(user);
+            eventPublisher.publishEvent(UserChangedEvent.created(savedUser));
+        } else {
+            // Flushed so the event is published here; see UserChangePublisher
+            savedUser = userRepository.saveAndFlush(user);
+        }
         logger.info("Successfully created user with ID: {}. Name: '{}', Email: '{}'", savedUser.getId(), savedUser.getName(), savedUser.getEmail());
         return savedUser;
     }
 
+    /**
+     * Accepts a new user for asynchronous creation (write-behind).
+     * The user is validated and assigned a reserved ID immediately, then queued; a background flusher
+     * inserts queued users in JDBC batches. Use {@link #getCreationStatus(Long)} to follow up.
+     * @param user The user object to create.
+     * @return The accepted user, with its reserved ID set.
+     * @throws IllegalArgumentException if the user object or its essential fields (name, email) are null or empty.
+     * @throws IllegalStateException if asynchronous creation is not enabled, or sharding is enabled.
+     * @throws com.example.crudapp.exception.WriteQueueFullException if the queue is full (backpressure).
+     */
+    public User createUserAsync(User user) {
+        validateNewUser(user);
+        if (!isAsyncCreateEnabled()) {
+            logger.warn("Asynchronous user creation requested but not enabled.");
+            throw new IllegalStateException("Asynchronous user creation is not enabled.");
+        }
+        user.setId(userIdReserver.reserve());
+        writeBehindQueue.enqueue(user);
+        logger.info("Accepted user for asynchronous creation with reserved ID: {}. Name: '{}', Email: '{}'", user.getId(), user.getName(), user.getEmail());
+        return user;
+    }
+
+    /**
+     * @return true if users can be created asynchronously via {@link #createUserAsync(User)}.
+     *         The write-behind queue writes to the primary database only, so it is unavailable when sharding is enabled.
+     */
+    public boolean isAsyncCreateEnabled() {
+        return writeBehindQueue.isEnabled() && !shardedUserStore.isEnabled();
+    }
+
+    /**
+     * Reports the creation status of a user accepted for asynchronous creation.
+     * @param id The reserved ID of the user.
+     * @return An Optional containing the status (PENDING, CREATED or FAILED), or an empty Optional
+     *         if the ID is neither queued, failed nor stored.
+     * @throws IllegalArgumentException if the user ID is null.
+     */
+    @Transactional(readOnly = true)
+    public Optional<UserCreationStatusDto> getCreationStatus(Long id) {
+        if (id == null) {
+            logger.warn("Failed to retrieve creation status: ID is null.");
+            throw new IllegalArgumentException("User ID cannot be null.");
+        }
+        if (writeBehindQueue.isPending(id)) {
+            return Optional.of(new UserCreationStatusDto(id, UserCreationStatusDto.Status.PENDING, null));
+        }
+        String failure = writeBehindQueue.getFailure(id);
+        if (failure != null) {
+            return Optional.of(new UserCreationStatusDto(id, UserCreationStatusDto.Status.FAILED, failure));
+        }
+        if (userRepository.existsById(id)) {
+            return Optional.of(new UserCreationStatusDto(id, UserCreationStatusDto.Status.CREATED, null));
+        }
+        return Optional.empty();
+    }
+
     /**
      * Retrieves all users from the database.
      * @return A list of all users.
@@ -65,7 +159,46 @@ public class UserService {
     @Transactional(readOnly = true)
     public List<User> getAllUsers() {
         logger.info("Attempting to retrieve all users.");
-        List<User> users = userRepository.findAll();
+        List<User> users = shardedUserStore.isEnabled() ? shardedUserStore.findAll() : userRepository.findAll();
+        logger.info("Retrieved {} users.", users.size());
+        return users;
+    }
+
+    /**
+     * Writes all users to a stream as a JSON array ordered by ID, from the off-heap {@link UserListSnapshot}
+     * rather than the database. The snapshot follows the shards when sharding is enabled.
+     * @param out The stream to write to; not closed.
+     * @return The number of users written.
+     * @throws IOException if writing fails.
+     */
+    public int writeAllUsers(OutputStream out) throws IOException {
+        logger.info("Attempting to write all users from the snapshot.");
+        int count = userListSnapshot.writeTo(out);
+        logger.info("Wrote {} users from the snapshot.", count);
+        return count;
+    }
+
+    /**
+     * Reports aggregate user statistics from the in-memory {@link UserStatistics}, without querying the database.
+     * @param domains The maximum number of email domains to list, largest first.
+     * @return The total number of users, the users per email domain and the recent creation rate.
+     */
+    public UserStatsDto getStats(int domains) {
+        logger.info("Attempting to retrieve user statistics for up to {} email domains.", domains);
+        UserStatsDto stats = userStatistics.getStats(domains);
+        logger.info("Retrieved statistics for {} users in {} email domains.", stats.getTotalUsers(), stats.getEmailDomainCount());
+        return stats;
+    }
+
+    /**
+     * Retrieves all users as a projection, selecting only the projected columns.
+     * @param type The projection class, e.g. {@link com.example.crudapp.dto.user.UserNameView}.
+     * @return A list of all users, projected.
+     */
+    @Transactional(readOnly = true)
+    public <T> List<T> getAllUsers(Class<T> type) {
+        logger.info("Attempting to retrieve all users as {}.", type.getSimpleName());
+        List<T> users = shardedUserStore.isEnabled() ? shardedUserStore.findAll(type) : userRepository.findAllBy(type);
         logger.info("Retrieved {} users.", users.size());
         return users;
     }
@@ -83,7 +216,7 @@ public class UserService {
             logger.warn("Failed to retrieve user: ID is null.");
             throw new IllegalArgumentException("User ID cannot be null.");
         }
-        Optional<User> userOptional = userRepository.findById(id);
+        Optional<User> userOptional = shardedUserStore.isEnabled() ? shardedUserStore.findById(id) : userRepository.findById(id);
         if (userOptional.isPresent()) {
             logger.info("User found with ID: {}", id);
         } else {
@@ -92,17 +225,33 @@ public class UserService {
         return userOptional;
     }
 
+    /**
+     * Retrieves a user by their ID as a projection, selecting only the projected columns.
+     * @param id The ID of the user to retrieve.
+     * @param type The projection class.
+     * @return An Optional containing the projected user if found, or an empty Optional if not.
+     * @throws IllegalArgumentException if the user ID is null.
+     */
+    @Transactional(readOnly = true)
+    public <T> Optional<T> getUserById(Long id, Class<T> type) {
+        logger.info("Attempting to retrieve user by ID: {} as {}", id, type.getSimpleName());
+        if (id == null) {
+            logger.warn("Failed to retrieve user: ID is null.");
+            throw new IllegalArgumentException("User ID cannot be null.");
+        }
+        return shardedUserStore.isEnabled() ? shardedUserStore.findById(id, type) : userRepository.findProjectedById(id, type);
+    }
+
     /**
      * Updates an existing user's details.
      * @param id The ID of the user to update.
      * @param userDetails An object containing the new details for the user.
      * @return The updated user.
      * @throws IllegalArgumentException if the user ID, userDetails object, or its essential fields (name, email) are null or empty.
-     * @throws RuntimeException if the user with the given ID is not found.
+     * @throws UserNotFoundException if the user with the given ID is not found.
      */
     @Transactional
     public User updateUser(Long id, User userDetails) {
-        logger.info("Attempting to update user with ID: {}. New Name: '{}', New Email: '{}'", id, userDetails.getName(), userDetails.getEmail());
         if (id == null) {
             logger.warn("User update failed: ID is null.");
             throw new IllegalArgumentException("User ID cannot be null.");
@@ -111,6 +260,7 @@ public class UserService {
             logger.warn("User update failed for ID {}: User details object is null.", id);
             throw new IllegalArgumentException("User details object cannot be null.");
         }
+        logger.info("Attempting to update user with ID: {}. New Name: '{}', New Email: '{}'", id, userDetails.getName(), userDetails.getEmail());
         if (userDetails.getName() == null || userDetails.getName().trim().isEmpty()) {
             logger.warn("User update failed for ID {}: User name is null or empty.", id);
             throw new IllegalArgumentException("User name cannot be null or empty.");
@@ -120,25 +270,97 @@ public class UserService {
             throw new IllegalArgumentException("User email cannot be null or empty.");
         }
 
-        User user = userRepository.findById(id)
-                .orElseThrow(() -> {
-                    logger.warn("User not found with ID {} during update attempt.", id);
-                    return new RuntimeException("User not found with id " + id); // Or a custom exception
-                });
-
-        user.setName(userDetails.getName());
-        user.setEmail(userDetails.getEmail());
-        // Add other fields to update as necessary
-        User updatedUser = userRepository.save(user);
+        User updatedUser;
+        if (shardedUserStore.isEnabled()) {
+            // A single UPDATE; its row count tells whether the user exists
+            updatedUser = new User(id, userDetails.getName(), userDetails.getEmail());
+            if (!shardedUserStore.update(updatedUser)) {
+                logger.debug("User not found with ID {} during update attempt.", id);
+                throw new UserNotFoundException(id);
+            }
+            eventPublisher.publishEvent(UserChangedEvent.updated(updatedUser));
+        } else {
+            User user = userRepository.findById(id).orElseThrow(() -> {
+                logger.debug("User not found with ID {} during update attempt.", id);
+                return new UserNotFoundException(id);
+            });
+            user.setName(userDetails.getName());
+            user.setEmail(userDetails.getEmail());
+            // Add other fields to update as necessary
+            // Flushed so the event is published here; see UserChangePublisher
+            updatedUser = userRepository.saveAndFlush(user);
+        }
         logger.info("Successfully updated user with ID: {}. Name: '{}', Email: '{}'", updatedUser.getId(), updatedUser.getName(), updatedUser.getEmail());
         return updatedUser;
     }
 
+    /**
+     * Creates or updates users by email, writing all of them in a single {@code MERGE} statement.
+     * A user whose email exists gets the new name and keeps its ID; any other user is created.
+     * If an email appears more than once, its last occurrence wins.
+     * <p>
+     * Emails are unique, so concurrent writers cannot create duplicates. If a concurrent writer inserts one
+     * of the emails first, the statement fails on the unique constraint and is retried once, now updating
+     * that user instead.
+     * @param users The users, each with a name and an email; at most 1000.
+     * @return The written users, one per distinct email, in the order of their first occurrence.
+     * @throws IllegalArgumentException if the list is null, empty or too large, or a user lacks a name or email.
+     * @throws IllegalStateException if sharding is enabled, since emails are only unique per shard.
+     */
+    public List<UserUpsertResultDto> upsertUsersByEmail(List<User> users) {
+        if (users == null || users.isEmpty() || users.size() > MAX_UPSERT_BATCH_SIZE) {
+            logger.warn("User upsert failed: {} users given.", users == null ? null : users.size());
+            throw new IllegalArgumentException("Between 1 and " + MAX_UPSERT_BATCH_SIZE + " users must be given.");
+        }
+        Map<String, User> byEmail = new LinkedHashMap<>();
+        for (User user : users) {
+            validateNewUser(user);
+            byEmail.put(user.getEmail(), user);
+        }
+        if (shardedUserStore.isEnabled()) {
+            logger.warn("User upsert requested but sharding is enabled.");
+            throw new IllegalStateException("Upserting users by email is not supported when sharding is enabled.");
+        }
+        List<User> distinct = new ArrayList<>(byEmail.values());
+        try {
+            return transactionTemplate.execute(status -> doUpsertUsersByEmail(distinct));
+        } catch (DataIntegrityViolationException e) {
+            // The row that caused the conflict is committed by now, so the retry matches and updates it
+            logger.info("User upsert of {} users conflicted with a concurrent insert; retrying once.", distinct.size());
+            return transactionTemplate.execute(status -> doUpsertUsersByEmail(distinct));
+        }
+    }
+
+    private List<UserUpsertResultDto> doUpsertUsersByEmail(List<User> users) {
+        Long[] ids = new Long[users.size()];
+        String[] names = new String[users.size()];
+        String[] emails = new String[users.size()];
+        for (int i = 0; i < users.size(); i++) {
+            ids[i] = userIdReserver.reserve(); // only used if the user is inserted
+            names[i] = users.get(i).getName();
+            emails[i] = users.get(i).getEmail();
+        }
+        Map<String, Long> writtenIds = new LinkedHashMap<>();
+        for (Object[] row : userRepository.upsertAllByEmail(ids, names, emails)) {
+            writtenIds.put((String) row[1], ((Number) row[0]).longValue());
+        }
+        List<UserUpsertResultDto> results = new ArrayList<>(users.size());
+        for (int i = 0; i < users.size(); i++) {
+            Long id = writtenIds.get(emails[i]);
+            boolean created = ids[i].equals(id);
+            User written = new User(id, names[i], emails[i]);
+            eventPublisher.publishEvent(created ? UserChangedEvent.created(written) : UserChangedEvent.updated(written));
+            results.add(new UserUpsertResultDto(id, names[i], emails[i], created));
+        }
+        logger.info("Upserted {} users by email.", results.size());
+        return results;
+    }
+
     /**
      * Deletes a user by their ID.
      * @param id The ID of the user to delete.
      * @throws IllegalArgumentException if the user ID is null.
-     * @throws RuntimeException if the user with the given ID is not found.
+     * @throws UserNotFoundException if the user with the given ID is not found.
      */
     @Transactional
     public void deleteUser(Long id) {
@@ -147,12 +369,72 @@ public class UserService {
             logger.warn("User deletion failed: ID is null.");
             throw new IllegalArgumentException("User ID cannot be null.");
         }
-        if (!userRepository.existsById(id)) {
-            logger.warn("User not found with ID {} during delete attempt.", id);
-            // Or throw a custom "NotFoundException"
-            throw new RuntimeException("User not found with id " + id);
+        boolean deleted;
+        if (shardedUserStore.isEnabled()) {
+            deleted = shardedUserStore.delete(id);
+            if (deleted) {
+                eventPublisher.publishEvent(UserChangedEvent.deleted(id));
+            }
+        } else if (userRepository.existsById(id)) {
+            userRepository.deleteById(id);
+            userRepository.flush(); // see createUser
+            deleted = true;
+        } else {
+            deleted = false;
+        }
+        if (!deleted) {
+            logger.debug("User not found with ID {} during delete attempt.", id);
+            throw new UserNotFoundException(id);
         }
-        userRepository.deleteById(id);
         logger.info("Successfully deleted user with ID: {}", id);
     }
+
+    /**
+     * Counts all users. With sharding enabled, all shards are counted in parallel.
+     * @return The number of users.
+     */
+    @Transactional(readOnly = true)
+    public long countUsers() {
+        long count = shardedUserStore.isEnabled() ? shardedUserStore.count() : userRepository.count();
+        logger.info("Counted {} users.", count);
+        return count;
+    }
+
+    /**
+     * Searches users by a case-insensitive prefix or substring of their name or email.
+     * Served from the in-memory {@link UserSearchIndex}, without querying the database.
+     * @param query The text to search for.
+     * @param limit The maximum number of results; capped at 100.
+     * @return The matching users, best match first.
+     * @throws IllegalArgumentException if the query is null or empty, or the limit is not positive.
+     */
+    public List<User> searchUsers(String query, int limit) {
+        if (query == null || query.trim().isEmpty()) {
+            logger.warn("User search failed: query is null or empty.");
+            throw new IllegalArgumentException("Search query cannot be null or empty.");
+        }
+        if (limit <= 0) {
+            logger.warn("User search failed: limit {} is not positive.", limit);
+            throw new IllegalArgumentException("Search limit must be positive.");
+        }
+        List<User> results = userSearchIndex.search(query, Math.min(limit, MAX_SEARCH_LIMIT));
+        logger.info("Search for '{}' returned {} users.", query, results.size());
+        return results;
+    }
+
+    private void validateNewUser(User user) {
+        if (user == null) {
+            logger.warn("User creation failed: User object is null.");
+            throw new IllegalArgumentException("User object cannot be null.");
+        }
+        logger.info("Attempting to create new user. Name: '{}', Email: '{}'", user.getName(), user.getEmail());
+        if (user.getName() == null || user.getName().trim().isEmpty()) {
+            logger.warn("User creation failed: User name is null or empty.");
+            throw new IllegalArgumentException("User name cannot be null or empty.");
+        }
+        if (user.getEmail() == null || user.getEmail().trim().isEmpty()) {
+            logger.warn("User creation failed: User email is null or empty.");
+            throw new IllegalArgumentException("User email cannot be null or empty.");
+        }
+    }
 }
@@ -0,0 +1,641 @@
+package com.example.crudapp.service;
+
+import com.example.crudapp.event.UserChangedEvent;
+import com.example.crudapp.model.User;
+import com.example.crudapp.replication.ReplicaSynchronizer;
+import com.example.crudapp.sharding.ShardedUserStore;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+/**
+ * Binary snapshot of the {@code users} table in a local file, so an in-memory database survives restarts.
+ * <p>
+ * The snapshot consists of a base file holding every user and a delta file next to it, to which the users
+ * changed since the base was written are appended. A background thread runs every {@code interval-ms}: it
+ * reads the current rows of the users marked dirty by committed {@link UserChangedEvent}s and appends them
+ * (or a tombstone, if the user is gone) to the delta. Once the delta holds more records than
+ * {@code compact-ratio} times the base, a new base is written from a full table scan instead and the delta
+ * starts over. Writers only mark a user ID as dirty, and H2 serves the scan from a consistent version of
+ * the table without locking it, so snapshots never block writes. Changes committed after the last run are
+ * lost on a crash; on a graceful stop a final delta is written.
+ * <p>
+ * Both files start with a header (magic, version and the generation of the base) followed by frames of up
+ * to 1 MiB, each with its length and CRC32. A record is an operation byte, the user ID and, for upserts,
+ * the name and email as length-prefixed UTF-8. Files are written through {@link FileChannel}s from a direct
+ * buffer; a new base is written to a temporary file and moved into place, so a crash never leaves a torn
+ * base behind. A torn delta frame is detected by its length or checksum and ignored, with everything after it.
+ * <p>
+ * On startup, before the user list snapshot and the search index are built and before traffic is accepted,
+ * the base and its delta are bulk-inserted into the (empty) table, 10,000 users per statement, and the ID
+ * sequence is moved past the restored IDs. Not available with sharding, where users are not stored in the {@code users} table.
+ */
+@Component
+@DependsOn("entityManagerFactory") // the restore needs the schema Hibernate creates or validates
+public class UserSnapshotFile implements InitializingBean, SmartLifecycle {
+
+    private static final Logger logger = LoggerFactory.getLogger(UserSnapshotFile.class);
+    private static final int BASE_MAGIC = 0x55534E50; // "USNP"
+    private static final int DELTA_MAGIC = 0x5553444C; // "USDL"
+    private static final byte VERSION = 1;
+    private static final int HEADER_SIZE = Integer.BYTES + 1 + Long.BYTES;
+    private static final int FRAME_HEADER_SIZE = 2 * Integer.BYTES;
+    private static final int MAX_FRAME_SIZE = 1024 * 1024;
+    private static final byte UPSERT = 1;
+    private static final byte DELETE = 2;
+    private static final int MAX_RECORD_SIZE = 1 + Long.BYTES + 2 * (Short.BYTES + Short.MAX_VALUE);
+    private static final int FETCH_SIZE = 10_000;
+    private static final int INSERT_CHUNK_SIZE = 10_000;
+    // Stop after the write-behind queue has drained, so the final delta includes its users
+    private static final int PHASE = SmartLifecycle.DEFAULT_PHASE - 8192;
+    // DIRECT inserts the rows as they are read instead of buffering the source table first
+    private static final String INSERT_SQL = "INSERT INTO users (id, name, email) DIRECT SELECT * FROM TABLE("
+            + "id BIGINT = ?, name VARCHAR(255) = ?, email VARCHAR(255) = ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectProvider<ReplicaSynchronizer> replicaSynchronizer;
+    private final Clock clock;
+    private final boolean enabled;
+    private final Path basePath;
+    private final Path deltaPath;
+    private final long intervalMs;
+    private final double compactRatio;
+    private final Set<Long> dirtyIds = ConcurrentHashMap.newKeySet();
+    private final Counter failureCounter;
+
+    // Only accessed by the snapshot thread, or by the caller of snapshot() once that thread has stopped
+    private long generation;
+    private long baseRecords;
+    private long deltaRecords;
+    private boolean baseCurrent; // false until a base has been written or restored by this run
+    private FileChannel delta;
+
+    private volatile boolean running;
+    private ScheduledExecutorService scheduler;
+
+    /**
+     * Constructs a UserSnapshotFile.
+     * @param jdbcTemplate The template used to read and restore the users table.
+     * @param transactionTemplate The template wrapping each chunk of restored users in a transaction.
+     * @param replicaSynchronizer The replica synchronizer, if read replicas are enabled; resynced after a restore.
+     * @param shardedUserStore The sharded storage; snapshots are disabled when sharding is enabled.
+     * @param meterRegistry The registry for snapshot metrics.
+     * @param enabled Whether the table is snapshotted and restored.
+     * @param path The base file; the delta file is the same path with {@code .delta} appended.
+     * @param intervalMs How often changes are written.
+     * @param compactRatio The size of the delta, relative to the base, at which a new base is written.
+     */
+    @Autowired
+    public UserSnapshotFile(JdbcTemplate jdbcTemplate,
+                            TransactionTemplate transactionTemplate,
+                            ObjectProvider<ReplicaSynchronizer> replicaSynchronizer,
+                            ShardedUserStore shardedUserStore,
+                            MeterRegistry meterRegistry,
+                            @Value("${app.users.snapshot.enabled:false}") boolean enabled,
+                            @Value("${app.users.snapshot.path:data/users.snapshot}") Path path,
+                            @Value("${app.users.snapshot.interval-ms:10000}") long intervalMs,
+                            @Value("${app.users.snapshot.compact-ratio:0.5}") double compactRatio) {
+        this(jdbcTemplate, transactionTemplate, replicaSynchronizer, Clock.systemUTC(), meterRegistry,
+                enabled && !shardedUserStore.isEnabled(), path, intervalMs, compactRatio);
+        if (enabled && shardedUserStore.isEnabled()) {
+            logger.warn("User snapshots are not supported with sharding and are disabled.");
+        }
+    }
+
+    UserSnapshotFile(JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate,
+                     ObjectProvider<ReplicaSynchronizer> replicaSynchronizer, Clock clock, MeterRegistry meterRegistry,
+                     boolean enabled, Path path, long intervalMs, double compactRatio) {
+        if (intervalMs <= 0 || compactRatio <= 0) {
+            throw new IllegalArgumentException("Snapshot interval and compaction ratio must be positive.");
+        }
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.replicaSynchronizer = replicaSynchronizer;
+        this.clock = clock;
+        this.enabled = enabled;
+        this.basePath = path.toAbsolutePath();
+        this.deltaPath = basePath.resolveSibling(basePath.getFileName() + ".delta");
+        this.intervalMs = intervalMs;
+        this.compactRatio = compactRatio;
+        this.failureCounter = meterRegistry.counter("users.snapshot.failures");
+        Gauge.builder("users.snapshot.pending", dirtyIds, Set::size).register(meterRegistry);
+    }
+
+    /**
+     * Restores the snapshot while the application context starts, so it is in place before any
+     * component builds its view of the users and before traffic is accepted.
+     */
+    @Override
+    public void afterPropertiesSet() {
+        if (enabled) {
+            restore();
+        }
+    }
+
+    /**
+     * Marks a user as changed once the transaction that changed it has committed.
+     * @param event The change.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onUserChanged(UserChangedEvent event) {
+        if (enabled) {
+            dirtyIds.add(event.getId());
+        }
+    }
+
+    /**
+     * Inserts the users of the base file, updated by its delta, into the users table.
+     * Nothing is restored if the table already holds users or there is no snapshot. If the base cannot be
+     * read, the table is emptied again and the base is renamed with a {@code .corrupt} suffix for inspection.
+     * @return The number of restored users.
+     */
+    public synchronized long restore() {
+        if (!Files.exists(basePath)) {
+            logger.info("No user snapshot at {}; starting with an empty users table.", basePath);
+            return 0;
+        }
+        Long existing = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM users", Long.class);
+        if (existing != null && existing > 0) {
+            logger.warn("Not restoring the user snapshot at {}: the users table already holds {} users.", basePath, existing);
+            return 0;
+        }
+        long start = System.nanoTime();
+        try {
+            long restored = restoreFiles();
+            replicaSynchronizer.ifAvailable(ReplicaSynchronizer::resync);
+            logger.info("Restored {} users from the snapshot at {} in {} ms.", restored, basePath,
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+            return restored;
+        } catch (IOException | CorruptSnapshotException e) {
+            failureCounter.increment();
+            jdbcTemplate.execute("TRUNCATE TABLE users"); // whatever was inserted before the failure
+            Path corrupt = basePath.resolveSibling(basePath.getFileName() + ".corrupt");
+            logger.error("Failed to restore the user snapshot at {} ({}); moving it to {}.", basePath, e.getMessage(), corrupt);
+            try {
+                Files.move(basePath, corrupt, StandardCopyOption.REPLACE_EXISTING);
+            } catch (IOException moveFailure) {
+                logger.error("Failed to move the corrupt user snapshot: {}", moveFailure.getMessage());
+            }
+            return 0;
+        }
+    }
+
+    /**
+     * Writes the users changed since the last run to the delta, or a new base if the delta has grown
+     * too large or no base has been written by this run yet. Called periodically in the background.
+     */
+    public synchronized void snapshot() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            if (!baseCurrent || deltaRecords > compactRatio * Math.max(baseRecords, INSERT_CHUNK_SIZE)) {
+                writeBase();
+            } else {
+                writeDelta();
+            }
+        } catch (IOException | RuntimeException e) {
+            // The next run writes a new base, which covers whatever this one missed
+            failureCounter.increment();
+            baseCurrent = false;
+            logger.error("Failed to write the user snapshot to {}: {}", basePath, e.getMessage());
+        }
+    }
+
+    /**
+     * @return The number of changed users not yet written to the snapshot.
+     */
+    public int getPendingCount() {
+        return dirtyIds.size();
+    }
+
+    @Override
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "user-snapshot");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.scheduleWithFixedDelay(this::snapshot, intervalMs, intervalMs, TimeUnit.MILLISECONDS);
+        scheduler = executor;
+        running = true;
+        logger.info("Writing user snapshots to {} every {} ms.", basePath, intervalMs);
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        if (scheduler == null) {
+            return;
+        }
+        scheduler.shutdown();
+        try {
+            if (!scheduler.awaitTermination(30, TimeUnit.SECONDS)) {
+                logger.warn("Timed out waiting for the running user snapshot to finish.");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        snapshot();
+        synchronized (this) {
+            closeDelta();
+        }
+        logger.info("Wrote the final user snapshot to {}.", basePath);
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public int getPhase() {
+        return PHASE;
+    }
+
+    // Caller must hold the lock
+    private long restoreFiles() throws IOException {
+        long baseGeneration;
+        Map<Long, String[]> changes = new HashMap<>(); // id -> {name, email}, or null for a deleted user
+        try (FileChannel channel = FileChannel.open(basePath, StandardOpenOption.READ)) {
+            FrameReader base = new FrameReader(channel);
+            baseGeneration = base.readHeader(BASE_MAGIC);
+            if (Files.exists(deltaPath)) {
+                readDelta(baseGeneration, changes);
+            }
+            // Base users that changed later are inserted in their changed state below
+            Inserter inserter = new Inserter();
+            ByteBuffer frame;
+            while ((frame = base.nextFrame()) != null) {
+                while (frame.hasRemaining()) {
+                    byte op = frame.get();
+                    long id = frame.getLong();
+                    if (op != UPSERT) {
+                        throw new CorruptSnapshotException("Unexpected record type " + op + " in the base.");
+                    }
+                    String name = getString(frame);
+                    String email = getString(frame);
+                    if (!changes.containsKey(id)) {
+                        inserter.add(id, name, email);
+                    }
+                }
+            }
+            if (!base.isAtEnd()) {
+                throw new CorruptSnapshotException("Torn or corrupt frame in the base.");
+            }
+            for (Map.Entry<Long, String[]> change : changes.entrySet()) {
+                if (change.getValue() != null) {
+                    inserter.add(change.getKey(), change.getValue()[0], change.getValue()[1]);
+                }
+            }
+            inserter.flush();
+            if (inserter.maxId > 0) {
+                // Hibernate's pooled optimizer hands out the block ending at the value it reads
+                jdbcTemplate.execute("ALTER SEQUENCE users_seq RESTART WITH " + (inserter.maxId + User.ID_ALLOCATION_SIZE));
+            }
+            // The delta may end in a torn frame, so the first run writes a new base rather than appending to it
+            generation = baseGeneration;
+            return inserter.count;
+        }
+    }
+
+    private void readDelta(long baseGeneration, Map<Long, String[]> changes) throws IOException {
+        try (FileChannel channel = FileChannel.open(deltaPath, StandardOpenOption.READ)) {
+            FrameReader reader = new FrameReader(channel);
+            long deltaGeneration = reader.readHeader(DELTA_MAGIC);
+            if (deltaGeneration != baseGeneration) {
+                // The process stopped between writing a new base and starting its delta
+                logger.info("Ignoring the user snapshot delta of generation {}; the base is generation {}.", deltaGeneration, baseGeneration);
+                return;
+            }
+            ByteBuffer frame;
+            while ((frame = reader.nextFrame()) != null) {
+                while (frame.hasRemaining()) {
+                    byte op = frame.get();
+                    long id = frame.getLong();
+                    changes.put(id, op == UPSERT ? new String[]{getString(frame), getString(frame)} : null);
+                }
+            }
+            if (!reader.isAtEnd()) {
+                logger.warn("Ignoring a torn frame at the end of the user snapshot delta {}.", deltaPath);
+            }
+        } catch (CorruptSnapshotException e) {
+            logger.warn("Ignoring the unreadable user snapshot delta {}: {}", deltaPath, e.getMessage());
+            changes.clear();
+        }
+    }
+
+    // Caller must hold the lock
+    private void writeBase() throws IOException {
+        Files.createDirectories(basePath.getParent());
+        closeDelta();
+        // Changes committed before the scan starts are part of it; those committed during or after it are marked again
+        dirtyIds.clear();
+        long newGeneration = Math.max(generation + 1, clock.millis());
+        Path temporary = basePath.resolveSibling(basePath.getFileName() + ".tmp");
+        long[] records = {0};
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            FrameWriter writer = new FrameWriter(channel);
+            writer.writeHeader(BASE_MAGIC, newGeneration);
+            jdbcTemplate.query(connection -> {
+                var statement = connection.prepareStatement("SELECT id, name, email FROM users");
+                statement.setFetchSize(FETCH_SIZE);
+                return statement;
+            }, rs -> {
+                try {
+                    writer.upsert(rs.getLong(1), rs.getString(2), rs.getString(3));
+                    records[0]++;
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            writer.finish();
+            channel.force(true);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        Files.move(temporary, basePath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        Path temporaryDelta = deltaPath.resolveSibling(deltaPath.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporaryDelta, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            new FrameWriter(channel).writeHeader(DELTA_MAGIC, newGeneration);
+            channel.force(true);
+        }
+        Files.move(temporaryDelta, deltaPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        generation = newGeneration;
+        baseRecords = records[0];
+        deltaRecords = 0;
+        baseCurrent = true;
+        logger.info("Wrote a user snapshot of {} users to {}.", records[0], basePath);
+    }
+
+    // Caller must hold the lock
+    private void writeDelta() throws IOException {
+        List<Long> ids = new ArrayList<>(dirtyIds.size());
+        for (Iterator<Long> iterator = dirtyIds.iterator(); iterator.hasNext(); ) {
+            ids.add(iterator.next());
+            iterator.remove();
+        }
+        if (ids.isEmpty()) {
+            return;
+        }
+        if (delta == null) {
+            delta = FileChannel.open(deltaPath, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        }
+        FrameWriter writer = new FrameWriter(delta);
+        try {
+            for (int from = 0; from < ids.size(); from += INSERT_CHUNK_SIZE) {
+                List<Long> chunk = ids.subList(from, Math.min(ids.size(), from + INSERT_CHUNK_SIZE));
+                Set<Long> deleted = new HashSet<>(chunk);
+                // The current row, not the event, is written, so changes that commit out of order cannot leave a stale state
+                List<Object[]> rows = jdbcTemplate.query("SELECT id, name, email FROM users WHERE id = ANY(?)",
+                        (rs, rowNum) -> new Object[]{rs.getLong(1), rs.getString(2), rs.getString(3)},
+                        (Object) chunk.toArray(Long[]::new));
+                for (Object[] row : rows) {
+                    deleted.remove((Long) row[0]);
+                    writer.upsert((Long) row[0], (String) row[1], (String) row[2]);
+                }
+                for (Long id : deleted) {
+                    writer.delete(id);
+                }
+            }
+            writer.finish();
+            delta.force(false);
+        } catch (IOException | RuntimeException e) {
+            dirtyIds.addAll(ids);
+            throw e;
+        }
+        deltaRecords += ids.size();
+        logger.debug("Appended {} changed users to the user snapshot delta.", ids.size());
+    }
+
+    private void closeDelta() {
+        if (delta != null) {
+            try {
+                delta.close();
+            } catch (IOException e) {
+                logger.warn("Failed to close the user snapshot delta: {}", e.getMessage());
+            }
+            delta = null;
+        }
+    }
+
+    private static String getString(ByteBuffer buffer) {
+        short length = buffer.getShort();
+        if (length < 0) {
+            return null;
+        }
+        String value = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), length, StandardCharsets.UTF_8);
+        buffer.position(buffer.position() + length);
+        return value;
+    }
+
+    // Inserts restored users in chunks, one statement and transaction per chunk
+    private final class Inserter {
+        final Long[] ids = new Long[INSERT_CHUNK_SIZE];
+        final String[] names = new String[INSERT_CHUNK_SIZE];
+        final String[] emails = new String[INSERT_CHUNK_SIZE];
+        int size;
+        long count;
+        long maxId;
+
+        void add(long id, String name, String email) {
+            ids[size] = id;
+            names[size] = name;
+            emails[size] = email;
+            size++;
+            count++;
+            maxId = Math.max(maxId, id);
+            if (size == INSERT_CHUNK_SIZE) {
+                flush();
+            }
+        }
+
+        void flush() {
+            if (size == 0) {
+                return;
+            }
+            // A transaction per chunk: one for the whole restore would make H2 keep an undo entry for every row
+            Object[] chunk = {Arrays.copyOf(ids, size), Arrays.copyOf(names, size), Arrays.copyOf(emails, size)};
+            transactionTemplate.executeWithoutResult(status -> jdbcTemplate.update(INSERT_SQL, chunk));
+            size = 0;
+        }
+    }
+
+    // Encodes records into a direct buffer and writes it to the channel as a checksummed frame when it fills up
+    private static final class FrameWriter {
+        final FileChannel channel;
+        final ByteBuffer buffer = ByteBuffer.allocateDirect(FRAME_HEADER_SIZE + MAX_FRAME_SIZE);
+        final CRC32 crc = new CRC32();
+
+        FrameWriter(FileChannel channel) {
+            this.channel = channel;
+            buffer.position(FRAME_HEADER_SIZE);
+        }
+
+        void writeHeader(int magic, long generation) throws IOException {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).putInt(magic).put(VERSION).putLong(generation).flip();
+            while (header.hasRemaining()) {
+                channel.write(header);
+            }
+        }
+
+        void upsert(long id, String name, String email) throws IOException {
+            byte[] nameBytes = name == null ? null : name.getBytes(StandardCharsets.UTF_8);
+            byte[] emailBytes = email == null ? null : email.getBytes(StandardCharsets.UTF_8);
+            if (buffer.remaining() < MAX_RECORD_SIZE) {
+                writeFrame();
+            }
+            buffer.put(UPSERT).putLong(id);
+            putString(nameBytes);
+            putString(emailBytes);
+        }
+
+        void delete(long id) throws IOException {
+            if (buffer.remaining() < MAX_RECORD_SIZE) {
+                writeFrame();
+            }
+            buffer.put(DELETE).putLong(id);
+        }
+
+        void finish() throws IOException {
+            if (buffer.position() > FRAME_HEADER_SIZE) {
+                writeFrame();
+            }
+        }
+
+        private void putString(byte[] bytes) {
+            if (bytes == null) {
+                buffer.putShort((short) -1);
+                return;
+            }
+            if (bytes.length > Short.MAX_VALUE) {
+                throw new IllegalStateException("User field of " + bytes.length + " bytes is too long for the snapshot.");
+            }
+            buffer.putShort((short) bytes.length).put(bytes);
+        }
+
+        private void writeFrame() throws IOException {
+            int length = buffer.position() - FRAME_HEADER_SIZE;
+            crc.reset();
+            crc.update(buffer.duplicate().position(FRAME_HEADER_SIZE).limit(buffer.position()));
+            buffer.putInt(0, length).putInt(Integer.BYTES, (int) crc.getValue());
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear().position(FRAME_HEADER_SIZE);
+        }
+    }
+
+    // Reads checksummed frames from a channel; stops at the end of the file or at the first torn frame
+    private static final class FrameReader {
+        final FileChannel channel;
+        // A heap buffer, so strings are decoded straight from its array
+        final ByteBuffer buffer = ByteBuffer.allocate(FRAME_HEADER_SIZE + MAX_FRAME_SIZE);
+        final CRC32 crc = new CRC32();
+        boolean atEnd;
+
+        FrameReader(FileChannel channel) {
+            this.channel = channel;
+            buffer.limit(0);
+        }
+
+        long readHeader(int magic) throws IOException {
+            if (!fill(HEADER_SIZE) || buffer.getInt() != magic) {
+                throw new CorruptSnapshotException("Not a user snapshot file.");
+            }
+            byte version = buffer.get();
+            if (version != VERSION) {
+                throw new CorruptSnapshotException("Unsupported user snapshot version " + version + ".");
+            }
+            return buffer.getLong();
+        }
+
+        // The payload of the next frame, or null at the end of the file or at a torn or corrupt frame
+        ByteBuffer nextFrame() throws IOException {
+            if (!fill(FRAME_HEADER_SIZE)) {
+                atEnd = !buffer.hasRemaining();
+                return null;
+            }
+            int length = buffer.getInt();
+            int checksum = buffer.getInt();
+            if (length <= 0 || length > MAX_FRAME_SIZE || !fill(length)) {
+                return null;
+            }
+            ByteBuffer frame = buffer.slice(buffer.position(), length);
+            buffer.position(buffer.position() + length);
+            crc.reset();
+            crc.update(frame.duplicate());
+            return (int) crc.getValue() == checksum ? frame : null;
+        }
+
+        boolean isAtEnd() {
+            return atEnd;
+        }
+
+        // Makes at least the given number of bytes available, unless the file ends first
+        private boolean fill(int bytes) throws IOException {
+            if (buffer.remaining() >= bytes) {
+                return true;
+            }
+            buffer.compact();
+            while (buffer.position() < bytes) {
+                if (channel.read(buffer) < 0) {
+                    break;
+                }
+            }
+            buffer.flip();
+            return buffer.remaining() >= bytes;
+        }
+    }
+
+    // A snapshot file that cannot be read, as opposed to one that cannot be accessed
+    private static final class CorruptSnapshotException extends RuntimeException {
+        CorruptSnapshotException(String message) {
+            super(message);
+        }
+    }
+}
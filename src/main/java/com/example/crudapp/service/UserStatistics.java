@@ -0,0 +1,206 @@
+package com.example.crudapp.service;
+
+import com.example.crudapp.dto.user.UserCreationBucketDto;
+import com.example.crudapp.dto.user.UserEmailView;
+import com.example.crudapp.dto.user.UserStatsDto;
+import com.example.crudapp.event.UserChangeVersions;
+import com.example.crudapp.event.UserChangedEvent;
+import com.example.crudapp.repository.UserRepository;
+import com.example.crudapp.sharding.ShardedUserStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * Aggregate user statistics, kept up to date in memory so {@code GET /api/users/stats} neither queries
+ * the database nor loads users; its cost depends on the number of email domains, not users.
+ * <p>
+ * The email domain of every user is tracked by ID, pointing to a counter shared by all users of the domain;
+ * the domain is the lowercased part of the email after its last {@code @}. Creations are counted in a ring
+ * of {@code bucket-count} buckets of {@code bucket-seconds} each, so only creations since startup appear
+ * in the creation rate.
+ * <p>
+ * The domains are loaded from the repository, or from the shards if sharding is enabled, at startup without
+ * loading entities, and kept current by listening to {@link UserChangedEvent}s, which are applied after the
+ * surrounding transaction commits; events overtaken by a newer change of the same user are dropped.
+ */
+@Component
+public class UserStatistics implements SmartInitializingSingleton {
+
+    private static final Logger logger = LoggerFactory.getLogger(UserStatistics.class);
+
+    private final UserRepository userRepository;
+    private final ShardedUserStore shardedUserStore;
+    private final UserChangeVersions changeVersions;
+    private final Clock clock;
+    private final long bucketMillis;
+    private final long[] buckets; // creations per bucket, indexed by bucket number modulo the length
+    private final Map<Long, DomainCount> domainById = new HashMap<>(); // guarded by this
+    private final Map<String, DomainCount> countByDomain = new HashMap<>(); // guarded by this
+    private long newestBucket; // guarded by this
+
+    // The users of one domain; shared by all of them, so the domain is stored once
+    private static final class DomainCount {
+        final String domain;
+        long count;
+
+        DomainCount(String domain) {
+            this.domain = domain;
+        }
+    }
+
+    /**
+     * Constructs a UserStatistics.
+     * @param userRepository The repository the statistics are built from at startup.
+     * @param shardedUserStore The shards the statistics are built from instead, if sharding is enabled.
+     * @param changeVersions The versions used to drop out-of-order changes.
+     * @param bucketSeconds The length of a creation-rate bucket.
+     * @param bucketCount The number of creation-rate buckets reported.
+     */
+    @Autowired
+    public UserStatistics(UserRepository userRepository, ShardedUserStore shardedUserStore,
+                          UserChangeVersions changeVersions,
+                          @Value("${app.users.stats.bucket-seconds:60}") long bucketSeconds,
+                          @Value("${app.users.stats.bucket-count:60}") int bucketCount) {
+        this(userRepository, shardedUserStore, changeVersions, Clock.systemUTC(), bucketSeconds, bucketCount);
+    }
+
+    UserStatistics(UserRepository userRepository, ShardedUserStore shardedUserStore, UserChangeVersions changeVersions,
+                   Clock clock, long bucketSeconds, int bucketCount) {
+        if (bucketSeconds <= 0 || bucketCount <= 0) {
+            throw new IllegalArgumentException("Creation-rate buckets must have a positive length and count.");
+        }
+        this.userRepository = userRepository;
+        this.shardedUserStore = shardedUserStore;
+        this.changeVersions = changeVersions;
+        this.clock = clock;
+        this.bucketMillis = bucketSeconds * 1000;
+        this.buckets = new long[bucketCount];
+        this.newestBucket = clock.millis() / bucketMillis;
+    }
+
+    /**
+     * Builds the statistics once all singletons exist, before the web server accepts traffic.
+     */
+    @Override
+    public void afterSingletonsInstantiated() {
+        rebuild();
+    }
+
+    /**
+     * Discards the per-domain counts and rebuilds them from all users in the repository or the shards.
+     * The creation-rate buckets are kept.
+     */
+    public synchronized void rebuild() {
+        long start = System.nanoTime();
+        domainById.clear();
+        countByDomain.clear();
+        List<UserEmailView> users = shardedUserStore.isEnabled()
+                ? shardedUserStore.findAll(UserEmailView.class) : userRepository.findAllBy(UserEmailView.class);
+        for (UserEmailView user : users) {
+            put(user.id(), user.email());
+        }
+        logger.info("Built user statistics for {} users in {} email domains in {} ms.",
+                domainById.size(), countByDomain.size(), (System.nanoTime() - start) / 1_000_000);
+    }
+
+    /**
+     * Applies a user change once the transaction that made it has committed.
+     * @param event The change to apply.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public synchronized void onUserChanged(UserChangedEvent event) {
+        if (!changeVersions.isLatest(event)) {
+            logger.debug("Ignoring out-of-order {} of user with ID {}.", event.getType(), event.getId());
+            return;
+        }
+        switch (event.getType()) {
+            case CREATED -> {
+                put(event.getId(), event.getEmail());
+                buckets[Math.floorMod(advance(), buckets.length)]++;
+            }
+            case UPDATED -> put(event.getId(), event.getEmail());
+            case DELETED -> remove(event.getId());
+        }
+    }
+
+    /**
+     * @param domainLimit The maximum number of domains to list.
+     * @return The total number of users, the users of the largest email domains and the recent creations.
+     */
+    public synchronized UserStatsDto getStats(int domainLimit) {
+        // Keeps the largest domains seen so far, smallest on top; ties go to the alphabetically first domain
+        Comparator<DomainCount> largestFirst = Comparator.comparingLong((DomainCount domain) -> domain.count).reversed()
+                .thenComparing(domain -> domain.domain);
+        PriorityQueue<DomainCount> largest = new PriorityQueue<>(largestFirst.reversed());
+        for (DomainCount domain : countByDomain.values()) {
+            largest.add(domain);
+            if (largest.size() > domainLimit) {
+                largest.poll();
+            }
+        }
+        List<DomainCount> sorted = new ArrayList<>(largest);
+        sorted.sort(largestFirst);
+        Map<String, Long> usersByDomain = new LinkedHashMap<>();
+        sorted.forEach(domain -> usersByDomain.put(domain.domain, domain.count));
+
+        long newest = advance();
+        List<UserCreationBucketDto> creations = new ArrayList<>(buckets.length);
+        for (long bucket = newest - buckets.length + 1; bucket <= newest; bucket++) {
+            creations.add(new UserCreationBucketDto(bucket * bucketMillis, buckets[Math.floorMod(bucket, buckets.length)]));
+        }
+        return new UserStatsDto(domainById.size(), countByDomain.size(), usersByDomain, bucketMillis / 1000, creations);
+    }
+
+    // Caller must hold the lock
+    private void put(Long id, String email) {
+        DomainCount domain = countByDomain.computeIfAbsent(domainOf(email), DomainCount::new);
+        DomainCount previous = domainById.put(id, domain);
+        if (previous != domain) {
+            domain.count++;
+            decrement(previous);
+        }
+    }
+
+    // Caller must hold the lock
+    private void remove(Long id) {
+        decrement(domainById.remove(id));
+    }
+
+    // Caller must hold the lock
+    private void decrement(DomainCount domain) {
+        if (domain != null && --domain.count == 0) {
+            countByDomain.remove(domain.domain);
+        }
+    }
+
+    // Caller must hold the lock. Moves the ring to the current bucket, clearing the buckets it skips.
+    private long advance() {
+        long current = clock.millis() / bucketMillis;
+        for (long bucket = Math.max(newestBucket + 1, current - buckets.length + 1); bucket <= current; bucket++) {
+            buckets[Math.floorMod(bucket, buckets.length)] = 0;
+        }
+        newestBucket = Math.max(newestBucket, current);
+        return newestBucket;
+    }
+
+    // Emails without an @ are counted under the empty domain
+    private static String domainOf(String email) {
+        int at = email == null ? -1 : email.lastIndexOf('@');
+        return at < 0 ? "" : email.substring(at + 1).toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,267 @@
+package com.example.crudapp.service;
+
+import com.example.crudapp.event.UserChangedEvent;
+import com.example.crudapp.exception.WriteQueueFullException;
+import com.example.crudapp.model.User;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bounded in-memory queue for asynchronously created users, written to the database in JDBC batches
+ * by a single background flusher thread.
+ * <p>
+ * Producers block for at most {@code offer-timeout-ms} when the queue is full and are then rejected with
+ * {@link WriteQueueFullException} (backpressure). On shutdown the queue stops accepting writes and is
+ * drained completely before the datasource is closed, so accepted writes survive a graceful stop.
+ * Only active when {@code app.users.async-create.enabled=true}.
+ */
+@Component
+public class UserWriteBehindQueue implements SmartLifecycle {
+
+    private static final Logger logger = LoggerFactory.getLogger(UserWriteBehindQueue.class);
+    private static final String INSERT_SQL = "INSERT INTO users (id, name, email) VALUES (?, ?, ?)";
+    private static final int MAX_TRACKED_FAILURES = 10_000;
+    // Stop after the web server has finished its graceful shutdown, so no new writes arrive while draining
+    private static final int PHASE = SmartLifecycle.DEFAULT_PHASE - 4096;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final boolean enabled;
+    private final int batchSize;
+    private final long flushIntervalMs;
+    private final long offerTimeoutMs;
+    private final BlockingQueue<User> queue;
+    private final Map<Long, User> pending = new ConcurrentHashMap<>();
+    private final Map<Long, String> failures = Collections.synchronizedMap(new LinkedHashMap<>() {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, String> eldest) {
+            return size() > MAX_TRACKED_FAILURES;
+        }
+    });
+    private final Counter flushedCounter;
+    private final Counter rejectedCounter;
+    private final Counter failedCounter;
+
+    private volatile boolean running;
+    private Thread flusher;
+
+    /**
+     * Constructs a UserWriteBehindQueue.
+     * @param jdbcTemplate The template used for batch inserts.
+     * @param transactionTemplate The template wrapping each batch in a transaction.
+     * @param eventPublisher The publisher used to announce flushed users.
+     * @param meterRegistry The registry for queue metrics.
+     * @param enabled Whether asynchronous creation is enabled.
+     * @param capacity The maximum number of queued users.
+     * @param batchSize The maximum number of users written per JDBC batch.
+     * @param flushIntervalMs How long the flusher waits for the first user of a batch.
+     * @param offerTimeoutMs How long a producer waits for space in a full queue before being rejected.
+     */
+    public UserWriteBehindQueue(JdbcTemplate jdbcTemplate,
+                                TransactionTemplate transactionTemplate,
+                                ApplicationEventPublisher eventPublisher,
+                                MeterRegistry meterRegistry,
+                                @Value("${app.users.async-create.enabled:false}") boolean enabled,
+                                @Value("${app.users.async-create.queue-capacity:10000}") int capacity,
+                                @Value("${app.users.async-create.batch-size:500}") int batchSize,
+                                @Value("${app.users.async-create.flush-interval-ms:50}") long flushIntervalMs,
+                                @Value("${app.users.async-create.offer-timeout-ms:100}") long offerTimeoutMs) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.eventPublisher = eventPublisher;
+        this.enabled = enabled;
+        this.batchSize = batchSize;
+        this.flushIntervalMs = flushIntervalMs;
+        this.offerTimeoutMs = offerTimeoutMs;
+        this.queue = new ArrayBlockingQueue<>(enabled ? capacity : 1);
+        Gauge.builder("users.writebehind.queue.size", queue, BlockingQueue::size).register(meterRegistry);
+        this.flushedCounter = meterRegistry.counter("users.writebehind.flushed");
+        this.rejectedCounter = meterRegistry.counter("users.writebehind.rejected");
+        this.failedCounter = meterRegistry.counter("users.writebehind.failed");
+    }
+
+    /**
+     * @return true if asynchronous user creation is enabled.
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Queues a validated user, whose ID has already been reserved, for insertion.
+     * @param user The user to insert.
+     * @throws WriteQueueFullException if the queue stays full for longer than the offer timeout,
+     *         or the queue is not accepting writes because it is disabled or shutting down.
+     */
+    public void enqueue(User user) {
+        if (!running) {
+            rejectedCounter.increment();
+            throw new WriteQueueFullException("Asynchronous user creation is not accepting writes.");
+        }
+        pending.put(user.getId(), user);
+        boolean accepted;
+        try {
+            accepted = queue.offer(user, offerTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            accepted = false;
+        }
+        if (!accepted) {
+            pending.remove(user.getId());
+            rejectedCounter.increment();
+            logger.warn("Write-behind queue is full ({} users). Rejecting user with ID {}.", queue.size(), user.getId());
+            throw new WriteQueueFullException("User creation queue is full. Retry later.");
+        }
+    }
+
+    /**
+     * @param id A user ID.
+     * @return true if the user is queued or being written.
+     */
+    public boolean isPending(Long id) {
+        return pending.containsKey(id);
+    }
+
+    /**
+     * @param id A user ID.
+     * @return The reason the user could not be written, or null if no failure is recorded.
+     */
+    public String getFailure(Long id) {
+        return failures.get(id);
+    }
+
+    @Override
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        running = true;
+        flusher = new Thread(this::runFlusher, "user-write-behind");
+        flusher.setDaemon(true);
+        flusher.start();
+        logger.info("Asynchronous user creation enabled (capacity {}, batch size {}).", queue.remainingCapacity(), batchSize);
+    }
+
+    @Override
+    public void stop() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        try {
+            flusher.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        // Pick up anything offered concurrently with the shutdown
+        drain();
+        logger.info("Write-behind queue drained on shutdown.");
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public int getPhase() {
+        return PHASE;
+    }
+
+    private void runFlusher() {
+        List<User> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                User first = queue.poll(flushIntervalMs, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+                flush(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                logger.error("Unexpected error in write-behind flusher: {}", e.getMessage(), e);
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void drain() {
+        List<User> batch = new ArrayList<>(batchSize);
+        while (queue.drainTo(batch, batchSize) > 0) {
+            flush(batch);
+            batch.clear();
+        }
+    }
+
+    private void flush(List<User> batch) {
+        try {
+            List<UserChangedEvent> events = transactionTemplate.execute(status -> insert(batch));
+            logger.info("Flushed {} queued users.", batch.size());
+            completed(batch, events);
+        } catch (RuntimeException e) {
+            // Isolate the offending rows: retry one by one so a single bad row does not fail the batch
+            logger.warn("Batch insert of {} users failed ({}). Retrying individually.", batch.size(), e.getMessage());
+            for (User user : batch) {
+                try {
+                    List<UserChangedEvent> events = transactionTemplate.execute(status -> insert(List.of(user)));
+                    completed(List.of(user), events);
+                } catch (RuntimeException rowException) {
+                    logger.error("Failed to insert queued user with ID {}: {}", user.getId(), rowException.getMessage());
+                    failures.put(user.getId(), rowException.getMessage());
+                    pending.remove(user.getId());
+                    failedCounter.increment();
+                }
+            }
+        }
+    }
+
+    // Creates the events before the transaction commits, while it holds the row locks, so an update of
+    // a flushed user committing right after the insert always gets the higher version (see UserChangedEvent)
+    private List<UserChangedEvent> insert(List<User> users) {
+        jdbcTemplate.batchUpdate(INSERT_SQL, users, users.size(), (ps, user) -> {
+            ps.setLong(1, user.getId());
+            ps.setString(2, user.getName());
+            ps.setString(3, user.getEmail());
+        });
+        List<UserChangedEvent> events = new ArrayList<>(users.size());
+        for (User user : users) {
+            events.add(UserChangedEvent.created(user));
+        }
+        return events;
+    }
+
+    private void completed(List<User> users, List<UserChangedEvent> events) {
+        for (User user : users) {
+            pending.remove(user.getId());
+        }
+        for (UserChangedEvent event : events) {
+            eventPublisher.publishEvent(event);
+        }
+        flushedCounter.increment(users.size());
+    }
+}
@@ -0,0 +1,185 @@
+package com.example.crudapp.service;
+
+import com.example.crudapp.dto.weather.DailyWeatherReportDto;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Pushes forecast updates for a zipcode to Server-Sent Events subscribers.
+ * <p>
+ * Every zipcode with at least one subscriber has a single refresh loop that fetches the forecast from
+ * {@link WeatherService} at a fixed interval, however many clients are subscribed to it. A "forecast" event
+ * is sent to all subscribers only when the fetched forecast differs from the previous one; new subscribers
+ * immediately receive the latest known forecast. The loop stops when the last subscriber disconnects.
+ */
+@Component
+public class WeatherForecastStreams {
+
+    private static final Logger logger = LoggerFactory.getLogger(WeatherForecastStreams.class);
+    private static final String FORECAST_EVENT_NAME = "forecast";
+
+    private final WeatherService weatherService;
+    private final ScheduledExecutorService scheduler;
+    private final long refreshIntervalMs;
+    private final Map<String, Channel> channels = new ConcurrentHashMap<>();
+
+    // The subscribers of one zipcode and the last forecast they were sent
+    private static final class Channel {
+        final String zipcode;
+        final List<SseEmitter> subscribers = new CopyOnWriteArrayList<>();
+        List<DailyWeatherReportDto> lastForecast; // guarded by the channel
+        ScheduledFuture<?> refreshLoop; // guarded by the streams
+
+        Channel(String zipcode) {
+            this.zipcode = zipcode;
+        }
+    }
+
+    /**
+     * Constructs a WeatherForecastStreams.
+     * @param weatherService The service forecasts are fetched from.
+     * @param refreshIntervalMs How often the forecast of a subscribed zipcode is fetched.
+     * @param refreshThreads The number of threads running refresh loops.
+     */
+    @Autowired
+    public WeatherForecastStreams(WeatherService weatherService,
+                                  @Value("${app.weather.stream.refresh-interval-ms:600000}") long refreshIntervalMs,
+                                  @Value("${app.weather.stream.refresh-threads:2}") int refreshThreads) {
+        this(weatherService, newScheduler(refreshThreads), refreshIntervalMs);
+    }
+
+    WeatherForecastStreams(WeatherService weatherService, ScheduledExecutorService scheduler, long refreshIntervalMs) {
+        this.weatherService = weatherService;
+        this.scheduler = scheduler;
+        this.refreshIntervalMs = refreshIntervalMs;
+    }
+
+    /**
+     * Subscribes an SSE emitter to the forecast of a zipcode, starting its refresh loop if this is the
+     * first subscriber. The latest known forecast, if any, is sent right away.
+     * @param zipcode The zipcode.
+     * @param emitter The emitter to send "forecast" events to.
+     */
+    public void subscribe(String zipcode, SseEmitter emitter) {
+        emitter.onCompletion(() -> unsubscribe(zipcode, emitter));
+        emitter.onTimeout(emitter::complete);
+        emitter.onError(error -> unsubscribe(zipcode, emitter));
+        synchronized (this) {
+            Channel channel = channels.computeIfAbsent(zipcode, Channel::new);
+            if (channel.refreshLoop == null) {
+                channel.refreshLoop = scheduler.scheduleWithFixedDelay(() -> refresh(zipcode), 0, refreshIntervalMs, TimeUnit.MILLISECONDS);
+                logger.info("Started forecast refresh loop for zipcode {}.", zipcode);
+            }
+            synchronized (channel) {
+                // Holding the channel lock keeps a concurrent refresh from sending a newer forecast first
+                channel.subscribers.add(emitter);
+                if (channel.lastForecast != null && !send(emitter, channel.lastForecast)) {
+                    channel.subscribers.remove(emitter);
+                }
+            }
+        }
+    }
+
+    /**
+     * Fetches the forecast of a zipcode and sends it to its subscribers if it has changed.
+     * Failures are logged and the previous forecast is kept; the next refresh tries again.
+     * @param zipcode The zipcode.
+     */
+    void refresh(String zipcode) {
+        Channel channel = channels.get(zipcode);
+        if (channel == null) {
+            return;
+        }
+        List<DailyWeatherReportDto> forecast;
+        try {
+            forecast = weatherService.getSevenDayForecast(zipcode);
+        } catch (RuntimeException e) {
+            logger.warn("Failed to refresh forecast for zipcode {}: {}", zipcode, e.getMessage());
+            return;
+        }
+        synchronized (channel) {
+            if (forecast.equals(channel.lastForecast)) {
+                logger.debug("Forecast for zipcode {} is unchanged.", zipcode);
+                return;
+            }
+            channel.lastForecast = forecast;
+            channel.subscribers.removeIf(emitter -> !send(emitter, forecast));
+            logger.info("Pushed changed forecast for zipcode {} to {} subscribers.", zipcode, channel.subscribers.size());
+        }
+        if (channel.subscribers.isEmpty()) {
+            stopIfUnused(channel);
+        }
+    }
+
+    /**
+     * @param zipcode The zipcode.
+     * @return The number of subscribers of the zipcode.
+     */
+    public int subscriberCount(String zipcode) {
+        Channel channel = channels.get(zipcode);
+        return channel == null ? 0 : channel.subscribers.size();
+    }
+
+    /**
+     * @return The number of zipcodes with a running refresh loop.
+     */
+    public int activeZipcodeCount() {
+        return channels.size();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+        channels.values().forEach(channel -> channel.subscribers.forEach(SseEmitter::complete));
+        channels.clear();
+    }
+
+    private void unsubscribe(String zipcode, SseEmitter emitter) {
+        Channel channel = channels.get(zipcode);
+        if (channel != null && channel.subscribers.remove(emitter)) {
+            stopIfUnused(channel);
+        }
+    }
+
+    private synchronized void stopIfUnused(Channel channel) {
+        if (channel.subscribers.isEmpty() && channels.remove(channel.zipcode, channel)) {
+            channel.refreshLoop.cancel(false);
+            logger.info("Stopped forecast refresh loop for zipcode {}; no subscribers left.", channel.zipcode);
+        }
+    }
+
+    private static boolean send(SseEmitter emitter, List<DailyWeatherReportDto> forecast) {
+        try {
+            emitter.send(SseEmitter.event().name(FORECAST_EVENT_NAME).data(forecast));
+            return true;
+        } catch (IOException | IllegalStateException e) {
+            logger.info("Removing disconnected forecast stream subscriber: {}", e.getMessage());
+            return false;
+        }
+    }
+
+    private static ScheduledExecutorService newScheduler(int threads) {
+        ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(threads, runnable -> {
+            Thread thread = new Thread(runnable, "weather-stream-refresh");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.setRemoveOnCancelPolicy(true);
+        return executor;
+    }
+}
@@ -0,0 +1,31 @@
+package com.example.crudapp.service;
+
+import com.example.crudapp.dto.weather.ForecastPart;
+import com.example.crudapp.dto.weather.WeatherForecastDto;
+
+import java.util.Set;
+
+/**
+ * A source of weather forecasts. Implementations translate their upstream API into the application's
+ * report DTOs, such as {@link com.example.crudapp.dto.weather.DailyWeatherReportDto}, in metric units,
+ * so the {@link WeatherProviderRouter} can use them interchangeably. Every Spring bean implementing this
+ * interface is picked up by the router.
+ */
+public interface WeatherProvider {
+
+    /**
+     * @return The unique name of the provider, used in logs and metrics.
+     */
+    String getName();
+
+    /**
+     * Retrieves the selected parts of the forecast for a zipcode.
+     * Empty or missing upstream data yields empty lists, or null for the current conditions.
+     * @param zipcode The 5-digit US zipcode.
+     * @param parts The parts to include.
+     * @return The forecast, with only the requested parts set.
+     * @throws com.example.crudapp.exception.ZipcodeNotFoundException if the provider cannot locate the zipcode.
+     * @throws RuntimeException if the upstream request fails, e.g. a {@link org.springframework.web.client.RestClientException}.
+     */
+    WeatherForecastDto getForecast(String zipcode, Set<ForecastPart> parts);
+}
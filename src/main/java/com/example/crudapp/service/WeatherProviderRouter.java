@@ -0,0 +1,251 @@
+package com.example.crudapp.service;
+
+import com.example.crudapp.diagnostics.StatementCountingInspector;
+import com.example.crudapp.dto.weather.ForecastPart;
+import com.example.crudapp.dto.weather.WeatherForecastDto;
+import com.example.crudapp.exception.ZipcodeNotFoundException;
+import com.example.crudapp.tracing.RequestTrace;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Routes forecast requests to the registered {@link WeatherProvider}s.
+ * <p>
+ * With the {@code fastest} strategy, providers are tried one at a time in order of their recent latency,
+ * an exponentially weighted moving average in which a failure counts as a very slow call; the next provider
+ * is tried if one fails. Every {@code probe-every}th request starts with another provider instead, so the
+ * latency of a provider that was slow once is measured again. With the {@code race} strategy, all providers
+ * are called at once and the first successful response wins; the other responses are discarded. The raced
+ * calls run on a pool, attached to the caller's {@link RequestTrace} and SQL statement count.
+ * An unknown zipcode is an answer, not a failure, so it is returned as is by the fastest strategy.
+ * <p>
+ * Per provider, the latency average, wins and failures are published as {@code weather.providers.latency-ms},
+ * {@code weather.providers.wins} and {@code weather.providers.failures}, tagged with the provider name.
+ */
+@Component
+public class WeatherProviderRouter {
+
+    /**
+     * How a provider is chosen for a request.
+     */
+    public enum Strategy {
+        FASTEST,
+        RACE
+    }
+
+    private static final Logger logger = LoggerFactory.getLogger(WeatherProviderRouter.class);
+    private static final double SMOOTHING = 0.2; // weight of the newest latency in the average
+    private static final long FAILURE_PENALTY_NANOS = TimeUnit.SECONDS.toNanos(10);
+
+    private final List<Route> routes = new ArrayList<>();
+    private final Strategy strategy;
+    private final int probeEvery;
+    private final ExecutorService executor;
+    private final AtomicLong requestCount = new AtomicLong();
+    private final AtomicInteger probeCount = new AtomicInteger();
+
+    private record Answer(Route route, WeatherForecastDto forecast) {
+    }
+
+    // A provider with its latency average and metrics
+    private static final class Route {
+        final WeatherProvider provider;
+        final Counter wins;
+        final Counter failures;
+        double latencyNanos = -1; // -1 until measured; guarded by this
+
+        Route(WeatherProvider provider, MeterRegistry meterRegistry) {
+            this.provider = provider;
+            this.wins = Counter.builder("weather.providers.wins").tag("provider", provider.getName()).register(meterRegistry);
+            this.failures = Counter.builder("weather.providers.failures").tag("provider", provider.getName()).register(meterRegistry);
+            Gauge.builder("weather.providers.latency-ms", this, route -> route.getLatencyNanos() / 1_000_000.0)
+                    .tag("provider", provider.getName()).register(meterRegistry);
+        }
+
+        synchronized double getLatencyNanos() {
+            return latencyNanos;
+        }
+
+        synchronized void record(long nanos) {
+            latencyNanos = latencyNanos < 0 ? nanos : SMOOTHING * nanos + (1 - SMOOTHING) * latencyNanos;
+        }
+    }
+
+    /**
+     * Constructs a WeatherProviderRouter.
+     * @param providers The providers, in order of preference until their latency is known.
+     * @param meterRegistry The registry for the per-provider metrics.
+     * @param strategy {@code fastest} or {@code race}.
+     * @param probeEvery How often the fastest strategy starts with a provider other than the fastest.
+     */
+    @Autowired
+    public WeatherProviderRouter(List<WeatherProvider> providers,
+                                 MeterRegistry meterRegistry,
+                                 @Value("${app.weather.providers.strategy:fastest}") String strategy,
+                                 @Value("${app.weather.providers.probe-every:20}") int probeEvery) {
+        this(providers, meterRegistry, Strategy.valueOf(strategy.trim().toUpperCase(Locale.ROOT)), probeEvery, null);
+    }
+
+    // The executor is only used for racing; if null, one is created when needed
+    WeatherProviderRouter(List<WeatherProvider> providers, MeterRegistry meterRegistry, Strategy strategy, int probeEvery,
+                          ExecutorService executor) {
+        if (providers.isEmpty()) {
+            throw new IllegalArgumentException("At least one weather provider is required.");
+        }
+        for (WeatherProvider provider : providers) {
+            routes.add(new Route(provider, meterRegistry));
+        }
+        this.strategy = strategy;
+        this.probeEvery = probeEvery;
+        if (executor == null && strategy == Strategy.RACE && providers.size() > 1) {
+            // When all threads are busy, the remaining providers are called on the request thread
+            executor = new ThreadPoolExecutor(0, providers.size() * 16, 60, TimeUnit.SECONDS, new SynchronousQueue<>(),
+                    new CustomizableThreadFactory("weather-provider-"), new ThreadPoolExecutor.CallerRunsPolicy());
+        }
+        this.executor = executor;
+        logger.info("Routing weather requests to providers {} with strategy {}.",
+                providers.stream().map(WeatherProvider::getName).toList(), strategy);
+    }
+
+    /**
+     * Retrieves the selected parts of the forecast for a zipcode from the providers.
+     * @param zipcode The 5-digit US zipcode.
+     * @param parts The parts to include.
+     * @return The forecast of the provider that answered.
+     * @throws ZipcodeNotFoundException if the answering provider cannot locate the zipcode.
+     * @throws RuntimeException the failure of the first provider tried, if all providers failed.
+     */
+    public WeatherForecastDto getForecast(String zipcode, Set<ForecastPart> parts) {
+        if (strategy == Strategy.RACE && routes.size() > 1) {
+            return race(zipcode, parts);
+        }
+        RuntimeException firstFailure = null;
+        for (Route route : fastestFirst()) {
+            try {
+                WeatherForecastDto forecast = call(route, zipcode, parts);
+                route.wins.increment();
+                return forecast;
+            } catch (ZipcodeNotFoundException e) {
+                throw e;
+            } catch (RuntimeException e) {
+                if (firstFailure == null) {
+                    firstFailure = e;
+                }
+                logger.warn("Weather provider {} failed for zipcode {}: {}", route.provider.getName(), zipcode, e.getMessage());
+            }
+        }
+        throw firstFailure;
+    }
+
+    /**
+     * @return The provider names, in the order the fastest strategy would currently try them.
+     */
+    public List<String> getProviderOrder() {
+        return routes.stream()
+                .sorted(Comparator.comparingDouble(Route::getLatencyNanos))
+                .map(route -> route.provider.getName())
+                .toList();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    private List<Route> fastestFirst() {
+        // Unmeasured providers sort first (-1), so every provider gets measured
+        List<Route> ordered = new ArrayList<>(routes);
+        ordered.sort(Comparator.comparingDouble(Route::getLatencyNanos));
+        if (ordered.size() > 1 && probeEvery > 0 && requestCount.incrementAndGet() % probeEvery == 0) {
+            Route probed = ordered.remove(1 + probeCount.getAndIncrement() % (ordered.size() - 1));
+            ordered.add(0, probed);
+        }
+        return ordered;
+    }
+
+    private WeatherForecastDto call(Route route, String zipcode, Set<ForecastPart> parts) {
+        long start = System.nanoTime();
+        try {
+            WeatherForecastDto forecast = route.provider.getForecast(zipcode, parts);
+            route.record(System.nanoTime() - start);
+            return forecast;
+        } catch (ZipcodeNotFoundException e) {
+            route.record(System.nanoTime() - start);
+            throw e;
+        } catch (RuntimeException e) {
+            route.failures.increment();
+            route.record(Math.max(System.nanoTime() - start, FAILURE_PENALTY_NANOS));
+            throw e;
+        }
+    }
+
+    // Calls a provider in the trace and statement count of the request it races for
+    private WeatherForecastDto callAttached(Route route, String zipcode, Set<ForecastPart> parts,
+                                            RequestTrace trace, AtomicInteger statementCount) {
+        RequestTrace previousTrace = RequestTrace.attach(trace);
+        AtomicInteger previousStatementCount = StatementCountingInspector.attach(statementCount);
+        try {
+            return call(route, zipcode, parts);
+        } finally {
+            RequestTrace.attach(previousTrace);
+            StatementCountingInspector.attach(previousStatementCount);
+        }
+    }
+
+    // Calls all providers at once; completes with the first success, or the first provider's failure if all fail
+    private WeatherForecastDto race(String zipcode, Set<ForecastPart> parts) {
+        CompletableFuture<Answer> winner = new CompletableFuture<>();
+        List<CompletableFuture<Answer>> attempts = new ArrayList<>();
+        RequestTrace trace = RequestTrace.current();
+        AtomicInteger statementCount = StatementCountingInspector.currentCounter();
+        for (Route route : routes) {
+            CompletableFuture<Answer> attempt = CompletableFuture.supplyAsync(
+                    () -> new Answer(route, callAttached(route, zipcode, parts, trace, statementCount)), executor);
+            attempt.thenAccept(winner::complete);
+            attempts.add(attempt);
+        }
+        CompletableFuture.allOf(attempts.toArray(CompletableFuture[]::new)).whenComplete((ignored, failure) -> {
+            // Only once every attempt is done can it be known that none succeeded
+            if (attempts.stream().allMatch(CompletableFuture::isCompletedExceptionally)) {
+                attempts.get(0).whenComplete((result, error) -> winner.completeExceptionally(error));
+            }
+        });
+        try {
+            Answer answer = winner.get();
+            answer.route().wins.increment();
+            return answer.forecast();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for weather providers.", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause() instanceof CompletionException && e.getCause().getCause() != null
+                    ? e.getCause().getCause() : e.getCause();
+            throw cause instanceof RuntimeException runtimeException ? runtimeException : new IllegalStateException(cause);
+        }
+    }
+}
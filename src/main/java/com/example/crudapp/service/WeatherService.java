@@ -1,156 +1,128 @@
 package com.example.crudapp.service;
 
-import com.example.crudapp.dto.weather.*;
+import com.example.crudapp.dto.weather.DailyWeatherReportDto;
+import com.example.crudapp.dto.weather.ForecastPart;
+import com.example.crudapp.dto.weather.WeatherForecastDto;
+import com.example.crudapp.exception.ApiException;
+import com.example.crudapp.exception.UpstreamServiceException;
+import com.example.crudapp.exception.BulkheadFullException;
+import com.example.crudapp.exception.ConcurrencyLimitExceededException;
+import com.example.crudapp.resilience.AdaptiveConcurrencyLimiter;
+import com.example.crudapp.resilience.Bulkhead;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.web.client.HttpClientErrorException;
 import org.springframework.web.client.HttpServerErrorException;
-import org.springframework.web.client.RestTemplate;
-import org.springframework.web.util.UriComponentsBuilder;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestClientException;
 
-import java.time.Instant;
-import java.time.LocalDate;
-import java.time.ZoneOffset;
-import java.time.format.DateTimeFormatter;
-import java.util.ArrayList;
-import java.util.Collections;
+import java.util.EnumSet;
 import java.util.List;
-import java.util.Optional;
-import com.example.crudapp.exception.ApiKeyNotConfiguredException;
+import java.util.Set;
 
 @Service
 public class WeatherService {
 
     private static final Logger logger = LoggerFactory.getLogger(WeatherService.class);
-    private final RestTemplate restTemplate;
-
-    @Value("${openweathermap.api.key}")
-    private String apiKey;
-
-    private static final String GEOCODING_API_URL = "http://api.openweathermap.org/geo/1.0/zip";
-    private static final String ONE_CALL_API_URL = "https://api.openweathermap.org/data/3.0/onecall";
-    private static final String DEFAULT_COUNTRY_CODE = "US"; // Assuming US for zip codes
-    private static final String DEFAULT_UNITS = "metric"; // Celsius
-
-    public WeatherService() {
-        this.restTemplate = new RestTemplate();
+    private final ForecastPartCache forecastPartCache;
+    private final WeatherProviderRouter providerRouter;
+    private final AdaptiveConcurrencyLimiter concurrencyLimiter;
+    private final Bulkhead bulkhead;
+
+    @Autowired
+    public WeatherService(ForecastPartCache forecastPartCache,
+                          WeatherProviderRouter providerRouter,
+                          AdaptiveConcurrencyLimiter weatherConcurrencyLimiter,
+                          Bulkhead weatherBulkhead) {
+        this.forecastPartCache = forecastPartCache;
+        this.providerRouter = providerRouter;
+        this.concurrencyLimiter = weatherConcurrencyLimiter;
+        this.bulkhead = weatherBulkhead;
     }
 
     public List<DailyWeatherReportDto> getSevenDayForecast(String zipcode) {
-        if ("YOUR_API_KEY_HERE".equals(apiKey) || apiKey == null || apiKey.trim().isEmpty()) {
-            logger.error("OpenWeatherMap API key is not configured. Please set 'openweathermap.api.key' in application.properties.");
-            throw new ApiKeyNotConfiguredException("OpenWeatherMap API key is not configured. Please set 'openweathermap.api.key' in application.properties.");
-        }
-
-        try {
-            GeocodingApiResponseDto geoResponse = getCoordinates(zipcode);
-            if (geoResponse == null) { // Or check for empty lat/lon if the DTO can be non-null but empty
-                 logger.warn("Could not retrieve coordinates for zipcode: {}", zipcode);
-                // Controller should handle this by returning 400 or 404 based on this outcome
-                throw new RuntimeException("Invalid zipcode or unable to geocode.");
-            }
+        return getForecast(zipcode, EnumSet.of(ForecastPart.DAILY)).getDaily();
+    }
 
-            OpenWeatherOneCallResponseDto weatherData = fetchWeatherForecast(geoResponse.getLat(), geoResponse.getLon(), DEFAULT_UNITS);
-            if (weatherData == null || weatherData.getDaily() == null || weatherData.getDaily().isEmpty()) {
-                logger.warn("No daily weather data received from OpenWeatherMap for lat: {}, lon: {}", geoResponse.getLat(), geoResponse.getLon());
-                return Collections.emptyList();
+    /**
+     * Retrieves the selected parts of the forecast for a zipcode. Parts are served from the
+     * {@link ForecastPartCache} while fresh; all missing parts are fetched together from the
+     * {@link WeatherProvider} chosen by the {@link WeatherProviderRouter}. Upstream requests run in the weather
+     * {@link Bulkhead} and are subject to the adaptive concurrency limit; cache hits are not.
+     * @param zipcode The 5-digit US zipcode.
+     * @param parts The parts to include.
+     * @return The forecast, with only the requested parts set.
+     * @throws BulkheadFullException if the weather bulkhead and its queue are full.
+     * @throws ConcurrencyLimitExceededException if too many upstream requests are already in flight.
+     */
+    public WeatherForecastDto getForecast(String zipcode, Set<ForecastPart> parts) {
+        WeatherForecastDto forecast = new WeatherForecastDto();
+        Set<ForecastPart> missing = EnumSet.noneOf(ForecastPart.class);
+        for (ForecastPart part : parts) {
+            Object cached = forecastPartCache.get(zipcode, part);
+            if (cached != null) {
+                forecast.setPart(part, cached);
+            } else {
+                missing.add(part);
             }
-            return mapToDailyWeatherReportDto(weatherData, DEFAULT_UNITS);
-
-        } catch (HttpClientErrorException | HttpServerErrorException e) {
-            logger.error("Error calling OpenWeatherMap API: {} - {}", e.getStatusCode(), e.getResponseBodyAsString(), e);
-            // Rethrow a more specific application exception or let controller handle generic one
-            throw new RuntimeException("Error fetching weather data: " + e.getMessage(), e);
-        } catch (Exception e) {
-            logger.error("An unexpected error occurred in WeatherService for zipcode {}: {}", zipcode, e.getMessage(), e);
-            throw new RuntimeException("Unexpected error processing weather request: " + e.getMessage(), e);
+        }
+        if (missing.isEmpty()) {
+            logger.debug("Serving forecast parts {} for zipcode {} from cache.", parts, zipcode);
+            return forecast;
+        }
+        try (Bulkhead.Permit ignored = bulkhead.acquire()) {
+            return fetchMissing(zipcode, missing, forecast);
         }
     }
 
-    private GeocodingApiResponseDto getCoordinates(String zipcode) {
-        // The OpenWeatherMap Geocoding API documentation for zip codes indicates it can return an array
-        // for city name searches, but for zip code, it returns a single object.
-        // If it could return an array for zip, the DTO type here would be GeocodingApiResponseDto[].class
-        // and we'd take the first element if the array is not empty.
-        // Based on example: http://api.openweathermap.org/geo/1.0/zip?zip=E14,GB&appid={API key} -> returns single object.
-
-        UriComponentsBuilder uriBuilder = UriComponentsBuilder.fromHttpUrl(GEOCODING_API_URL)
-                .queryParam("zip", zipcode + "," + DEFAULT_COUNTRY_CODE)
-                .queryParam("appid", apiKey);
-
-        logger.info("Fetching coordinates for zipcode: {} from URL: {}", zipcode, uriBuilder.toUriString());
+    // Fetches the missing parts from upstream, caches them and sets them on the forecast
+    private WeatherForecastDto fetchMissing(String zipcode, Set<ForecastPart> missing, WeatherForecastDto forecast) {
+        AdaptiveConcurrencyLimiter.Permit permit = concurrencyLimiter.tryAcquire();
+        if (permit == null) {
+            logger.warn("Rejecting weather request for zipcode {}: {} upstream requests in flight.", zipcode, concurrencyLimiter.getInFlight());
+            throw new ConcurrencyLimitExceededException("Too many concurrent weather requests. Try again later.");
+        }
+        Exception failure = null;
         try {
-            // Try fetching as a single object first, as per zip code API example
-            GeocodingApiResponseDto response = restTemplate.getForObject(uriBuilder.toUriString(), GeocodingApiResponseDto.class);
-            if (response != null && response.getLat() != 0 && response.getLon() != 0) { // Basic check
-                logger.info("Successfully fetched coordinates: lat={}, lon={} for zipcode {}", response.getLat(), response.getLon(), zipcode);
-                return response;
-            } else {
-                 // Attempt to parse as array if single object parsing fails or returns null/empty
-                try {
-                    GeocodingApiResponseDto[] arrayResponse = restTemplate.getForObject(uriBuilder.toUriString(), GeocodingApiResponseDto[].class);
-                    if (arrayResponse != null && arrayResponse.length > 0 && arrayResponse[0].getLat() != 0 && arrayResponse[0].getLon() != 0) {
-                        logger.info("Successfully fetched coordinates (from array): lat={}, lon={} for zipcode {}", arrayResponse[0].getLat(), arrayResponse[0].getLon(), zipcode);
-                        return arrayResponse[0];
-                    }
-                } catch (Exception arrayEx) {
-                    logger.warn("Failed to parse geocoding response as array for zipcode {}: {}", zipcode, arrayEx.getMessage());
+            WeatherForecastDto fetched = providerRouter.getForecast(zipcode, missing);
+            for (ForecastPart part : missing) {
+                Object value = fetched.getPart(part);
+                // Empty parts are not cached, so an upstream hiccup is retried on the next request
+                if (value != null && !(value instanceof List<?> list && list.isEmpty())) {
+                    forecastPartCache.put(zipcode, part, value);
                 }
-                logger.warn("Geocoding response for zipcode {} was null, empty, or lacked coordinates.", zipcode);
-                return null; // Or throw specific exception
+                forecast.setPart(part, value);
             }
-        } catch (HttpClientErrorException e) {
-            logger.error("Client error during geocoding for zipcode {}: {} - {}", zipcode, e.getStatusCode(), e.getResponseBodyAsString());
-            if (e.getStatusCode().value() == 404) { // Not Found by OpenWeatherMap often means invalid zip
-                 throw new RuntimeException("Zipcode not found or invalid: " + zipcode, e);
-            }
-            throw e; // Re-throw other client errors
+            return forecast;
+
+        } catch (ApiException e) {
+            failure = e;
+            throw e;
+        } catch (RestClientException e) {
+            failure = e;
+            logger.error("Error calling the weather provider for zipcode {}: {}", zipcode, e.getMessage());
+            throw new UpstreamServiceException("Error fetching weather data: " + e.getMessage(), e);
+        } catch (RuntimeException e) {
+            failure = e;
+            logger.error("An unexpected error occurred in WeatherService for zipcode {}: {}", zipcode, e.getMessage(), e);
+            throw e;
+        } finally {
+            release(permit, failure);
         }
     }
 
-    private OpenWeatherOneCallResponseDto fetchWeatherForecast(double lat, double lon, String units) {
-        UriComponentsBuilder uriBuilder = UriComponentsBuilder.fromHttpUrl(ONE_CALL_API_URL)
-                .queryParam("lat", lat)
-                .queryParam("lon", lon)
-                .queryParam("exclude", "current,minutely,hourly,alerts")
-                .queryParam("units", units)
-                .queryParam("appid", apiKey);
-
-        logger.info("Fetching weather forecast for lat: {}, lon: {} from URL: {}", lat, lon, uriBuilder.toUriString());
-        OpenWeatherOneCallResponseDto response = restTemplate.getForObject(uriBuilder.toUriString(), OpenWeatherOneCallResponseDto.class);
-        logger.info("Successfully fetched weather forecast.");
-        return response;
-    }
-
-    private List<DailyWeatherReportDto> mapToDailyWeatherReportDto(OpenWeatherOneCallResponseDto weatherData, String unitsSystem) {
-        List<DailyWeatherReportDto> reports = new ArrayList<>();
-        String temperatureUnit = "metric".equalsIgnoreCase(unitsSystem) ? "Celsius" : ("imperial".equalsIgnoreCase(unitsSystem) ? "Fahrenheit" : "Kelvin");
-
-        if (weatherData.getDaily() != null) {
-            for (int i = 0; i < weatherData.getDaily().size() && i < 7; i++) { // Max 7 days
-                OpenWeatherDailyDto dailyDto = weatherData.getDaily().get(i);
-                DailyWeatherReportDto report = new DailyWeatherReportDto();
-
-                LocalDate date = Instant.ofEpochSecond(dailyDto.getDt()).atZone(ZoneOffset.UTC).toLocalDate();
-                report.setDate(date.format(DateTimeFormatter.ISO_LOCAL_DATE));
-
-                if (dailyDto.getTemp() != null) {
-                    report.setMinTemperature(dailyDto.getTemp().getMin());
-                    report.setMaxTemperature(dailyDto.getTemp().getMax());
-                }
-
-                if (dailyDto.getWeather() != null && !dailyDto.getWeather().isEmpty()) {
-                    report.setWeatherDescription(dailyDto.getWeather().get(0).getDescription());
-                } else {
-                    report.setWeatherDescription("N/A");
-                }
-                report.setRainProbability(dailyDto.getPop());
-                report.setTemperatureUnit(temperatureUnit);
-                reports.add(report);
-            }
+    // Only failures that indicate an overloaded or unreachable upstream lower the concurrency limit
+    private static void release(AdaptiveConcurrencyLimiter.Permit permit, Exception failure) {
+        if (failure == null) {
+            permit.onSuccess();
+        } else if (failure instanceof HttpServerErrorException
+                || failure instanceof ResourceAccessException
+                || failure instanceof HttpClientErrorException.TooManyRequests) {
+            permit.onDropped();
+        } else {
+            permit.onIgnore();
         }
-        return reports;
     }
 }
@@ -0,0 +1,61 @@
+package com.example.crudapp.sharding;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+import javax.sql.DataSource;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Routes each connection request to one of the shard datasources, selected for the current thread
+ * with {@link #onShard(int, Supplier)}. Using the datasource outside such a call is an error.
+ */
+public class ShardRoutingDataSource extends AbstractRoutingDataSource {
+
+    private final ThreadLocal<Integer> currentShard = new ThreadLocal<>();
+
+    /**
+     * Constructs a ShardRoutingDataSource.
+     * @param shards The shard datasources, indexed by shard number.
+     */
+    public ShardRoutingDataSource(List<DataSource> shards) {
+        Map<Object, Object> targets = new HashMap<>();
+        for (int i = 0; i < shards.size(); i++) {
+            targets.put(i, shards.get(i));
+        }
+        setTargetDataSources(targets);
+        setLenientFallback(false);
+        afterPropertiesSet();
+    }
+
+    /**
+     * Runs an action with all connections of the current thread routed to the given shard.
+     * @param shard The shard number.
+     * @param action The action to run.
+     * @return The result of the action.
+     */
+    public <T> T onShard(int shard, Supplier<T> action) {
+        Integer previous = currentShard.get();
+        currentShard.set(shard);
+        try {
+            return action.get();
+        } finally {
+            if (previous == null) {
+                currentShard.remove();
+            } else {
+                currentShard.set(previous);
+            }
+        }
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        Integer shard = currentShard.get();
+        if (shard == null) {
+            throw new IllegalStateException("No shard selected for the current thread.");
+        }
+        return shard;
+    }
+}
@@ -0,0 +1,351 @@
+package com.example.crudapp.sharding;
+
+import com.example.crudapp.model.User;
+import com.zaxxer.hikari.HikariDataSource;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.CannotGetJdbcConnectionException;
+import org.springframework.jdbc.core.DataClassRowMapper;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.datasource.ConnectionHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.TransactionSystemException;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.lang.reflect.RecordComponent;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * User storage partitioned across several embedded H2 databases by a hash of the user ID.
+ * <p>
+ * Single-user operations are routed to the owning shard through a {@link ShardRoutingDataSource};
+ * listing and counting query all shards in parallel and merge the results (scatter-gather).
+ * IDs are assigned by a {@link SnowflakeIdGenerator}, so they are unique across shards without
+ * a shared sequence. Only active when {@code app.users.sharding.enabled=true}; otherwise users
+ * are stored through {@link com.example.crudapp.repository.UserRepository} as usual.
+ * <p>
+ * Writes made inside a Spring-managed transaction join a transaction on the shard, which commits just
+ * before the caller's transaction and rolls back with it. Reads go through their own connection and
+ * only see committed writes.
+ */
+@Component
+public class ShardedUserStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(ShardedUserStore.class);
+    private static final AtomicInteger INSTANCES = new AtomicInteger();
+    private static final String CREATE_TABLE_SQL =
+            "CREATE TABLE IF NOT EXISTS users (id BIGINT NOT NULL PRIMARY KEY, name VARCHAR(255), email VARCHAR(255))";
+    private static final String USER_COLUMNS = "id, name, email";
+
+    private final boolean enabled;
+    private final int shardCount;
+    private final List<HikariDataSource> shards = new ArrayList<>();
+    private final List<JdbcTemplate> shardTemplates = new ArrayList<>();
+    private final ShardRoutingDataSource routingDataSource;
+    private final JdbcTemplate jdbcTemplate;
+    private final SnowflakeIdGenerator idGenerator;
+    private final ExecutorService scatterExecutor;
+    private final Map<Class<?>, String> columnsByType = new ConcurrentHashMap<>();
+    private final Map<Class<?>, RowMapper<?>> rowMappersByType = new ConcurrentHashMap<>();
+
+    /**
+     * Constructs a ShardedUserStore, creating the shard databases if sharding is enabled.
+     * @param enabled Whether sharding is enabled.
+     * @param shardCount The number of shards.
+     * @param nodeId The ID of this node in generated user IDs (0-15).
+     */
+    @Autowired
+    public ShardedUserStore(@Value("${app.users.sharding.enabled:false}") boolean enabled,
+                            @Value("${app.users.sharding.shard-count:4}") int shardCount,
+                            @Value("${app.users.sharding.node-id:0}") long nodeId) {
+        this.enabled = enabled;
+        this.shardCount = shardCount;
+        if (!enabled) {
+            this.routingDataSource = null;
+            this.jdbcTemplate = null;
+            this.idGenerator = null;
+            this.scatterExecutor = null;
+            return;
+        }
+        if (shardCount <= 0) {
+            throw new IllegalArgumentException("Shard count must be positive.");
+        }
+        this.idGenerator = new SnowflakeIdGenerator(Clock.systemUTC(), nodeId);
+        int instance = INSTANCES.incrementAndGet();
+        for (int i = 0; i < shardCount; i++) {
+            HikariDataSource shard = new HikariDataSource();
+            shard.setPoolName("users-shard-" + i);
+            shard.setJdbcUrl("jdbc:h2:mem:users_" + instance + "_shard_" + i + ";DB_CLOSE_DELAY=-1");
+            shard.setUsername("sa");
+            shard.setPassword("");
+            new JdbcTemplate(shard).execute(CREATE_TABLE_SQL);
+            shards.add(shard);
+            shardTemplates.add(new JdbcTemplate(shard));
+        }
+        this.routingDataSource = new ShardRoutingDataSource(new ArrayList<DataSource>(shards));
+        this.jdbcTemplate = new JdbcTemplate(routingDataSource);
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.scatterExecutor = Executors.newFixedThreadPool(shardCount, runnable -> {
+            Thread thread = new Thread(runnable, "user-shard-scatter-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        logger.info("User sharding enabled with {} shards.", shardCount);
+    }
+
+    /**
+     * @return true if users are stored in shards.
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * @return The number of shards.
+     */
+    public int getShardCount() {
+        return shardCount;
+    }
+
+    /**
+     * Returns the shard owning a user ID. IDs are mixed before the modulo, because the low bits of
+     * snowflake IDs are mostly zero at low write rates.
+     * @param id The user ID.
+     * @return The shard number.
+     */
+    public int shardFor(long id) {
+        long hash = id;
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return (int) Math.floorMod(hash, (long) shardCount);
+    }
+
+    /**
+     * Inserts a new user into its shard, assigning it a new ID.
+     * @param user The user to insert; its ID is set.
+     * @return The inserted user.
+     */
+    public User insert(User user) {
+        user.setId(idGenerator.nextId());
+        write(user.getId(), "INSERT INTO users (id, name, email) VALUES (?, ?, ?)", user.getId(), user.getName(), user.getEmail());
+        return user;
+    }
+
+    /**
+     * Updates the name and email of a user in a single statement, without reading it first.
+     * @param user The user with its ID and new details.
+     * @return true if the user exists and was updated.
+     */
+    public boolean update(User user) {
+        return write(user.getId(), "UPDATE users SET name = ?, email = ? WHERE id = ?", user.getName(), user.getEmail(), user.getId()) > 0;
+    }
+
+    /**
+     * Deletes a user.
+     * @param id The user ID.
+     * @return true if the user existed and was deleted.
+     */
+    public boolean delete(Long id) {
+        return write(id, "DELETE FROM users WHERE id = ?", id) > 0;
+    }
+
+    /**
+     * Retrieves a user by ID from its shard.
+     * @param id The user ID.
+     * @return The user, or an empty Optional if not found.
+     */
+    public Optional<User> findById(Long id) {
+        return findById(id, User.class);
+    }
+
+    /**
+     * Retrieves a user by ID from its shard, as the given type.
+     * @param id The user ID.
+     * @param type {@link User} or a projection record whose components are user columns.
+     * @return The user, or an empty Optional if not found.
+     */
+    public <T> Optional<T> findById(Long id, Class<T> type) {
+        String sql = "SELECT " + columnsOf(type) + " FROM users WHERE id = ?";
+        List<T> users = onShardOf(id, () -> jdbcTemplate.query(sql, rowMapperOf(type), id));
+        return users.stream().findFirst();
+    }
+
+    /**
+     * Retrieves all users from all shards in parallel.
+     * @return All users, ordered by shard.
+     */
+    public List<User> findAll() {
+        return findAll(User.class);
+    }
+
+    /**
+     * Retrieves all users from all shards in parallel, as the given type.
+     * Only the columns of the type are selected.
+     * @param type {@link User} or a projection record whose components are user columns.
+     * @return All users, ordered by shard.
+     */
+    public <T> List<T> findAll(Class<T> type) {
+        String sql = "SELECT " + columnsOf(type) + " FROM users";
+        RowMapper<T> rowMapper = rowMapperOf(type);
+        List<List<T>> perShard = scatter(shard -> jdbcTemplate.query(sql, rowMapper));
+        List<T> users = new ArrayList<>(perShard.stream().mapToInt(List::size).sum());
+        perShard.forEach(users::addAll);
+        return users;
+    }
+
+    /**
+     * Counts the users in all shards in parallel.
+     * @return The total number of users.
+     */
+    public long count() {
+        return scatter(shard -> jdbcTemplate.queryForObject("SELECT COUNT(*) FROM users", Long.class))
+                .stream().mapToLong(Long::longValue).sum();
+    }
+
+    /**
+     * Deletes all users from all shards.
+     */
+    public void deleteAll() {
+        scatter(shard -> jdbcTemplate.update("DELETE FROM users"));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (!enabled) {
+            return;
+        }
+        scatterExecutor.shutdown();
+        for (HikariDataSource shard : shards) {
+            new JdbcTemplate(shard).execute("SHUTDOWN");
+            shard.close();
+        }
+    }
+
+    private <T> T onShardOf(Long id, Supplier<T> action) {
+        return routingDataSource.onShard(shardFor(id), action);
+    }
+
+    private int write(Long id, String sql, Object... args) {
+        int shard = shardFor(id);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            joinTransaction(shards.get(shard));
+        }
+        // The template uses the connection bound by joinTransaction, if any
+        return shardTemplates.get(shard).update(sql, args);
+    }
+
+    // Binds a non-auto-commit connection to the shard for the rest of the caller's transaction
+    private static void joinTransaction(DataSource shard) {
+        if (TransactionSynchronizationManager.hasResource(shard)) {
+            return;
+        }
+        Connection connection;
+        try {
+            connection = shard.getConnection();
+            connection.setAutoCommit(false);
+        } catch (SQLException e) {
+            throw new CannotGetJdbcConnectionException("Failed to open a transaction on a user shard", e);
+        }
+        ConnectionHolder holder = new ConnectionHolder(connection);
+        holder.setSynchronizedWithTransaction(true);
+        TransactionSynchronizationManager.bindResource(shard, holder);
+        TransactionSynchronizationManager.registerSynchronization(new ShardTransaction(shard, holder));
+    }
+
+    // Commits the shard transaction before the caller's, so a failed shard commit fails the caller too
+    private static final class ShardTransaction implements TransactionSynchronization {
+        private final DataSource shard;
+        private final ConnectionHolder holder;
+        private boolean committed;
+
+        ShardTransaction(DataSource shard, ConnectionHolder holder) {
+            this.shard = shard;
+            this.holder = holder;
+        }
+
+        @Override
+        public void suspend() {
+            TransactionSynchronizationManager.unbindResource(shard);
+        }
+
+        @Override
+        public void resume() {
+            TransactionSynchronizationManager.bindResource(shard, holder);
+        }
+
+        @Override
+        public void beforeCommit(boolean readOnly) {
+            try {
+                holder.getConnection().commit();
+                committed = true;
+            } catch (SQLException e) {
+                throw new TransactionSystemException("Failed to commit a user shard transaction", e);
+            }
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            TransactionSynchronizationManager.unbindResourceIfPossible(shard);
+            Connection connection = holder.getConnection();
+            try {
+                if (!committed) {
+                    connection.rollback();
+                }
+                connection.setAutoCommit(true);
+            } catch (SQLException e) {
+                logger.warn("Failed to roll back a user shard transaction: {}", e.getMessage());
+            } finally {
+                try {
+                    connection.close();
+                } catch (SQLException e) {
+                    logger.warn("Failed to close a user shard connection: {}", e.getMessage());
+                }
+            }
+        }
+    }
+
+    // Runs a query on every shard in parallel and returns the results in shard order
+    private <T> List<T> scatter(IntFunction<T> query) {
+        List<CompletableFuture<T>> futures = new ArrayList<>(shardCount);
+        for (int i = 0; i < shardCount; i++) {
+            int shard = i;
+            futures.add(CompletableFuture.supplyAsync(() -> routingDataSource.onShard(shard, () -> query.apply(shard)), scatterExecutor));
+        }
+        return futures.stream().map(CompletableFuture::join).collect(Collectors.toList());
+    }
+
+    private String columnsOf(Class<?> type) {
+        return columnsByType.computeIfAbsent(type, key -> key.isRecord()
+                ? Arrays.stream(key.getRecordComponents()).map(RecordComponent::getName).collect(Collectors.joining(", "))
+                : USER_COLUMNS);
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> RowMapper<T> rowMapperOf(Class<T> type) {
+        return (RowMapper<T>) rowMappersByType.computeIfAbsent(type, DataClassRowMapper::new);
+    }
+}
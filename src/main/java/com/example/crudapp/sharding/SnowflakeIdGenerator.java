@@ -0,0 +1,57 @@
+package com.example.crudapp.sharding;
+
+import java.time.Clock;
+import java.time.Instant;
+
+/**
+ * Generates globally unique, time-ordered 53-bit IDs without coordination between shards or nodes.
+ * <p>
+ * Layout: 41 bits of milliseconds since 2024-01-01, 4 bits of node ID and 8 bits of sequence, giving
+ * 256 IDs per millisecond per node. IDs stay below 2^53, so JavaScript clients can hold them in a number.
+ * If the sequence runs out, or the clock moves backwards, the generator borrows the next millisecond
+ * instead of blocking; IDs never repeat on a node.
+ */
+public class SnowflakeIdGenerator {
+
+    static final int NODE_BITS = 4;
+    static final int SEQUENCE_BITS = 8;
+    static final long MAX_NODE_ID = (1L << NODE_BITS) - 1;
+    private static final long MAX_SEQUENCE = (1L << SEQUENCE_BITS) - 1;
+    private static final long EPOCH = Instant.parse("2024-01-01T00:00:00Z").toEpochMilli();
+
+    private final Clock clock;
+    private final long nodeId;
+    private long lastTimestamp = -1;
+    private long sequence;
+
+    /**
+     * Constructs a SnowflakeIdGenerator.
+     * @param clock The clock IDs are derived from.
+     * @param nodeId The ID of this node, from 0 to 15; must be unique among nodes writing to the same shards.
+     * @throws IllegalArgumentException if the node ID is out of range.
+     */
+    public SnowflakeIdGenerator(Clock clock, long nodeId) {
+        if (nodeId < 0 || nodeId > MAX_NODE_ID) {
+            throw new IllegalArgumentException("Node ID must be between 0 and " + MAX_NODE_ID + ".");
+        }
+        this.clock = clock;
+        this.nodeId = nodeId;
+    }
+
+    /**
+     * @return A new ID, greater than every ID previously returned by this generator.
+     */
+    public synchronized long nextId() {
+        long now = Math.max(clock.millis() - EPOCH, lastTimestamp);
+        if (now == lastTimestamp) {
+            if (++sequence > MAX_SEQUENCE) {
+                now++;
+                sequence = 0;
+            }
+        } else {
+            sequence = 0;
+        }
+        lastTimestamp = now;
+        return (now << (NODE_BITS + SEQUENCE_BITS)) | (nodeId << SEQUENCE_BITS) | sequence;
+    }
+}
@@ -0,0 +1,26 @@
+package com.example.crudapp.tracing;
+
+import java.util.List;
+
+/**
+ * A finished request trace with the timings of its stages.
+ * @param name The request method and path.
+ * @param status The HTTP status of the response.
+ * @param startedAt When the request started, in epoch milliseconds.
+ * @param durationMicros The total duration of the request.
+ * @param stages The spans in the order they were opened.
+ * @param droppedSpans The number of spans not recorded because the trace was full.
+ */
+public record CompletedTrace(String name, int status, long startedAt, long durationMicros,
+                             List<Stage> stages, int droppedSpans) {
+
+    /**
+     * A timed stage of the request.
+     * @param name The name of the stage.
+     * @param depth The nesting depth, 0 for stages opened directly by the request.
+     * @param startOffsetMicros When the stage started, relative to the start of the request.
+     * @param durationMicros The duration of the stage.
+     */
+    public record Stage(String name, int depth, long startOffsetMicros, long durationMicros) {
+    }
+}
@@ -0,0 +1,155 @@
+package com.example.crudapp.tracing;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Lightweight span tracing for the request on the current thread.
+ * <p>
+ * {@link TracingFilter} begins a trace per request; code on the request thread opens spans with
+ * {@code try (RequestTrace.Span span = RequestTrace.span("name")) { ... }} to time its stages. Outside a
+ * traced request, and beyond {@link #MAX_SPANS} spans per trace, {@link #span(String)} returns a shared
+ * no-op span, so instrumented code costs next to nothing when tracing is off. Work handed to other
+ * threads is only traced if it {@link #attach(RequestTrace) attaches} the request's trace; spans opened after
+ * the trace has ended are dropped.
+ */
+public final class RequestTrace {
+
+    /**
+     * The maximum number of spans recorded per trace; further spans are dropped.
+     */
+    public static final int MAX_SPANS = 256;
+
+    private static final ThreadLocal<RequestTrace> CURRENT = new ThreadLocal<>();
+    private static final Span NOOP = new Span(null, null, 0, 0);
+
+    /**
+     * A timed stage of a request; closing it records its duration.
+     */
+    public static final class Span implements AutoCloseable {
+        private final RequestTrace trace;
+        private final String name;
+        private final int depth;
+        private final long startNanos;
+        private long endNanos;
+
+        private Span(RequestTrace trace, String name, int depth, long startNanos) {
+            this.trace = trace;
+            this.name = name;
+            this.depth = depth;
+            this.startNanos = startNanos;
+        }
+
+        @Override
+        public void close() {
+            if (trace != null) {
+                synchronized (trace) {
+                    if (endNanos == 0) {
+                        endNanos = System.nanoTime();
+                        trace.depth--;
+                    }
+                }
+            }
+        }
+    }
+
+    private final String name;
+    private final long startedAt = System.currentTimeMillis();
+    private final long startNanos = System.nanoTime();
+    private final List<Span> spans = new ArrayList<>(); // guarded by this, like the fields below
+    private int depth;
+    private int droppedSpans;
+    private boolean ended;
+
+    private RequestTrace(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Begins a trace on the current thread, replacing any unfinished one.
+     * @param name The name of the trace, e.g. the request method and path.
+     * @return The trace.
+     */
+    public static RequestTrace begin(String name) {
+        RequestTrace trace = new RequestTrace(name);
+        CURRENT.set(trace);
+        return trace;
+    }
+
+    /**
+     * Opens a span in the trace of the current thread.
+     * @param name The name of the stage, e.g. {@code WeatherService.getCoordinates}.
+     * @return The span to close when the stage ends, or a no-op span if no trace is active.
+     */
+    public static Span span(String name) {
+        RequestTrace trace = CURRENT.get();
+        if (trace == null) {
+            return NOOP;
+        }
+        synchronized (trace) {
+            if (trace.ended) {
+                return NOOP;
+            }
+            if (trace.spans.size() >= MAX_SPANS) {
+                trace.droppedSpans++;
+                return NOOP;
+            }
+            Span span = new Span(trace, name, trace.depth++, System.nanoTime());
+            trace.spans.add(span);
+            return span;
+        }
+    }
+
+    /**
+     * @return true if a trace is active on the current thread, so callers can skip building span names otherwise.
+     */
+    public static boolean isActive() {
+        return CURRENT.get() != null;
+    }
+
+    /**
+     * @return The trace of the current thread, or null outside a traced request.
+     */
+    public static RequestTrace current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Makes the current thread record its spans into the given trace, so work done on behalf of a request on
+     * another thread shows up in the request's trace.
+     * @param trace The trace to record into, or null to stop tracing on the current thread.
+     * @return The trace the current thread recorded into before, to attach again when the work is done.
+     */
+    public static RequestTrace attach(RequestTrace trace) {
+        RequestTrace previous = CURRENT.get();
+        if (trace == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(trace);
+        }
+        return previous;
+    }
+
+    /**
+     * Ends this trace and detaches it from the current thread. Spans still open end with the trace.
+     * @param status The HTTP status of the response.
+     * @return The completed trace.
+     */
+    public CompletedTrace end(int status) {
+        long endNanos = System.nanoTime();
+        if (CURRENT.get() == this) {
+            CURRENT.remove();
+        }
+        List<CompletedTrace.Stage> stages;
+        synchronized (this) {
+            ended = true;
+            stages = new ArrayList<>(spans.size());
+            for (Span span : spans) {
+                long spanEnd = span.endNanos == 0 ? endNanos : span.endNanos;
+                stages.add(new CompletedTrace.Stage(span.name, span.depth,
+                        (span.startNanos - startNanos) / 1000, (spanEnd - span.startNanos) / 1000));
+            }
+        }
+        return new CompletedTrace(name, status, startedAt, (endNanos - startNanos) / 1000, stages, droppedSpans);
+    }
+}
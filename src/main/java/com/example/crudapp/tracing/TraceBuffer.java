@@ -0,0 +1,115 @@
+package com.example.crudapp.tracing;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Bounded in-memory store of completed traces: a ring buffer of the most recent ones and the slowest ones seen.
+ * <p>
+ * Recording into the ring is lock-free, so request threads never wait for each other: each claims a slot
+ * with one atomic increment and overwrites the oldest trace. A trace is only offered to the slowest set,
+ * which takes a lock, if it is slower than the fastest trace the set already holds, so once the set is
+ * full almost every request skips it.
+ */
+@Component
+public class TraceBuffer {
+
+    private static final Comparator<CompletedTrace> BY_DURATION = Comparator.comparingLong(CompletedTrace::durationMicros);
+
+    private final AtomicReferenceArray<CompletedTrace> recent;
+    private final AtomicLong recorded = new AtomicLong();
+    private final int slowestCount;
+    private final PriorityQueue<CompletedTrace> slowest = new PriorityQueue<>(BY_DURATION); // fastest on top; guarded by itself
+    private volatile long slowestThresholdMicros = -1; // fastest duration in a full slowest set, -1 while it fills
+
+    /**
+     * Constructs a TraceBuffer.
+     * @param capacity The number of recent traces kept.
+     * @param slowestCount The number of slowest traces kept.
+     */
+    @Autowired
+    public TraceBuffer(@Value("${app.tracing.buffer-size:512}") int capacity,
+                       @Value("${app.tracing.slowest-count:20}") int slowestCount) {
+        if (capacity < 1 || slowestCount < 1) {
+            throw new IllegalArgumentException("Trace buffer sizes must be positive.");
+        }
+        this.recent = new AtomicReferenceArray<>(capacity);
+        this.slowestCount = slowestCount;
+    }
+
+    /**
+     * Records a completed trace.
+     * @param trace The trace.
+     */
+    public void record(CompletedTrace trace) {
+        long sequence = recorded.getAndIncrement();
+        recent.set((int) (sequence % recent.length()), trace);
+        if (trace.durationMicros() > slowestThresholdMicros) {
+            synchronized (slowest) {
+                slowest.add(trace);
+                if (slowest.size() > slowestCount) {
+                    slowest.poll();
+                }
+                if (slowest.size() == slowestCount) {
+                    slowestThresholdMicros = slowest.peek().durationMicros();
+                }
+            }
+        }
+    }
+
+    /**
+     * @return The most recent traces, newest first.
+     */
+    public List<CompletedTrace> recent() {
+        int capacity = recent.length();
+        long last = recorded.get() - 1;
+        List<CompletedTrace> traces = new ArrayList<>(capacity);
+        for (long sequence = last; sequence >= 0 && sequence > last - capacity; sequence--) {
+            CompletedTrace trace = recent.get((int) (sequence % capacity));
+            if (trace != null) {
+                traces.add(trace);
+            }
+        }
+        return traces;
+    }
+
+    /**
+     * @return The slowest traces seen since the last {@link #clear()}, slowest first.
+     */
+    public List<CompletedTrace> slowest() {
+        List<CompletedTrace> traces;
+        synchronized (slowest) {
+            traces = new ArrayList<>(slowest);
+        }
+        traces.sort(BY_DURATION.reversed());
+        return traces;
+    }
+
+    /**
+     * @return The number of traces recorded since startup.
+     */
+    public long getRecordedCount() {
+        return recorded.get();
+    }
+
+    /**
+     * Removes all recent and slowest traces.
+     */
+    public void clear() {
+        for (int i = 0; i < recent.length(); i++) {
+            recent.set(i, null);
+        }
+        synchronized (slowest) {
+            slowest.clear();
+            slowestThresholdMicros = -1;
+        }
+    }
+}
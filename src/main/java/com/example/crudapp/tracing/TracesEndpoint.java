@@ -0,0 +1,74 @@
+package com.example.crudapp.tracing;
+
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Actuator endpoint exposing request traces at {@code /actuator/traces}: the most recent and the slowest
+ * traces with their stage timings, and per-stage totals over the recent traces.
+ * A DELETE on the endpoint clears the collected traces.
+ */
+@Component
+@Endpoint(id = "traces")
+public class TracesEndpoint {
+
+    private final TraceBuffer traceBuffer;
+
+    /**
+     * Constructs the endpoint.
+     * @param traceBuffer The buffer holding the completed traces.
+     */
+    public TracesEndpoint(TraceBuffer traceBuffer) {
+        this.traceBuffer = traceBuffer;
+    }
+
+    /**
+     * @return The recorded trace count, per-stage totals, and the recent and slowest traces.
+     */
+    @ReadOperation
+    public Map<String, Object> traces() {
+        List<CompletedTrace> recent = traceBuffer.recent();
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("recordedCount", traceBuffer.getRecordedCount());
+        result.put("stages", stages(recent));
+        result.put("slowest", traceBuffer.slowest());
+        result.put("recent", recent);
+        return result;
+    }
+
+    /**
+     * Clears all collected traces.
+     */
+    @DeleteOperation
+    public void clear() {
+        traceBuffer.clear();
+    }
+
+    private static Map<String, Object> stages(List<CompletedTrace> traces) {
+        Map<String, long[]> totals = new TreeMap<>(); // count, total, max
+        for (CompletedTrace trace : traces) {
+            for (CompletedTrace.Stage stage : trace.stages()) {
+                long[] total = totals.computeIfAbsent(stage.name(), name -> new long[3]);
+                total[0]++;
+                total[1] += stage.durationMicros();
+                total[2] = Math.max(total[2], stage.durationMicros());
+            }
+        }
+        Map<String, Object> stages = new LinkedHashMap<>();
+        totals.forEach((name, total) -> {
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("count", total[0]);
+            entry.put("avgMicros", total[1] / total[0]);
+            entry.put("maxMicros", total[2]);
+            stages.put(name, entry);
+        });
+        return stages;
+    }
+}
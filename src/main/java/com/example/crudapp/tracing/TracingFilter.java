@@ -0,0 +1,39 @@
+package com.example.crudapp.tracing;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/**
+ * Traces each request from the moment it enters the filter chain until the response is written,
+ * and records the completed trace in the {@link TraceBuffer}.
+ */
+public class TracingFilter extends OncePerRequestFilter {
+
+    private final TraceBuffer traceBuffer;
+
+    /**
+     * Constructs the filter.
+     * @param traceBuffer The buffer completed traces are recorded in.
+     */
+    public TracingFilter(TraceBuffer traceBuffer) {
+        this.traceBuffer = traceBuffer;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        RequestTrace trace = RequestTrace.begin(request.getMethod() + " " + request.getRequestURI());
+        int status = HttpServletResponse.SC_INTERNAL_SERVER_ERROR;
+        try {
+            filterChain.doFilter(request, response);
+            status = response.getStatus();
+        } finally {
+            traceBuffer.record(trace.end(status));
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package com.example.crudapp.tracing;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.stereotype.Component;
+
+/**
+ * Opens a span around every {@code UserService} and {@code UserRepository} call made within a traced request,
+ * so user requests show how their time splits between business logic and data access.
+ */
+@Aspect
+@Component
+public class UserTracingAspect {
+
+    @Around("execution(public * com.example.crudapp.service.UserService.*(..))")
+    public Object traceUserService(ProceedingJoinPoint joinPoint) throws Throwable {
+        return trace("UserService.", joinPoint);
+    }
+
+    @Around("this(com.example.crudapp.repository.UserRepository)")
+    public Object traceUserRepository(ProceedingJoinPoint joinPoint) throws Throwable {
+        return trace("UserRepository.", joinPoint);
+    }
+
+    private static Object trace(String prefix, ProceedingJoinPoint joinPoint) throws Throwable {
+        if (!RequestTrace.isActive()) {
+            return joinPoint.proceed();
+        }
+        try (RequestTrace.Span span = RequestTrace.span(prefix + joinPoint.getSignature().getName())) {
+            return joinPoint.proceed();
+        }
+    }
+}
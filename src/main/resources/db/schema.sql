@@ -0,0 +1,11 @@
+-- Schema for the 'users' table, matching com.example.crudapp.model.User.
+-- Used by the faststart profile, where Hibernate validates instead of updating the schema.
+-- The increment must equal User.ID_ALLOCATION_SIZE; Hibernate checks this on startup.
+CREATE SEQUENCE IF NOT EXISTS users_seq START WITH 1 INCREMENT BY 50;
+
+CREATE TABLE IF NOT EXISTS users (
+    id BIGINT NOT NULL PRIMARY KEY,
+    name VARCHAR(255),
+    email VARCHAR(255),
+    CONSTRAINT users_email_unique UNIQUE (email)
+);
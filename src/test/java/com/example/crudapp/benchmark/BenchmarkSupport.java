@@ -0,0 +1,66 @@
+package com.example.crudapp.benchmark;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.Callable;
+
+/**
+ * Minimal timing helper shared by the benchmark-tagged tests.
+ * Runs a warmup phase, then measures average time and heap allocation per operation
+ * on the calling thread. Run with {@code mvn -Pbenchmark test}.
+ */
+final class BenchmarkSupport {
+
+    private static final com.sun.management.ThreadMXBean THREAD_MX_BEAN =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    // Every measured result is folded in here, so the JIT cannot prove the results unused
+    private static volatile int sink;
+
+    private BenchmarkSupport() {
+    }
+
+    /**
+     * The measured cost of one operation.
+     * @param nanosPerOp Average wall-clock time per operation in nanoseconds.
+     * @param bytesPerOp Average bytes allocated per operation on the measuring thread.
+     */
+    record Result(double nanosPerOp, double bytesPerOp) {
+        @Override
+        public String toString() {
+            return String.format("%,12.0f ns/op %,14.0f B/op", nanosPerOp, bytesPerOp);
+        }
+    }
+
+    /**
+     * Measures the given operation.
+     * @param warmupIterations Iterations executed before measuring, to let the JIT settle.
+     * @param iterations Measured iterations.
+     * @param operation The operation; its result is consumed so it cannot be optimized away.
+     * @return The average cost per operation.
+     */
+    static Result measure(int warmupIterations, int iterations, Callable<?> operation) throws Exception {
+        int consumed = 0;
+        for (int i = 0; i < warmupIterations; i++) {
+            consumed += System.identityHashCode(operation.call());
+        }
+        long threadId = Thread.currentThread().getId();
+        long allocatedBefore = THREAD_MX_BEAN.getThreadAllocatedBytes(threadId);
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            consumed += System.identityHashCode(operation.call());
+        }
+        long elapsed = System.nanoTime() - start;
+        long allocated = THREAD_MX_BEAN.getThreadAllocatedBytes(threadId) - allocatedBefore;
+        sink += consumed;
+        return new Result((double) elapsed / iterations, (double) allocated / iterations);
+    }
+
+    /**
+     * Prints one labelled result line.
+     * @param label What was measured.
+     * @param result The measured cost.
+     */
+    static void report(String label, Result result) {
+        System.out.printf("%-10s %s%n", label, result);
+    }
+}
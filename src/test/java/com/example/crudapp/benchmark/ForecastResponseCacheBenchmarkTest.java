@@ -0,0 +1,82 @@
+package com.example.crudapp.benchmark;
+
+import com.example.crudapp.dto.weather.CurrentWeatherReportDto;
+import com.example.crudapp.dto.weather.DailyWeatherReportDto;
+import com.example.crudapp.dto.weather.ForecastPart;
+import com.example.crudapp.dto.weather.HourlyWeatherReportDto;
+import com.example.crudapp.dto.weather.UnitSystem;
+import com.example.crudapp.dto.weather.WeatherForecastDto;
+import com.example.crudapp.service.ForecastPartCache;
+import com.example.crudapp.service.ForecastResponseCache;
+import com.example.crudapp.service.WeatherService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+/**
+ * Compares answering a cached forecast by serializing the cached objects on every request
+ * with serving the pre-encoded bytes from {@link ForecastResponseCache}.
+ */
+@Tag("benchmark")
+public class ForecastResponseCacheBenchmarkTest {
+
+    private static final Set<ForecastPart> ALL_PARTS = EnumSet.allOf(ForecastPart.class);
+
+    @Test
+    void cachedForecast() throws Exception {
+        ObjectMapper objectMapper = new ObjectMapper();
+        WeatherForecastDto forecast = forecast();
+        WeatherService weatherService = mock(WeatherService.class);
+        when(weatherService.getForecast(anyString(), any())).thenReturn(forecast);
+        ForecastPartCache forecastPartCache = mock(ForecastPartCache.class);
+        when(forecastPartCache.expiresAt(anyString(), any())).thenReturn(Long.MAX_VALUE);
+        ForecastResponseCache responseCache = new ForecastResponseCache(weatherService, forecastPartCache, objectMapper, 100, true);
+        assertArrayEquals(objectMapper.writeValueAsBytes(forecast), responseCache.get("10001", ALL_PARTS, UnitSystem.METRIC).json());
+
+        System.out.println("== forecast with current, 48 hourly and 7 daily reports ("
+                + responseCache.get("10001", ALL_PARTS, UnitSystem.METRIC).json().length + " B JSON, "
+                + responseCache.get("10001", ALL_PARTS, UnitSystem.METRIC).gzip().length + " B gzip)");
+        BenchmarkSupport.report("serialize", BenchmarkSupport.measure(20_000, 50_000, () -> objectMapper.writeValueAsBytes(forecast)));
+        BenchmarkSupport.report("ser+gzip", BenchmarkSupport.measure(2_000, 10_000, () -> gzip(objectMapper.writeValueAsBytes(forecast))));
+        BenchmarkSupport.report("bytes", BenchmarkSupport.measure(20_000, 50_000, () -> responseCache.get("10001", ALL_PARTS, UnitSystem.METRIC)));
+        // What a miss in imperial units adds on top of serializing: converting the canonical metric forecast
+        BenchmarkSupport.report("to-imperial", BenchmarkSupport.measure(20_000, 50_000, () -> UnitSystem.IMPERIAL.fromMetric(forecast)));
+    }
+
+    private static WeatherForecastDto forecast() {
+        long start = Instant.parse("2026-01-01T00:00:00Z").getEpochSecond();
+        List<HourlyWeatherReportDto> hourly = new ArrayList<>();
+        for (int hour = 0; hour < 48; hour++) {
+            hourly.add(new HourlyWeatherReportDto(Instant.ofEpochSecond(start + hour * 3600L).toString(),
+                    2.5 + hour * 0.1, "scattered clouds", 0.05 * (hour % 10), "Celsius"));
+        }
+        List<DailyWeatherReportDto> daily = new ArrayList<>();
+        for (int day = 0; day < 7; day++) {
+            daily.add(new DailyWeatherReportDto("2026-01-0" + (day + 1), 1.0 + day, 6.5 + day, "light rain", 0.4, "Celsius"));
+        }
+        CurrentWeatherReportDto current = new CurrentWeatherReportDto(Instant.ofEpochSecond(start).toString(),
+                3.5, 0.2, 80, 4.1, "overcast clouds", "Celsius");
+        return new WeatherForecastDto(current, hourly, daily);
+    }
+
+    private static byte[] gzip(byte[] data) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzipOut = new GZIPOutputStream(out)) {
+            gzipOut.write(data);
+        }
+        return out.toByteArray();
+    }
+}
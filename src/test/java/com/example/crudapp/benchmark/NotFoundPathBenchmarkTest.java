@@ -0,0 +1,59 @@
+package com.example.crudapp.benchmark;
+
+import com.example.crudapp.service.UserService;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+
+/**
+ * Measures the cost of requests for users that do not exist, as sent by scrapers and clients with stale IDs.
+ * Application logging is raised to ERROR, so the numbers show the exception and error-mapping cost rather
+ * than console output.
+ */
+@Tag("benchmark")
+@SpringBootTest(properties = {"spring.jpa.show-sql=false", "logging.level.com.example.crudapp=ERROR"})
+@AutoConfigureMockMvc
+public class NotFoundPathBenchmarkTest {
+
+    private static final long MISSING_ID = 987_654_321L;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private UserService userService;
+
+    @Test
+    void missingUser() throws Exception {
+        System.out.println("== requests for a missing user");
+        BenchmarkSupport.report("service", BenchmarkSupport.measure(20_000, 50_000, () -> {
+            try {
+                userService.deleteUser(MISSING_ID);
+                throw new AssertionError("User should not exist");
+            } catch (RuntimeException e) {
+                return e;
+            }
+        }));
+        BenchmarkSupport.report("DELETE", BenchmarkSupport.measure(5_000, 20_000, () -> {
+            int status = mockMvc.perform(delete("/api/users/" + MISSING_ID)).andReturn().getResponse().getStatus();
+            assertEquals(404, status);
+            return status;
+        }));
+        BenchmarkSupport.report("PUT", BenchmarkSupport.measure(5_000, 20_000, () -> {
+            int status = mockMvc.perform(put("/api/users/" + MISSING_ID)
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content("{\"name\":\"Nobody\",\"email\":\"nobody@example.com\"}"))
+                    .andReturn().getResponse().getStatus();
+            assertEquals(404, status);
+            return status;
+        }));
+    }
+}
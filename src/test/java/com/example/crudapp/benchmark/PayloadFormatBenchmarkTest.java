@@ -0,0 +1,83 @@
+package com.example.crudapp.benchmark;
+
+import com.example.crudapp.dto.weather.DailyWeatherReportDto;
+import com.example.crudapp.model.User;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import com.fasterxml.jackson.dataformat.smile.databind.SmileMapper;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Compares payload size and encode/decode cost of JSON, gzipped JSON, CBOR and Smile
+ * for a large user list and a batch of weather forecasts.
+ */
+@Tag("benchmark")
+public class PayloadFormatBenchmarkTest {
+
+    private static final int USER_COUNT = 10_000;
+    private static final int FORECAST_BATCH = 500; // 500 zipcodes x 7 days
+
+    private final Map<String, ObjectMapper> mappers = new LinkedHashMap<>();
+
+    public PayloadFormatBenchmarkTest() {
+        mappers.put("json", new ObjectMapper());
+        mappers.put("cbor", new CBORMapper());
+        mappers.put("smile", new SmileMapper());
+    }
+
+    @Test
+    void userList() throws Exception {
+        List<User> users = new ArrayList<>();
+        for (long i = 1; i <= USER_COUNT; i++) {
+            users.add(new User(i, "User Number " + i, "user" + i + "@example.com"));
+        }
+        run("users x " + USER_COUNT, users, new TypeReference<List<User>>() { });
+    }
+
+    @Test
+    void forecastBatch() throws Exception {
+        List<DailyWeatherReportDto> forecasts = new ArrayList<>();
+        for (int i = 0; i < FORECAST_BATCH * 7; i++) {
+            forecasts.add(new DailyWeatherReportDto("2026-10-" + (10 + i % 7), 10.5 + i % 13, 21.25 + i % 7,
+                    "scattered clouds", 0.2, "Celsius"));
+        }
+        run("forecasts x " + forecasts.size(), forecasts, new TypeReference<List<DailyWeatherReportDto>>() { });
+    }
+
+    private <T> void run(String label, T payload, TypeReference<T> type) throws Exception {
+        System.out.println("== " + label);
+        for (Map.Entry<String, ObjectMapper> entry : mappers.entrySet()) {
+            ObjectMapper mapper = entry.getValue();
+            byte[] encoded = mapper.writeValueAsBytes(payload);
+            assertEquals(payload, mapper.readValue(encoded, type));
+
+            BenchmarkSupport.Result encode = BenchmarkSupport.measure(50, 200, () -> mapper.writeValueAsBytes(payload));
+            BenchmarkSupport.Result decode = BenchmarkSupport.measure(50, 200, () -> mapper.readValue(encoded, type));
+            System.out.printf("%-10s %,10d bytes  encode %s  decode %s%n", entry.getKey(), encoded.length, encode, decode);
+
+            if ("json".equals(entry.getKey())) {
+                BenchmarkSupport.Result gzip = BenchmarkSupport.measure(20, 100, () -> gzip(mapper.writeValueAsBytes(payload)));
+                System.out.printf("%-10s %,10d bytes  encode %s%n", "json+gzip", gzip(encoded).length, gzip);
+            }
+        }
+    }
+
+    private static byte[] gzip(byte[] data) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(data.length / 4);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(data);
+        }
+        return out.toByteArray();
+    }
+}
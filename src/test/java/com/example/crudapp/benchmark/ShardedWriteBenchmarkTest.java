@@ -0,0 +1,64 @@
+package com.example.crudapp.benchmark;
+
+import com.example.crudapp.model.User;
+import com.example.crudapp.sharding.ShardedUserStore;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Measures concurrent insert throughput of the sharded user store as the shard count grows.
+ */
+@Tag("benchmark")
+public class ShardedWriteBenchmarkTest {
+
+    private static final int WRITER_THREADS = 8;
+    private static final int INSERTS_PER_THREAD = 5_000;
+
+    @Test
+    void insertThroughput() throws Exception {
+        System.out.println("== " + WRITER_THREADS + " writers x " + INSERTS_PER_THREAD + " inserts");
+        for (int shardCount : new int[]{1, 2, 4, 8}) {
+            ShardedUserStore store = new ShardedUserStore(true, shardCount, 0);
+            try {
+                run(store, 1_000); // warmup
+                store.deleteAll();
+                long elapsed = run(store, INSERTS_PER_THREAD);
+                assertEquals((long) WRITER_THREADS * INSERTS_PER_THREAD, store.count());
+                double insertsPerSecond = WRITER_THREADS * INSERTS_PER_THREAD / (elapsed / 1e9);
+                System.out.printf("%d shard(s) %,12.0f inserts/s%n", shardCount, insertsPerSecond);
+            } finally {
+                store.shutdown();
+            }
+        }
+    }
+
+    private static long run(ShardedUserStore store, int insertsPerThread) throws Exception {
+        ExecutorService writers = Executors.newFixedThreadPool(WRITER_THREADS);
+        try {
+            long start = System.nanoTime();
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < WRITER_THREADS; t++) {
+                int thread = t;
+                futures.add(writers.submit(() -> {
+                    for (int i = 0; i < insertsPerThread; i++) {
+                        store.insert(new User("User " + thread + "-" + i, "user" + thread + "-" + i + "@example.com"));
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+            return System.nanoTime() - start;
+        } finally {
+            writers.shutdown();
+        }
+    }
+}
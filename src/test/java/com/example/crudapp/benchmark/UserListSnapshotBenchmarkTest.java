@@ -0,0 +1,81 @@
+package com.example.crudapp.benchmark;
+
+import com.example.crudapp.service.UserListSnapshot;
+import com.example.crudapp.service.UserService;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+
+/**
+ * Compares serving the full user list from entities and from the off-heap snapshot.
+ */
+@Tag("benchmark")
+@SpringBootTest(properties = "spring.jpa.show-sql=false")
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class UserListSnapshotBenchmarkTest {
+
+    private static final int USER_COUNT = 20_000;
+    private static final long FIRST_ID = 1_000_000_000L; // far above the sequence, so no clash with generated IDs
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private UserListSnapshot userListSnapshot;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @BeforeAll
+    void insertUsers() {
+        List<Object[]> rows = new ArrayList<>(USER_COUNT);
+        for (long i = 0; i < USER_COUNT; i++) {
+            rows.add(new Object[]{FIRST_ID + i, "User Number " + i, "user" + i + "@example.com"});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO users (id, name, email) VALUES (?, ?, ?)", rows);
+        userListSnapshot.rebuild();
+    }
+
+    @AfterAll
+    void deleteUsers() {
+        jdbcTemplate.update("DELETE FROM users WHERE id >= ?", FIRST_ID);
+        userListSnapshot.rebuild();
+    }
+
+    @Test
+    void fullList() throws Exception {
+        ByteArrayOutputStream fromSnapshot = new ByteArrayOutputStream();
+        userListSnapshot.writeTo(fromSnapshot);
+        assertArrayEquals(objectMapper.writeValueAsBytes(userService.getAllUsers()), fromSnapshot.toByteArray());
+
+        OutputStream sink = OutputStream.nullOutputStream();
+        ObjectWriter writer = objectMapper.writer().without(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        System.out.println("== users x " + USER_COUNT + " (full JSON list)");
+        BenchmarkSupport.report("entities", BenchmarkSupport.measure(10, 30, () -> {
+            writer.writeValue(sink, userService.getAllUsers());
+            return sink;
+        }));
+        BenchmarkSupport.report("snapshot", BenchmarkSupport.measure(10, 30, () -> {
+            userListSnapshot.writeTo(sink);
+            return sink;
+        }));
+    }
+}
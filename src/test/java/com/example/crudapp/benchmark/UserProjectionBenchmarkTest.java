@@ -0,0 +1,65 @@
+package com.example.crudapp.benchmark;
+
+import com.example.crudapp.dto.user.UserFullView;
+import com.example.crudapp.dto.user.UserIdView;
+import com.example.crudapp.dto.user.UserNameView;
+import com.example.crudapp.service.UserService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Compares reading and serializing a large user list as full entities and as sparse fieldset projections.
+ */
+@Tag("benchmark")
+@SpringBootTest(properties = "spring.jpa.show-sql=false")
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class UserProjectionBenchmarkTest {
+
+    private static final int USER_COUNT = 20_000;
+    private static final long FIRST_ID = 1_000_000_000L; // far above the sequence, so no clash with generated IDs
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @BeforeAll
+    void insertUsers() {
+        List<Object[]> rows = new ArrayList<>(USER_COUNT);
+        for (long i = 0; i < USER_COUNT; i++) {
+            rows.add(new Object[]{FIRST_ID + i, "User Number " + i, "user" + i + "@example.com"});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO users (id, name, email) VALUES (?, ?, ?)", rows);
+    }
+
+    @AfterAll
+    void deleteUsers() {
+        jdbcTemplate.update("DELETE FROM users WHERE id >= ?", FIRST_ID);
+    }
+
+    @Test
+    void userList() throws Exception {
+        assertEquals(USER_COUNT, userService.getAllUsers(UserNameView.class).size());
+        System.out.println("== users x " + USER_COUNT + " (read + serialize to JSON)");
+        BenchmarkSupport.report("entities", BenchmarkSupport.measure(10, 30, () -> objectMapper.writeValueAsBytes(userService.getAllUsers())));
+        BenchmarkSupport.report("all", BenchmarkSupport.measure(10, 30, () -> objectMapper.writeValueAsBytes(userService.getAllUsers(UserFullView.class))));
+        BenchmarkSupport.report("id,name", BenchmarkSupport.measure(10, 30, () -> objectMapper.writeValueAsBytes(userService.getAllUsers(UserNameView.class))));
+        BenchmarkSupport.report("id", BenchmarkSupport.measure(10, 30, () -> objectMapper.writeValueAsBytes(userService.getAllUsers(UserIdView.class))));
+    }
+}
@@ -0,0 +1,101 @@
+package com.example.crudapp.benchmark;
+
+import com.example.crudapp.replication.ReplicaSynchronizer;
+import com.example.crudapp.service.UserSnapshotFile;
+import com.example.crudapp.sharding.ShardedUserStore;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Measures how long it takes to restore a million users from the binary snapshot into an empty database,
+ * compared with inserting them with JDBC batches, the fastest way to reload them without a snapshot.
+ */
+@Tag("benchmark")
+public class UserSnapshotRestoreBenchmarkTest {
+
+    private static final int USER_COUNT = 1_000_000;
+    private static final int BATCH_SIZE = 10_000;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void restoreMillionUsers() throws Exception {
+        Path path = directory.resolve("users.snapshot");
+        SingleConnectionDataSource source = newDatabase();
+        try {
+            JdbcTemplate jdbcTemplate = new JdbcTemplate(source);
+            insertWithBatches(jdbcTemplate);
+            long start = System.nanoTime();
+            snapshotFile(jdbcTemplate, path).snapshot();
+            System.out.printf("== %,d users: snapshot written in %,d ms, %,d bytes%n", USER_COUNT,
+                    (System.nanoTime() - start) / 1_000_000, Files.size(path));
+        } finally {
+            source.destroy();
+        }
+
+        BenchmarkSupport.Result restore = BenchmarkSupport.measure(1, 3, () -> {
+            SingleConnectionDataSource target = newDatabase();
+            try {
+                long restored = snapshotFile(new JdbcTemplate(target), path).restore();
+                assertEquals(USER_COUNT, restored);
+                return restored;
+            } finally {
+                target.destroy();
+            }
+        });
+        BenchmarkSupport.Result batches = BenchmarkSupport.measure(1, 3, () -> {
+            SingleConnectionDataSource target = newDatabase();
+            try {
+                insertWithBatches(new JdbcTemplate(target));
+                return target;
+            } finally {
+                target.destroy();
+            }
+        });
+        BenchmarkSupport.report("snapshot", restore);
+        BenchmarkSupport.report("batches", batches);
+    }
+
+    private static SingleConnectionDataSource newDatabase() {
+        SingleConnectionDataSource dataSource = new SingleConnectionDataSource(
+                "jdbc:h2:mem:restore_" + UUID.randomUUID(), "sa", "", true);
+        new ResourceDatabasePopulator(new ClassPathResource("db/schema.sql")).execute(dataSource);
+        return dataSource;
+    }
+
+    private static UserSnapshotFile snapshotFile(JdbcTemplate jdbcTemplate, Path path) {
+        return new UserSnapshotFile(jdbcTemplate,
+                new TransactionTemplate(new DataSourceTransactionManager(jdbcTemplate.getDataSource())),
+                new StaticListableBeanFactory().getBeanProvider(ReplicaSynchronizer.class),
+                new ShardedUserStore(false, 1, 0), new SimpleMeterRegistry(), true, path, 10_000, 0.5);
+    }
+
+    private static void insertWithBatches(JdbcTemplate jdbcTemplate) {
+        List<Object[]> batch = new ArrayList<>(BATCH_SIZE);
+        for (long id = 1; id <= USER_COUNT; id++) {
+            batch.add(new Object[]{id, "User Number " + id, "user" + id + "@example.com"});
+            if (batch.size() == BATCH_SIZE) {
+                jdbcTemplate.batchUpdate("INSERT INTO users (id, name, email) VALUES (?, ?, ?)", batch);
+                batch.clear();
+            }
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package com.example.crudapp.controller;
+
+import com.example.crudapp.model.User;
+import com.example.crudapp.repository.UserRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@SpringBootTest(properties = "app.users.async-create.enabled=true")
+@AutoConfigureMockMvc
+public class UserAsyncCreateIntegrationTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @AfterEach
+    void tearDown() {
+        userRepository.deleteAll();
+    }
+
+    @Test
+    void testCreateUserAsync() throws Exception {
+        User user = new User("Async User", "async@example.com");
+
+        MvcResult result = mockMvc.perform(post("/api/users")
+                        .header("Prefer", "respond-async")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(user)))
+                .andExpect(status().isAccepted())
+                .andExpect(jsonPath("$.email", is(user.getEmail())))
+                .andReturn();
+
+        String location = result.getResponse().getHeader("Location");
+        Long id = objectMapper.readValue(result.getResponse().getContentAsString(), User.class).getId();
+        assertEquals("/api/users/" + id + "/status", location);
+
+        // Wait for the background flusher
+        String status = "PENDING";
+        for (int attempt = 0; attempt < 100 && !"CREATED".equals(status); attempt++) {
+            Thread.sleep(20);
+            String body = mockMvc.perform(get(location)).andExpect(status().isOk()).andReturn().getResponse().getContentAsString();
+            status = objectMapper.readTree(body).get("status").asText();
+        }
+        assertEquals("CREATED", status);
+
+        mockMvc.perform(get("/api/users/" + id))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.name", is(user.getName())));
+    }
+
+    @Test
+    void testCreateUserWithoutPreferIsSynchronous() throws Exception {
+        mockMvc.perform(post("/api/users")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new User("Sync User", "sync@example.com"))))
+                .andExpect(status().isCreated());
+    }
+
+    @Test
+    void testCreationStatus_UnknownId() throws Exception {
+        mockMvc.perform(get("/api/users/987654/status"))
+                .andExpect(status().isNotFound());
+    }
+}
@@ -0,0 +1,88 @@
+package com.example.crudapp.controller;
+
+import com.example.crudapp.model.User;
+import com.example.crudapp.repository.UserRepository;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+public class UserChangeFeedIntegrationTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @AfterEach
+    void tearDown() {
+        userRepository.deleteAll();
+    }
+
+    private long currentCursor() throws Exception {
+        String body = mockMvc.perform(get("/api/users/changes")).andExpect(status().isOk()).andReturn().getResponse().getContentAsString();
+        return objectMapper.readTree(body).get("cursor").asLong();
+    }
+
+    @Test
+    void testChangesSinceCursor() throws Exception {
+        long cursor = currentCursor();
+        String created = mockMvc.perform(post("/api/users")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new User("Feed User", "feed@example.com"))))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString();
+        long id = objectMapper.readTree(created).get("id").asLong();
+        mockMvc.perform(delete("/api/users/" + id)).andExpect(status().isNoContent());
+
+        String body = mockMvc.perform(get("/api/users/changes").param("since", String.valueOf(cursor)))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        JsonNode changes = objectMapper.readTree(body).get("changes");
+        assertEquals(1, changes.size()); // create compacted away by the delete
+        assertEquals("DELETED", changes.get(0).get("type").asText());
+        assertEquals(id, changes.get(0).get("id").asLong());
+    }
+
+    @Test
+    void testExpiredCursor() throws Exception {
+        mockMvc.perform(get("/api/users/changes").param("since", "1"))
+                .andExpect(status().isGone());
+    }
+
+    @Test
+    void testStreamReplaysChanges() throws Exception {
+        long cursor = currentCursor();
+        mockMvc.perform(post("/api/users")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new User("Stream User", "stream@example.com"))))
+                .andExpect(status().isCreated());
+
+        MvcResult result = mockMvc.perform(get("/api/users/changes/stream").param("since", String.valueOf(cursor)))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        // Replay is delivered asynchronously by the dispatcher thread
+        for (int attempt = 0; attempt < 50 && !result.getResponse().getContentAsString().contains("stream@example.com"); attempt++) {
+            Thread.sleep(20);
+        }
+        org.hamcrest.MatcherAssert.assertThat(result.getResponse().getContentAsString(), containsString("event:user-change"));
+        org.hamcrest.MatcherAssert.assertThat(result.getResponse().getContentAsString(), containsString("stream@example.com"));
+    }
+}
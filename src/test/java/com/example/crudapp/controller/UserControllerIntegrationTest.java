@@ -2,7 +2,10 @@ package com.example.crudapp.controller;
 
 import com.example.crudapp.model.User;
 import com.example.crudapp.repository.UserRepository; // For cleaning up
+import com.example.crudapp.resilience.Bulkhead;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import com.fasterxml.jackson.dataformat.smile.databind.SmileMapper;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -14,7 +17,16 @@ import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.MvcResult;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
 import static org.hamcrest.Matchers.hasSize;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.hamcrest.Matchers.is;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
@@ -33,6 +45,9 @@ public class UserControllerIntegrationTest {
     @Autowired
     private UserRepository userRepository; // Inject repository to clean up data
 
+    @Autowired
+    private Bulkhead userBulkhead;
+
     private User user1;
     private User user2;
 
@@ -108,7 +123,19 @@ public class UserControllerIntegrationTest {
         mockMvc.perform(put("/api/users/999") // Non-existent ID
                         .contentType(MediaType.APPLICATION_JSON)
                         .content(objectMapper.writeValueAsString(updatedDetails)))
-                .andExpect(status().isNotFound());
+                .andExpect(status().isNotFound())
+                .andExpect(jsonPath("$.error", is("User not found with id 999")));
+    }
+
+    @Test
+    void testUpdateUser_InvalidDetails() throws Exception {
+        User savedUser = userRepository.save(user1);
+        User invalidDetails = new User(" ", "updated@example.com");
+        mockMvc.perform(put("/api/users/" + savedUser.getId())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(invalidDetails)))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").exists());
     }
 
     @Test
@@ -126,6 +153,280 @@ public class UserControllerIntegrationTest {
     @Test
     void testDeleteUser_NotFound() throws Exception {
         mockMvc.perform(delete("/api/users/999")) // Non-existent ID
-                .andExpect(status().isNotFound());
+                .andExpect(status().isNotFound())
+                .andExpect(jsonPath("$.error", is("User not found with id 999")));
+    }
+
+    @Test
+    void testSearchUsers() throws Exception {
+        mockMvc.perform(post("/api/users")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(user1)))
+                .andExpect(status().isCreated());
+        mockMvc.perform(post("/api/users")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new User("Another Person", "someone@test1.org"))))
+                .andExpect(status().isCreated());
+
+        mockMvc.perform(get("/api/users/search").param("q", "TEST1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(2)))
+                .andExpect(jsonPath("$[0].email", is(user1.getEmail())));
+
+        mockMvc.perform(get("/api/users/search").param("q", "nobody"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(0)));
+    }
+
+    @Test
+    void testGetAllUsers_DefaultsToJson() throws Exception {
+        userRepository.save(user1);
+
+        mockMvc.perform(get("/api/users"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON));
+    }
+
+    @Test
+    void testGetAllUsers_Cbor() throws Exception {
+        userRepository.save(user1);
+
+        MvcResult result = mockMvc.perform(get("/api/users").accept("application/cbor"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith("application/cbor"))
+                .andReturn();
+
+        User[] users = new CBORMapper().readValue(result.getResponse().getContentAsByteArray(), User[].class);
+        assertEquals(1, users.length);
+        assertEquals(user1.getEmail(), users[0].getEmail());
+    }
+
+    @Test
+    void testCreateUser_Smile() throws Exception {
+        SmileMapper smileMapper = new SmileMapper();
+
+        MvcResult result = mockMvc.perform(post("/api/users")
+                        .contentType("application/x-jackson-smile")
+                        .accept("application/x-jackson-smile")
+                        .content(smileMapper.writeValueAsBytes(user1)))
+                .andExpect(status().isCreated())
+                .andExpect(content().contentTypeCompatibleWith("application/x-jackson-smile"))
+                .andReturn();
+
+        User created = smileMapper.readValue(result.getResponse().getContentAsByteArray(), User.class);
+        assertEquals(user1.getName(), created.getName());
+    }
+
+    @Test
+    void testGetAllUsers_SparseFieldset() throws Exception {
+        userRepository.save(user1);
+        userRepository.save(user2);
+
+        mockMvc.perform(get("/api/users").param("fields", "id,name"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(2)))
+                .andExpect(jsonPath("$[0].id").exists())
+                .andExpect(jsonPath("$[0].name", is(user1.getName())))
+                .andExpect(jsonPath("$[0].email").doesNotExist())
+                .andExpect(jsonPath("$[0].*", hasSize(2)));
+    }
+
+    @Test
+    void testGetUserById_SparseFieldset() throws Exception {
+        User savedUser = userRepository.save(user1);
+
+        mockMvc.perform(get("/api/users/" + savedUser.getId()).param("fields", "email"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.id", is(savedUser.getId().intValue())))
+                .andExpect(jsonPath("$.email", is(user1.getEmail())))
+                .andExpect(jsonPath("$.name").doesNotExist());
+    }
+
+    @Test
+    void testGetAllUsers_UnknownField() throws Exception {
+        mockMvc.perform(get("/api/users").param("fields", "id,password"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").exists());
+    }
+
+    @Test
+    void testCreateUser_IdempotencyKey() throws Exception {
+        String first = mockMvc.perform(post("/api/users")
+                        .header("Idempotency-Key", "create-test-user-1")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(user1)))
+                .andExpect(status().isCreated())
+                .andExpect(header().doesNotExist("Idempotent-Replayed"))
+                .andReturn().getResponse().getContentAsString();
+
+        String retry = mockMvc.perform(post("/api/users")
+                        .header("Idempotency-Key", "create-test-user-1")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(user1)))
+                .andExpect(status().isCreated())
+                .andExpect(header().string("Idempotent-Replayed", "true"))
+                .andReturn().getResponse().getContentAsString();
+
+        assertEquals(first, retry);
+        assertEquals(1, userRepository.count());
+
+        mockMvc.perform(post("/api/users")
+                        .header("Idempotency-Key", "create-test-user-1")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(user2)))
+                .andExpect(status().isUnprocessableEntity());
+    }
+
+    @Test
+    void testGetAllUsers_SnapshotFollowsWrites() throws Exception {
+        String created = mockMvc.perform(post("/api/users")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(user1)))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString();
+        Long id = objectMapper.readValue(created, User.class).getId();
+        mockMvc.perform(post("/api/users")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(user2)))
+                .andExpect(status().isCreated());
+        mockMvc.perform(put("/api/users/" + id)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new User("Renamed", "renamed@example.com"))))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(get("/api/users"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$", hasSize(2)))
+                .andExpect(jsonPath("$[0].id", is(id.intValue())))
+                .andExpect(jsonPath("$[0].name", is("Renamed")))
+                .andExpect(jsonPath("$[1].email", is(user2.getEmail())));
+
+        mockMvc.perform(delete("/api/users/" + id)).andExpect(status().isNoContent());
+        mockMvc.perform(get("/api/users"))
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$[0].email", is(user2.getEmail())));
+    }
+
+    @Test
+    void testUserRequestsAreRejectedWhenUserBulkheadIsFull() throws Exception {
+        List<Bulkhead.Permit> held = new ArrayList<>();
+        try {
+            while (userBulkhead.getSaturation() < 1.0) {
+                held.add(userBulkhead.acquire());
+            }
+            mockMvc.perform(get("/api/users/1"))
+                    .andExpect(status().isServiceUnavailable())
+                    .andExpect(header().string("Retry-After", "1"));
+        } finally {
+            held.forEach(Bulkhead.Permit::close);
+        }
+        mockMvc.perform(get("/api/users/1")).andExpect(status().isNotFound());
+    }
+
+    @Test
+    void testUpsertUserByEmail_CreatesThenUpdates() throws Exception {
+        String created = mockMvc.perform(put("/api/users/by-email/" + user1.getEmail())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"name\":\"First\"}"))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.email", is(user1.getEmail())))
+                .andReturn().getResponse().getContentAsString();
+        Long id = objectMapper.readValue(created, User.class).getId();
+
+        mockMvc.perform(put("/api/users/by-email/" + user1.getEmail())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"name\":\"Second\"}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.id", is(id.intValue())))
+                .andExpect(jsonPath("$.name", is("Second")));
+        mockMvc.perform(get("/api/users/" + id))
+                .andExpect(jsonPath("$.name", is("Second")));
+    }
+
+    @Test
+    void testUpsertUserByEmail_MismatchedEmail() throws Exception {
+        mockMvc.perform(put("/api/users/by-email/" + user1.getEmail())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(user2)))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void testUpsertUsersByEmail_Batch() throws Exception {
+        mockMvc.perform(post("/api/users")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(user1)))
+                .andExpect(status().isCreated());
+
+        mockMvc.perform(put("/api/users/by-email")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(List.of(new User("Renamed", user1.getEmail()), user2))))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(2)))
+                .andExpect(jsonPath("$[0].created", is(false)))
+                .andExpect(jsonPath("$[0].name", is("Renamed")))
+                .andExpect(jsonPath("$[1].created", is(true)));
+        mockMvc.perform(get("/api/users/count")).andExpect(jsonPath("$.count", is(2)));
+    }
+
+    @Test
+    void testUpsertUserByEmail_ConcurrentWritersCreateOneUser() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Callable<Integer>> upserts = new ArrayList<>();
+            for (int i = 0; i < 16; i++) {
+                String body = "{\"name\":\"Writer " + i + "\"}";
+                upserts.add(() -> mockMvc.perform(put("/api/users/by-email/" + user1.getEmail())
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content(body))
+                        .andReturn().getResponse().getStatus());
+            }
+            int createdCount = 0;
+            for (Future<Integer> status : executor.invokeAll(upserts)) {
+                if (status.get() == 201) {
+                    createdCount++;
+                } else {
+                    assertEquals(200, status.get());
+                }
+            }
+            assertEquals(1, createdCount);
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(1, userRepository.count());
+    }
+
+    @Test
+    void testCreateUser_DuplicateEmail() throws Exception {
+        mockMvc.perform(post("/api/users")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(user1)))
+                .andExpect(status().isCreated());
+        mockMvc.perform(post("/api/users")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(user1)))
+                .andExpect(status().isConflict())
+                .andExpect(jsonPath("$.error", is("The request conflicts with an existing user.")));
+    }
+
+    @Test
+    void testGetUserStats() throws Exception {
+        for (User user : List.of(user1, user2, new User("Other", "other@other.org"))) {
+            mockMvc.perform(post("/api/users")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(objectMapper.writeValueAsString(user)))
+                    .andExpect(status().isCreated());
+        }
+
+        mockMvc.perform(get("/api/users/stats").param("domains", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.totalUsers", is(3)))
+                .andExpect(jsonPath("$.emailDomainCount", is(2)))
+                .andExpect(jsonPath("$.usersByEmailDomain['example.com']", is(2)))
+                .andExpect(jsonPath("$.usersByEmailDomain['other.org']").doesNotExist())
+                .andExpect(jsonPath("$.creations[59].count", greaterThanOrEqualTo(3)));
+        mockMvc.perform(get("/api/users/stats").param("domains", "0"))
+                .andExpect(status().isBadRequest());
     }
 }
@@ -1,6 +1,12 @@
 package com.example.crudapp.controller;
 
+import com.example.crudapp.dto.user.UserNameView;
+import com.example.crudapp.dto.user.UserStatsDto;
+import com.example.crudapp.exception.WriteQueueFullException;
 import com.example.crudapp.model.User;
+import com.example.crudapp.exception.IdempotencyKeyMismatchException;
+import com.example.crudapp.exception.UserNotFoundException;
+import com.example.crudapp.service.IdempotencyStore;
 import com.example.crudapp.service.UserService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -10,14 +16,20 @@ import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletResponse;
 
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Supplier;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -26,6 +38,9 @@ public class UserControllerTest {
     @Mock
     private UserService userService;
 
+    @Mock
+    private IdempotencyStore idempotencyStore;
+
     @InjectMocks
     private UserController userController;
 
@@ -41,7 +56,7 @@ public class UserControllerTest {
     @Test
     void createUser_success() {
         when(userService.createUser(any(User.class))).thenReturn(user);
-        ResponseEntity<User> response = userController.createUser(new User("Test User", "test@example.com"));
+        ResponseEntity<User> response = userController.createUser(new User("Test User", "test@example.com"), null, null);
 
         assertEquals(HttpStatus.CREATED, response.getStatusCode());
         assertNotNull(response.getBody());
@@ -58,50 +73,173 @@ public class UserControllerTest {
         when(userService.createUser(any(User.class))).thenThrow(new IllegalArgumentException("Name is null"));
 
         assertThrows(IllegalArgumentException.class, () -> {
-            userController.createUser(newUser);
+            userController.createUser(newUser, null, null);
         });
         verify(userService, times(1)).createUser(any(User.class));
     }
 
 
+    @Test
+    void createUser_preferAsync_accepted() {
+        when(userService.isAsyncCreateEnabled()).thenReturn(true);
+        when(userService.createUserAsync(any(User.class))).thenReturn(user);
+        ResponseEntity<User> response = userController.createUser(new User("Test User", "test@example.com"), "respond-async", null);
+
+        assertEquals(HttpStatus.ACCEPTED, response.getStatusCode());
+        assertEquals("/api/users/1/status", response.getHeaders().getLocation().toString());
+        verify(userService, never()).createUser(any(User.class));
+    }
+
+    @Test
+    void createUser_preferAsync_queueFull_propagates() {
+        when(userService.isAsyncCreateEnabled()).thenReturn(true);
+        when(userService.createUserAsync(any(User.class))).thenThrow(new WriteQueueFullException("full"));
+
+        // Mapped to SERVICE_UNAVAILABLE with Retry-After by ApiExceptionHandler
+        assertThrows(WriteQueueFullException.class,
+                () -> userController.createUser(new User("Test User", "test@example.com"), "respond-async", null));
+    }
+
+    @Test
+    void createUser_preferAsync_disabled_createsSynchronously() {
+        when(userService.isAsyncCreateEnabled()).thenReturn(false);
+        when(userService.createUser(any(User.class))).thenReturn(user);
+        ResponseEntity<User> response = userController.createUser(new User("Test User", "test@example.com"), "respond-async", null);
+
+        assertEquals(HttpStatus.CREATED, response.getStatusCode());
+        verify(userService, never()).createUserAsync(any(User.class));
+    }
+
+    @Test
+    void createUser_withIdempotencyKey_runsThroughStore() {
+        when(userService.createUser(any(User.class))).thenReturn(user);
+        when(idempotencyStore.execute(eq("key-1"), anyString(), any()))
+                .thenAnswer(invocation -> invocation.<Supplier<ResponseEntity<User>>>getArgument(2).get());
+        ResponseEntity<User> response = userController.createUser(new User("Test User", "test@example.com"), null, "key-1");
+
+        assertEquals(HttpStatus.CREATED, response.getStatusCode());
+        verify(idempotencyStore, times(1)).execute(eq("key-1"), anyString(), any());
+    }
+
+    @Test
+    void createUser_idempotencyKeyMismatch_propagates() {
+        when(idempotencyStore.execute(eq("key-1"), anyString(), any()))
+                .thenThrow(new IdempotencyKeyMismatchException("Key reused"));
+
+        assertThrows(IdempotencyKeyMismatchException.class,
+                () -> userController.createUser(new User("Test User", "test@example.com"), null, "key-1"));
+        verify(userService, never()).createUser(any(User.class));
+    }
+
     // Test getAllUsers
     @Test
     void getAllUsers_success() {
         when(userService.getAllUsers()).thenReturn(Collections.singletonList(user));
-        ResponseEntity<List<User>> response = userController.getAllUsers();
+        ResponseEntity<?> response = userController.getAllUsers(null);
 
         assertEquals(HttpStatus.OK, response.getStatusCode());
-        assertFalse(response.getBody().isEmpty());
-        assertEquals(1, response.getBody().size());
+        assertEquals(Collections.singletonList(user), response.getBody());
         verify(userService, times(1)).getAllUsers();
     }
 
     @Test
     void getAllUsers_emptyList() {
         when(userService.getAllUsers()).thenReturn(Collections.emptyList());
-        ResponseEntity<List<User>> response = userController.getAllUsers();
+        ResponseEntity<?> response = userController.getAllUsers(null);
 
         assertEquals(HttpStatus.OK, response.getStatusCode());
-        assertTrue(response.getBody().isEmpty());
+        assertEquals(Collections.emptyList(), response.getBody());
         verify(userService, times(1)).getAllUsers();
     }
 
+    @Test
+    void getAllUsersSnapshot_writesSnapshot() throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        userController.getAllUsersSnapshot(response);
+
+        assertEquals("application/json", response.getContentType());
+        verify(userService, times(1)).writeAllUsers(response.getOutputStream());
+        verify(userService, never()).getAllUsers();
+    }
+
+    @Test
+    void getAllUsers_withFields_usesProjection() {
+        UserNameView view = new UserNameView(1L, "Test User");
+        when(userService.getAllUsers(UserNameView.class)).thenReturn(Collections.singletonList(view));
+        ResponseEntity<?> response = userController.getAllUsers("id,name");
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(Collections.singletonList(view), response.getBody());
+        verify(userService, never()).getAllUsers();
+    }
+
+    @Test
+    void getAllUsers_unknownField_throwsIllegalArgumentException() {
+        assertThrows(IllegalArgumentException.class, () -> userController.getAllUsers("id,password"));
+        verify(userService, never()).getAllUsers(any());
+    }
+
+    // Test countUsers
+    @Test
+    void countUsers_success() {
+        when(userService.countUsers()).thenReturn(3L);
+        ResponseEntity<Map<String, Long>> response = userController.countUsers();
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(3L, response.getBody().get("count"));
+    }
+
+    // Test getUserStats
+    @Test
+    void getUserStats_capsDomainLimit() {
+        UserStatsDto stats = new UserStatsDto(3, 1, Map.of("example.com", 3L), 60, List.of());
+        when(userService.getStats(1000)).thenReturn(stats);
+        ResponseEntity<UserStatsDto> response = userController.getUserStats(5000);
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertSame(stats, response.getBody());
+    }
+
+    @Test
+    void getUserStats_nonPositiveDomainLimit_throwsIllegalArgumentException() {
+        assertThrows(IllegalArgumentException.class, () -> userController.getUserStats(0));
+        verifyNoInteractions(userService);
+    }
+
+    // Test searchUsers
+    @Test
+    void searchUsers_success() {
+        when(userService.searchUsers("test", 20)).thenReturn(Collections.singletonList(user));
+        ResponseEntity<List<User>> response = userController.searchUsers("test", 20);
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(1, response.getBody().size());
+        verify(userService, times(1)).searchUsers("test", 20);
+    }
+
+    @Test
+    void searchUsers_emptyQuery_badRequest() {
+        ResponseEntity<List<User>> response = userController.searchUsers(" ", 20);
+
+        assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+        verify(userService, never()).searchUsers(any(), anyInt());
+    }
+
     // Test getUserById
     @Test
     void getUserById_success() {
         when(userService.getUserById(1L)).thenReturn(Optional.of(user));
-        ResponseEntity<User> response = userController.getUserById(1L);
+        ResponseEntity<?> response = userController.getUserById(1L, null);
 
         assertEquals(HttpStatus.OK, response.getStatusCode());
-        assertNotNull(response.getBody());
-        assertEquals(user.getId(), response.getBody().getId());
+        assertEquals(user, response.getBody());
         verify(userService, times(1)).getUserById(1L);
     }
 
     @Test
     void getUserById_notFound() {
         when(userService.getUserById(1L)).thenReturn(Optional.empty());
-        ResponseEntity<User> response = userController.getUserById(1L);
+        ResponseEntity<?> response = userController.getUserById(1L, null);
 
         assertEquals(HttpStatus.NOT_FOUND, response.getStatusCode());
         assertNull(response.getBody());
@@ -113,7 +251,7 @@ public class UserControllerTest {
         // Specifically stub for null argument to avoid PotentialStubbingProblem
         when(userService.getUserById(null)).thenThrow(new IllegalArgumentException("ID is null"));
          assertThrows(IllegalArgumentException.class, () -> {
-            userController.getUserById(null); // Or pass an ID that causes service to throw
+            userController.getUserById(null, null); // Or pass an ID that causes service to throw
         });
         verify(userService, times(1)).getUserById(null);
     }
@@ -137,13 +275,11 @@ public class UserControllerTest {
     }
 
     @Test
-    void updateUser_notFound() {
+    void updateUser_notFound_propagates() {
         User userDetails = new User("Updated Name", "updated@example.com");
-        when(userService.updateUser(eq(1L), any(User.class))).thenThrow(new RuntimeException("User not found"));
-        ResponseEntity<User> response = userController.updateUser(1L, userDetails);
+        when(userService.updateUser(eq(1L), any(User.class))).thenThrow(new UserNotFoundException(1L));
 
-        assertEquals(HttpStatus.NOT_FOUND, response.getStatusCode());
-        assertNull(response.getBody());
+        assertThrows(UserNotFoundException.class, () -> userController.updateUser(1L, userDetails));
         verify(userService, times(1)).updateUser(eq(1L), any(User.class));
     }
 
@@ -152,12 +288,8 @@ public class UserControllerTest {
         User userDetails = new User(null, "updated@example.com"); // Invalid details
         when(userService.updateUser(eq(1L), any(User.class))).thenThrow(new IllegalArgumentException("Name is null"));
 
-        // Controller currently catches RuntimeException and returns NOT_FOUND.
-        // If we want to test for BAD_REQUEST for IllegalArgumentException, controller logic would need to change.
-        // For now, testing current behavior:
-        ResponseEntity<User> response = userController.updateUser(1L, userDetails);
-        assertEquals(HttpStatus.NOT_FOUND, response.getStatusCode());
-        assertNull(response.getBody());
+        // Propagates to ApiExceptionHandler, which responds with BAD_REQUEST
+        assertThrows(IllegalArgumentException.class, () -> userController.updateUser(1L, userDetails));
 
         verify(userService, times(1)).updateUser(eq(1L), any(User.class));
     }
@@ -174,11 +306,10 @@ public class UserControllerTest {
     }
 
     @Test
-    void deleteUser_notFound() {
-        doThrow(new RuntimeException("User not found")).when(userService).deleteUser(1L);
-        ResponseEntity<HttpStatus> response = userController.deleteUser(1L);
+    void deleteUser_notFound_propagates() {
+        doThrow(new UserNotFoundException(1L)).when(userService).deleteUser(1L);
 
-        assertEquals(HttpStatus.NOT_FOUND, response.getStatusCode());
+        assertThrows(UserNotFoundException.class, () -> userController.deleteUser(1L));
         verify(userService, times(1)).deleteUser(1L);
     }
 
@@ -186,9 +317,7 @@ public class UserControllerTest {
     void deleteUser_serviceThrowsIllegalArgumentException() {
         doThrow(new IllegalArgumentException("ID is null")).when(userService).deleteUser(null);
 
-        // Similar to updateUser, controller catches RuntimeException and returns NOT_FOUND.
-        ResponseEntity<HttpStatus> response = userController.deleteUser(null);
-        assertEquals(HttpStatus.NOT_FOUND, response.getStatusCode());
+        assertThrows(IllegalArgumentException.class, () -> userController.deleteUser(null));
 
         verify(userService, times(1)).deleteUser(null);
     }
@@ -0,0 +1,105 @@
+package com.example.crudapp.controller;
+
+import com.example.crudapp.model.User;
+import com.example.crudapp.replication.ReadWriteRoutingDataSource;
+import com.example.crudapp.replication.ReplicaSynchronizer;
+import com.example.crudapp.repository.UserRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.http.Cookie;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+
+import javax.sql.DataSource;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.not;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@SpringBootTest(properties = "app.db.replicas.count=2")
+@AutoConfigureMockMvc
+public class UserReadReplicaIntegrationTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private ReadWriteRoutingDataSource routingDataSource;
+
+    @Autowired
+    private ReplicaSynchronizer replicaSynchronizer;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @AfterEach
+    void tearDown() {
+        userRepository.deleteAll();
+        replicaSynchronizer.resync();
+    }
+
+    // A row that exists on every replica but not on the primary reveals where a read was served
+    private void insertOnReplicasOnly() {
+        for (DataSource replica : routingDataSource.getReplicas()) {
+            new JdbcTemplate(replica).update("INSERT INTO users (id, name, email) VALUES (?, ?, ?)",
+                    -1L, "Replica Only", "replica-only@example.com");
+        }
+    }
+
+    @Test
+    void testReadsAreServedByReplicas() throws Exception {
+        insertOnReplicasOnly();
+
+        // The plain list is served from the in-memory snapshot; a sparse fieldset reads the database
+        mockMvc.perform(get("/api/users").param("fields", "id,email"))
+                .andExpect(status().isOk())
+                .andExpect(content().string(containsString("replica-only@example.com")));
+        assertEquals(0, new JdbcTemplate(routingDataSource.getPrimary()).queryForObject("SELECT COUNT(*) FROM users", Integer.class));
+    }
+
+    @Test
+    void testReadYourWritesAfterWrite() throws Exception {
+        Cookie stickyCookie = mockMvc.perform(post("/api/users")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new User("Writer", "writer@example.com"))))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getCookie("read-primary-until");
+        assertNotNull(stickyCookie);
+        insertOnReplicasOnly();
+
+        // The writing client is served by the primary, which has its write and not the replica-only row
+        mockMvc.perform(get("/api/users").param("fields", "id,email").cookie(stickyCookie))
+                .andExpect(status().isOk())
+                .andExpect(content().string(containsString("writer@example.com")))
+                .andExpect(content().string(not(containsString("replica-only@example.com"))));
+    }
+
+    @Test
+    void testWritesAreReplicated() throws Exception {
+        mockMvc.perform(post("/api/users")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new User("Replicated", "replicated@example.com"))))
+                .andExpect(status().isCreated());
+
+        for (DataSource replica : routingDataSource.getReplicas()) {
+            JdbcTemplate jdbcTemplate = new JdbcTemplate(replica);
+            Integer count = 0;
+            for (int attempt = 0; attempt < 50 && count == 0; attempt++) {
+                Thread.sleep(20);
+                count = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM users WHERE email = ?", Integer.class, "replicated@example.com");
+            }
+            assertEquals(1, count);
+        }
+    }
+}
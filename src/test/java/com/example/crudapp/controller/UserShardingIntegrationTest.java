@@ -0,0 +1,82 @@
+package com.example.crudapp.controller;
+
+import com.example.crudapp.model.User;
+import com.example.crudapp.repository.UserRepository;
+import com.example.crudapp.service.UserListSnapshot;
+import com.example.crudapp.service.UserSearchIndex;
+import com.example.crudapp.sharding.ShardedUserStore;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@SpringBootTest(properties = {"app.users.sharding.enabled=true", "app.users.sharding.shard-count=3"})
+@AutoConfigureMockMvc
+public class UserShardingIntegrationTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private ShardedUserStore shardedUserStore;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private UserSearchIndex userSearchIndex;
+
+    @Autowired
+    private UserListSnapshot userListSnapshot;
+
+    @AfterEach
+    void tearDown() {
+        shardedUserStore.deleteAll();
+        userSearchIndex.rebuild();
+        userListSnapshot.rebuild();
+    }
+
+    @Test
+    void testCrudAcrossShards() throws Exception {
+        for (int i = 0; i < 10; i++) {
+            mockMvc.perform(post("/api/users")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(objectMapper.writeValueAsString(new User("Shard User " + i, "shard" + i + "@example.com"))))
+                    .andExpect(status().isCreated());
+        }
+        assertEquals(0, userRepository.count()); // nothing written to the primary database
+
+        mockMvc.perform(get("/api/users"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(10)));
+        mockMvc.perform(get("/api/users/count"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.count", is(10)));
+
+        Long id = shardedUserStore.findAll().get(0).getId();
+        mockMvc.perform(put("/api/users/" + id)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new User("Renamed", "renamed@example.com"))))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/api/users/" + id).param("fields", "name"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.name", is("Renamed")));
+        mockMvc.perform(delete("/api/users/" + id))
+                .andExpect(status().isNoContent());
+        mockMvc.perform(get("/api/users/" + id))
+                .andExpect(status().isNotFound());
+    }
+}
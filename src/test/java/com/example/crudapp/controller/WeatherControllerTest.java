@@ -0,0 +1,168 @@
+package com.example.crudapp.controller;
+
+import com.example.crudapp.dto.weather.CurrentWeatherReportDto;
+import com.example.crudapp.dto.weather.DailyWeatherReportDto;
+import com.example.crudapp.dto.weather.ForecastPart;
+import com.example.crudapp.dto.weather.UnitSystem;
+import com.example.crudapp.dto.weather.WeatherForecastDto;
+import com.example.crudapp.exception.ConcurrencyLimitExceededException;
+import com.example.crudapp.exception.UpstreamServiceException;
+import com.example.crudapp.exception.ZipcodeNotFoundException;
+import com.example.crudapp.service.ForecastResponseCache;
+import com.example.crudapp.service.WeatherForecastStreams;
+import com.example.crudapp.service.WeatherService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.nio.charset.StandardCharsets;
+import java.util.EnumSet;
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+public class WeatherControllerTest {
+
+    private static final byte[] JSON = "[{\"date\":\"2026-01-01\"}]".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] GZIP = {0x1f, (byte) 0x8b, 0x08};
+    private static final ForecastResponseCache.EncodedForecast ENCODED = new ForecastResponseCache.EncodedForecast(JSON, GZIP, "\"abc\"");
+
+    private WeatherService weatherService;
+    private ForecastResponseCache forecastResponseCache;
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        weatherService = mock(WeatherService.class);
+        forecastResponseCache = mock(ForecastResponseCache.class);
+        WeatherController controller = new WeatherController(weatherService, forecastResponseCache, mock(WeatherForecastStreams.class), 1000);
+        mockMvc = MockMvcBuilders.standaloneSetup(controller).setControllerAdvice(new ApiExceptionHandler()).build();
+    }
+
+    @Test
+    void getWeatherForecast_writesEncodedBytesWithEtag() throws Exception {
+        when(forecastResponseCache.get("10001", null, UnitSystem.METRIC)).thenReturn(ENCODED);
+
+        mockMvc.perform(get("/api/weather/10001"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"abc\""))
+                .andExpect(header().string(HttpHeaders.VARY, "Accept, Accept-Encoding"))
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andExpect(content().bytes(JSON));
+        verifyNoInteractions(weatherService);
+    }
+
+    @Test
+    void getWeatherForecast_isSelectedForJsonAndWildcardAccept() throws Exception {
+        when(forecastResponseCache.get("10001", null, UnitSystem.METRIC)).thenReturn(ENCODED);
+
+        mockMvc.perform(get("/api/weather/10001").accept(MediaType.ALL))
+                .andExpect(header().string(HttpHeaders.ETAG, "\"abc\""));
+        mockMvc.perform(get("/api/weather/10001").accept(MediaType.APPLICATION_JSON))
+                .andExpect(header().string(HttpHeaders.ETAG, "\"abc\""));
+        verifyNoInteractions(weatherService);
+    }
+
+    @Test
+    void getWeatherForecast_returnsNotModifiedForMatchingEtag() throws Exception {
+        when(forecastResponseCache.get("10001", null, UnitSystem.METRIC)).thenReturn(ENCODED);
+
+        mockMvc.perform(get("/api/weather/10001").header(HttpHeaders.IF_NONE_MATCH, "\"abc\""))
+                .andExpect(status().isNotModified())
+                .andExpect(content().bytes(new byte[0]));
+    }
+
+    @Test
+    void getWeatherForecast_writesPreCompressedBytesWhenClientAcceptsGzip() throws Exception {
+        when(forecastResponseCache.get("10001", EnumSet.of(ForecastPart.CURRENT), UnitSystem.METRIC)).thenReturn(ENCODED);
+
+        mockMvc.perform(get("/api/weather/10001").param("include", "current").header(HttpHeaders.ACCEPT_ENCODING, "gzip, deflate"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CONTENT_ENCODING, "gzip"))
+                .andExpect(header().string(HttpHeaders.ETAG, "\"abc-gzip\""))
+                .andExpect(content().bytes(GZIP));
+    }
+
+    @Test
+    void getWeatherForecast_passesRequestedUnitsToCache() throws Exception {
+        when(forecastResponseCache.get("10001", null, UnitSystem.IMPERIAL)).thenReturn(ENCODED);
+
+        mockMvc.perform(get("/api/weather/10001").param("units", "Imperial"))
+                .andExpect(status().isOk())
+                .andExpect(content().bytes(JSON));
+    }
+
+    @Test
+    void getWeatherForecast_rejectsUnknownUnits() throws Exception {
+        mockMvc.perform(get("/api/weather/10001").param("units", "rankine"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").value("Unknown units 'rankine'. Supported units: metric, imperial, standard."));
+        verifyNoInteractions(forecastResponseCache, weatherService);
+    }
+
+    @Test
+    void getWeatherForecast_convertsObjectsForNonJsonClients() throws Exception {
+        when(weatherService.getForecast("10001", EnumSet.of(ForecastPart.CURRENT)))
+                .thenReturn(new WeatherForecastDto(new CurrentWeatherReportDto("2026-01-01T12:00:00Z", 20.0, 18.5, 60, 10.0, "clear sky", "Celsius"), null, null));
+
+        mockMvc.perform(get("/api/weather/10001").param("include", "current").param("units", "imperial").accept("application/cbor"))
+                .andExpect(status().isOk());
+        verify(weatherService).getForecast("10001", EnumSet.of(ForecastPart.CURRENT)); // always fetched in metric units
+        verifyNoInteractions(forecastResponseCache);
+    }
+
+    @Test
+    void getWeatherForecast_servesCborFromObjects() throws Exception {
+        when(weatherService.getSevenDayForecast("10001"))
+                .thenReturn(List.of(new DailyWeatherReportDto("2026-01-01", 1.0, 5.0, "light rain", 0.4, "Celsius")));
+
+        mockMvc.perform(get("/api/weather/10001").accept("application/cbor"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/cbor"));
+        verifyNoInteractions(forecastResponseCache);
+    }
+
+    @Test
+    void getWeatherForecast_rejectsUnknownPart() throws Exception {
+        mockMvc.perform(get("/api/weather/10001").param("include", "minutely"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").exists());
+        verifyNoInteractions(forecastResponseCache);
+    }
+
+    @Test
+    void getWeatherForecast_returnsServiceUnavailableWhenConcurrencyLimitIsReached() throws Exception {
+        when(forecastResponseCache.get(anyString(), isNull(), any()))
+                .thenThrow(new ConcurrencyLimitExceededException("Too many concurrent weather requests. Try again later."));
+
+        mockMvc.perform(get("/api/weather/10001"))
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(header().string(HttpHeaders.RETRY_AFTER, "1"));
+    }
+
+    @Test
+    void getWeatherForecast_returnsNotFoundForUnknownZipcode() throws Exception {
+        when(forecastResponseCache.get(anyString(), isNull(), any())).thenThrow(new ZipcodeNotFoundException("99999"));
+
+        mockMvc.perform(get("/api/weather/99999"))
+                .andExpect(status().isNotFound())
+                .andExpect(jsonPath("$.error").value("Zipcode not found or invalid: 99999"));
+    }
+
+    @Test
+    void getWeatherForecast_hidesUpstreamErrorDetails() throws Exception {
+        when(forecastResponseCache.get(anyString(), isNull(), any()))
+                .thenThrow(new UpstreamServiceException("Error fetching weather data: 500 secret", new RuntimeException()));
+
+        mockMvc.perform(get("/api/weather/10001"))
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(jsonPath("$.error").value("External weather service is currently unavailable or returned an error."));
+    }
+}
@@ -0,0 +1,47 @@
+package com.example.crudapp.diagnostics;
+
+import com.example.crudapp.model.User;
+import com.example.crudapp.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+public class HibernateStatisticsEndpointIntegrationTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @AfterEach
+    void tearDown() {
+        userRepository.deleteAll();
+    }
+
+    @Test
+    void testStatisticsReflectQueries() throws Exception {
+        userRepository.save(new User("Stats User", "stats@example.com"));
+        mockMvc.perform(get("/api/users").param("fields", "id")).andExpect(status().isOk()); // the plain list is served from memory
+
+        mockMvc.perform(get("/actuator/hibernate"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.enabled", is(true)))
+                .andExpect(jsonPath("$.entityInsertCount", greaterThanOrEqualTo(1)))
+                .andExpect(jsonPath("$.queryExecutionCount", greaterThanOrEqualTo(1)))
+                .andExpect(jsonPath("$.queries[0].executionMaxTimeMs", notNullValue()))
+                .andExpect(jsonPath("$.secondLevelCache.hitRatio", notNullValue()));
+    }
+}
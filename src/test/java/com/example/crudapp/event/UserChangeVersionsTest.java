@@ -0,0 +1,41 @@
+package com.example.crudapp.event;
+
+import com.example.crudapp.model.User;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class UserChangeVersionsTest {
+
+    private final UserChangeVersions versions = new UserChangeVersions();
+
+    @Test
+    void isLatest_rejectsOlderEventsOfTheSameUser() {
+        UserChangedEvent older = UserChangedEvent.updated(new User(1L, "Older", "older@example.com"));
+        UserChangedEvent newer = UserChangedEvent.updated(new User(1L, "Newer", "newer@example.com"));
+        UserChangedEvent other = UserChangedEvent.deleted(2L);
+
+        assertTrue(versions.isLatest(newer));
+        assertTrue(versions.isLatest(newer)); // seen again by the next listener
+        assertFalse(versions.isLatest(older));
+        assertTrue(versions.isLatest(other));
+    }
+
+    @Test
+    void prune_keepsVersionsNeededByEventsInFlight() {
+        UserChangedEvent slow = UserChangedEvent.updated(new User(1L, "Slow", "slow@example.com"));
+        versions.onPublished(slow);
+        UserChangedEvent fast = UserChangedEvent.updated(new User(2L, "Fast", "fast@example.com"));
+        versions.onPublished(fast);
+        versions.isLatest(fast);
+        versions.onCompleted(fast);
+
+        versions.prune();
+        assertEquals(1, versions.size()); // an event older than the fast one is still in flight
+
+        versions.isLatest(slow);
+        versions.onCompleted(slow);
+        versions.prune();
+        assertEquals(0, versions.size());
+    }
+}
@@ -0,0 +1,85 @@
+package com.example.crudapp.resilience;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AdaptiveConcurrencyLimiterTest {
+
+    private final AtomicLong nanoTime = new AtomicLong();
+    private MeterRegistry meterRegistry;
+    private AdaptiveConcurrencyLimiter limiter;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        limiter = new AdaptiveConcurrencyLimiter("test.concurrency", meterRegistry, 4, 1, 6, 100, 0.5, nanoTime::get);
+    }
+
+    private List<AdaptiveConcurrencyLimiter.Permit> acquire(int count) {
+        List<AdaptiveConcurrencyLimiter.Permit> permits = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            permits.add(limiter.tryAcquire());
+        }
+        return permits;
+    }
+
+    @Test
+    void tryAcquire_rejectsBeyondLimit() {
+        List<AdaptiveConcurrencyLimiter.Permit> permits = acquire(4);
+
+        assertTrue(permits.stream().allMatch(permit -> permit != null));
+        assertNull(limiter.tryAcquire());
+        assertEquals(4, limiter.getInFlight());
+        assertEquals(1, limiter.getRejectedCount());
+        assertEquals(1.0, meterRegistry.get("test.concurrency.rejected").counter().count());
+        assertEquals(4.0, meterRegistry.get("test.concurrency.in-flight").gauge().value());
+    }
+
+    @Test
+    void onSuccess_increasesLimitAdditivelyUpToMax() {
+        for (int round = 0; round < 5; round++) {
+            acquire(limiter.getLimit()).forEach(AdaptiveConcurrencyLimiter.Permit::onSuccess);
+        }
+
+        assertEquals(6, limiter.getLimit());
+        assertEquals(0, limiter.getInFlight());
+    }
+
+    @Test
+    void onSuccess_doesNotIncreaseLimitWhenMostlyIdle() {
+        limiter.tryAcquire().onSuccess();
+
+        assertEquals(4, limiter.getLimit());
+    }
+
+    @Test
+    void slowCallsAndDropsDecreaseLimitMultiplicativelyDownToMin() {
+        AdaptiveConcurrencyLimiter.Permit slow = limiter.tryAcquire();
+        nanoTime.addAndGet(150_000_000);
+        slow.onSuccess();
+        assertEquals(2, limiter.getLimit());
+
+        limiter.tryAcquire().onDropped();
+        limiter.tryAcquire().onDropped();
+        assertEquals(1, limiter.getLimit());
+        assertEquals(1.0, meterRegistry.get("test.concurrency.limit").gauge().value());
+    }
+
+    @Test
+    void onIgnore_releasesWithoutAdjustingLimit() {
+        List<AdaptiveConcurrencyLimiter.Permit> permits = acquire(4);
+        permits.forEach(AdaptiveConcurrencyLimiter.Permit::onIgnore);
+        permits.get(0).onDropped(); // a permit is released only once
+
+        assertEquals(4, limiter.getLimit());
+        assertEquals(0, limiter.getInFlight());
+    }
+}
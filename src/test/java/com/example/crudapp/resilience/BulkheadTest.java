@@ -0,0 +1,118 @@
+package com.example.crudapp.resilience;
+
+import com.example.crudapp.exception.BulkheadFullException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BulkheadTest {
+
+    private MeterRegistry meterRegistry;
+    private ExecutorService executor;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        executor = Executors.newCachedThreadPool();
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    private static void awaitQueued(Bulkhead bulkhead, int queued) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (bulkhead.getQueued() < queued && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+        assertEquals(queued, bulkhead.getQueued());
+    }
+
+    @Test
+    void acquire_tracksActiveCallsAndSaturation() {
+        Bulkhead bulkhead = new Bulkhead("test.bulkhead", meterRegistry, 4, 0, 0, Bulkhead.RejectionPolicy.ABORT, 0);
+
+        Bulkhead.Permit first = bulkhead.acquire();
+        bulkhead.acquire().close();
+        Bulkhead.Permit second = bulkhead.acquire();
+
+        assertEquals(2, bulkhead.getActive());
+        assertEquals(0.5, meterRegistry.get("test.bulkhead.saturation").gauge().value());
+        first.close();
+        first.close(); // closing twice releases the slot once
+        second.close();
+        assertEquals(0, bulkhead.getActive());
+    }
+
+    @Test
+    void acquire_rejectsWhenSlotsAndQueueAreFull() {
+        Bulkhead bulkhead = new Bulkhead("test.bulkhead", meterRegistry, 1, 0, 0, Bulkhead.RejectionPolicy.ABORT, 0);
+        Bulkhead.Permit held = bulkhead.acquire();
+
+        assertThrows(BulkheadFullException.class, bulkhead::acquire);
+
+        assertEquals(1, bulkhead.getRejectedCount());
+        assertEquals(1.0, meterRegistry.get("test.bulkhead.rejected").counter().count());
+        held.close();
+        bulkhead.acquire().close();
+    }
+
+    @Test
+    void acquire_waitsInQueueForFreedSlot() throws Exception {
+        Bulkhead bulkhead = new Bulkhead("test.bulkhead", meterRegistry, 1, 1, 5000, Bulkhead.RejectionPolicy.ABORT, 0);
+        Bulkhead.Permit held = bulkhead.acquire();
+
+        CompletableFuture<Bulkhead.Permit> waiting = CompletableFuture.supplyAsync(bulkhead::acquire, executor);
+        awaitQueued(bulkhead, 1);
+        assertThrows(BulkheadFullException.class, bulkhead::acquire); // the queue holds one caller
+        held.close();
+
+        waiting.get(5, TimeUnit.SECONDS).close();
+        assertEquals(0, bulkhead.getQueued());
+        assertEquals(1, bulkhead.getRejectedCount());
+    }
+
+    @Test
+    void acquire_rejectsAfterQueueTimeout() {
+        Bulkhead bulkhead = new Bulkhead("test.bulkhead", meterRegistry, 1, 1, 10, Bulkhead.RejectionPolicy.ABORT, 0);
+        Bulkhead.Permit held = bulkhead.acquire();
+
+        assertThrows(BulkheadFullException.class, bulkhead::acquire);
+
+        assertEquals(0, bulkhead.getQueued());
+        held.close();
+    }
+
+    @Test
+    void acquire_letsBoundedOverflowRunWithCallerRunsPolicy() {
+        Bulkhead bulkhead = new Bulkhead("test.bulkhead", meterRegistry, 1, 0, 0, Bulkhead.RejectionPolicy.CALLER_RUNS, 1);
+        Bulkhead.Permit held = bulkhead.acquire();
+
+        Bulkhead.Permit overflow = bulkhead.acquire();
+        assertThrows(BulkheadFullException.class, bulkhead::acquire); // the overflow holds one call
+        overflow.close();
+        bulkhead.acquire().close(); // the overflow slot is free again
+
+        assertEquals(1, bulkhead.getActive()); // the overflowing calls held no slot
+        assertEquals(2.0, meterRegistry.get("test.bulkhead.overflow").counter().count());
+        assertEquals(1, bulkhead.getRejectedCount());
+        held.close();
+    }
+
+    @Test
+    void rejectionPolicy_parsesConfiguredNames() {
+        assertEquals(Bulkhead.RejectionPolicy.CALLER_RUNS, Bulkhead.RejectionPolicy.parse(" caller-runs"));
+        assertEquals(Bulkhead.RejectionPolicy.ABORT, Bulkhead.RejectionPolicy.parse("abort"));
+        assertThrows(IllegalArgumentException.class, () -> Bulkhead.RejectionPolicy.parse("discard"));
+    }
+}
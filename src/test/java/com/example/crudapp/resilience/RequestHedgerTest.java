@@ -0,0 +1,180 @@
+package com.example.crudapp.resilience;
+
+import com.example.crudapp.diagnostics.StatementCountingInspector;
+import com.example.crudapp.tracing.CompletedTrace;
+import com.example.crudapp.tracing.RequestTrace;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RequestHedgerTest {
+
+    private MeterRegistry meterRegistry;
+    private ExecutorService executor;
+    private RequestHedger hedger;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        executor = Executors.newCachedThreadPool();
+        hedger = new RequestHedger("test.hedging", meterRegistry, executor, true, 0.9, 1, 10, 10);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    // Fills the latency window with fast calls, so the hedge delay is the 1 ms minimum
+    private void warmUp(int calls) {
+        for (int i = 0; i < calls; i++) {
+            hedger.recordLatency(TimeUnit.MICROSECONDS.toNanos(100));
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // The first call blocks until released; every later call returns its attempt number immediately
+    private int slowFirstCall(AtomicInteger attempts, CountDownLatch release) {
+        int attempt = attempts.incrementAndGet();
+        if (attempt == 1) {
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        return attempt;
+    }
+
+    @Test
+    void call_doesNotHedgeBeforeLatenciesAreKnown() {
+        assertEquals("ok", hedger.call(() -> "ok"));
+
+        assertEquals(-1, hedger.getHedgeDelayMs());
+        assertEquals(0, hedger.getHedgedCount());
+    }
+
+    @Test
+    void call_hedgesSlowCallAndHedgeWins() {
+        warmUp(10);
+        AtomicInteger attempts = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+
+        int result = hedger.call(() -> slowFirstCall(attempts, release));
+        release.countDown();
+
+        assertEquals(2, result);
+        assertEquals(1, hedger.getHedgeDelayMs());
+        assertEquals(1, hedger.getHedgedCount());
+        assertEquals(1, hedger.getWinCount());
+        assertEquals(1.0, meterRegistry.get("test.hedging.wins").counter().count());
+        assertEquals(1.0, meterRegistry.get("test.hedging.rate").gauge().value());
+    }
+
+    @Test
+    void call_runsOnCallersThreadBeforeLatenciesAreKnown() {
+        String thread = hedger.call(() -> Thread.currentThread().getName());
+
+        assertEquals(Thread.currentThread().getName(), thread);
+    }
+
+    @Test
+    void call_accountsHedgedAttemptsToCallersTraceAndStatementCount() throws InterruptedException {
+        warmUp(10);
+        AtomicInteger attempts = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch finished = new CountDownLatch(2);
+        RequestTrace trace = RequestTrace.begin("GET /api/weather/10001");
+        StatementCountingInspector.reset();
+
+        hedger.call(() -> {
+            try (RequestTrace.Span span = RequestTrace.span("upstream")) {
+                new StatementCountingInspector().inspect("select 1");
+                return slowFirstCall(attempts, release);
+            } finally {
+                finished.countDown();
+            }
+        });
+        release.countDown();
+        assertTrue(finished.await(5, TimeUnit.SECONDS));
+        CompletedTrace completed = trace.end(200);
+
+        assertEquals(2, StatementCountingInspector.currentCount());
+        assertEquals(2, completed.stages().stream().filter(stage -> stage.name().equals("upstream")).count());
+        StatementCountingInspector.reset();
+    }
+
+    @Test
+    void call_usesOtherAttemptWhenOneFails() {
+        warmUp(10);
+        AtomicInteger attempts = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+
+        int result = hedger.call(() -> {
+            int attempt = slowFirstCall(attempts, release);
+            if (attempt == 2) {
+                release.countDown(); // let the primary finish after the hedge has failed
+                throw new IllegalStateException("hedge failed");
+            }
+            return attempt;
+        });
+
+        assertEquals(1, result);
+        assertEquals(1, hedger.getHedgedCount());
+        assertEquals(0, hedger.getWinCount());
+    }
+
+    @Test
+    void call_rethrowsFailureWhenNotHedged() {
+        IllegalStateException failure = assertThrows(IllegalStateException.class,
+                () -> hedger.call(() -> { throw new IllegalStateException("upstream down"); }));
+
+        assertEquals("upstream down", failure.getMessage());
+    }
+
+    @Test
+    void call_stopsHedgingWhenBudgetIsExhausted() {
+        // A median delay over a long window, so the slow primaries below do not raise the delay
+        hedger = new RequestHedger("test.budget", meterRegistry, executor, true, 0.5, 1, 10, 100);
+        warmUp(100);
+        // The budget allows a burst of 10 hedges; 10% of calls are added back afterwards
+        for (int i = 0; i < 12; i++) {
+            AtomicInteger attempts = new AtomicInteger();
+            hedger.call(() -> {
+                if (attempts.incrementAndGet() == 1) {
+                    sleep(50);
+                }
+                return attempts.get();
+            });
+        }
+
+        assertEquals(11, hedger.getHedgedCount()); // 10 from the burst, 1 more from the 12 calls' 10% top-up
+        assertEquals(1.0, meterRegistry.get("test.budget.budget-exhausted").counter().count());
+    }
+
+    @Test
+    void call_runsInlineWhenDisabled() {
+        RequestHedger disabled = new RequestHedger("test.disabled", meterRegistry, null, false, 0.9, 1, 10, 10);
+        String thread = disabled.call(() -> Thread.currentThread().getName());
+
+        assertEquals(Thread.currentThread().getName(), thread);
+        assertEquals(0.0, meterRegistry.get("test.disabled.calls").counter().count());
+    }
+}
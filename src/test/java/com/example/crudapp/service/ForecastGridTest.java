@@ -0,0 +1,124 @@
+package com.example.crudapp.service;
+
+import com.example.crudapp.dto.weather.CurrentWeatherReportDto;
+import com.example.crudapp.dto.weather.ForecastPart;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ForecastGridTest {
+
+    private static final Set<ForecastPart> CURRENT = EnumSet.of(ForecastPart.CURRENT);
+    private static final CurrentWeatherReportDto REPORT = new CurrentWeatherReportDto();
+
+    private MutableClock clock;
+    private MeterRegistry meterRegistry;
+    private ForecastGrid grid;
+
+    private static class MutableClock extends Clock {
+        Instant now = Instant.parse("2026-01-01T00:00:00Z");
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+
+    @BeforeEach
+    void setUp() {
+        clock = new MutableClock();
+        meterRegistry = new SimpleMeterRegistry();
+        grid = new ForecastGrid(clock, meterRegistry, true, 0.1, List.of(0.05, 0.25), 100, 600, 1800, 10800);
+    }
+
+    // Looks up current conditions and, on a miss, stores them as if they had been fetched
+    private ForecastGrid.Lookup lookupAndFill(double latitude, double longitude) {
+        ForecastGrid.Lookup lookup = grid.lookup(latitude, longitude, CURRENT);
+        if (!lookup.missing().isEmpty()) {
+            grid.put(lookup.cell(), ForecastPart.CURRENT, REPORT);
+        }
+        return lookup;
+    }
+
+    @Test
+    void lookup_snapsCoordinatesToCellCentre() {
+        ForecastGrid.Cell cell = grid.lookup(40.7549, -73.9925, CURRENT).cell();
+
+        assertEquals(new ForecastGrid.Cell(0.1, 407, -740), cell);
+        assertEquals(40.75, cell.latitude());
+        assertEquals(-73.95, cell.longitude());
+    }
+
+    @Test
+    void lookup_sharesFetchedPartsWithinCell() {
+        assertEquals(CURRENT, lookupAndFill(40.75, -73.99).missing());
+
+        ForecastGrid.Lookup nearby = grid.lookup(40.71, -73.91, CURRENT);
+        ForecastGrid.Lookup otherCell = grid.lookup(40.68, -73.99, CURRENT);
+
+        assertTrue(nearby.missing().isEmpty());
+        assertSame(REPORT, nearby.cached().getCurrent());
+        assertEquals(CURRENT, otherCell.missing());
+    }
+
+    @Test
+    void lookup_missesOnlyPartsNotFetchedForCell() {
+        lookupAndFill(40.75, -73.99);
+
+        ForecastGrid.Lookup lookup = grid.lookup(40.75, -73.99, EnumSet.of(ForecastPart.CURRENT, ForecastPart.DAILY));
+
+        assertEquals(EnumSet.of(ForecastPart.DAILY), lookup.missing());
+        assertNotNull(lookup.cached().getCurrent());
+    }
+
+    @Test
+    void lookup_missesAfterPartExpires() {
+        lookupAndFill(40.75, -73.99);
+        clock.now = clock.now.plusSeconds(601);
+
+        assertEquals(CURRENT, grid.lookup(40.75, -73.99, CURRENT).missing());
+    }
+
+    @Test
+    void lookup_reportsHitRatePerResolution() {
+        lookupAndFill(40.74, -73.99); // miss everywhere
+        lookupAndFill(40.71, -73.91); // same 0.1 and 0.25 cell, other 0.05 cell
+        lookupAndFill(40.62, -73.99); // other 0.1 cell, same 0.25 cell
+
+        assertEquals(1.0 / 3, grid.getHitRate(0.1), 1e-9);
+        assertEquals(0.0, grid.getHitRate(0.05));
+        assertEquals(2.0 / 3, grid.getHitRate(0.25), 1e-9);
+        assertEquals(-1, grid.getHitRate(1.0));
+        assertEquals(2.0, meterRegistry.get("weather.grid.lookups").tag("resolution", "0.25").tag("result", "hit").counter().count());
+        assertEquals(2.0 / 3, meterRegistry.get("weather.grid.hit-rate").tag("resolution", "0.25").gauge().value(), 1e-9);
+    }
+
+    @Test
+    void lookup_failsWhenDisabled() {
+        ForecastGrid disabled = new ForecastGrid(clock, meterRegistry, false, 0.1, List.of(), 100, 600, 1800, 10800);
+
+        assertFalse(disabled.isEnabled());
+        assertThrows(IllegalStateException.class, () -> disabled.lookup(40.75, -73.99, CURRENT));
+    }
+}
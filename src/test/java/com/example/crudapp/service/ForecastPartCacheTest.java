@@ -0,0 +1,79 @@
+package com.example.crudapp.service;
+
+import com.example.crudapp.dto.weather.ForecastPart;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ForecastPartCacheTest {
+
+    private MutableClock clock;
+    private ForecastPartCache cache;
+
+    @BeforeEach
+    void setUp() {
+        clock = new MutableClock(Instant.parse("2026-01-01T00:00:00Z"));
+        cache = new ForecastPartCache(clock, 3, 600, 1800, 10800);
+    }
+
+    @Test
+    void get_expiresEachPartAfterItsOwnTtl() {
+        cache.put("10001", ForecastPart.CURRENT, "current");
+        cache.put("10001", ForecastPart.DAILY, "daily");
+
+        clock.advance(Duration.ofMinutes(11));
+
+        assertNull(cache.get("10001", ForecastPart.CURRENT));
+        assertEquals("daily", cache.get("10001", ForecastPart.DAILY));
+        clock.advance(Duration.ofHours(3));
+        assertNull(cache.get("10001", ForecastPart.DAILY));
+    }
+
+    @Test
+    void put_evictsLeastRecentlyUsedWhenFull() {
+        cache.put("10001", ForecastPart.DAILY, "a");
+        cache.put("10002", ForecastPart.DAILY, "b");
+        cache.put("10003", ForecastPart.DAILY, "c");
+        cache.get("10001", ForecastPart.DAILY);
+
+        cache.put("10004", ForecastPart.DAILY, "d");
+
+        assertEquals(3, cache.size());
+        assertEquals("a", cache.get("10001", ForecastPart.DAILY));
+        assertNull(cache.get("10002", ForecastPart.DAILY));
+    }
+
+    private static final class MutableClock extends Clock {
+        private Instant now;
+
+        MutableClock(Instant now) {
+            this.now = now;
+        }
+
+        void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
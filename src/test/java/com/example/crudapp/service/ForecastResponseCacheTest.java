@@ -0,0 +1,104 @@
+package com.example.crudapp.service;
+
+import com.example.crudapp.dto.weather.DailyWeatherReportDto;
+import com.example.crudapp.dto.weather.ForecastPart;
+import com.example.crudapp.dto.weather.UnitSystem;
+import com.example.crudapp.dto.weather.WeatherForecastDto;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class ForecastResponseCacheTest {
+
+    private static final Instant NOW = Instant.parse("2026-01-01T00:00:00Z");
+    private static final List<DailyWeatherReportDto> DAILY =
+            List.of(new DailyWeatherReportDto("2026-01-01", 1.0, 5.0, "light rain", 0.4, "Celsius"));
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private WeatherService weatherService;
+    private ForecastPartCache forecastPartCache;
+    private ForecastResponseCache responseCache;
+
+    @BeforeEach
+    void setUp() {
+        weatherService = mock(WeatherService.class);
+        forecastPartCache = mock(ForecastPartCache.class);
+        responseCache = new ForecastResponseCache(weatherService, forecastPartCache, objectMapper,
+                Clock.fixed(NOW, ZoneOffset.UTC), 100, true);
+    }
+
+    @Test
+    void get_encodesOnceAndServesBytesUntilPartsExpire() throws IOException {
+        when(weatherService.getSevenDayForecast("10001")).thenReturn(DAILY);
+        when(forecastPartCache.expiresAt("10001", ForecastPart.DAILY)).thenReturn(NOW.toEpochMilli() + 60_000);
+
+        ForecastResponseCache.EncodedForecast first = responseCache.get("10001", null, UnitSystem.METRIC);
+        ForecastResponseCache.EncodedForecast second = responseCache.get("10001", null, UnitSystem.METRIC);
+
+        assertSame(first, second);
+        verify(weatherService, times(1)).getSevenDayForecast("10001");
+        assertArrayEquals(objectMapper.writeValueAsBytes(DAILY), first.json());
+        try (GZIPInputStream gzip = new GZIPInputStream(new ByteArrayInputStream(first.gzip()))) {
+            assertArrayEquals(first.json(), gzip.readAllBytes());
+        }
+        assertTrue(first.etag().startsWith("\"") && first.etag().endsWith("\""));
+    }
+
+    @Test
+    void get_keepsEtagForUnchangedContentAndKeysBySelectedParts() {
+        WeatherForecastDto forecast = new WeatherForecastDto(null, null, DAILY);
+        when(weatherService.getSevenDayForecast("10001")).thenReturn(DAILY);
+        when(weatherService.getForecast("10001", EnumSet.of(ForecastPart.DAILY))).thenReturn(forecast);
+
+        ForecastResponseCache.EncodedForecast list = responseCache.get("10001", null, UnitSystem.METRIC);
+        ForecastResponseCache.EncodedForecast object = responseCache.get("10001", EnumSet.of(ForecastPart.DAILY), UnitSystem.METRIC);
+
+        assertNotEquals(list.etag(), object.etag());
+        assertEquals(list.etag(), responseCache.get("10001", null, UnitSystem.METRIC).etag());
+    }
+
+    @Test
+    void get_doesNotStoreForecastWhosePartsWereNotCached() {
+        when(weatherService.getSevenDayForecast("10001")).thenReturn(List.of());
+        when(forecastPartCache.expiresAt("10001", ForecastPart.DAILY)).thenReturn(0L);
+
+        responseCache.get("10001", null, UnitSystem.METRIC);
+        responseCache.get("10001", null, UnitSystem.METRIC);
+
+        verify(weatherService, times(2)).getSevenDayForecast("10001");
+        assertEquals(0, responseCache.size());
+    }
+
+    @Test
+    void get_convertsCanonicalMetricForecastIntoRequestedUnits() throws IOException {
+        when(weatherService.getSevenDayForecast("10001")).thenReturn(DAILY);
+        when(forecastPartCache.expiresAt("10001", ForecastPart.DAILY)).thenReturn(NOW.toEpochMilli() + 60_000);
+
+        ForecastResponseCache.EncodedForecast metric = responseCache.get("10001", null, UnitSystem.METRIC);
+        ForecastResponseCache.EncodedForecast imperial = responseCache.get("10001", null, UnitSystem.IMPERIAL);
+        ForecastResponseCache.EncodedForecast standard = responseCache.get("10001", null, UnitSystem.STANDARD);
+
+        DailyWeatherReportDto fahrenheit = objectMapper.readValue(imperial.json(), DailyWeatherReportDto[].class)[0];
+        assertEquals(33.8, fahrenheit.getMinTemperature());
+        assertEquals(41.0, fahrenheit.getMaxTemperature());
+        assertEquals("Fahrenheit", fahrenheit.getTemperatureUnit());
+        DailyWeatherReportDto kelvin = objectMapper.readValue(standard.json(), DailyWeatherReportDto[].class)[0];
+        assertEquals(274.15, kelvin.getMinTemperature());
+        assertEquals("Kelvin", kelvin.getTemperatureUnit());
+        assertNotEquals(metric.etag(), imperial.etag());
+        assertEquals(1.0, DAILY.get(0).getMinTemperature()); // the canonical forecast is not modified
+        assertEquals(3, responseCache.size());
+    }
+}
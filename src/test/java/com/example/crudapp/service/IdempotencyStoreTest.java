@@ -0,0 +1,179 @@
+package com.example.crudapp.service;
+
+import com.example.crudapp.exception.IdempotencyKeyInProgressException;
+import com.example.crudapp.exception.IdempotencyKeyMismatchException;
+import com.example.crudapp.exception.IdempotencyStoreFullException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class IdempotencyStoreTest {
+
+    private Instant now;
+    private IdempotencyStore store;
+    private final AtomicInteger executions = new AtomicInteger();
+
+    @BeforeEach
+    void setUp() {
+        now = Instant.parse("2026-01-01T00:00:00Z");
+        Clock clock = new Clock() {
+            @Override
+            public ZoneOffset getZone() {
+                return ZoneOffset.UTC;
+            }
+
+            @Override
+            public Clock withZone(java.time.ZoneId zone) {
+                return this;
+            }
+
+            @Override
+            public Instant instant() {
+                return now;
+            }
+        };
+        store = new IdempotencyStore(clock, new SimpleMeterRegistry(), 2, 60, 1000);
+    }
+
+    private ResponseEntity<String> created() {
+        return new ResponseEntity<>("user-" + executions.incrementAndGet(), HttpStatus.CREATED);
+    }
+
+    @Test
+    void execute_retryReplaysStoredResponse() {
+        ResponseEntity<String> first = store.execute("k", "body", this::created);
+        ResponseEntity<String> retry = store.execute("k", "body", this::created);
+
+        assertEquals(1, executions.get());
+        assertEquals(HttpStatus.CREATED, retry.getStatusCode());
+        assertEquals(first.getBody(), retry.getBody());
+        assertEquals("true", retry.getHeaders().getFirst(IdempotencyStore.REPLAYED_HEADER));
+        assertNull(first.getHeaders().getFirst(IdempotencyStore.REPLAYED_HEADER));
+    }
+
+    @Test
+    void execute_sameKeyDifferentRequest_throws() {
+        store.execute("k", "body", this::created);
+        assertThrows(IdempotencyKeyMismatchException.class, () -> store.execute("k", "other body", this::created));
+    }
+
+    @Test
+    void execute_failureReleasesKey() {
+        assertThrows(IllegalArgumentException.class, () -> store.execute("k", "body", () -> {
+            throw new IllegalArgumentException("invalid");
+        }));
+        store.execute("k", "body", () -> new ResponseEntity<>("unavailable", HttpStatus.SERVICE_UNAVAILABLE));
+        store.execute("k", "body", this::created);
+        assertEquals(1, executions.get());
+    }
+
+    @Test
+    void execute_expiredAndEvictedKeysRunAgain() {
+        store.execute("k", "body", this::created);
+        now = now.plus(Duration.ofMinutes(61));
+        store.execute("k", "body", this::created);
+        assertEquals(2, executions.get());
+
+        store.execute("a", "body", this::created);
+        store.execute("b", "body", this::created); // capacity 2: evicts "k"
+        store.execute("k", "body", this::created);
+        assertEquals(5, executions.get());
+        assertEquals(2, store.size());
+    }
+
+    @Test
+    void execute_concurrentDuplicateWaitsForFirst() throws Exception {
+        CountDownLatch firstStarted = new CountDownLatch(1);
+        CountDownLatch releaseFirst = new CountDownLatch(1);
+        CompletableFuture<ResponseEntity<String>> first = CompletableFuture.supplyAsync(() -> store.execute("k", "body", () -> {
+            firstStarted.countDown();
+            try {
+                releaseFirst.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return created();
+        }));
+        assertTrue(firstStarted.await(5, TimeUnit.SECONDS));
+        CompletableFuture<ResponseEntity<String>> duplicate = CompletableFuture.supplyAsync(() -> store.execute("k", "body", this::created));
+
+        Thread.sleep(50);
+        assertFalse(duplicate.isDone());
+        releaseFirst.countDown();
+
+        assertEquals(first.get(5, TimeUnit.SECONDS).getBody(), duplicate.get(5, TimeUnit.SECONDS).getBody());
+        assertEquals(1, executions.get());
+    }
+
+    // Starts a request with the key on another thread and returns once it runs; it finishes when the latch opens
+    private CompletableFuture<ResponseEntity<String>> startBlocked(String key, CountDownLatch finish,
+                                                                   Supplier<ResponseEntity<String>> response) throws InterruptedException {
+        CountDownLatch started = new CountDownLatch(1);
+        CompletableFuture<ResponseEntity<String>> request = CompletableFuture.supplyAsync(() -> store.execute(key, "body", () -> {
+            started.countDown();
+            try {
+                finish.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return response.get();
+        }));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        return request;
+    }
+
+    @Test
+    void execute_runningEntriesAreNotEvicted() throws Exception {
+        CountDownLatch finish = new CountDownLatch(1);
+        CompletableFuture<ResponseEntity<String>> a = startBlocked("a", finish, this::created);
+        CompletableFuture<ResponseEntity<String>> b = startBlocked("b", finish, this::created);
+
+        assertThrows(IdempotencyStoreFullException.class, () -> store.execute("c", "body", this::created));
+        finish.countDown();
+        a.get(5, TimeUnit.SECONDS);
+        b.get(5, TimeUnit.SECONDS);
+
+        store.execute("c", "body", this::created); // evicts "a", now complete
+        assertEquals(3, executions.get());
+    }
+
+    @Test
+    void execute_duplicateOfSlowRequestTimesOut() throws Exception {
+        CountDownLatch finish = new CountDownLatch(1);
+        CompletableFuture<ResponseEntity<String>> first = startBlocked("k", finish, this::created);
+
+        assertThrows(IdempotencyKeyInProgressException.class, () -> store.execute("k", "body", this::created));
+        finish.countDown();
+        first.get(5, TimeUnit.SECONDS);
+        assertEquals(1, executions.get());
+    }
+
+    @Test
+    void execute_duplicateRunsItselfWhenFirstFails() throws Exception {
+        CountDownLatch finish = new CountDownLatch(1);
+        CompletableFuture<ResponseEntity<String>> first = startBlocked("k", finish,
+                () -> new ResponseEntity<>("unavailable", HttpStatus.SERVICE_UNAVAILABLE));
+        CompletableFuture<ResponseEntity<String>> duplicate = CompletableFuture.supplyAsync(() -> store.execute("k", "body", this::created));
+
+        Thread.sleep(50);
+        finish.countDown();
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, first.get(5, TimeUnit.SECONDS).getStatusCode());
+        ResponseEntity<String> response = duplicate.get(5, TimeUnit.SECONDS);
+        assertEquals(HttpStatus.CREATED, response.getStatusCode());
+        assertNull(response.getHeaders().getFirst(IdempotencyStore.REPLAYED_HEADER));
+    }
+}
@@ -0,0 +1,129 @@
+package com.example.crudapp.service;
+
+import com.example.crudapp.dto.user.UserChangeDto;
+import com.example.crudapp.dto.user.UserChangeFeedDto;
+import com.example.crudapp.event.UserChangeVersions;
+import com.example.crudapp.event.UserChangedEvent;
+import com.example.crudapp.exception.ChangeCursorExpiredException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class UserChangeLogTest {
+
+    private MutableClock clock;
+    private UserChangeLog changeLog;
+
+    @BeforeEach
+    void setUp() {
+        clock = new MutableClock(Instant.parse("2026-01-01T00:00:00Z"));
+        changeLog = new UserChangeLog(new UserChangeVersions(), clock, 3, 60);
+    }
+
+    @AfterEach
+    void tearDown() {
+        changeLog.shutdown();
+    }
+
+    private static UserChangedEvent created(long id) {
+        return new UserChangedEvent(UserChangedEvent.Type.CREATED, id, "User " + id, "user" + id + "@example.com");
+    }
+
+    @Test
+    void read_returnsChangesAfterCursorInOrder() {
+        long cursor = changeLog.read(null, 10).getCursor();
+        changeLog.append(created(1L));
+        changeLog.append(created(2L));
+
+        UserChangeFeedDto feed = changeLog.read(cursor, 10);
+        assertEquals(List.of(1L, 2L), feed.getChanges().stream().map(UserChangeDto::getId).toList());
+        assertFalse(feed.isHasMore());
+        assertTrue(changeLog.read(feed.getCursor(), 10).getChanges().isEmpty());
+    }
+
+    @Test
+    void read_paginatesWithLimit() {
+        long cursor = changeLog.read(null, 10).getCursor();
+        changeLog.append(created(1L));
+        changeLog.append(created(2L));
+
+        UserChangeFeedDto first = changeLog.read(cursor, 1);
+        assertEquals(1, first.getChanges().size());
+        assertTrue(first.isHasMore());
+        UserChangeFeedDto second = changeLog.read(first.getCursor(), 1);
+        assertEquals(2L, second.getChanges().get(0).getId());
+    }
+
+    @Test
+    void append_compactsToLatestChangePerUser() {
+        long cursor = changeLog.read(null, 10).getCursor();
+        changeLog.append(created(1L));
+        changeLog.append(new UserChangedEvent(UserChangedEvent.Type.UPDATED, 1L, "Renamed", "user1@example.com"));
+        changeLog.append(UserChangedEvent.deleted(1L));
+
+        List<UserChangeDto> changes = changeLog.read(cursor, 10).getChanges();
+        assertEquals(1, changes.size());
+        assertEquals(UserChangedEvent.Type.DELETED, changes.get(0).getType());
+    }
+
+    @Test
+    void read_cursorOlderThanRetainedHistory_throws() {
+        long cursor = changeLog.read(null, 10).getCursor();
+        for (long id = 1; id <= 4; id++) {
+            changeLog.append(created(id)); // max 3 entries, user 1 is trimmed
+        }
+        assertEquals(3, changeLog.size());
+        assertThrows(ChangeCursorExpiredException.class, () -> changeLog.read(cursor, 10));
+    }
+
+    @Test
+    void read_expiredByAge_throws() {
+        long cursor = changeLog.read(null, 10).getCursor();
+        changeLog.append(created(1L));
+        clock.advance(Duration.ofMinutes(61));
+        assertThrows(ChangeCursorExpiredException.class, () -> changeLog.read(cursor, 10));
+    }
+
+    @Test
+    void read_cursorFromPreviousRun_throws() {
+        UserChangeLog previousRun = new UserChangeLog(new UserChangeVersions(), Clock.fixed(Instant.parse("2025-12-31T00:00:00Z"), ZoneOffset.UTC), 3, 60);
+        long oldCursor = previousRun.append(created(1L)).getSequence();
+        previousRun.shutdown();
+        assertThrows(ChangeCursorExpiredException.class, () -> changeLog.read(oldCursor, 10));
+    }
+
+    private static class MutableClock extends Clock {
+        private Instant now;
+
+        MutableClock(Instant now) {
+            this.now = now;
+        }
+
+        void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public ZoneOffset getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(java.time.ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
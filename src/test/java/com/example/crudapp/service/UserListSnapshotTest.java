@@ -0,0 +1,88 @@
+package com.example.crudapp.service;
+
+import com.example.crudapp.dto.user.UserFullView;
+import com.example.crudapp.event.UserChangeVersions;
+import com.example.crudapp.event.UserChangedEvent;
+import com.example.crudapp.model.User;
+import com.example.crudapp.repository.UserRepository;
+import com.example.crudapp.sharding.ShardedUserStore;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class UserListSnapshotTest {
+
+    @Mock
+    private UserRepository userRepository;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private UserListSnapshot snapshot;
+
+    @BeforeEach
+    void setUp() {
+        snapshot = new UserListSnapshot(userRepository, new ShardedUserStore(false, 1, 0), objectMapper,
+                new UserChangeVersions());;
+    }
+
+    private List<User> read() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        snapshot.writeTo(out);
+        return objectMapper.readValue(out.toByteArray(), new TypeReference<List<User>>() { });
+    }
+
+    @Test
+    void writeTo_emptySnapshot_writesEmptyArray() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        snapshot.writeTo(out);
+        assertEquals("[]", out.toString());
+    }
+
+    @Test
+    void rebuild_loadsUsersOrderedById() throws Exception {
+        when(userRepository.findAllBy(UserFullView.class)).thenReturn(List.of(
+                new UserFullView(2L, "Second", "second@example.com"),
+                new UserFullView(1L, "First", "first@example.com")));
+        snapshot.rebuild();
+
+        assertEquals(List.of(new User(1L, "First", "first@example.com"), new User(2L, "Second", "second@example.com")), read());
+    }
+
+    @Test
+    void onUserChanged_appliesCreatesUpdatesAndDeletes() throws Exception {
+        snapshot.onUserChanged(UserChangedEvent.created(new User(1L, "First", "first@example.com")));
+        snapshot.onUserChanged(UserChangedEvent.created(new User(2L, "Second", "second@example.com")));
+        snapshot.onUserChanged(UserChangedEvent.updated(new User(1L, "Renamed", "renamed@example.com")));
+        snapshot.onUserChanged(UserChangedEvent.deleted(2L));
+
+        assertEquals(List.of(new User(1L, "Renamed", "renamed@example.com")), read());
+        assertEquals(1, snapshot.size());
+    }
+
+    @Test
+    void put_manyUpdates_compactsAndKeepsContent() throws Exception {
+        List<User> expected = new ArrayList<>();
+        for (long id = 1; id <= 500; id++) {
+            expected.add(new User(id, "User " + id, "user" + id + "@example.com"));
+        }
+        for (int round = 0; round < 20; round++) { // far more bytes than the initial buffer holds
+            for (User user : expected) {
+                snapshot.put(user.getId(), user.getName(), user.getEmail());
+            }
+        }
+
+        assertEquals(expected, read());
+        assertTrue(snapshot.capacityBytes() < 20 * 500 * 60, "dead fragments should have been compacted away");
+    }
+}
@@ -0,0 +1,106 @@
+package com.example.crudapp.service;
+
+import com.example.crudapp.event.UserChangeVersions;
+import com.example.crudapp.event.UserChangedEvent;
+import com.example.crudapp.model.User;
+import com.example.crudapp.repository.UserRepository;
+import com.example.crudapp.sharding.ShardedUserStore;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class UserSearchIndexTest {
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private ShardedUserStore shardedUserStore;
+
+    private UserSearchIndex index;
+
+    @BeforeEach
+    void setUp() {
+        when(userRepository.findAll()).thenReturn(List.of(
+                new User(1L, "Anna Smith", "anna@example.com"),
+                new User(2L, "Hannah Jones", "hjones@example.com"),
+                new User(3L, "Ann", "ann@test.org"),
+                new User(4L, "Bob Annett", "bob@example.com")));
+        index = new UserSearchIndex(userRepository, shardedUserStore, new UserChangeVersions());
+        index.afterSingletonsInstantiated();
+    }
+
+    private static List<Long> ids(List<User> users) {
+        return users.stream().map(User::getId).toList();
+    }
+
+    @Test
+    void rebuild_readsShardsWhenShardingIsEnabled() {
+        when(shardedUserStore.isEnabled()).thenReturn(true);
+        when(shardedUserStore.findAll()).thenReturn(List.of(new User(9L, "Zoe Sharded", "zoe@example.com")));
+
+        index.rebuild();
+
+        assertEquals(List.of(9L), ids(index.search("zoe", 10)));
+        assertTrue(index.search("ann", 10).isEmpty());
+    }
+
+    @Test
+    void search_ranksExactThenPrefixThenWordPrefixThenSubstring() {
+        assertEquals(List.of(3L, 1L, 4L, 2L), ids(index.search("ann", 10)));
+    }
+
+    @Test
+    void search_isCaseInsensitiveAndMatchesEmail() {
+        assertEquals(List.of(2L), ids(index.search("HJONES@", 10)));
+    }
+
+    @Test
+    void search_respectsLimit() {
+        assertEquals(List.of(3L, 1L), ids(index.search("ann", 2)));
+    }
+
+    @Test
+    void search_shortAndUnknownQueries() {
+        assertEquals(4, index.search("a", 10).size());
+        assertTrue(index.search("zzz", 10).isEmpty());
+        assertTrue(index.search("annx", 10).isEmpty());
+    }
+
+    @Test
+    void onUserChanged_keepsIndexConsistent() {
+        index.onUserChanged(new UserChangedEvent(UserChangedEvent.Type.CREATED, 5L, "Zed", "zed@example.com"));
+        assertEquals(List.of(5L), ids(index.search("zed", 10)));
+
+        index.onUserChanged(new UserChangedEvent(UserChangedEvent.Type.UPDATED, 5L, "Zora", "zora@example.com"));
+        assertTrue(index.search("zed", 10).isEmpty());
+        assertEquals("Zora", index.search("zora", 10).get(0).getName());
+
+        index.onUserChanged(UserChangedEvent.deleted(5L));
+        assertTrue(index.search("zora", 10).isEmpty());
+        assertEquals(4, index.size());
+    }
+
+    @Test
+    void onUserChanged_dropsEventsOvertakenByNewerChanges() {
+        UserChangedEvent older = UserChangedEvent.updated(new User(1L, "Older", "older@example.com"));
+        UserChangedEvent newer = UserChangedEvent.updated(new User(1L, "Newer", "newer@example.com"));
+        index.onUserChanged(newer);
+        index.onUserChanged(older); // committed first, delivered last
+        assertEquals(List.of(1L), ids(index.search("newer", 10)));
+        assertTrue(index.search("older", 10).isEmpty());
+
+        UserChangedEvent update = UserChangedEvent.updated(new User(2L, "Hannah", "hannah@example.com"));
+        index.onUserChanged(UserChangedEvent.deleted(2L));
+        index.onUserChanged(update);
+        assertTrue(index.search("hannah", 10).isEmpty());
+    }
+}
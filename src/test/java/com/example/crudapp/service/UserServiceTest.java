@@ -1,16 +1,30 @@
 package com.example.crudapp.service;
 
+import com.example.crudapp.dto.user.UserCreationStatusDto;
+import com.example.crudapp.dto.user.UserNameView;
+import com.example.crudapp.dto.user.UserStatsDto;
+import com.example.crudapp.dto.user.UserUpsertResultDto;
+import com.example.crudapp.event.UserChangedEvent;
+import com.example.crudapp.exception.UserNotFoundException;
 import com.example.crudapp.model.User;
 import com.example.crudapp.repository.UserRepository;
+import com.example.crudapp.sharding.ShardedUserStore;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.util.ArrayList;
+import java.io.ByteArrayOutputStream;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -24,6 +38,30 @@ public class UserServiceTest {
     @Mock
     private UserRepository userRepository;
 
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    private UserSearchIndex userSearchIndex;
+
+    @Mock
+    private UserListSnapshot userListSnapshot;
+
+    @Mock
+    private UserStatistics userStatistics;
+
+    @Mock
+    private UserIdReserver userIdReserver;
+
+    @Mock
+    private UserWriteBehindQueue writeBehindQueue;
+
+    @Mock
+    private ShardedUserStore shardedUserStore;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
     @InjectMocks
     private UserService userService;
 
@@ -38,11 +76,12 @@ public class UserServiceTest {
     // Test createUser
     @Test
     void createUser_success() {
-        when(userRepository.save(any(User.class))).thenReturn(user);
+        when(userRepository.saveAndFlush(any(User.class))).thenReturn(user);
         User created = userService.createUser(new User("Test User", "test@example.com"));
         assertNotNull(created);
         assertEquals("Test User", created.getName());
-        verify(userRepository, times(1)).save(any(User.class));
+        verify(userRepository, times(1)).saveAndFlush(any(User.class));
+        verify(eventPublisher, never()).publishEvent(any()); // published by UserChangePublisher
     }
 
     @Test
@@ -89,6 +128,45 @@ public class UserServiceTest {
         assertEquals("User email cannot be null or empty.", exception.getMessage());
     }
 
+    // Test createUserAsync
+    @Test
+    void createUserAsync_success() {
+        when(writeBehindQueue.isEnabled()).thenReturn(true);
+        when(userIdReserver.reserve()).thenReturn(42L);
+        User accepted = userService.createUserAsync(new User("Test User", "test@example.com"));
+        assertEquals(42L, accepted.getId());
+        verify(writeBehindQueue, times(1)).enqueue(accepted);
+        verify(userRepository, never()).saveAndFlush(any(User.class));
+    }
+
+    @Test
+    void createUserAsync_invalidUser_notQueued() {
+        assertThrows(IllegalArgumentException.class, () -> {
+            userService.createUserAsync(new User(" ", "test@example.com"));
+        });
+        verify(writeBehindQueue, never()).enqueue(any(User.class));
+    }
+
+    @Test
+    void createUserAsync_disabled_throwsIllegalStateException() {
+        when(writeBehindQueue.isEnabled()).thenReturn(false);
+        assertThrows(IllegalStateException.class, () -> {
+            userService.createUserAsync(new User("Test User", "test@example.com"));
+        });
+        verify(userIdReserver, never()).reserve();
+    }
+
+    @Test
+    void getCreationStatus_pendingFailedCreatedUnknown() {
+        when(writeBehindQueue.isPending(1L)).thenReturn(true);
+        when(writeBehindQueue.getFailure(2L)).thenReturn("constraint violation");
+        when(userRepository.existsById(3L)).thenReturn(true);
+        assertEquals(UserCreationStatusDto.Status.PENDING, userService.getCreationStatus(1L).get().getStatus());
+        assertEquals(UserCreationStatusDto.Status.FAILED, userService.getCreationStatus(2L).get().getStatus());
+        assertEquals(UserCreationStatusDto.Status.CREATED, userService.getCreationStatus(3L).get().getStatus());
+        assertFalse(userService.getCreationStatus(4L).isPresent());
+    }
+
     // Test getAllUsers
     @Test
     void getAllUsers_success() {
@@ -107,6 +185,15 @@ public class UserServiceTest {
         verify(userRepository, times(1)).findAll();
     }
 
+    @Test
+    void getAllUsers_projection() {
+        UserNameView view = new UserNameView(1L, "Test User");
+        when(userRepository.findAllBy(UserNameView.class)).thenReturn(Collections.singletonList(view));
+        List<UserNameView> users = userService.getAllUsers(UserNameView.class);
+        assertEquals(Collections.singletonList(view), users);
+        verify(userRepository, never()).findAll();
+    }
+
     // Test getUserById
     @Test
     void getUserById_success() {
@@ -133,12 +220,20 @@ public class UserServiceTest {
         assertEquals("User ID cannot be null.", exception.getMessage());
     }
 
+    @Test
+    void getUserById_projection() {
+        UserNameView view = new UserNameView(1L, "Test User");
+        when(userRepository.findProjectedById(1L, UserNameView.class)).thenReturn(Optional.of(view));
+        assertEquals(Optional.of(view), userService.getUserById(1L, UserNameView.class));
+        verify(userRepository, never()).findById(anyLong());
+    }
+
     // Test updateUser
     @Test
     void updateUser_success() {
         User userDetails = new User("Updated Name", "updated@example.com");
         when(userRepository.findById(1L)).thenReturn(Optional.of(user));
-        when(userRepository.save(any(User.class))).thenReturn(user); // mock save returning the updated user
+        when(userRepository.saveAndFlush(any(User.class))).thenReturn(user); // mock save returning the updated user
 
         User updatedUser = userService.updateUser(1L, userDetails);
 
@@ -146,7 +241,7 @@ public class UserServiceTest {
         assertEquals("Updated Name", updatedUser.getName());
         assertEquals("updated@example.com", updatedUser.getEmail());
         verify(userRepository, times(1)).findById(1L);
-        verify(userRepository, times(1)).save(user);
+        verify(userRepository, times(1)).saveAndFlush(user);
     }
 
     @Test
@@ -203,15 +298,15 @@ public class UserServiceTest {
     }
 
     @Test
-    void updateUser_userNotFound_throwsRuntimeException() {
+    void updateUser_userNotFound_throwsUserNotFoundException() {
         User userDetails = new User("Updated Name", "updated@example.com");
         when(userRepository.findById(anyLong())).thenReturn(Optional.empty());
-        Exception exception = assertThrows(RuntimeException.class, () -> {
+        Exception exception = assertThrows(UserNotFoundException.class, () -> {
             userService.updateUser(1L, userDetails);
         });
         assertTrue(exception.getMessage().contains("User not found with id "));
         verify(userRepository, times(1)).findById(1L);
-        verify(userRepository, never()).save(any(User.class));
+        verify(userRepository, never()).saveAndFlush(any(User.class));
     }
 
     // Test deleteUser
@@ -222,6 +317,8 @@ public class UserServiceTest {
         userService.deleteUser(1L);
         verify(userRepository, times(1)).existsById(1L);
         verify(userRepository, times(1)).deleteById(1L);
+        verify(userRepository, times(1)).flush();
+        verify(eventPublisher, never()).publishEvent(any()); // published by UserChangePublisher
     }
 
     @Test
@@ -233,13 +330,177 @@ public class UserServiceTest {
     }
 
     @Test
-    void deleteUser_userNotFound_throwsRuntimeException() {
+    void deleteUser_userNotFound_throwsUserNotFoundException() {
         when(userRepository.existsById(1L)).thenReturn(false);
-        Exception exception = assertThrows(RuntimeException.class, () -> {
+        Exception exception = assertThrows(UserNotFoundException.class, () -> {
             userService.deleteUser(1L);
         });
         assertTrue(exception.getMessage().contains("User not found with id "));
         verify(userRepository, times(1)).existsById(1L);
         verify(userRepository, never()).deleteById(anyLong());
     }
+
+    // Test writeAllUsers
+    @Test
+    void writeAllUsers_servesSnapshot() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        when(userListSnapshot.writeTo(out)).thenReturn(2);
+        assertEquals(2, userService.writeAllUsers(out));
+        verifyNoInteractions(userRepository);
+    }
+
+    // Test getStats
+    @Test
+    void getStats_servesInMemoryStatistics() {
+        UserStatsDto stats = new UserStatsDto(3, 1, Map.of("example.com", 3L), 60, List.of());
+        when(userStatistics.getStats(20)).thenReturn(stats);
+        assertSame(stats, userService.getStats(20));
+        verifyNoInteractions(userRepository);
+    }
+
+    // Test sharded storage
+    @Test
+    void createUser_sharded_insertsIntoShardedStore() {
+        when(shardedUserStore.isEnabled()).thenReturn(true);
+        when(shardedUserStore.insert(any(User.class))).thenReturn(user);
+        assertEquals(user, userService.createUser(new User("Test User", "test@example.com")));
+        verify(userRepository, never()).saveAndFlush(any(User.class));
+        verify(eventPublisher, times(1)).publishEvent(UserChangedEvent.created(user));
+    }
+
+    @Test
+    void deleteUser_sharded_userNotFound_throwsUserNotFoundException() {
+        when(shardedUserStore.isEnabled()).thenReturn(true);
+        when(shardedUserStore.delete(1L)).thenReturn(false);
+        assertThrows(UserNotFoundException.class, () -> userService.deleteUser(1L));
+        verify(userRepository, never()).existsById(anyLong());
+        verify(eventPublisher, never()).publishEvent(any());
+    }
+
+    @Test
+    void updateUser_sharded_updatesWithoutReading() {
+        when(shardedUserStore.isEnabled()).thenReturn(true);
+        when(shardedUserStore.update(any(User.class))).thenReturn(true);
+        User updatedUser = userService.updateUser(1L, new User("Updated Name", "updated@example.com"));
+        assertEquals(new User(1L, "Updated Name", "updated@example.com"), updatedUser);
+        verify(shardedUserStore, never()).findById(anyLong());
+        verify(eventPublisher, times(1)).publishEvent(UserChangedEvent.updated(updatedUser));
+    }
+
+    @Test
+    void updateUser_sharded_userNotFound_throwsUserNotFoundException() {
+        when(shardedUserStore.isEnabled()).thenReturn(true);
+        when(shardedUserStore.update(any(User.class))).thenReturn(false);
+        assertThrows(UserNotFoundException.class, () -> userService.updateUser(1L, new User("Updated Name", "updated@example.com")));
+        verify(eventPublisher, never()).publishEvent(any());
+    }
+
+    @Test
+    void countUsers_sharded_countsShards() {
+        when(shardedUserStore.isEnabled()).thenReturn(true);
+        when(shardedUserStore.count()).thenReturn(42L);
+        assertEquals(42L, userService.countUsers());
+        verify(userRepository, never()).count();
+    }
+
+    @Test
+    void createUserAsync_sharded_throwsIllegalStateException() {
+        when(writeBehindQueue.isEnabled()).thenReturn(true);
+        when(shardedUserStore.isEnabled()).thenReturn(true);
+        assertThrows(IllegalStateException.class, () -> userService.createUserAsync(new User("Test User", "test@example.com")));
+        verify(writeBehindQueue, never()).enqueue(any(User.class));
+    }
+
+    // Test searchUsers
+    @Test
+    void searchUsers_success() {
+        when(userSearchIndex.search("test", 20)).thenReturn(Collections.singletonList(user));
+        List<User> users = userService.searchUsers("test", 20);
+        assertEquals(1, users.size());
+        verify(userSearchIndex, times(1)).search("test", 20);
+        verifyNoInteractions(userRepository);
+    }
+
+    @Test
+    void searchUsers_limitIsCapped() {
+        when(userSearchIndex.search("test", 100)).thenReturn(Collections.emptyList());
+        userService.searchUsers("test", 10_000);
+        verify(userSearchIndex, times(1)).search("test", 100);
+    }
+
+    @Test
+    void searchUsers_emptyQuery_throwsIllegalArgumentException() {
+        Exception exception = assertThrows(IllegalArgumentException.class, () -> {
+            userService.searchUsers(" ", 20);
+        });
+        assertEquals("Search query cannot be null or empty.", exception.getMessage());
+    }
+
+    // Test upsertUsersByEmail
+    private void runTransactionCallbacks() {
+        when(transactionTemplate.execute(any())).thenAnswer(invocation ->
+                invocation.<TransactionCallback<?>>getArgument(0).doInTransaction(null));
+    }
+
+    @Test
+    void upsertUsersByEmail_reportsCreatedAndUpdatedUsers() {
+        runTransactionCallbacks();
+        when(userIdReserver.reserve()).thenReturn(100L, 101L);
+        List<Object[]> rows = new ArrayList<>();
+        rows.add(new Object[]{7L, "old@example.com"}); // existing user keeps its ID
+        rows.add(new Object[]{101L, "new@example.com"});
+        when(userRepository.upsertAllByEmail(any(), any(), any())).thenReturn(rows);
+
+        List<UserUpsertResultDto> results = userService.upsertUsersByEmail(List.of(
+                new User("Old", "old@example.com"), new User("New", "new@example.com")));
+
+        assertEquals(List.of(new UserUpsertResultDto(7L, "Old", "old@example.com", false),
+                new UserUpsertResultDto(101L, "New", "new@example.com", true)), results);
+        verify(eventPublisher).publishEvent(UserChangedEvent.updated(new User(7L, "Old", "old@example.com")));
+        verify(eventPublisher).publishEvent(UserChangedEvent.created(new User(101L, "New", "new@example.com")));
+    }
+
+    @Test
+    void upsertUsersByEmail_lastOccurrenceOfEmailWins() {
+        runTransactionCallbacks();
+        when(userIdReserver.reserve()).thenReturn(100L);
+        List<Object[]> rows = new ArrayList<>();
+        rows.add(new Object[]{100L, "test@example.com"});
+        when(userRepository.upsertAllByEmail(any(), any(), any())).thenReturn(rows);
+
+        List<UserUpsertResultDto> results = userService.upsertUsersByEmail(List.of(
+                new User("First", "test@example.com"), new User("Second", "test@example.com")));
+
+        assertEquals(1, results.size());
+        assertEquals("Second", results.get(0).getName());
+        verify(userRepository).upsertAllByEmail(new Long[]{100L}, new String[]{"Second"}, new String[]{"test@example.com"});
+    }
+
+    @Test
+    void upsertUsersByEmail_retriesOnceAfterConcurrentInsert() {
+        runTransactionCallbacks();
+        when(userIdReserver.reserve()).thenReturn(100L, 101L);
+        List<Object[]> rows = new ArrayList<>();
+        rows.add(new Object[]{100L, "test@example.com"}); // inserted by the concurrent writer
+        when(userRepository.upsertAllByEmail(any(), any(), any()))
+                .thenThrow(new DataIntegrityViolationException("users_email_unique"))
+                .thenReturn(rows);
+
+        List<UserUpsertResultDto> results = userService.upsertUsersByEmail(List.of(new User("Test User", "test@example.com")));
+
+        assertFalse(results.get(0).isCreated());
+        verify(userRepository, times(2)).upsertAllByEmail(any(), any(), any());
+    }
+
+    @Test
+    void upsertUsersByEmail_invalidBatch_throwsIllegalArgumentException() {
+        assertThrows(IllegalArgumentException.class, () -> userService.upsertUsersByEmail(List.of()));
+        assertThrows(IllegalArgumentException.class, () -> userService.upsertUsersByEmail(List.of(new User("No Email", null))));
+        List<User> tooMany = new ArrayList<>();
+        for (int i = 0; i <= 1000; i++) {
+            tooMany.add(new User("User " + i, "user" + i + "@example.com"));
+        }
+        assertThrows(IllegalArgumentException.class, () -> userService.upsertUsersByEmail(tooMany));
+        verifyNoInteractions(userRepository, transactionTemplate);
+    }
 }
@@ -0,0 +1,128 @@
+package com.example.crudapp.service;
+
+import com.example.crudapp.event.UserChangedEvent;
+import com.example.crudapp.model.User;
+import com.example.crudapp.replication.ReplicaSynchronizer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class UserSnapshotFileTest {
+
+    @TempDir
+    Path directory;
+
+    private final List<SingleConnectionDataSource> databases = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() {
+        databases.forEach(SingleConnectionDataSource::destroy);
+    }
+
+    // A fresh in-memory database with the application schema
+    private JdbcTemplate newDatabase() {
+        SingleConnectionDataSource dataSource = new SingleConnectionDataSource(
+                "jdbc:h2:mem:snapshot_" + UUID.randomUUID(), "sa", "", true);
+        databases.add(dataSource);
+        new ResourceDatabasePopulator(new ClassPathResource("db/schema.sql")).execute(dataSource);
+        return new JdbcTemplate(dataSource);
+    }
+
+    private UserSnapshotFile snapshotFile(JdbcTemplate database) {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(database.getDataSource()));
+        return new UserSnapshotFile(database, transactionTemplate,
+                new StaticListableBeanFactory().getBeanProvider(ReplicaSynchronizer.class), Clock.systemUTC(),
+                new SimpleMeterRegistry(), true, directory.resolve("users.snapshot"), 1000, 0.5);
+    }
+
+    private static List<String> users(JdbcTemplate database) {
+        return database.query("SELECT id, name, email FROM users ORDER BY id",
+                (rs, rowNum) -> rs.getLong(1) + "," + rs.getString(2) + "," + rs.getString(3));
+    }
+
+    @Test
+    void restore_appliesDeltaOnTopOfBase() {
+        JdbcTemplate source = newDatabase();
+        UserSnapshotFile writer = snapshotFile(source);
+        for (long id = 1; id <= 100; id++) {
+            source.update("INSERT INTO users (id, name, email) VALUES (?, ?, ?)", id, "User " + id, "user" + id + "@example.com");
+        }
+        writer.snapshot(); // base
+
+        source.update("UPDATE users SET name = 'Zoë' WHERE id = 1");
+        source.update("DELETE FROM users WHERE id = 2");
+        source.update("INSERT INTO users (id, name, email) VALUES (500, NULL, 'new@example.com')");
+        writer.onUserChanged(UserChangedEvent.updated(new User(1L, "Zoë", "user1@example.com")));
+        writer.onUserChanged(UserChangedEvent.deleted(2L));
+        writer.onUserChanged(UserChangedEvent.created(new User(500L, null, "new@example.com")));
+        assertEquals(3, writer.getPendingCount());
+        writer.snapshot(); // delta
+        assertEquals(0, writer.getPendingCount());
+
+        JdbcTemplate target = newDatabase();
+        assertEquals(100, snapshotFile(target).restore());
+        assertEquals(users(source), users(target));
+        assertTrue(target.queryForObject("SELECT NEXT VALUE FOR users_seq", Long.class) > 500);
+    }
+
+    @Test
+    void restore_ignoresTornDeltaFrame() throws IOException {
+        JdbcTemplate source = newDatabase();
+        UserSnapshotFile writer = snapshotFile(source);
+        source.update("INSERT INTO users (id, name, email) VALUES (1, 'Before', 'test@example.com')");
+        writer.snapshot();
+        source.update("UPDATE users SET name = 'After' WHERE id = 1");
+        writer.onUserChanged(UserChangedEvent.updated(new User(1L, "After", "test@example.com")));
+        writer.snapshot();
+
+        Path delta = directory.resolve("users.snapshot.delta");
+        try (FileChannel channel = FileChannel.open(delta, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 3); // as if the process died while appending
+        }
+
+        JdbcTemplate target = newDatabase();
+        assertEquals(1, snapshotFile(target).restore());
+        assertEquals(List.of("1,Before,test@example.com"), users(target));
+    }
+
+    @Test
+    void restore_setsCorruptBaseAside() throws IOException {
+        Files.write(directory.resolve("users.snapshot"), new byte[]{1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15});
+
+        JdbcTemplate target = newDatabase();
+        assertEquals(0, snapshotFile(target).restore());
+        assertTrue(users(target).isEmpty());
+        assertTrue(Files.exists(directory.resolve("users.snapshot.corrupt")));
+        assertFalse(Files.exists(directory.resolve("users.snapshot")));
+    }
+
+    @Test
+    void restore_leavesNonEmptyTableAlone() {
+        JdbcTemplate source = newDatabase();
+        source.update("INSERT INTO users (id, name, email) VALUES (1, 'Snapshotted', 'test@example.com')");
+        snapshotFile(source).snapshot();
+
+        assertEquals(0, snapshotFile(source).restore());
+        assertEquals(List.of("1,Snapshotted,test@example.com"), users(source));
+    }
+}
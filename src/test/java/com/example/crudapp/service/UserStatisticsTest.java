@@ -0,0 +1,134 @@
+package com.example.crudapp.service;
+
+import com.example.crudapp.dto.user.UserCreationBucketDto;
+import com.example.crudapp.dto.user.UserEmailView;
+import com.example.crudapp.dto.user.UserStatsDto;
+import com.example.crudapp.event.UserChangeVersions;
+import com.example.crudapp.event.UserChangedEvent;
+import com.example.crudapp.model.User;
+import com.example.crudapp.repository.UserRepository;
+import com.example.crudapp.sharding.ShardedUserStore;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class UserStatisticsTest {
+
+    private static final Instant START = Instant.parse("2026-01-01T00:00:00Z");
+
+    private MutableClock clock;
+    private UserRepository userRepository;
+    private ShardedUserStore shardedUserStore;
+    private UserStatistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        clock = new MutableClock(START);
+        userRepository = mock(UserRepository.class);
+        shardedUserStore = mock(ShardedUserStore.class);
+        when(userRepository.findAllBy(UserEmailView.class)).thenReturn(List.of(
+                new UserEmailView(1L, "ann@example.com"),
+                new UserEmailView(2L, "bob@Example.COM"),
+                new UserEmailView(3L, "cy@other.org")));
+        statistics = new UserStatistics(userRepository, shardedUserStore, new UserChangeVersions(), clock, 60, 3);
+        statistics.afterSingletonsInstantiated();
+    }
+
+    @Test
+    void getStats_countsUsersPerDomainLargestFirst() {
+        UserStatsDto stats = statistics.getStats(10);
+        assertEquals(3, stats.getTotalUsers());
+        assertEquals(2, stats.getEmailDomainCount());
+        assertEquals(List.of(Map.entry("example.com", 2L), Map.entry("other.org", 1L)),
+                List.copyOf(stats.getUsersByEmailDomain().entrySet()));
+
+        UserStatsDto top = statistics.getStats(1);
+        assertEquals(Map.of("example.com", 2L), top.getUsersByEmailDomain());
+        assertEquals(2, top.getEmailDomainCount());
+    }
+
+    @Test
+    void rebuild_readsShardsWhenShardingIsEnabled() {
+        when(shardedUserStore.isEnabled()).thenReturn(true);
+        when(shardedUserStore.findAll(UserEmailView.class)).thenReturn(List.of(new UserEmailView(9L, "zoe@shard.io")));
+
+        statistics.rebuild();
+
+        UserStatsDto stats = statistics.getStats(10);
+        assertEquals(1, stats.getTotalUsers());
+        assertEquals(Map.of("shard.io", 1L), stats.getUsersByEmailDomain());
+    }
+
+    @Test
+    void onUserChanged_followsCreatesUpdatesAndDeletes() {
+        statistics.onUserChanged(UserChangedEvent.created(new User(4L, "Di", "di@other.org")));
+        statistics.onUserChanged(UserChangedEvent.updated(new User(1L, "Ann", "ann@new.net"))); // moves domain
+        statistics.onUserChanged(UserChangedEvent.updated(new User(4L, "Dee", "di@other.org"))); // same domain
+        statistics.onUserChanged(UserChangedEvent.deleted(2L));
+        statistics.onUserChanged(UserChangedEvent.deleted(2L)); // already gone
+
+        UserStatsDto stats = statistics.getStats(10);
+        assertEquals(3, stats.getTotalUsers());
+        assertEquals(Map.of("other.org", 2L, "new.net", 1L), stats.getUsersByEmailDomain());
+        verify(userRepository, times(1)).findAllBy(UserEmailView.class);
+    }
+
+    @Test
+    void getStats_countsCreationsPerBucket() {
+        statistics.onUserChanged(UserChangedEvent.created(new User(4L, "Di", "di@example.com")));
+        clock.advance(Duration.ofSeconds(61));
+        statistics.onUserChanged(UserChangedEvent.created(new User(5L, "Ed", "ed@example.com")));
+        statistics.onUserChanged(UserChangedEvent.created(new User(6L, "Flo", "flo@example.com")));
+
+        UserStatsDto stats = statistics.getStats(10);
+        assertEquals(60, stats.getBucketSeconds());
+        long minute = 60_000;
+        assertEquals(List.of(
+                new UserCreationBucketDto(START.toEpochMilli() - minute, 0),
+                new UserCreationBucketDto(START.toEpochMilli(), 1),
+                new UserCreationBucketDto(START.toEpochMilli() + minute, 2)), stats.getCreations());
+
+        clock.advance(Duration.ofMinutes(2)); // the first two buckets expire
+        assertEquals(List.of(2L, 0L, 0L), counts(statistics.getStats(10).getCreations()));
+    }
+
+    private static List<Long> counts(List<UserCreationBucketDto> buckets) {
+        return buckets.stream().map(UserCreationBucketDto::getCount).toList();
+    }
+
+    private static class MutableClock extends Clock {
+        private Instant now;
+
+        MutableClock(Instant now) {
+            this.now = now;
+        }
+
+        void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public ZoneOffset getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(java.time.ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
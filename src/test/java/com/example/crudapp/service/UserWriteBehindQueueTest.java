@@ -0,0 +1,64 @@
+package com.example.crudapp.service;
+
+import com.example.crudapp.event.UserChangedEvent;
+import com.example.crudapp.model.User;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class UserWriteBehindQueueTest {
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    private UserWriteBehindQueue queue;
+
+    @BeforeEach
+    void setUp() {
+        when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+        queue = new UserWriteBehindQueue(jdbcTemplate, new TransactionTemplate(transactionManager), eventPublisher,
+                new SimpleMeterRegistry(), true, 10, 10, 10, 100);
+    }
+
+    @Test
+    void flush_versionsCreatedEventBeforeUpdateCommittingRightAfterInsert() {
+        // A PUT to the reserved ID waits for the insert's row lock and creates its event once the insert commits
+        AtomicReference<UserChangedEvent> update = new AtomicReference<>();
+        doAnswer(invocation -> {
+            update.set(UserChangedEvent.updated(new User(1L, "Renamed", "renamed@example.com")));
+            return null;
+        }).when(transactionManager).commit(any());
+
+        queue.start();
+        queue.enqueue(new User(1L, "Queued", "queued@example.com"));
+        queue.stop();
+
+        ArgumentCaptor<UserChangedEvent> published = ArgumentCaptor.forClass(UserChangedEvent.class);
+        verify(eventPublisher).publishEvent(published.capture());
+        assertEquals(UserChangedEvent.Type.CREATED, published.getValue().getType());
+        assertTrue(published.getValue().getVersion() < update.get().getVersion());
+        assertFalse(queue.isPending(1L));
+    }
+}
@@ -0,0 +1,129 @@
+package com.example.crudapp.service;
+
+import com.example.crudapp.dto.weather.DailyWeatherReportDto;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+public class WeatherForecastStreamsTest {
+
+    private WeatherService weatherService;
+    private ScheduledExecutorService scheduler;
+    private ScheduledFuture<Object> refreshLoop;
+    private WeatherForecastStreams streams;
+
+    @BeforeEach
+    void setUp() {
+        weatherService = mock(WeatherService.class);
+        scheduler = mock(ScheduledExecutorService.class);
+        refreshLoop = mock();
+        doReturn(refreshLoop).when(scheduler).scheduleWithFixedDelay(any(), anyLong(), anyLong(), any());
+        // Refreshes are triggered by the tests instead of the scheduler
+        streams = new WeatherForecastStreams(weatherService, scheduler, 60_000);
+    }
+
+    private static List<DailyWeatherReportDto> forecast(double maxTemperature) {
+        return List.of(new DailyWeatherReportDto("2026-01-01", 1.0, maxTemperature, "clear sky", 0.1, "Celsius"));
+    }
+
+    // Records the events it is sent, or fails every send once disconnected
+    private static class RecordingEmitter extends SseEmitter {
+        final List<SseEventBuilder> events = new ArrayList<>();
+        boolean disconnected;
+
+        @Override
+        public void send(SseEventBuilder builder) throws IOException {
+            if (disconnected) {
+                throw new IOException("Broken pipe");
+            }
+            events.add(builder);
+        }
+    }
+
+    @Test
+    void subscribe_sharesOneRefreshLoopPerZipcode() {
+        streams.subscribe("12345", new RecordingEmitter());
+        streams.subscribe("12345", new RecordingEmitter());
+        streams.subscribe("54321", new RecordingEmitter());
+
+        verify(scheduler, times(2)).scheduleWithFixedDelay(any(), eq(0L), eq(60_000L), eq(TimeUnit.MILLISECONDS));
+        assertEquals(2, streams.subscriberCount("12345"));
+        assertEquals(2, streams.activeZipcodeCount());
+    }
+
+    @Test
+    void refresh_pushesOnlyWhenForecastChanges() {
+        RecordingEmitter first = new RecordingEmitter();
+        RecordingEmitter second = new RecordingEmitter();
+        streams.subscribe("12345", first);
+        streams.subscribe("12345", second);
+        when(weatherService.getSevenDayForecast("12345")).thenReturn(forecast(20.0), forecast(20.0), forecast(22.0));
+
+        streams.refresh("12345");
+        streams.refresh("12345");
+        streams.refresh("12345");
+
+        verify(weatherService, times(3)).getSevenDayForecast("12345");
+        assertEquals(2, first.events.size());
+        assertEquals(2, second.events.size());
+    }
+
+    @Test
+    void subscribe_sendsLatestForecastToNewSubscriber() {
+        streams.subscribe("12345", new RecordingEmitter());
+        when(weatherService.getSevenDayForecast("12345")).thenReturn(forecast(20.0));
+        streams.refresh("12345");
+
+        RecordingEmitter late = new RecordingEmitter();
+        streams.subscribe("12345", late);
+
+        assertEquals(1, late.events.size());
+        verify(weatherService, times(1)).getSevenDayForecast("12345");
+    }
+
+    @Test
+    void refresh_keepsPreviousForecastWhenUpstreamFails() {
+        RecordingEmitter emitter = new RecordingEmitter();
+        streams.subscribe("12345", emitter);
+        when(weatherService.getSevenDayForecast("12345"))
+                .thenReturn(forecast(20.0))
+                .thenThrow(new RuntimeException("Error fetching weather data: 503"))
+                .thenReturn(forecast(20.0));
+
+        streams.refresh("12345");
+        streams.refresh("12345");
+        streams.refresh("12345");
+
+        assertEquals(1, emitter.events.size());
+        assertEquals(1, streams.subscriberCount("12345"));
+    }
+
+    @Test
+    void refresh_stopsLoopWhenLastSubscriberDisconnects() {
+        RecordingEmitter emitter = new RecordingEmitter();
+        streams.subscribe("12345", emitter);
+        when(weatherService.getSevenDayForecast("12345")).thenReturn(forecast(20.0), forecast(22.0));
+        streams.refresh("12345");
+
+        emitter.disconnected = true;
+        streams.refresh("12345");
+
+        verify(refreshLoop).cancel(false);
+        assertEquals(0, streams.activeZipcodeCount());
+        streams.refresh("12345");
+        verify(weatherService, times(2)).getSevenDayForecast("12345");
+    }
+}
@@ -0,0 +1,218 @@
+package com.example.crudapp.service;
+
+import com.example.crudapp.diagnostics.StatementCountingInspector;
+import com.example.crudapp.dto.weather.CurrentWeatherReportDto;
+import com.example.crudapp.dto.weather.ForecastPart;
+import com.example.crudapp.dto.weather.WeatherForecastDto;
+import com.example.crudapp.exception.ZipcodeNotFoundException;
+import com.example.crudapp.tracing.CompletedTrace;
+import com.example.crudapp.tracing.RequestTrace;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class WeatherProviderRouterTest {
+
+    private static final Set<ForecastPart> CURRENT = EnumSet.of(ForecastPart.CURRENT);
+
+    private MeterRegistry meterRegistry;
+    private ExecutorService executor;
+    private final List<String> calls = new ArrayList<>();
+
+    // A local provider answering with its name as the weather description, after an optional delay
+    private class StubProvider implements WeatherProvider {
+        final String name;
+        final long delayMs;
+        final RuntimeException failure;
+        final CountDownLatch release;
+
+        StubProvider(String name, long delayMs, RuntimeException failure, CountDownLatch release) {
+            this.name = name;
+            this.delayMs = delayMs;
+            this.failure = failure;
+            this.release = release;
+        }
+
+        @Override
+        public String getName() {
+            return name;
+        }
+
+        @Override
+        public WeatherForecastDto getForecast(String zipcode, Set<ForecastPart> parts) {
+            synchronized (calls) {
+                calls.add(name);
+            }
+            try {
+                if (release != null) {
+                    release.await(5, TimeUnit.SECONDS);
+                }
+                Thread.sleep(delayMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            if (failure != null) {
+                throw failure;
+            }
+            CurrentWeatherReportDto current = new CurrentWeatherReportDto();
+            current.setWeatherDescription(name);
+            return new WeatherForecastDto(current, null, null);
+        }
+    }
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        executor = Executors.newCachedThreadPool();
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    private WeatherProviderRouter router(WeatherProviderRouter.Strategy strategy, int probeEvery, WeatherProvider... providers) {
+        return new WeatherProviderRouter(List.of(providers), meterRegistry, strategy, probeEvery, executor);
+    }
+
+    private static String answeredBy(WeatherForecastDto forecast) {
+        return forecast.getCurrent().getWeatherDescription();
+    }
+
+    private double wins(String provider) {
+        return meterRegistry.get("weather.providers.wins").tag("provider", provider).counter().count();
+    }
+
+    @Test
+    void fastest_measuresEveryProviderThenPrefersLowestLatency() {
+        WeatherProviderRouter router = router(WeatherProviderRouter.Strategy.FASTEST, 0,
+                new StubProvider("slow", 30, null, null), new StubProvider("fast", 0, null, null));
+
+        assertEquals("slow", answeredBy(router.getForecast("10001", CURRENT))); // unmeasured providers are tried in order
+        assertEquals("fast", answeredBy(router.getForecast("10001", CURRENT)));
+        assertEquals("fast", answeredBy(router.getForecast("10001", CURRENT)));
+
+        assertEquals(List.of("fast", "slow"), router.getProviderOrder());
+        assertEquals(2.0, wins("fast"));
+    }
+
+    @Test
+    void fastest_fallsBackToNextProviderOnFailure() {
+        WeatherProviderRouter router = router(WeatherProviderRouter.Strategy.FASTEST, 0,
+                new StubProvider("broken", 0, new IllegalStateException("down"), null), new StubProvider("backup", 0, null, null));
+
+        assertEquals("backup", answeredBy(router.getForecast("10001", CURRENT)));
+        assertEquals(List.of("broken", "backup"), calls);
+        assertEquals(1.0, meterRegistry.get("weather.providers.failures").tag("provider", "broken").counter().count());
+        assertEquals(List.of("backup", "broken"), router.getProviderOrder()); // the failure counts as a very slow call
+    }
+
+    @Test
+    void fastest_rethrowsFirstFailureWhenAllProvidersFail() {
+        WeatherProviderRouter router = router(WeatherProviderRouter.Strategy.FASTEST, 0,
+                new StubProvider("a", 0, new IllegalStateException("a down"), null),
+                new StubProvider("b", 0, new IllegalStateException("b down"), null));
+
+        IllegalStateException failure = assertThrows(IllegalStateException.class, () -> router.getForecast("10001", CURRENT));
+        assertEquals("a down", failure.getMessage());
+    }
+
+    @Test
+    void fastest_doesNotFallBackForUnknownZipcode() {
+        WeatherProviderRouter router = router(WeatherProviderRouter.Strategy.FASTEST, 0,
+                new StubProvider("a", 0, new ZipcodeNotFoundException("99999"), null), new StubProvider("b", 0, null, null));
+
+        assertThrows(ZipcodeNotFoundException.class, () -> router.getForecast("99999", CURRENT));
+        assertEquals(List.of("a"), calls);
+    }
+
+    @Test
+    void fastest_periodicallyProbesOtherProviders() {
+        WeatherProviderRouter router = router(WeatherProviderRouter.Strategy.FASTEST, 3,
+                new StubProvider("fast", 0, null, null), new StubProvider("slow", 30, null, null));
+        router.getForecast("10001", CURRENT); // fast
+        router.getForecast("10001", CURRENT); // slow, still unmeasured
+        calls.clear();
+
+        router.getForecast("10001", CURRENT); // third request: probe
+        router.getForecast("10001", CURRENT);
+
+        assertEquals(List.of("slow", "fast"), calls);
+    }
+
+    @Test
+    void race_returnsFirstSuccessfulResponse() {
+        CountDownLatch release = new CountDownLatch(1);
+        WeatherProviderRouter router = router(WeatherProviderRouter.Strategy.RACE, 0,
+                new StubProvider("stuck", 0, null, release), new StubProvider("quick", 0, null, null));
+
+        assertEquals("quick", answeredBy(router.getForecast("10001", CURRENT)));
+        release.countDown();
+        assertEquals(1.0, wins("quick"));
+    }
+
+    @Test
+    void race_ignoresFailureWhenAnotherProviderSucceeds() {
+        WeatherProviderRouter router = router(WeatherProviderRouter.Strategy.RACE, 0,
+                new StubProvider("broken", 0, new IllegalStateException("down"), null), new StubProvider("ok", 20, null, null));
+
+        assertEquals("ok", answeredBy(router.getForecast("10001", CURRENT)));
+    }
+
+    @Test
+    void race_accountsProviderCallsToCallersTraceAndStatementCount() throws InterruptedException {
+        CountDownLatch finished = new CountDownLatch(2);
+        // Opens a span and prepares a statement, as a provider backed by a traced client or a database would
+        class TracedProvider extends StubProvider {
+            TracedProvider(String name) {
+                super(name, 0, null, null);
+            }
+
+            @Override
+            public WeatherForecastDto getForecast(String zipcode, Set<ForecastPart> parts) {
+                try (RequestTrace.Span span = RequestTrace.span(name)) {
+                    new StatementCountingInspector().inspect("select 1");
+                    return super.getForecast(zipcode, parts);
+                } finally {
+                    finished.countDown();
+                }
+            }
+        }
+        WeatherProviderRouter router = router(WeatherProviderRouter.Strategy.RACE, 0,
+                new TracedProvider("a"), new TracedProvider("b"));
+        RequestTrace trace = RequestTrace.begin("GET /api/weather/10001");
+        StatementCountingInspector.reset();
+
+        router.getForecast("10001", CURRENT);
+        assertTrue(finished.await(5, TimeUnit.SECONDS));
+        CompletedTrace completed = trace.end(200);
+
+        assertEquals(2, StatementCountingInspector.currentCount());
+        assertEquals(Set.of("a", "b"), completed.stages().stream().map(CompletedTrace.Stage::name).collect(Collectors.toSet()));
+        StatementCountingInspector.reset();
+    }
+
+    @Test
+    void race_rethrowsFirstProvidersFailureWhenAllFail() {
+        WeatherProviderRouter router = router(WeatherProviderRouter.Strategy.RACE, 0,
+                new StubProvider("a", 20, new IllegalStateException("a down"), null),
+                new StubProvider("b", 0, new IllegalStateException("b down"), null));
+
+        IllegalStateException failure = assertThrows(IllegalStateException.class, () -> router.getForecast("10001", CURRENT));
+        assertEquals("a down", failure.getMessage());
+    }
+}
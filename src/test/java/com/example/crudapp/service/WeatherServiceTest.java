@@ -0,0 +1,182 @@
+package com.example.crudapp.service;
+
+import com.example.crudapp.dto.weather.ForecastPart;
+import com.example.crudapp.dto.weather.WeatherForecastDto;
+import com.example.crudapp.exception.BulkheadFullException;
+import com.example.crudapp.exception.ConcurrencyLimitExceededException;
+import com.example.crudapp.resilience.AdaptiveConcurrencyLimiter;
+import com.example.crudapp.resilience.Bulkhead;
+import com.example.crudapp.resilience.RequestHedger;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.client.MockRestServiceServer;
+import org.springframework.web.client.RestTemplate;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.EnumSet;
+import java.util.List;
+
+import static org.hamcrest.Matchers.startsWith;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.queryParam;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.requestTo;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withSuccess;
+
+public class WeatherServiceTest {
+
+    private static final String GEOCODING_URL = "http://api.openweathermap.org/geo/1.0/zip";
+    private static final String ONE_CALL_URL = "https://api.openweathermap.org/data/3.0/onecall";
+    private static final String GEOCODING_RESPONSE = "{\"zip\":\"10001\",\"name\":\"New York\",\"lat\":40.75,\"lon\":-73.99,\"country\":\"US\"}";
+    private static final String CURRENT_JSON = "\"current\":{\"dt\":1767225600,\"temp\":3.5,\"feels_like\":0.2,\"humidity\":80,\"wind_speed\":4.1,\"weather\":[{\"main\":\"Clouds\",\"description\":\"overcast clouds\"}]}";
+    private static final String HOURLY_JSON = "\"hourly\":[{\"dt\":1767225600,\"temp\":3.5,\"pop\":0.2,\"weather\":[{\"description\":\"overcast clouds\"}]}]";
+    private static final String DAILY_JSON = "\"daily\":[{\"dt\":1767268800,\"temp\":{\"min\":1.0,\"max\":5.0},\"pop\":0.4,\"weather\":[{\"description\":\"light rain\"}]}]";
+
+    private static final Clock CLOCK = Clock.fixed(Instant.parse("2026-01-01T00:00:00Z"), ZoneOffset.UTC);
+
+    private MockRestServiceServer server;
+    private ForecastPartCache cache;
+    private AdaptiveConcurrencyLimiter limiter;
+    private Bulkhead bulkhead;
+    private WeatherService weatherService;
+
+    @BeforeEach
+    void setUp() {
+        RestTemplate restTemplate = new RestTemplate();
+        server = MockRestServiceServer.bindTo(restTemplate).build();
+        cache = new ForecastPartCache(CLOCK, 100, 600, 1800, 10800);
+        limiter = new AdaptiveConcurrencyLimiter("weather.concurrency", new SimpleMeterRegistry(), 1, 1, 1, 2000, 0.9);
+        bulkhead = new Bulkhead("weather.bulkhead", new SimpleMeterRegistry(), 1, 0, 0, Bulkhead.RejectionPolicy.ABORT, 0);
+        ForecastGrid grid = new ForecastGrid(CLOCK, new SimpleMeterRegistry(), false, 0.1, List.of(), 100, 600, 1800, 10800);
+        weatherService = weatherService(restTemplate, grid);
+    }
+
+    private WeatherService weatherService(RestTemplate restTemplate, ForecastGrid grid) {
+        RequestHedger hedger = new RequestHedger("weather.hedging", new SimpleMeterRegistry(), null, false, 0.9, 50, 10, 200);
+        OpenWeatherMapProvider provider = new OpenWeatherMapProvider(restTemplate, hedger, grid, "test-key");
+        WeatherProviderRouter router = new WeatherProviderRouter(List.of(provider), new SimpleMeterRegistry(),
+                WeatherProviderRouter.Strategy.FASTEST, 20, null);
+        return new WeatherService(cache, router, limiter, bulkhead);
+    }
+
+    private void expectGeocoding() {
+        server.expect(requestTo(startsWith(GEOCODING_URL)))
+                .andRespond(withSuccess(GEOCODING_RESPONSE, MediaType.APPLICATION_JSON));
+    }
+
+    private void expectOneCall(String exclude, String body) {
+        server.expect(requestTo(startsWith(ONE_CALL_URL)))
+                .andExpect(queryParam("exclude", exclude))
+                .andRespond(withSuccess(body, MediaType.APPLICATION_JSON));
+    }
+
+    @Test
+    void getForecast_fetchesAllRequestedPartsInOneCall() {
+        expectGeocoding();
+        expectOneCall("minutely,alerts,daily", "{" + CURRENT_JSON + "," + HOURLY_JSON + "}");
+
+        WeatherForecastDto forecast = weatherService.getForecast("10001", EnumSet.of(ForecastPart.CURRENT, ForecastPart.HOURLY));
+
+        server.verify();
+        assertEquals(3.5, forecast.getCurrent().getTemperature());
+        assertEquals("overcast clouds", forecast.getCurrent().getWeatherDescription());
+        assertEquals("2026-01-01T00:00:00Z", forecast.getCurrent().getTime());
+        assertEquals(1, forecast.getHourly().size());
+        assertNull(forecast.getDaily());
+    }
+
+    @Test
+    void getForecast_fetchesOnlyPartsMissingFromCache() {
+        expectGeocoding();
+        expectOneCall("minutely,alerts,current,hourly", "{" + DAILY_JSON + "}");
+        weatherService.getSevenDayForecast("10001");
+        server.verify();
+        server.reset();
+
+        expectGeocoding();
+        expectOneCall("minutely,alerts,hourly,daily", "{" + CURRENT_JSON + "}");
+        WeatherForecastDto forecast = weatherService.getForecast("10001", EnumSet.of(ForecastPart.CURRENT, ForecastPart.DAILY));
+
+        server.verify();
+        assertNotNull(forecast.getCurrent());
+        assertEquals("light rain", forecast.getDaily().get(0).getWeatherDescription());
+    }
+
+    @Test
+    void getForecast_servesFullyCachedRequestWithoutUpstreamCalls() {
+        expectGeocoding();
+        expectOneCall("minutely,alerts,current,hourly", "{" + DAILY_JSON + "}");
+        weatherService.getSevenDayForecast("10001");
+        server.verify();
+        server.reset();
+
+        assertEquals(1, weatherService.getSevenDayForecast("10001").size());
+        server.verify();
+    }
+
+    @Test
+    void getForecast_doesNotCacheEmptyParts() {
+        expectGeocoding();
+        expectOneCall("minutely,alerts,current,hourly", "{}");
+        assertTrue(weatherService.getSevenDayForecast("10001").isEmpty());
+
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void getForecast_rejectsUpstreamRequestWhenConcurrencyLimitIsReached() {
+        AdaptiveConcurrencyLimiter.Permit held = limiter.tryAcquire();
+
+        assertThrows(ConcurrencyLimitExceededException.class, () -> weatherService.getSevenDayForecast("10001"));
+
+        server.verify();
+        assertEquals(1, limiter.getRejectedCount());
+        held.onIgnore();
+    }
+
+    @Test
+    void getForecast_rejectsUpstreamRequestWhenBulkheadIsFull() {
+        Bulkhead.Permit held = bulkhead.acquire();
+
+        assertThrows(BulkheadFullException.class, () -> weatherService.getSevenDayForecast("10001"));
+
+        server.verify();
+        assertEquals(0, limiter.getInFlight());
+        held.close();
+    }
+
+    @Test
+    void getForecast_servesCacheHitsEvenWhenConcurrencyLimitIsReached() {
+        expectGeocoding();
+        expectOneCall("minutely,alerts,current,hourly", "{" + DAILY_JSON + "}");
+        weatherService.getSevenDayForecast("10001");
+        AdaptiveConcurrencyLimiter.Permit held = limiter.tryAcquire();
+
+        assertEquals(1, weatherService.getSevenDayForecast("10001").size());
+        held.onIgnore();
+    }
+
+    @Test
+    void getForecast_sharesForecastBetweenZipcodesInTheSameGridCell() {
+        RestTemplate restTemplate = new RestTemplate();
+        server = MockRestServiceServer.bindTo(restTemplate).build();
+        ForecastGrid grid = new ForecastGrid(CLOCK, new SimpleMeterRegistry(), true, 0.1, List.of(), 100, 600, 1800, 10800);
+        weatherService = weatherService(restTemplate, grid);
+        expectGeocoding();
+        server.expect(requestTo(startsWith(ONE_CALL_URL)))
+                .andExpect(queryParam("lat", "40.75")) // the centre of the cell, not the zipcode
+                .andExpect(queryParam("lon", "-73.95"))
+                .andRespond(withSuccess("{" + DAILY_JSON + "}", MediaType.APPLICATION_JSON));
+        server.expect(requestTo(startsWith(GEOCODING_URL)))
+                .andRespond(withSuccess("{\"zip\":\"10018\",\"lat\":40.7549,\"lon\":-73.9925,\"country\":\"US\"}", MediaType.APPLICATION_JSON));
+
+        weatherService.getSevenDayForecast("10001");
+        assertEquals("light rain", weatherService.getSevenDayForecast("10018").get(0).getWeatherDescription());
+
+        server.verify(); // a single One Call request for both zipcodes
+        assertEquals(0.5, grid.getHitRate(0.1));
+    }
+}
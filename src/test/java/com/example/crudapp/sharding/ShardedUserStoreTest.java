@@ -0,0 +1,89 @@
+package com.example.crudapp.sharding;
+
+import com.example.crudapp.dto.user.UserNameView;
+import com.example.crudapp.model.User;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ShardedUserStoreTest {
+
+    private ShardedUserStore store;
+
+    @BeforeEach
+    void setUp() {
+        store = new ShardedUserStore(true, 4, 0);
+    }
+
+    @AfterEach
+    void tearDown() {
+        store.shutdown();
+    }
+
+    @Test
+    void crudOperations_routeToOwningShard() {
+        User user = store.insert(new User("Test User", "test@example.com"));
+        assertNotNull(user.getId());
+        assertEquals(Optional.of(user), store.findById(user.getId()));
+
+        user.setName("Renamed");
+        assertTrue(store.update(user));
+        assertEquals("Renamed", store.findById(user.getId()).orElseThrow().getName());
+        assertEquals(Optional.of(new UserNameView(user.getId(), "Renamed")), store.findById(user.getId(), UserNameView.class));
+
+        assertTrue(store.delete(user.getId()));
+        assertFalse(store.delete(user.getId()));
+        assertTrue(store.findById(user.getId()).isEmpty());
+    }
+
+    @Test
+    void findAllAndCount_gatherFromAllShards() {
+        Set<Integer> usedShards = new HashSet<>();
+        for (int i = 0; i < 200; i++) {
+            User user = store.insert(new User("User " + i, "user" + i + "@example.com"));
+            usedShards.add(store.shardFor(user.getId()));
+        }
+        assertEquals(4, usedShards.size());
+        assertEquals(200, store.count());
+        assertEquals(200, store.findAll().size());
+        List<UserNameView> names = store.findAll(UserNameView.class);
+        assertEquals(200, names.size());
+        assertNotNull(names.get(0).name());
+
+        store.deleteAll();
+        assertEquals(0, store.count());
+    }
+
+    @Test
+    void writes_commitAndRollBackWithTheCallersTransaction() {
+        SingleConnectionDataSource callerDatabase = new SingleConnectionDataSource("jdbc:h2:mem:caller_" + System.nanoTime(), "sa", "", true);
+        try {
+            TransactionTemplate transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(callerDatabase));
+            User user = transactionTemplate.execute(status -> {
+                User inserted = store.insert(new User("Test User", "test@example.com"));
+                assertTrue(store.findById(inserted.getId()).isEmpty()); // not committed yet
+                return inserted;
+            });
+            assertTrue(store.findById(user.getId()).isPresent());
+
+            transactionTemplate.executeWithoutResult(status -> {
+                assertTrue(store.update(new User(user.getId(), "Renamed", "test@example.com")));
+                assertTrue(store.delete(user.getId())); // same shard connection, so no lock wait
+                status.setRollbackOnly();
+            });
+            assertEquals(Optional.of(user), store.findById(user.getId()));
+        } finally {
+            callerDatabase.destroy();
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package com.example.crudapp.sharding;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SnowflakeIdGeneratorTest {
+
+    private static final Clock FIXED_CLOCK = Clock.fixed(Instant.parse("2026-01-01T00:00:00Z"), ZoneOffset.UTC);
+
+    @Test
+    void nextId_isIncreasingAndJavaScriptSafe_evenWhenSequenceOverflows() {
+        SnowflakeIdGenerator generator = new SnowflakeIdGenerator(FIXED_CLOCK, 3);
+        long previous = -1;
+        for (int i = 0; i < 2000; i++) { // far more than 256 IDs in the same millisecond
+            long id = generator.nextId();
+            assertTrue(id > previous);
+            assertTrue(id < (1L << 53));
+            previous = id;
+        }
+    }
+
+    @Test
+    void nextId_differentNodes_neverCollide() {
+        SnowflakeIdGenerator node0 = new SnowflakeIdGenerator(FIXED_CLOCK, 0);
+        SnowflakeIdGenerator node1 = new SnowflakeIdGenerator(FIXED_CLOCK, 1);
+        Set<Long> ids = new HashSet<>();
+        for (int i = 0; i < 1000; i++) {
+            assertTrue(ids.add(node0.nextId()));
+            assertTrue(ids.add(node1.nextId()));
+        }
+    }
+
+    @Test
+    void constructor_nodeIdOutOfRange_throwsIllegalArgumentException() {
+        assertThrows(IllegalArgumentException.class, () -> new SnowflakeIdGenerator(FIXED_CLOCK, SnowflakeIdGenerator.MAX_NODE_ID + 1));
+    }
+}
@@ -0,0 +1,85 @@
+package com.example.crudapp.tracing;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TraceBufferTest {
+
+    private static CompletedTrace trace(String name, long durationMicros) {
+        return new CompletedTrace(name, 200, 0, durationMicros, List.of(), 0);
+    }
+
+    @Test
+    void recent_returnsNewestFirstAndOverwritesOldest() {
+        TraceBuffer buffer = new TraceBuffer(3, 2);
+        for (int i = 1; i <= 5; i++) {
+            buffer.record(trace("t" + i, i));
+        }
+
+        assertEquals(List.of("t5", "t4", "t3"), buffer.recent().stream().map(CompletedTrace::name).toList());
+        assertEquals(5, buffer.getRecordedCount());
+    }
+
+    @Test
+    void slowest_keepsSlowestTracesSlowestFirst() {
+        TraceBuffer buffer = new TraceBuffer(2, 3);
+        long[] durations = {50, 10, 90, 20, 70, 30};
+        for (long duration : durations) {
+            buffer.record(trace("t" + duration, duration));
+        }
+
+        assertEquals(List.of(90L, 70L, 50L), buffer.slowest().stream().map(CompletedTrace::durationMicros).toList());
+    }
+
+    @Test
+    void clear_removesAllTraces() {
+        TraceBuffer buffer = new TraceBuffer(4, 2);
+        buffer.record(trace("t", 5));
+        buffer.clear();
+
+        assertTrue(buffer.recent().isEmpty());
+        assertTrue(buffer.slowest().isEmpty());
+        buffer.record(trace("u", 1));
+        assertEquals(1, buffer.slowest().size());
+    }
+
+    @Test
+    void requestTrace_recordsNestedSpans() {
+        RequestTrace trace = RequestTrace.begin("GET /api/weather/10001");
+        try (RequestTrace.Span outer = RequestTrace.span("outer")) {
+            try (RequestTrace.Span inner = RequestTrace.span("inner")) {
+                assertTrue(RequestTrace.isActive());
+            }
+        }
+        CompletedTrace completed = trace.end(200);
+
+        assertFalse(RequestTrace.isActive());
+        assertEquals(2, completed.stages().size());
+        assertEquals("outer", completed.stages().get(0).name());
+        assertEquals(0, completed.stages().get(0).depth());
+        assertEquals(1, completed.stages().get(1).depth());
+        assertTrue(completed.stages().get(0).durationMicros() >= completed.stages().get(1).durationMicros());
+    }
+
+    @Test
+    void requestTrace_spanOutsideTraceIsNoOp() {
+        try (RequestTrace.Span span = RequestTrace.span("untraced")) {
+            assertFalse(RequestTrace.isActive());
+        }
+    }
+
+    @Test
+    void requestTrace_dropsSpansBeyondLimit() {
+        RequestTrace trace = RequestTrace.begin("GET /api/users");
+        for (int i = 0; i < RequestTrace.MAX_SPANS + 5; i++) {
+            RequestTrace.span("stage").close();
+        }
+        CompletedTrace completed = trace.end(200);
+
+        assertEquals(RequestTrace.MAX_SPANS, completed.stages().size());
+        assertEquals(5, completed.droppedSpans());
+    }
+}
@@ -0,0 +1,52 @@
+package com.example.crudapp.tracing;
+
+import com.example.crudapp.model.User;
+import com.example.crudapp.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.hasItem;
+import static org.hamcrest.Matchers.is;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+public class TracesEndpointIntegrationTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @AfterEach
+    void tearDown() {
+        userRepository.deleteAll();
+    }
+
+    @Test
+    void testUserRequestIsTracedWithServiceAndRepositoryStages() throws Exception {
+        User user = userRepository.save(new User("Traced User", "traced@example.com"));
+        mockMvc.perform(delete("/actuator/traces")).andExpect(status().isNoContent());
+
+        mockMvc.perform(get("/api/users/" + user.getId())).andExpect(status().isOk());
+
+        mockMvc.perform(get("/actuator/traces"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.recordedCount", greaterThanOrEqualTo(1)))
+                .andExpect(jsonPath("$.recent[0].name", is("GET /api/users/" + user.getId())))
+                .andExpect(jsonPath("$.recent[0].status", is(200)))
+                .andExpect(jsonPath("$.recent[0].stages[0].name", is("UserService.getUserById")))
+                .andExpect(jsonPath("$.recent[0].stages[*].name", hasItem("UserRepository.findById")))
+                .andExpect(jsonPath("$.slowest[0].name", is("GET /api/users/" + user.getId())))
+                .andExpect(jsonPath("$.stages['UserService.getUserById'].count", is(1)));
+    }
+}